@@ -38,6 +38,7 @@ import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.resources.status.OCCapability;
 import com.owncloud.android.operations.CreateFolderOperation;
 import com.owncloud.android.operations.UploadFileOperation;
+import com.owncloud.android.ui.fragment.OCFileListFragment;
 import com.owncloud.android.utils.FileStorageUtils;
 
 import junit.framework.TestCase;
@@ -54,6 +55,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
 import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import androidx.annotation.NonNull;
 import androidx.fragment.app.DialogFragment;
@@ -75,6 +78,8 @@ import static org.junit.Assert.assertTrue;
  */
 
 public abstract class AbstractIT {
+    private static final long LISTING_TIMEOUT_S = 30;
+
     @Rule
     public final TestRule permissionRule = GrantStoragePermissionRule.grant();
 
@@ -273,6 +278,21 @@ public abstract class AbstractIT {
         InstrumentationRegistry.getInstrumentation().waitForIdleSync();
     }
 
+    /**
+     * Waits until the folder content requested so far is shown by the fragment, as it is listed in the background.
+     */
+    protected void waitForListing(OCFileListFragment fragment) {
+        CountDownLatch listed = new CountDownLatch(1);
+        fragment.getAdapter().runWhenListed(listed::countDown);
+        try {
+            assertTrue("Folder content not listed", listed.await(LISTING_TIMEOUT_S, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(e);
+        }
+        waitForIdleSync();
+    }
+
     protected void openDrawer(IntentsTestRule activityRule) {
         Activity sut = activityRule.launchActivity(null);
 
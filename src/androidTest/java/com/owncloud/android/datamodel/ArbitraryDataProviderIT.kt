@@ -23,6 +23,7 @@ package com.owncloud.android.datamodel
 
 import com.owncloud.android.AbstractIT
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
 import org.junit.Test
 
 class ArbitraryDataProviderIT : AbstractIT() {
@@ -75,4 +76,30 @@ class ArbitraryDataProviderIT : AbstractIT() {
         arbitraryDataProvider.storeOrUpdateKeyValue(user.accountName, key, value.toString())
         assertEquals(value, arbitraryDataProvider.getIntegerValue(user.accountName, key))
     }
+
+    @Test
+    fun testBulk() {
+        val values = mapOf("DUMMY_KEY_1" to "1", "DUMMY_KEY_2" to "", "DUMMY_KEY_3" to "3")
+        arbitraryDataProvider.storeOrUpdateKeyValue(user.accountName, "DUMMY_KEY_1", "old")
+        assertTrue(arbitraryDataProvider.storeAll(user.accountName, values))
+
+        assertEquals(values, arbitraryDataProvider.getValues(user.accountName, values.keys))
+        assertEquals("", arbitraryDataProvider.getValue(user.accountName, "DUMMY_KEY_4"))
+
+        // values are read from the database when not cached
+        ArbitraryDataProvider.invalidateCache()
+        val result = arbitraryDataProvider.getValues(user.accountName, values.keys + "DUMMY_KEY_4")
+        assertEquals(values + ("DUMMY_KEY_4" to ""), result)
+    }
+
+    @Test
+    fun testDelete() {
+        val key = "DUMMY_KEY"
+        arbitraryDataProvider.storeOrUpdateKeyValue(user.accountName, key, "123")
+        arbitraryDataProvider.deleteKeyForAccount(user.accountName, key)
+        assertEquals("", arbitraryDataProvider.getValue(user.accountName, key))
+
+        ArbitraryDataProvider.invalidateCache()
+        assertEquals("", arbitraryDataProvider.getValue(user.accountName, key))
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ *
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel
+
+import com.owncloud.android.AbstractIT
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Test
+
+class DecryptedFolderMetadataCacheIT : AbstractIT() {
+
+    private val folder = OCFile("/encrypted/", "00000123ocabcdefgh").apply { etag = "etag1" }
+
+    @After
+    fun tearDown() {
+        DecryptedFolderMetadataCache.invalidate(targetContext, account.name, folder.localId)
+    }
+
+    @Test
+    fun cachedForSameEtag() {
+        val metadata = createMetadata()
+        DecryptedFolderMetadataCache.put(targetContext, account.name, folder, metadata)
+
+        assertSame(metadata, DecryptedFolderMetadataCache.get(targetContext, account.name, folder))
+    }
+
+    @Test
+    fun readFromDisk() {
+        DecryptedFolderMetadataCache.put(targetContext, account.name, folder, createMetadata())
+        DecryptedFolderMetadataCache.clearMemory()
+
+        val metadata = DecryptedFolderMetadataCache.get(targetContext, account.name, folder)
+        assertEquals("file.txt", metadata?.files?.get("encryptedName")?.encrypted?.filename)
+        assertEquals("key", metadata?.metadata?.metadataKeys?.get(0))
+    }
+
+    @Test
+    fun droppedWhenEtagChanged() {
+        DecryptedFolderMetadataCache.put(targetContext, account.name, folder, createMetadata())
+        folder.etag = "etag2"
+
+        assertNull(DecryptedFolderMetadataCache.get(targetContext, account.name, folder))
+
+        // also dropped from disk
+        folder.etag = "etag1"
+        DecryptedFolderMetadataCache.clearMemory()
+        assertNull(DecryptedFolderMetadataCache.get(targetContext, account.name, folder))
+    }
+
+    @Test
+    fun invalidate() {
+        DecryptedFolderMetadataCache.put(targetContext, account.name, folder, createMetadata())
+        DecryptedFolderMetadataCache.invalidate(targetContext, account.name, folder.localId)
+
+        assertNull(DecryptedFolderMetadataCache.get(targetContext, account.name, folder))
+    }
+
+    private fun createMetadata(): DecryptedFolderMetadata {
+        val data = DecryptedFolderMetadata.Data().apply { filename = "file.txt" }
+        val file = DecryptedFolderMetadata.DecryptedFile().apply { encrypted = data }
+        val metadata = DecryptedFolderMetadata()
+        metadata.metadata.metadataKeys = hashMapOf(0 to "key")
+        metadata.files["encryptedName"] = file
+        return metadata
+    }
+}
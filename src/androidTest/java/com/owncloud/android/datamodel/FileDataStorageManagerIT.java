@@ -350,6 +350,50 @@ abstract public class FileDataStorageManagerIT extends AbstractOnServerIT {
         sut.saveNewFile(newFile);
     }
 
+    @Test
+    public void testSaveFolderDiff() {
+        OCFile root = sut.getFileByDecryptedRemotePath("/");
+
+        OCFile unchanged = new OCFile("/unchanged.txt");
+        unchanged.setRemoteId("1");
+        unchanged.setEtag("a");
+        OCFile changed = new OCFile("/changed.txt");
+        changed.setRemoteId("2");
+        changed.setEtag("a");
+
+        List<OCFile> files = new ArrayList<>();
+        files.add(unchanged);
+        files.add(changed);
+        sut.saveFolder(root, files, new ArrayList<>());
+
+        assertEquals(2, sut.getFolderContent(root, false).size());
+        long unchangedId = sut.getFileByDecryptedRemotePath("/unchanged.txt").getFileId();
+        long changedId = sut.getFileByDecryptedRemotePath("/changed.txt").getFileId();
+
+        // second refresh: same content fetched again from server, without local ids
+        OCFile unchangedAgain = new OCFile("/unchanged.txt");
+        unchangedAgain.setRemoteId("1");
+        unchangedAgain.setEtag("a");
+        OCFile changedAgain = new OCFile("/changed.txt");
+        changedAgain.setRemoteId("2");
+        changedAgain.setEtag("b");
+        OCFile added = new OCFile("/added.txt");
+        added.setRemoteId("3");
+
+        files.clear();
+        files.add(unchangedAgain);
+        files.add(changedAgain);
+        files.add(added);
+        sut.saveFolder(root, files, new ArrayList<>());
+
+        assertEquals(3, sut.getFolderContent(root, false).size());
+        assertEquals(unchangedId, unchangedAgain.getFileId());
+        assertEquals(unchangedId, sut.getFileByDecryptedRemotePath("/unchanged.txt").getFileId());
+        assertEquals(changedId, sut.getFileByDecryptedRemotePath("/changed.txt").getFileId());
+        assertEquals("b", sut.getFileByDecryptedRemotePath("/changed.txt").getEtag());
+        assertEquals(sut.getFileByDecryptedRemotePath("/added.txt").getFileId(), added.getFileId());
+    }
+
     @Test
     public void testOCCapability() {
         OCCapability capability = new OCCapability();
@@ -0,0 +1,239 @@
+/*
+ *
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel
+
+import com.owncloud.android.AbstractIT
+import com.owncloud.android.files.services.FileUploader
+import com.owncloud.android.files.services.NameCollisionPolicy
+import com.owncloud.android.lib.common.utils.Log_OC
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Test
+import java.io.BufferedInputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.RandomAccessFile
+import java.util.Random
+import java.util.concurrent.TimeUnit
+import java.util.zip.CRC32
+
+/**
+ * Benchmark: checksums computed while indexing a synthetic 5 GB auto upload folder.
+ */
+class FilesystemDataProviderChecksumIT : AbstractIT() {
+
+    companion object {
+        private const val TAG = "FilesystemDataProviderChecksumIT"
+        private const val MB = 1024L * 1024L
+        private const val TREE_FOLDERS = 10
+        private const val FILES_PER_FOLDER = 10
+        private const val FILE_SIZE = 50 * MB // 100 files * 50 MB = 5 GB
+        private const val SAMPLE_SIZE = 16 * MB
+        private const val SYNCED_FOLDER_ID = 4711L
+        private const val TRUSTING_SYNCED_FOLDER_ID = 4714L
+    }
+
+    private val root = File(targetContext.cacheDir, "checksumBenchmark")
+    private val filesystemDataProvider by lazy { FilesystemDataProvider(targetContext.contentResolver) }
+
+    @After
+    fun cleanUp() {
+        root.deleteRecursively()
+        filesystemDataProvider.deleteAllEntriesForSyncedFolder(SYNCED_FOLDER_ID.toString())
+        filesystemDataProvider.deleteAllEntriesForSyncedFolder(TRUSTING_SYNCED_FOLDER_ID.toString())
+    }
+
+    @Test
+    fun checksumMatchesReference() {
+        root.mkdirs()
+        val file = File(root, "random.bin")
+        val content = ByteArray((3 * MB + 17).toInt())
+        Random(1).nextBytes(content)
+        file.writeBytes(content)
+
+        val reference = CRC32()
+        reference.update(content)
+
+        assertEquals(reference.value, filesystemDataProvider.getFileChecksum(file.absolutePath))
+        // buffer and CRC32 instance are reused, second run must not depend on the first one
+        assertEquals(reference.value, filesystemDataProvider.getFileChecksum(file.absolutePath))
+        assertEquals(-1L, filesystemDataProvider.getFileChecksum(File(root, "missing").absolutePath))
+    }
+
+    @Test
+    fun checksumTree() {
+        assumeTrue("not enough space for benchmark", targetContext.cacheDir.usableSpace > 2 * totalSize())
+        val checksums = createTree()
+        val files = checksums.keys.toList()
+
+        // previous implementation: one read() call per byte, measured on a sample and extrapolated
+        var start = System.nanoTime()
+        BufferedInputStream(FileInputStream(files[0])).use { inputStream ->
+            val crc = CRC32()
+            var read = 0L
+            while (read < SAMPLE_SIZE) {
+                crc.update(inputStream.read())
+                read++
+            }
+        }
+        val perByteMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) * (totalSize() / SAMPLE_SIZE)
+
+        start = System.nanoTime()
+        for (file in files) {
+            filesystemDataProvider.getFileChecksum(file.absolutePath)
+        }
+        val bufferedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        val syncedFolder = createSyncedFolder(SYNCED_FOLDER_ID)
+        start = System.nanoTime()
+        for (file in files) {
+            filesystemDataProvider.storeOrUpdateFileValue(file.absolutePath, file.lastModified(), false, syncedFolder)
+        }
+        val indexMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        val trustingProvider = FilesystemDataProvider(targetContext.contentResolver, true)
+        val trustingFolder = createSyncedFolder(TRUSTING_SYNCED_FOLDER_ID)
+        start = System.nanoTime()
+        for (file in files) {
+            trustingProvider.storeOrUpdateFileValue(file.absolutePath, file.lastModified(), false, trustingFolder)
+        }
+        val trustedIndexMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        Log_OC.d(
+            TAG,
+            "${totalSize() / MB} MB in ${files.size} files, per byte (extrapolated): $perByteMs ms, " +
+                "buffered: $bufferedMs ms, indexing: $indexMs ms, indexing trusting metadata: $trustedIndexMs ms"
+        )
+
+        assertTrue("buffered: $bufferedMs ms, per byte: $perByteMs ms", bufferedMs < perByteMs)
+        for ((file, checksum) in checksums) {
+            val dataSet = filesystemDataProvider.getFilesystemDataSet(file.absolutePath, syncedFolder)
+            assertEquals(checksum.toString(), dataSet?.crc32)
+        }
+    }
+
+    @Test
+    fun unchangedFilesAreNotHashedAgain() {
+        root.mkdirs()
+        val syncedFolder = createSyncedFolder(SYNCED_FOLDER_ID)
+        val file = File(root, "image.jpg")
+        file.writeText("original")
+        val modified = file.lastModified()
+        filesystemDataProvider.storeOrUpdateFileValue(file.absolutePath, modified, false, syncedFolder)
+        filesystemDataProvider.updateFilesystemFileAsSentForUpload(file.absolutePath, SYNCED_FOLDER_ID.toString())
+
+        // same size and modification time: trusted, so the new content is not hashed
+        file.writeText("modified")
+        filesystemDataProvider.storeOrUpdateFileValue(file.absolutePath, modified, false, syncedFolder)
+        assertEquals(checksum("original"), getStoredChecksum(file, syncedFolder))
+        assertTrue(filesystemDataProvider.getFilesForUpload(root.absolutePath, SYNCED_FOLDER_ID.toString()).isEmpty())
+
+        // other size, same modification time: hashed again
+        file.writeText("modified again")
+        filesystemDataProvider.storeOrUpdateFileValue(file.absolutePath, modified, false, syncedFolder)
+        assertEquals(checksum("modified again"), getStoredChecksum(file, syncedFolder))
+        assertEquals(
+            setOf(file.absolutePath),
+            filesystemDataProvider.getFilesForUpload(root.absolutePath, SYNCED_FOLDER_ID.toString())
+        )
+    }
+
+    @Test
+    fun trustingMetadataOnlyHashesChangedFiles() {
+        root.mkdirs()
+        val trustingProvider = FilesystemDataProvider(targetContext.contentResolver, true)
+        val syncedFolder = createSyncedFolder(TRUSTING_SYNCED_FOLDER_ID)
+        val file = File(root, "image.jpg")
+        file.writeText("original")
+        val modified = file.lastModified()
+
+        trustingProvider.storeOrUpdateFileValue(file.absolutePath, modified, false, syncedFolder)
+        assertNull(getStoredChecksum(file, syncedFolder))
+
+        trustingProvider.storeOrUpdateFileValue(file.absolutePath, modified, false, syncedFolder)
+        assertNull(getStoredChecksum(file, syncedFolder))
+
+        file.writeText("modified content")
+        trustingProvider.storeOrUpdateFileValue(file.absolutePath, modified + 1000, false, syncedFolder)
+        assertEquals(checksum("modified content"), getStoredChecksum(file, syncedFolder))
+    }
+
+    private fun getStoredChecksum(file: File, syncedFolder: SyncedFolder): String? {
+        return filesystemDataProvider.getFilesystemDataSet(file.absolutePath, syncedFolder)?.crc32
+    }
+
+    private fun checksum(content: String): String {
+        val crc = CRC32()
+        crc.update(content.toByteArray())
+        return crc.value.toString()
+    }
+
+    private fun totalSize() = TREE_FOLDERS * FILES_PER_FOLDER * FILE_SIZE
+
+    /**
+     * @return reference checksums of the created files
+     */
+    private fun createTree(): Map<File, Long> {
+        val files = LinkedHashMap<File, Long>()
+        val block = ByteArray(MB.toInt())
+        val random = Random(1)
+        for (i in 0 until TREE_FOLDERS) {
+            val folder = File(root, "folder$i")
+            folder.mkdirs()
+            for (j in 0 until FILES_PER_FOLDER) {
+                val file = File(folder, "video$j.mp4")
+                val crc = CRC32()
+                RandomAccessFile(file, "rw").use { raf ->
+                    var written = 0L
+                    while (written < FILE_SIZE) {
+                        random.nextBytes(block)
+                        raf.write(block)
+                        crc.update(block)
+                        written += block.size
+                    }
+                }
+                files[file] = crc.value
+            }
+        }
+        return files
+    }
+
+    private fun createSyncedFolder(id: Long): SyncedFolder {
+        return SyncedFolder(
+            id,
+            root.absolutePath,
+            "/benchmark",
+            true,
+            false,
+            true,
+            false,
+            account.name,
+            FileUploader.LOCAL_BEHAVIOUR_FORGET,
+            NameCollisionPolicy.ASK_USER.serialize(),
+            true,
+            0L,
+            MediaFolderType.CUSTOM,
+            false
+        )
+    }
+}
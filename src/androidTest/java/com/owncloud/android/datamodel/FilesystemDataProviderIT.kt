@@ -0,0 +1,142 @@
+/*
+ *
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel
+
+import com.owncloud.android.AbstractIT
+import com.owncloud.android.files.services.FileUploader
+import com.owncloud.android.files.services.NameCollisionPolicy
+import com.owncloud.android.lib.common.utils.Log_OC
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+class FilesystemDataProviderIT : AbstractIT() {
+
+    companion object {
+        private const val TAG = "FilesystemDataProviderIT"
+        private const val FILES = 2_000
+        private const val SINGLE_FOLDER_ID = 4712L
+        private const val BATCH_FOLDER_ID = 4713L
+    }
+
+    private val root = File(targetContext.cacheDir, "filesystemDataProviderIT")
+    private val filesystemDataProvider by lazy { FilesystemDataProvider(targetContext.contentResolver) }
+    private lateinit var files: List<File>
+
+    @Before
+    fun createFiles() {
+        root.mkdirs()
+        files = (0 until FILES).map { i ->
+            val file = File(root, "image$i.jpg")
+            file.writeText("content $i")
+            file
+        }
+    }
+
+    @After
+    fun cleanUp() {
+        root.deleteRecursively()
+        filesystemDataProvider.deleteAllEntriesForSyncedFolder(SINGLE_FOLDER_ID.toString())
+        filesystemDataProvider.deleteAllEntriesForSyncedFolder(BATCH_FOLDER_ID.toString())
+    }
+
+    @Test
+    fun batchIndexerMatchesSingleUpdates() {
+        val singleFolder = createSyncedFolder(SINGLE_FOLDER_ID)
+        val batchFolder = createSyncedFolder(BATCH_FOLDER_ID)
+
+        var start = System.nanoTime()
+        for (file in files) {
+            filesystemDataProvider.storeOrUpdateFileValue(file.absolutePath, file.lastModified(), false, singleFolder)
+        }
+        val singleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        start = System.nanoTime()
+        val indexer = filesystemDataProvider.createBatchIndexer(batchFolder)
+        for (file in files) {
+            indexer.storeOrUpdateFileValue(file.absolutePath, file.lastModified(), false)
+        }
+        indexer.flush()
+        val batchMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        Log_OC.d(TAG, "$FILES files, single updates: $singleMs ms, batch indexer: $batchMs ms")
+
+        assertEquals(
+            filesystemDataProvider.getFilesForUpload(root.absolutePath, SINGLE_FOLDER_ID.toString()),
+            filesystemDataProvider.getFilesForUpload(root.absolutePath, BATCH_FOLDER_ID.toString())
+        )
+        assertEquals(FILES, filesystemDataProvider.getFilesForUpload(root.absolutePath, BATCH_FOLDER_ID.toString()).size)
+    }
+
+    @Test
+    fun batchIndexerUpdatesChangedFiles() {
+        val syncedFolder = createSyncedFolder(BATCH_FOLDER_ID)
+        var indexer = filesystemDataProvider.createBatchIndexer(syncedFolder)
+        for (file in files) {
+            indexer.storeOrUpdateFileValue(file.absolutePath, file.lastModified(), false)
+        }
+        indexer.flush()
+
+        for (file in files) {
+            filesystemDataProvider.updateFilesystemFileAsSentForUpload(file.absolutePath, BATCH_FOLDER_ID.toString())
+        }
+        assertTrue(filesystemDataProvider.getFilesForUpload(root.absolutePath, BATCH_FOLDER_ID.toString()).isEmpty())
+
+        val changed = files[0]
+        changed.writeText("changed content")
+        val touched = files[1]
+
+        indexer = filesystemDataProvider.createBatchIndexer(syncedFolder)
+        for (file in files) {
+            // touched file gets a new modification time, but same content
+            val modified = if (file == changed || file == touched) file.lastModified() + 1000 else file.lastModified()
+            indexer.storeOrUpdateFileValue(file.absolutePath, modified, false)
+        }
+        indexer.flush()
+
+        assertEquals(
+            setOf(changed.absolutePath),
+            filesystemDataProvider.getFilesForUpload(root.absolutePath, BATCH_FOLDER_ID.toString())
+        )
+    }
+
+    private fun createSyncedFolder(id: Long): SyncedFolder {
+        return SyncedFolder(
+            id,
+            root.absolutePath,
+            "/indexer",
+            true,
+            false,
+            true,
+            false,
+            account.name,
+            FileUploader.LOCAL_BEHAVIOUR_FORGET,
+            NameCollisionPolicy.ASK_USER.serialize(),
+            true,
+            0L,
+            MediaFolderType.CUSTOM,
+            false
+        )
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel
+
+import android.database.MatrixCursor
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
+import com.owncloud.android.lib.common.utils.Log_OC
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Micro benchmark: materialization of a 10k rows cursor, resolving column indexes once per row (previous behaviour)
+ * vs. once per cursor.
+ */
+class OCFileCursorMapperIT {
+
+    companion object {
+        private const val TAG = "OCFileCursorMapperIT"
+        private const val ROWS = 10_000
+        private const val ACCOUNT = "test@https://nextcloud.localhost"
+        private const val SHAREES = "[{\"userId\":\"admin\",\"displayName\":\"Admin\",\"shareType\":\"USER\"}]"
+
+        private val COLUMNS = arrayOf(
+            ProviderTableMeta._ID,
+            ProviderTableMeta.FILE_PARENT,
+            ProviderTableMeta.FILE_NAME,
+            ProviderTableMeta.FILE_ENCRYPTED_NAME,
+            ProviderTableMeta.FILE_CREATION,
+            ProviderTableMeta.FILE_MODIFIED,
+            ProviderTableMeta.FILE_MODIFIED_AT_LAST_SYNC_FOR_DATA,
+            ProviderTableMeta.FILE_CONTENT_LENGTH,
+            ProviderTableMeta.FILE_CONTENT_TYPE,
+            ProviderTableMeta.FILE_STORAGE_PATH,
+            ProviderTableMeta.FILE_PATH,
+            ProviderTableMeta.FILE_PATH_DECRYPTED,
+            ProviderTableMeta.FILE_ACCOUNT_OWNER,
+            ProviderTableMeta.FILE_LAST_SYNC_DATE,
+            ProviderTableMeta.FILE_LAST_SYNC_DATE_FOR_DATA,
+            ProviderTableMeta.FILE_ETAG,
+            ProviderTableMeta.FILE_ETAG_ON_SERVER,
+            ProviderTableMeta.FILE_SHARED_VIA_LINK,
+            ProviderTableMeta.FILE_SHARED_WITH_SHAREE,
+            ProviderTableMeta.FILE_PERMISSIONS,
+            ProviderTableMeta.FILE_REMOTE_ID,
+            ProviderTableMeta.FILE_UPDATE_THUMBNAIL,
+            ProviderTableMeta.FILE_IS_DOWNLOADING,
+            ProviderTableMeta.FILE_ETAG_IN_CONFLICT,
+            ProviderTableMeta.FILE_FAVORITE,
+            ProviderTableMeta.FILE_IS_ENCRYPTED,
+            ProviderTableMeta.FILE_MOUNT_TYPE,
+            ProviderTableMeta.FILE_HAS_PREVIEW,
+            ProviderTableMeta.FILE_UNREAD_COMMENTS_COUNT,
+            ProviderTableMeta.FILE_OWNER_ID,
+            ProviderTableMeta.FILE_OWNER_DISPLAY_NAME,
+            ProviderTableMeta.FILE_NOTE,
+            ProviderTableMeta.FILE_SHAREES,
+            ProviderTableMeta.FILE_RICH_WORKSPACE
+        )
+    }
+
+    private fun createCursor(): MatrixCursor {
+        val cursor = MatrixCursor(COLUMNS, ROWS)
+        for (i in 0 until ROWS) {
+            cursor.newRow()
+                .add(ProviderTableMeta._ID, i)
+                .add(ProviderTableMeta.FILE_PARENT, 1)
+                .add(ProviderTableMeta.FILE_NAME, "$i.jpg")
+                .add(ProviderTableMeta.FILE_CONTENT_TYPE, "image/jpeg")
+                .add(ProviderTableMeta.FILE_STORAGE_PATH, "/storage/$i.jpg")
+                .add(ProviderTableMeta.FILE_PATH, "/folder/$i.jpg")
+                .add(ProviderTableMeta.FILE_PATH_DECRYPTED, "/folder/$i.jpg")
+                .add(ProviderTableMeta.FILE_ACCOUNT_OWNER, ACCOUNT)
+                .add(ProviderTableMeta.FILE_ETAG, "etag$i")
+                .add(ProviderTableMeta.FILE_REMOTE_ID, "0000$i")
+                .add(ProviderTableMeta.FILE_MOUNT_TYPE, 0)
+                .add(ProviderTableMeta.FILE_SHAREES, if (i % 2 == 0) SHAREES else null)
+        }
+        return cursor
+    }
+
+    @Test
+    fun mapTenThousandRows() {
+        var cursor = createCursor()
+        var start = System.nanoTime()
+        val perRow = ArrayList<OCFile>(ROWS)
+        while (cursor.moveToNext()) {
+            perRow.add(OCFileCursorMapper(cursor, ACCOUNT).map())
+        }
+        val perRowMs = (System.nanoTime() - start) / 1_000_000
+        cursor.close()
+
+        cursor = createCursor()
+        start = System.nanoTime()
+        val perCursor = ArrayList<OCFile>(ROWS)
+        val mapper = OCFileCursorMapper(cursor, ACCOUNT)
+        while (cursor.moveToNext()) {
+            perCursor.add(mapper.map())
+        }
+        val perCursorMs = (System.nanoTime() - start) / 1_000_000
+        cursor.close()
+
+        Log_OC.d(TAG, "$ROWS rows, indexes per row: $perRowMs ms, indexes per cursor: $perCursorMs ms")
+
+        assertEquals(perRow, perCursor)
+        assertEquals(1, perCursor[0].sharees.size)
+        assertEquals(0, perCursor[1].sharees.size)
+    }
+}
@@ -169,6 +169,38 @@ public class UploadStorageManagerTest extends AbstractIT {
         assertNull(newUpload);
     }
 
+    @Test
+    public void getForCurrentAccountByIdsAndLimit() {
+        deleteAllUploads();
+        UploadsStorageManager storageManager = new UploadsStorageManager(() -> user,
+                                                                         targetContext.getContentResolver());
+
+        long[] finishedIds = new long[5];
+        for (int i = 0; i < finishedIds.length; i++) {
+            OCUpload upload = createUpload(account);
+            upload.setUploadStatus(UploadsStorageManager.UploadStatus.UPLOAD_SUCCEEDED);
+            finishedIds[i] = storageManager.storeUpload(upload);
+        }
+        long currentId = storageManager.storeUpload(createUpload(account));
+
+        long[] ids = new long[]{finishedIds[0], currentId};
+        OCUpload[] finished = storageManager.getFinishedUploadsForCurrentAccount(ids);
+        assertEquals(1, finished.length);
+        assertEquals(finishedIds[0], finished[0].getUploadId());
+
+        OCUpload[] current = storageManager.getCurrentAndPendingUploadsForCurrentAccount(ids);
+        assertEquals(1, current.length);
+        assertEquals(currentId, current[0].getUploadId());
+
+        assertEquals(0, storageManager.getFailedButNotDelayedUploadsForCurrentAccount(ids).length);
+
+        // most recent first
+        OCUpload[] page = storageManager.getFinishedUploadsForCurrentAccount(3);
+        assertEquals(3, page.length);
+        assertEquals(finishedIds[4], page[0].getUploadId());
+        assertEquals(5, storageManager.getFinishedUploadsCountForCurrentAccount());
+    }
+
     private void insertUploads(Account account, int rowsToInsert) {
         for (int i = 0; i < rowsToInsert; i++) {
             uploadsStorageManager.storeUpload(createUpload(account));
@@ -0,0 +1,114 @@
+/*
+ *
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.operations;
+
+import com.owncloud.android.AbstractOnServerIT;
+import com.owncloud.android.datamodel.OCFile;
+import com.owncloud.android.db.OCUpload;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+public class BulkFileOperationIT extends AbstractOnServerIT {
+    private static final String SOURCE = "/bulk/source/";
+    private static final String TARGET = "/bulk/target/";
+    private static final int FILES = 10;
+
+    @Test
+    public void moveCopyAndRemoveFiles() throws IOException {
+        assertTrue(new CreateFolderOperation(SOURCE, user, targetContext, getStorageManager()).execute(client)
+                       .isSuccess());
+        assertTrue(new CreateFolderOperation(TARGET, user, targetContext, getStorageManager()).execute(client)
+                       .isSuccess());
+
+        List<OCFile> files = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            String path = SOURCE + i + ".txt";
+            uploadOCUpload(new OCUpload(getDummyFile("/empty.txt").getAbsolutePath(), path, account.name));
+
+            OCFile file = getStorageManager().getFileByPath(path);
+            assertNotNull(file);
+            files.add(file);
+        }
+
+        // move
+        MoveFilesOperation move = new MoveFilesOperation(files, TARGET, user, targetContext, getStorageManager());
+        assertTrue(move.execute(client).isSuccess());
+        assertEquals(FILES, move.getSucceededFiles().size());
+        assertTrue(move.getFailedFiles().isEmpty());
+        for (int i = 0; i < FILES; i++) {
+            assertNull(getStorageManager().getFileByPath(SOURCE + i + ".txt"));
+            assertNotNull(getStorageManager().getFileByPath(TARGET + i + ".txt"));
+        }
+
+        // copy back
+        files.clear();
+        for (int i = 0; i < FILES; i++) {
+            files.add(getStorageManager().getFileByPath(TARGET + i + ".txt"));
+        }
+        CopyFilesOperation copy = new CopyFilesOperation(files, SOURCE, user, targetContext, getStorageManager());
+        assertTrue(copy.execute(client).isSuccess());
+        assertEquals(FILES, copy.getSucceededFiles().size());
+
+        // a folder cannot be moved into itself
+        files.clear();
+        files.add(getStorageManager().getFileByPath(TARGET));
+        MoveFilesOperation invalidMove = new MoveFilesOperation(files, TARGET, user, targetContext,
+                                                                getStorageManager());
+        assertEquals(ResultCode.INVALID_MOVE_INTO_DESCENDANT, invalidMove.execute(client).getCode());
+        assertEquals(1, invalidMove.getFailedFiles().size());
+        assertNotNull(getStorageManager().getFileByPath(TARGET));
+
+        // remove
+        files.clear();
+        files.add(getStorageManager().getFileByPath(SOURCE));
+        files.add(getStorageManager().getFileByPath(TARGET));
+        RemoveFilesOperation remove = new RemoveFilesOperation(files,
+                                                               false,
+                                                               user,
+                                                               false,
+                                                               targetContext,
+                                                               getStorageManager());
+        assertTrue(remove.execute(client).isSuccess());
+        assertNull(getStorageManager().getFileByPath(SOURCE));
+        assertNull(getStorageManager().getFileByPath(TARGET));
+
+        OCFile parentFolder = getStorageManager().getFileByPath("/bulk/");
+        assertNotNull(parentFolder);
+        assertTrue(new RemoveFileOperation(parentFolder,
+                                           false,
+                                           account,
+                                           false,
+                                           targetContext,
+                                           getStorageManager())
+                       .execute(client)
+                       .isSuccess());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.providers
+
+import android.content.ContentProviderOperation
+import com.owncloud.android.AbstractIT
+import com.owncloud.android.MainApp
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
+import com.owncloud.android.lib.common.utils.Log_OC
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * Benchmark: latency of folder listings (as done by the UI) while a large batch is applied in background.
+ */
+class FileContentProviderConcurrencyIT : AbstractIT() {
+
+    companion object {
+        private const val TAG = "FileContentProviderConcurrencyIT"
+        private const val BATCH_SIZE = 10_000
+        private const val TIMEOUT_MINUTES = 5L
+    }
+
+    @After
+    fun cleanUp() {
+        fileDataStorageManager.deleteAllFiles()
+    }
+
+    @Test
+    fun queryLatencyDuringBatch() {
+        val root = fileDataStorageManager.getFileByDecryptedRemotePath("/")
+        val operations = ArrayList<ContentProviderOperation>(BATCH_SIZE)
+        for (i in 0 until BATCH_SIZE) {
+            operations.add(
+                ContentProviderOperation.newInsert(ProviderTableMeta.CONTENT_URI_FILE)
+                    .withValue(ProviderTableMeta.FILE_PATH, "/batch/$i.txt")
+                    .withValue(ProviderTableMeta.FILE_NAME, "$i.txt")
+                    .withValue(ProviderTableMeta.FILE_PARENT, Long.MAX_VALUE)
+                    .withValue(ProviderTableMeta.FILE_ACCOUNT_OWNER, account.name)
+                    .build()
+            )
+        }
+
+        val started = CountDownLatch(1)
+        val finished = CountDownLatch(1)
+        Thread {
+            started.countDown()
+            targetContext.contentResolver.applyBatch(MainApp.getAuthority(), operations)
+            finished.countDown()
+        }.start()
+        started.await()
+
+        val latencies = ArrayList<Long>()
+        while (finished.count > 0) {
+            val start = System.nanoTime()
+            fileDataStorageManager.getFolderContent(root, false)
+            latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+        }
+        assertTrue(finished.await(TIMEOUT_MINUTES, TimeUnit.MINUTES))
+
+        latencies.sort()
+        Log_OC.d(
+            TAG,
+            "queries during batch: ${latencies.size}, " +
+                "median: ${latencies.getOrNull(latencies.size / 2)} ms, " +
+                "p95: ${latencies.getOrNull(latencies.size * 95 / 100)} ms, " +
+                "max: ${latencies.lastOrNull()} ms"
+        )
+
+        // readers must not be serialized behind the whole batch
+        assertTrue("no query finished while batch was applied", latencies.size > 1)
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.providers
+
+import android.content.ContentProviderOperation
+import com.owncloud.android.AbstractIT
+import com.owncloud.android.MainApp
+import com.owncloud.android.datamodel.OCFile
+import com.owncloud.android.datamodel.VirtualFolderType
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
+import com.owncloud.android.lib.common.utils.Log_OC
+import com.owncloud.android.lib.resources.shares.OCShare
+import com.owncloud.android.lib.resources.shares.ShareType
+import com.owncloud.android.utils.MimeType
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+
+/**
+ * Benchmark: removal of a synthetic folder tree of about 100k files from the database.
+ */
+class FileContentProviderDeleteIT : AbstractIT() {
+
+    companion object {
+        private const val TAG = "FileContentProviderDeleteIT"
+        private const val TREE_ROOT = "/deleteBenchmark/"
+        private const val FOLDERS = 100
+        private const val SUBFOLDERS = 10
+        private const val FILES_PER_SUBFOLDER = 100
+        private const val SHARED_FILE = TREE_ROOT + "folder0/sub0/file0.jpg"
+    }
+
+    @After
+    fun cleanUp() {
+        fileDataStorageManager.deleteAllFiles()
+    }
+
+    @Test
+    fun removeLargeTree() {
+        val root = fileDataStorageManager.getFileByDecryptedRemotePath("/")
+        val keptFile = OCFile("/kept.txt").apply { parentId = root.fileId }
+        fileDataStorageManager.saveFile(keptFile)
+
+        var start = System.nanoTime()
+        val nodes = createTree(root.fileId)
+        val insertMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        val treeRoot = fileDataStorageManager.getFileByDecryptedRemotePath(TREE_ROOT)
+        val sharedFile = fileDataStorageManager.getFileByDecryptedRemotePath(SHARED_FILE)
+        fileDataStorageManager.saveVirtual(VirtualFolderType.GALLERY, sharedFile)
+        fileDataStorageManager.saveShare(
+            OCShare(SHARED_FILE).apply {
+                shareType = ShareType.PUBLIC_LINK
+                remoteId = 4711
+            }
+        )
+
+        start = System.nanoTime()
+        assertTrue(fileDataStorageManager.removeFolder(treeRoot, true, false))
+        val deleteMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        Log_OC.d(TAG, "$nodes nodes, insert: $insertMs ms, delete: $deleteMs ms")
+
+        assertNull(fileDataStorageManager.getFileByDecryptedRemotePath(TREE_ROOT))
+        assertNull(fileDataStorageManager.getFileByDecryptedRemotePath(SHARED_FILE))
+        assertTrue(fileDataStorageManager.getVirtualFolderContent(VirtualFolderType.GALLERY, false).isEmpty())
+        assertTrue(fileDataStorageManager.getSharesByPathAndType(SHARED_FILE, ShareType.PUBLIC_LINK, null).isEmpty())
+        assertNotNull(fileDataStorageManager.getFileByDecryptedRemotePath("/kept.txt"))
+        assertEquals(
+            1,
+            fileDataStorageManager.getAllFiles().count { it.remotePath != OCFile.ROOT_PATH }
+        )
+    }
+
+    /**
+     * @return number of created files and folders
+     */
+    private fun createTree(rootId: Long): Int {
+        val operations = ArrayList<ContentProviderOperation>()
+        operations.add(folder(TREE_ROOT).withValue(ProviderTableMeta.FILE_PARENT, rootId).build())
+
+        for (i in 0 until FOLDERS) {
+            val folderPath = TREE_ROOT + "folder$i/"
+            val folderIndex = operations.size
+            operations.add(folder(folderPath).withValueBackReference(ProviderTableMeta.FILE_PARENT, 0).build())
+
+            for (j in 0 until SUBFOLDERS) {
+                val subfolderPath = folderPath + "sub$j/"
+                val subfolderIndex = operations.size
+                operations.add(
+                    folder(subfolderPath).withValueBackReference(ProviderTableMeta.FILE_PARENT, folderIndex).build()
+                )
+
+                for (k in 0 until FILES_PER_SUBFOLDER) {
+                    operations.add(
+                        ContentProviderOperation.newInsert(ProviderTableMeta.CONTENT_URI_FILE)
+                            .withValue(ProviderTableMeta.FILE_PATH, subfolderPath + "file$k.jpg")
+                            .withValue(ProviderTableMeta.FILE_NAME, "file$k.jpg")
+                            .withValue(ProviderTableMeta.FILE_CONTENT_TYPE, "image/jpeg")
+                            .withValue(ProviderTableMeta.FILE_ACCOUNT_OWNER, account.name)
+                            .withValueBackReference(ProviderTableMeta.FILE_PARENT, subfolderIndex)
+                            .build()
+                    )
+                }
+            }
+        }
+
+        targetContext.contentResolver.applyBatch(MainApp.getAuthority(), operations)
+        return operations.size
+    }
+
+    private fun folder(path: String): ContentProviderOperation.Builder {
+        return ContentProviderOperation.newInsert(ProviderTableMeta.CONTENT_URI_FILE)
+            .withValue(ProviderTableMeta.FILE_PATH, path)
+            .withValue(ProviderTableMeta.FILE_NAME, path.trimEnd('/').substringAfterLast('/'))
+            .withValue(ProviderTableMeta.FILE_CONTENT_TYPE, MimeType.DIRECTORY)
+            .withValue(ProviderTableMeta.FILE_ACCOUNT_OWNER, account.name)
+    }
+}
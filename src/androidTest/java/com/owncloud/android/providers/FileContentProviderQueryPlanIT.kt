@@ -0,0 +1,148 @@
+/*
+ *
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.providers
+
+import android.database.sqlite.SQLiteDatabase
+import com.owncloud.android.AbstractIT
+import com.owncloud.android.db.ProviderMeta
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
+import org.junit.After
+import org.junit.Assert.assertFalse
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Makes sure that the frequent lookups of FileDataStorageManager, FilesystemDataProvider and UploadsStorageManager
+ * are served by an index instead of scanning the whole table.
+ */
+class FileContentProviderQueryPlanIT : AbstractIT() {
+    private lateinit var db: SQLiteDatabase
+
+    @Before
+    fun openDatabase() {
+        // make sure database is created / upgraded by the provider
+        fileDataStorageManager.getFileByDecryptedRemotePath("/")
+
+        db = SQLiteDatabase.openDatabase(
+            targetContext.getDatabasePath(ProviderMeta.DB_NAME).absolutePath,
+            null,
+            SQLiteDatabase.OPEN_READONLY
+        )
+    }
+
+    @After
+    fun closeDatabase() {
+        db.close()
+    }
+
+    @Test
+    fun folderContent() {
+        assertUsesIndex(ProviderTableMeta.FILE_TABLE_NAME, "${ProviderTableMeta.FILE_PARENT} = ?")
+    }
+
+    @Test
+    fun fileByPath() {
+        assertUsesIndex(
+            ProviderTableMeta.FILE_TABLE_NAME,
+            "${ProviderTableMeta.FILE_PATH} = ? AND ${ProviderTableMeta.FILE_ACCOUNT_OWNER} = ?"
+        )
+        assertUsesIndex(
+            ProviderTableMeta.FILE_TABLE_NAME,
+            "${ProviderTableMeta.FILE_PATH_DECRYPTED} = ? AND ${ProviderTableMeta.FILE_ACCOUNT_OWNER} = ?"
+        )
+    }
+
+    @Test
+    fun fileByLocalPath() {
+        assertUsesIndex(
+            ProviderTableMeta.FILE_TABLE_NAME,
+            "${ProviderTableMeta.FILE_STORAGE_PATH} = ? AND ${ProviderTableMeta.FILE_ACCOUNT_OWNER} = ?"
+        )
+    }
+
+    @Test
+    fun fileByRemoteId() {
+        assertUsesIndex(
+            ProviderTableMeta.FILE_TABLE_NAME,
+            "${ProviderTableMeta.FILE_REMOTE_ID} = ? AND ${ProviderTableMeta.FILE_ACCOUNT_OWNER} = ?"
+        )
+    }
+
+    @Test
+    fun sharesByPathAndSharee() {
+        assertUsesIndex(
+            ProviderTableMeta.OCSHARES_TABLE_NAME,
+            "${ProviderTableMeta.OCSHARES_PATH} = ? AND ${ProviderTableMeta.OCSHARES_SHARE_TYPE} = ? AND " +
+                "${ProviderTableMeta.OCSHARES_ACCOUNT_OWNER} = ? AND ${ProviderTableMeta.OCSHARES_SHARE_WITH} = ?"
+        )
+    }
+
+    @Test
+    fun uploadByRemotePath() {
+        assertUsesIndex(
+            ProviderTableMeta.UPLOADS_TABLE_NAME,
+            "${ProviderTableMeta.UPLOADS_ACCOUNT_NAME} = ? AND ${ProviderTableMeta.UPLOADS_REMOTE_PATH} = ?"
+        )
+    }
+
+    @Test
+    fun filesystemEntries() {
+        assertUsesIndex(
+            ProviderTableMeta.FILESYSTEM_TABLE_NAME,
+            "${ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH} = ? AND ${ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID} = ?"
+        )
+        assertUsesIndex(
+            ProviderTableMeta.FILESYSTEM_TABLE_NAME,
+            "${ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID} = ? AND " +
+                "${ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD} = ? AND " +
+                "${ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER} = ?"
+        )
+    }
+
+    @Test
+    fun arbitraryData() {
+        assertUsesIndex(
+            ProviderTableMeta.ARBITRARY_DATA_TABLE_NAME,
+            "${ProviderTableMeta.ARBITRARY_DATA_CLOUD_ID} = ? AND ${ProviderTableMeta.ARBITRARY_DATA_KEY} = ?"
+        )
+    }
+
+    @Test
+    fun virtualByType() {
+        assertUsesIndex(ProviderTableMeta.VIRTUAL_TABLE_NAME, "${ProviderTableMeta.VIRTUAL_TYPE} = ?")
+    }
+
+    private fun assertUsesIndex(table: String, selection: String) {
+        val argCount = selection.count { it == '?' }
+        val args = Array(argCount) { "1" }
+        val plan = StringBuilder()
+
+        db.rawQuery("EXPLAIN QUERY PLAN SELECT * FROM $table WHERE $selection", args).use { cursor ->
+            val detailIndex = cursor.getColumnIndexOrThrow("detail")
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detailIndex)).append('\n')
+            }
+        }
+
+        // full scans are reported as "SCAN TABLE x" (older SQLite) or "SCAN x" without "USING ... INDEX"
+        val fullScan = plan.lines().any { it.startsWith("SCAN") && !it.contains("INDEX") }
+        assertFalse("Full table scan on $table for '$selection':\n$plan", fullScan)
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.ui.fragment
+
+import android.graphics.Bitmap
+import android.graphics.Color
+import android.os.Build
+import android.os.Handler
+import android.os.HandlerThread
+import android.view.FrameMetrics
+import android.view.Window
+import androidx.recyclerview.widget.RecyclerView
+import androidx.test.espresso.intent.rule.IntentsTestRule
+import com.nextcloud.client.GrantStoragePermissionRule
+import com.nextcloud.client.TestActivity
+import com.owncloud.android.AbstractIT
+import com.owncloud.android.R
+import com.owncloud.android.datamodel.OCFile
+import com.owncloud.android.datamodel.ThumbnailsCacheManager
+import com.owncloud.android.lib.common.utils.Log_OC
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Rule
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+
+/**
+ * Benchmark: frame durations while flinging through a grid of images, whose thumbnails are in the disk cache.
+ */
+class OCFileListFragmentFlingIT : AbstractIT() {
+    companion object {
+        private const val TAG = "OCFileListFragmentFlingIT"
+        private const val FILES = 2_000
+        private const val FLINGS = 10
+        private const val FLING_VELOCITY = 20_000
+        private const val JANK_MS = 32L
+        private const val MAX_JANK_RATIO = 0.2
+    }
+
+    @get:Rule
+    val testActivityRule = IntentsTestRule(TestActivity::class.java, true, false)
+
+    @get:Rule
+    val permissionRule = GrantStoragePermissionRule.grant()
+
+    @Test
+    fun flingThroughGrid() {
+        assumeTrue("FrameMetrics not available", Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
+
+        val sut = testActivityRule.launchActivity(null)
+        val root = sut.storageManager.getFileByEncryptedRemotePath("/")
+        val folder = OCFile("/flingTest/").apply {
+            mimeType = "DIR"
+            parentId = root.fileId
+        }
+        sut.storageManager.saveFile(folder)
+        val parentId = sut.storageManager.getFileByEncryptedRemotePath("/flingTest/").fileId
+
+        for (i in 0 until FILES) {
+            val remoteId = (90_000_000 + i).toString()
+            val thumbnail = Bitmap.createBitmap(256, 256, Bitmap.Config.ARGB_8888)
+            thumbnail.eraseColor(Color.rgb(i % 256, (i / 8) % 256, 128))
+            ThumbnailsCacheManager.addBitmapToCache(ThumbnailsCacheManager.PREFIX_THUMBNAIL + remoteId, thumbnail)
+
+            sut.storageManager.saveFile(
+                OCFile("/flingTest/image$i.jpg", remoteId).apply {
+                    mimeType = "image/jpeg"
+                    isPreviewAvailable = true
+                    this.parentId = parentId
+                }
+            )
+        }
+
+        sut.addFragment(OCFileListFragment())
+        val fragment = sut.fragment as OCFileListFragment
+        shortSleep()
+
+        sut.runOnUiThread {
+            fragment.switchToGridView()
+            fragment.listDirectory(sut.storageManager.getFileByEncryptedRemotePath("/flingTest/"), false, false)
+        }
+        waitForListing(fragment)
+
+        val frameDurations = mutableListOf<Long>()
+        val metricsThread = HandlerThread("frameMetrics").apply { start() }
+        val listener = Window.OnFrameMetricsAvailableListener { _, frameMetrics, _ ->
+            synchronized(frameDurations) {
+                frameDurations.add(frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION))
+            }
+        }
+        sut.window.addOnFrameMetricsAvailableListener(listener, Handler(metricsThread.looper))
+
+        val recyclerView = sut.findViewById<RecyclerView>(R.id.list_root)
+        for (i in 0 until FLINGS) {
+            sut.runOnUiThread { recyclerView.fling(0, FLING_VELOCITY) }
+            longSleep()
+        }
+
+        sut.window.removeOnFrameMetricsAvailableListener(listener)
+        metricsThread.quitSafely()
+
+        synchronized(frameDurations) {
+            val janky = frameDurations.count { TimeUnit.NANOSECONDS.toMillis(it) > JANK_MS }
+            Log_OC.d(TAG, "$FILES items, ${frameDurations.size} frames, $janky longer than $JANK_MS ms")
+
+            assertTrue(frameDurations.isNotEmpty())
+            assertTrue(
+                "$janky of ${frameDurations.size} frames took longer than $JANK_MS ms",
+                janky <= frameDurations.size * MAX_JANK_RATIO
+            )
+        }
+    }
+}
@@ -72,7 +72,7 @@ class OCFileListFragmentStaticServerIT : AbstractIT() {
 
         sut.runOnUiThread { fragment.listDirectory(root, false, false) }
 
-        waitForIdleSync()
+        waitForListing(fragment)
 
         screenshot(sut)
     }
@@ -41,9 +41,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.PrivateKey;
@@ -59,7 +60,6 @@ import javax.crypto.BadPaddingException;
 import androidx.test.runner.AndroidJUnit4;
 
 import static androidx.test.InstrumentationRegistry.getInstrumentation;
-import static com.owncloud.android.utils.EncryptionUtils.EncryptedFile;
 import static com.owncloud.android.utils.EncryptionUtils.decodeStringToBase64Bytes;
 import static com.owncloud.android.utils.EncryptionUtils.decryptFile;
 import static com.owncloud.android.utils.EncryptionUtils.decryptFolderMetaData;
@@ -83,6 +83,7 @@ import static com.owncloud.android.utils.EncryptionUtils.verifySHA512;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 @RunWith(AndroidJUnit4.class)
 public class EncryptionTestIT {
@@ -462,6 +463,35 @@ public class EncryptionTestIT {
         assertTrue(verifySHA512(hashedToken, token));
     }
 
+    /**
+     * modified content must not be accepted, even if the stored authentication tag is untouched
+     */
+    @Test
+    public void testDecryptTamperedFile() throws Exception {
+        byte[] key = generateKey();
+        byte[] iv = randomBytes(ivLength);
+
+        File file = File.createTempFile("file", "plain");
+        FileUtils.writeStringToFile(file, "some content to encrypt", StandardCharsets.UTF_8);
+
+        File encryptedFile = File.createTempFile("file", "enc");
+        byte[] authenticationTag = decodeStringToBase64Bytes(encryptFile(file, encryptedFile, key, iv));
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(encryptedFile, "rw")) {
+            randomAccessFile.seek(0);
+            int first = randomAccessFile.read();
+            randomAccessFile.seek(0);
+            randomAccessFile.write(first ^ 0xFF);
+        }
+
+        File decryptedFile = File.createTempFile("file", "dec");
+        try {
+            decryptFile(encryptedFile, decryptedFile, key, iv, authenticationTag);
+            fail("tampered file must not be decrypted");
+        } catch (IOException e) {
+            assertFalse(decryptedFile.exists());
+        }
+    }
 
     // Helper
     private boolean compareJsonStrings(String expected, String actual) {
@@ -537,24 +567,14 @@ public class EncryptionTestIT {
         File file = getFile(fileName);
         assertEquals(md5, getMD5Sum(file));
 
-        EncryptedFile encryptedFile = encryptFile(file, key, iv);
-
         File encryptedTempFile = File.createTempFile("file", "tmp");
-        FileOutputStream fileOutputStream = new FileOutputStream(encryptedTempFile);
-        fileOutputStream.write(encryptedFile.encryptedBytes);
-        fileOutputStream.close();
-
-        byte[] authenticationTag = decodeStringToBase64Bytes(encryptedFile.authenticationTag);
+        byte[] authenticationTag = decodeStringToBase64Bytes(encryptFile(file, encryptedTempFile, key, iv));
 
         // verify authentication tag
         assertTrue(Arrays.equals(expectedAuthTag, authenticationTag));
 
-        byte[] decryptedBytes = decryptFile(encryptedTempFile, key, iv, authenticationTag);
-
         File decryptedFile = File.createTempFile("file", "dec");
-        FileOutputStream fileOutputStream1 = new FileOutputStream(decryptedFile);
-        fileOutputStream1.write(decryptedBytes);
-        fileOutputStream1.close();
+        decryptFile(encryptedTempFile, decryptedFile, key, iv, authenticationTag);
 
         return md5.compareTo(getMD5Sum(decryptedFile)) == 0;
     }
@@ -1,14 +1,18 @@
 package com.owncloud.android.util;
 
 import com.owncloud.android.datamodel.OCFile;
+import com.owncloud.android.utils.FileSortOrder;
 
 import org.junit.Test;
 
+import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import third_parties.daveKoeller.AlphanumComparator;
 
@@ -410,7 +414,28 @@ public class TestSorting {
     }
 
     private boolean sortAndTest(List<? extends Comparable> sortedList) {
-        return test(sortedList, sort(sortedList));
+        return test(sortedList, sort(sortedList)) && test(sortedList, sortWithSortKeys(sortedList));
+    }
+
+    /**
+     * Sorts with precomputed sort keys, which must result in the same order as comparing the names each time.
+     */
+    private List<Comparable> sortWithSortKeys(List<? extends Comparable> sortedList) {
+        List unsortedList = shuffle(sortedList);
+
+        if (sortedList.get(0) instanceof OCFile) {
+            return FileSortOrder.sort_a_to_z.sortCloudFiles(unsortedList);
+        }
+
+        AlphanumComparator comparator = new AlphanumComparator<>();
+        Collator collator = Collator.getInstance();
+        Map<Object, AlphanumComparator.SortKey> keys = new HashMap<>();
+        for (Object item : unsortedList) {
+            keys.put(item, comparator.getSortKey(item.toString(), collator));
+        }
+        Collections.sort(unsortedList, (o1, o2) -> keys.get(o1).compareTo(keys.get(o2)));
+
+        return unsortedList;
     }
 
     private List<Comparable> sort(List<? extends Comparable> sortedList) {
@@ -141,11 +141,11 @@ class FilesSyncWork(
             return
         }
         val user = optionalUser.get()
-        val arbitraryDataProvider = if (lightVersion) {
-            ArbitraryDataProvider(contentResolver)
-        } else {
-            null
-        }
+        // the same for all the files of the folder
+        val lightNeedsWifi = lightVersion && ArbitraryDataProvider(contentResolver).getBooleanValue(
+            accountName,
+            SettingsActivity.SYNCED_FOLDER_LIGHT_UPLOAD_ON_WIFI
+        )
         val paths = filesystemDataProvider.getFilesForUpload(
             syncedFolder.localPath,
             java.lang.Long.toString(syncedFolder.id)
@@ -156,10 +156,7 @@ class FilesSyncWork(
             val mimeType = MimeTypeUtil.getBestMimeTypeByFilename(file.absolutePath)
             if (lightVersion) {
                 needsCharging = resources.getBoolean(R.bool.syncedFolder_light_on_charging)
-                needsWifi = arbitraryDataProvider!!.getBooleanValue(
-                    accountName,
-                    SettingsActivity.SYNCED_FOLDER_LIGHT_UPLOAD_ON_WIFI
-                )
+                needsWifi = lightNeedsWifi
                 val uploadActionString = resources.getString(R.string.syncedFolder_light_upload_behaviour)
                 uploadAction = getUploadAction(uploadActionString)
                 subfolderByDate = resources.getBoolean(R.bool.syncedFolder_light_use_subfolders)
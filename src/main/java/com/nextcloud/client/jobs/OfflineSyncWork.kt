@@ -35,9 +35,17 @@ import com.owncloud.android.datamodel.OCFile
 import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode
 import com.owncloud.android.lib.common.utils.Log_OC
 import com.owncloud.android.lib.resources.files.CheckEtagRemoteOperation
+import com.owncloud.android.lib.resources.files.ReadFolderRemoteOperation
+import com.owncloud.android.lib.resources.files.model.RemoteFile
 import com.owncloud.android.operations.SynchronizeFileOperation
 import com.owncloud.android.utils.FileStorageUtils
 import java.io.File
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
 @Suppress("LongParameterList") // Legacy code
 class OfflineSyncWork constructor(
@@ -53,36 +61,116 @@ class OfflineSyncWork constructor(
         const val TAG = "OfflineSyncJob"
         private const val WAKELOCK_TAG_SEPARATION = ":"
         private const val WAKELOCK_ACQUISITION_TIMEOUT_MS = 10L * 60L * 1000L
+        private const val CONNECTIVITY_TIMEOUT_S = 30L
+        private const val PARALLEL_FOLDERS = 4
     }
 
     override fun doWork(): Result {
         val wakeLock: WakeLock? = null
-        if (!powerManagementService.isPowerSavingEnabled && !connectivityService.isInternetWalled) {
-            val users = userAccountManager.allUsers
-            for (user in users) {
-                val storageManager = FileDataStorageManager(user, contentResolver)
-                val ocRoot = storageManager.getFileByPath(OCFile.ROOT_PATH)
-                if (ocRoot.storagePath == null) {
-                    break
+        if (!powerManagementService.isPowerSavingEnabled &&
+            connectivityService.waitForInternet(CONNECTIVITY_TIMEOUT_S, TimeUnit.SECONDS)
+        ) {
+            val executor = Executors.newFixedThreadPool(PARALLEL_FOLDERS)
+            val metrics = Metrics()
+            try {
+                val users = userAccountManager.allUsers
+                for (user in users) {
+                    val storageManager = FileDataStorageManager(user, contentResolver)
+                    val ocRoot = storageManager.getFileByPath(OCFile.ROOT_PATH)
+                    if (ocRoot.storagePath == null) {
+                        break
+                    }
+                    syncTree(File(ocRoot.storagePath), storageManager, user, executor, metrics)
                 }
-                recursive(File(ocRoot.storagePath), storageManager, user)
+            } finally {
+                executor.shutdownNow()
             }
+            Log_OC.i(
+                TAG,
+                "folders checked: ${metrics.foldersChecked}, folders skipped: ${metrics.foldersSkipped}, " +
+                    "files transferred: ${metrics.filesTransferred}"
+            )
             wakeLock?.release()
         }
         return Result.success()
     }
 
+    /**
+     * Synchronizes the tree level by level; the folders of a level are checked in parallel.
+     *
+     * The eTags of changed folders are only updated when the whole tree was synchronized, so that an interrupted
+     * run is repeated by the next one. Likewise, the eTags of the ancestors of a folder that failed are kept, so that
+     * the next run descends to it again.
+     */
+    private fun syncTree(
+        root: File,
+        storageManager: FileDataStorageManager,
+        user: User,
+        executor: ExecutorService,
+        metrics: Metrics
+    ) {
+        val changedFolders = ArrayList<ChangedFolder>()
+        val failedFolders = ArrayList<File>()
+        var level = listOf(root)
+        try {
+            while (level.isNotEmpty()) {
+                val tasks = level.map { folder ->
+                    executor.submit(Callable { syncFolder(folder, storageManager, user, metrics) })
+                }
+                val nextLevel = ArrayList<File>()
+                for ((index, task) in tasks.withIndex()) {
+                    try {
+                        val changedFolder = task.get() ?: continue
+                        changedFolders.add(changedFolder)
+                        nextLevel.addAll(changedFolder.subfolders)
+                    } catch (e: ExecutionException) {
+                        Log_OC.e(TAG, "Failed to synchronize " + level[index].absolutePath, e.cause)
+                        failedFolders.add(level[index])
+                    }
+                }
+                level = nextLevel
+            }
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+            return
+        }
+
+        // update eTags
+        for (changedFolder in changedFolders) {
+            if (failedFolders.any { isAncestor(changedFolder.localFolder, it) }) {
+                Log_OC.d(TAG, "Keeping etag of " + changedFolder.folder.storagePath + ", a subfolder failed")
+                continue
+            }
+            val etag = changedFolder.etag
+            if (etag == null) {
+                Log_OC.e(TAG, "Failed to update etag on " + changedFolder.folder.storagePath)
+                continue
+            }
+            changedFolder.folder.etagOnServer = etag
+            storageManager.saveFile(changedFolder.folder)
+        }
+    }
+
+    /**
+     * @return the folder when its eTag changed, null when it was skipped
+     */
     @Suppress("ReturnCount", "ComplexMethod") // legacy code
-    private fun recursive(folder: File, storageManager: FileDataStorageManager, user: User) {
+    private fun syncFolder(
+        folder: File,
+        storageManager: FileDataStorageManager,
+        user: User,
+        metrics: Metrics
+    ): ChangedFolder? {
         val downloadFolder = FileStorageUtils.getSavePath(user.accountName)
         val folderName = folder.absolutePath.replaceFirst(downloadFolder.toRegex(), "") + OCFile.PATH_SEPARATOR
         Log_OC.d(TAG, "$folderName: enter")
         // exit
         if (folder.listFiles() == null) {
-            return
+            return null
         }
-        val ocFolder = storageManager.getFileByPath(folderName)
+        val ocFolder = storageManager.getFileByPath(folderName) ?: return null
         Log_OC.d(TAG, folderName + ": currentEtag: " + ocFolder.etag)
+        metrics.foldersChecked.incrementAndGet()
         // check for etag change, if false, skip
         val checkEtagOperation = CheckEtagRemoteOperation(
             ocFolder.remotePath,
@@ -92,48 +180,106 @@ class OfflineSyncWork constructor(
         when (result.code) {
             ResultCode.ETAG_UNCHANGED -> {
                 Log_OC.d(TAG, "$folderName: eTag unchanged")
-                return
+                metrics.foldersSkipped.incrementAndGet()
+                return null
             }
             ResultCode.FILE_NOT_FOUND -> {
                 val removalResult = storageManager.removeFolder(ocFolder, true, true)
                 if (!removalResult) {
                     Log_OC.e(TAG, "removal of " + ocFolder.storagePath + " failed: file not found")
                 }
-                return
+                return null
             }
             ResultCode.ETAG_CHANGED -> Log_OC.d(TAG, "$folderName: eTag changed")
             else -> Log_OC.d(TAG, "$folderName: eTag changed")
         }
-        // iterate over downloaded files
+        syncFiles(folder, ocFolder, storageManager, user, metrics)
+
+        val subfolders = folder.listFiles { obj: File -> obj.isDirectory }?.toList() ?: emptyList()
+        val etag = result.data?.firstOrNull() as? String
+        return ChangedFolder(folder, ocFolder, etag, subfolders)
+    }
+
+    private fun isAncestor(folder: File, descendant: File): Boolean {
+        return descendant.absolutePath.startsWith(folder.absolutePath + File.separator)
+    }
+
+    /**
+     * Synchronizes the downloaded files of a folder whose eTag changed, skipping the files unchanged on both sides.
+     */
+    private fun syncFiles(
+        folder: File,
+        ocFolder: OCFile,
+        storageManager: FileDataStorageManager,
+        user: User,
+        metrics: Metrics
+    ) {
         val files = folder.listFiles { obj: File -> obj.isFile }
-        if (files != null) {
-            for (file in files) {
-                val ocFile = storageManager.getFileByLocalPath(file.path)
-                val synchronizeFileOperation = SynchronizeFileOperation(
-                    ocFile?.remotePath,
-                    user,
-                    true,
-                    context,
-                    storageManager
-                )
-                synchronizeFileOperation.execute(context)
-            }
+        if (files.isNullOrEmpty()) {
+            return
         }
-        // recursive into folder
-        val subfolders = folder.listFiles { obj: File -> obj.isDirectory }
-        if (subfolders != null) {
-            for (subfolder in subfolders) {
-                recursive(subfolder, storageManager, user)
+        // one query for all the files of the folder
+        val ocFiles = storageManager.getFolderContent(ocFolder, false).associateBy { it.storagePath }
+        val serverFiles = readServerFiles(ocFolder, user)
+
+        for (file in files) {
+            val ocFile = ocFiles[file.path] ?: continue
+            val serverFile = serverFiles?.get(ocFile.remotePath)
+            if (serverFile != null && !isChanged(ocFile, serverFile)) {
+                continue
+            }
+            // without server file, the operation checks the file on the server itself
+            val synchronizeFileOperation = SynchronizeFileOperation(
+                ocFile,
+                serverFile,
+                user,
+                true,
+                context,
+                storageManager
+            )
+            synchronizeFileOperation.execute(context)
+            if (synchronizeFileOperation.transferWasRequested()) {
+                metrics.filesTransferred.incrementAndGet()
             }
         }
-        // update eTag
-        @Suppress("TooGenericExceptionCaught") // legacy code
-        try {
-            val updatedEtag = result.data[0] as String
-            ocFolder.etagOnServer = updatedEtag
-            storageManager.saveFile(ocFolder)
-        } catch (e: Exception) {
-            Log_OC.e(TAG, "Failed to update etag on " + folder.absolutePath, e)
+    }
+
+    /**
+     * @return files of the folder on the server by remote path, or null if they are unknown
+     */
+    private fun readServerFiles(ocFolder: OCFile, user: User): Map<String, OCFile>? {
+        // remote paths of encrypted files do not match the local ones
+        if (ocFolder.isEncrypted) {
+            return null
+        }
+        val result = ReadFolderRemoteOperation(ocFolder.remotePath).execute(user.toPlatformAccount(), context)
+        return if (result.isSuccess) {
+            result.data
+                .drop(1) // the folder itself
+                .map { FileStorageUtils.fillOCFile(it as RemoteFile) }
+                .associateBy { it.remotePath }
+        } else {
+            null
         }
     }
+
+    private fun isChanged(ocFile: OCFile, serverFile: OCFile): Boolean {
+        return !ocFile.isDown ||
+            ocFile.etag.isNullOrEmpty() ||
+            ocFile.etag != serverFile.etag ||
+            ocFile.localModificationTimestamp > ocFile.lastSyncDateForData
+    }
+
+    private class ChangedFolder(
+        val localFolder: File,
+        val folder: OCFile,
+        val etag: String?,
+        val subfolders: List<File>
+    )
+
+    private class Metrics {
+        val foldersChecked = AtomicInteger()
+        val foldersSkipped = AtomicInteger()
+        val filesTransferred = AtomicInteger()
+    }
 }
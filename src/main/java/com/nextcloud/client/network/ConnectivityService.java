@@ -20,6 +20,8 @@
 
 package com.nextcloud.client.network;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * This service provides information about current network connectivity
  * and server reachability.
@@ -31,6 +33,9 @@ public interface ConnectivityService {
      * Since this call involves network traffic, it should not be called
      * on a main thread.
      *
+     * The result of the request may be reused for the same network for
+     * a while, so frequent calls are cheap.
+     *
      * @return True if server is unreachable, false otherwise
      */
     boolean isInternetWalled();
@@ -41,4 +46,38 @@ public interface ConnectivityService {
      * @return Network connectivity status in platform-agnostic format
      */
     Connectivity getConnectivity();
+
+    /**
+     * Register a listener notified when the network connectivity changes,
+     * e.g. when a network is connected or lost. The listener is called
+     * on a background thread.
+     *
+     * Implementations not observing the network never call it.
+     *
+     * @param listener Listener to notify
+     */
+    default void addListener(ConnectivityListener listener) {
+    }
+
+    /**
+     * @param listener Listener registered with {@link #addListener(ConnectivityListener)}
+     */
+    default void removeListener(ConnectivityListener listener) {
+    }
+
+    /**
+     * Wait until the server is accessible, instead of polling
+     * {@link #isInternetWalled()}. It must not be called on a main thread.
+     *
+     * @param timeout Maximum time to wait
+     * @param unit    Unit of the timeout
+     * @return True if server is accessible, false if the timeout elapsed before
+     */
+    default boolean waitForInternet(long timeout, TimeUnit unit) {
+        return !isInternetWalled();
+    }
+
+    interface ConnectivityListener {
+        void onConnectivityChanged(Connectivity connectivity);
+    }
 }
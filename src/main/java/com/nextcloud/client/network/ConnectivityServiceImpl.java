@@ -24,27 +24,61 @@ import android.net.ConnectivityManager;
 import android.net.Network;
 import android.net.NetworkCapabilities;
 import android.net.NetworkInfo;
+import android.net.NetworkRequest;
 
 import com.nextcloud.client.account.Server;
 import com.nextcloud.client.account.UserAccountManager;
+import com.nextcloud.client.core.Clock;
 import com.nextcloud.common.PlainClient;
 import com.nextcloud.operations.GetMethod;
 import com.owncloud.android.lib.common.utils.Log_OC;
 
 import org.apache.commons.httpclient.HttpStatus;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
 import androidx.core.net.ConnectivityManagerCompat;
 import kotlin.jvm.functions.Function1;
 
 class ConnectivityServiceImpl implements ConnectivityService {
 
     private static final String TAG = "ConnectivityServiceImpl";
+
+    /**
+     * Time during which the result of a server status request is reused for the same network.
+     */
+    static final long WALLED_CHECK_VALIDITY_MS = TimeUnit.MINUTES.toMillis(2);
+
     private final ConnectivityManager platformConnectivityManager;
     private final UserAccountManager accountManager;
     private final ClientFactory clientFactory;
     private final GetRequestBuilder requestBuilder;
+    private final Clock clock;
     private final int sdkVersion;
 
+    /**
+     * Results of server status requests by network, guarded by itself.
+     */
+    private final Map<Network, WalledCheck> walledChecks = new HashMap<>();
+
+    /**
+     * Serializes the server status requests, so that concurrent callers wait for one request.
+     */
+    private final Object walledCheckLock = new Object();
+
+    /**
+     * Incremented whenever the cached results become invalid, guarded by {@link #walledChecks}.
+     */
+    private long walledChecksGeneration;
+
+    private final List<ConnectivityListener> listeners = new CopyOnWriteArrayList<>();
+
     static class GetRequestBuilder implements Function1<String, GetMethod> {
         @Override
         public GetMethod invoke(String url) {
@@ -56,12 +90,22 @@ class ConnectivityServiceImpl implements ConnectivityService {
                             UserAccountManager accountManager,
                             ClientFactory clientFactory,
                             GetRequestBuilder requestBuilder,
+                            Clock clock,
                             int sdkVersion) {
         this.platformConnectivityManager = platformConnectivityManager;
         this.accountManager = accountManager;
         this.clientFactory = clientFactory;
         this.requestBuilder = requestBuilder;
+        this.clock = clock;
         this.sdkVersion = sdkVersion;
+
+        try {
+            platformConnectivityManager.registerNetworkCallback(new NetworkRequest.Builder().build(),
+                                                                new NetworkCallback());
+        } catch (RuntimeException e) {
+            // cached results then only expire with time
+            Log_OC.e(TAG, "Unable to observe network changes", e);
+        }
     }
 
     @Override
@@ -75,21 +119,113 @@ class ConnectivityServiceImpl implements ConnectivityService {
                 return true;
             }
 
-            GetMethod get = requestBuilder.invoke(baseServerAddress + "/index.php/204");
-            PlainClient client = clientFactory.createPlainClient();
+            Network network = platformConnectivityManager.getActiveNetwork();
+            WalledCheck check = getValidWalledCheck(network, baseServerAddress);
+            if (check != null) {
+                return check.walled;
+            }
+
+            synchronized (walledCheckLock) {
+                // another caller may have checked while this one was waiting
+                check = getValidWalledCheck(network, baseServerAddress);
+                if (check != null) {
+                    return check.walled;
+                }
 
-            int status = get.execute(client);
+                long generation;
+                synchronized (walledChecks) {
+                    generation = walledChecksGeneration;
+                }
 
-            // Content-Length is not available when using chunked transfer encoding, so check for -1 as well
-            boolean result = !(status == HttpStatus.SC_NO_CONTENT && get.getResponseContentLength() <= 0);
-            get.releaseConnection();
+                boolean result = requestWalledStatus(baseServerAddress);
 
-            return result;
+                if (network != null) {
+                    synchronized (walledChecks) {
+                        // a result requested while the network changed may be outdated already
+                        if (generation == walledChecksGeneration) {
+                            walledChecks.put(network,
+                                             new WalledCheck(baseServerAddress, result, clock.getCurrentTime()));
+                        }
+                    }
+                }
+                return result;
+            }
         } else {
             return !c.isConnected();
         }
     }
 
+    private boolean requestWalledStatus(String baseServerAddress) {
+        GetMethod get = requestBuilder.invoke(baseServerAddress + "/index.php/204");
+        PlainClient client = clientFactory.createPlainClient();
+
+        int status = get.execute(client);
+
+        // Content-Length is not available when using chunked transfer encoding, so check for -1 as well
+        boolean result = !(status == HttpStatus.SC_NO_CONTENT && get.getResponseContentLength() <= 0);
+        get.releaseConnection();
+
+        return result;
+    }
+
+    private WalledCheck getValidWalledCheck(Network network, String baseServerAddress) {
+        if (network == null) {
+            return null;
+        }
+        synchronized (walledChecks) {
+            WalledCheck check = walledChecks.get(network);
+            if (check != null && check.baseServerAddress.equals(baseServerAddress) &&
+                clock.getCurrentTime() - check.checkedAt < WALLED_CHECK_VALIDITY_MS) {
+                return check;
+            }
+            return null;
+        }
+    }
+
+    private void invalidateWalledChecks(Network network) {
+        synchronized (walledChecks) {
+            walledChecks.remove(network);
+            walledChecksGeneration++;
+        }
+    }
+
+    @Override
+    public void addListener(ConnectivityListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(ConnectivityListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public boolean waitForInternet(long timeout, TimeUnit unit) {
+        long deadline = clock.getCurrentTime() + unit.toMillis(timeout);
+        while (true) {
+            CountDownLatch changed = new CountDownLatch(1);
+            ConnectivityListener listener = connectivity -> changed.countDown();
+            addListener(listener);
+            try {
+                if (!isInternetWalled()) {
+                    return true;
+                }
+
+                long remaining = deadline - clock.getCurrentTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                // check again on network changes, or when the cached result expired
+                changed.await(Math.min(remaining, WALLED_CHECK_VALIDITY_MS), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                removeListener(listener);
+            }
+        }
+    }
+
     @Override
     public Connectivity getConnectivity() {
         NetworkInfo networkInfo;
@@ -135,4 +271,72 @@ class ConnectivityServiceImpl implements ConnectivityService {
         }
         return false;
     }
+
+    private void notifyListeners() {
+        if (!listeners.isEmpty()) {
+            Connectivity connectivity = getConnectivity();
+            for (ConnectivityListener listener : listeners) {
+                listener.onConnectivityChanged(connectivity);
+            }
+        }
+    }
+
+    private static class WalledCheck {
+        private final String baseServerAddress;
+        private final boolean walled;
+        private final long checkedAt;
+
+        WalledCheck(String baseServerAddress, boolean walled, long checkedAt) {
+            this.baseServerAddress = baseServerAddress;
+            this.walled = walled;
+            this.checkedAt = checkedAt;
+        }
+    }
+
+    /**
+     * Drops the cached server status of networks which were lost, or whose validation or metering changed, e.g.
+     * after signing in to a captive portal.
+     */
+    private class NetworkCallback extends ConnectivityManager.NetworkCallback {
+        private final Map<Network, Integer> states = new HashMap<>();
+
+        @Override
+        public void onAvailable(@NonNull Network network) {
+            invalidateWalledChecks(network);
+            notifyListeners();
+        }
+
+        @Override
+        public void onLost(@NonNull Network network) {
+            synchronized (states) {
+                states.remove(network);
+            }
+            invalidateWalledChecks(network);
+            notifyListeners();
+        }
+
+        @Override
+        public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities capabilities) {
+            // also called on changes of e.g. the signal strength, which do not matter here
+            int state = 0;
+            if (capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)) {
+                state |= 1;
+            }
+            if (capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_CAPTIVE_PORTAL)) {
+                state |= 2;
+            }
+            if (capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED)) {
+                state |= 4;
+            }
+
+            Integer previousState;
+            synchronized (states) {
+                previousState = states.put(network, state);
+            }
+            if (previousState != null && previousState != state) {
+                invalidateWalledChecks(network);
+                notifyListeners();
+            }
+        }
+    }
 }
@@ -25,6 +25,7 @@ import android.net.ConnectivityManager;
 import android.os.Build;
 
 import com.nextcloud.client.account.UserAccountManager;
+import com.nextcloud.client.core.Clock;
 
 import javax.inject.Singleton;
 
@@ -35,13 +36,16 @@ import dagger.Provides;
 public class NetworkModule {
 
     @Provides
+    @Singleton
     ConnectivityService connectivityService(ConnectivityManager connectivityManager,
                                             UserAccountManager accountManager,
-                                            ClientFactory clientFactory) {
+                                            ClientFactory clientFactory,
+                                            Clock clock) {
         return new ConnectivityServiceImpl(connectivityManager,
                                            accountManager,
                                            clientFactory,
                                            new ConnectivityServiceImpl.GetRequestBuilder(),
+                                           clock,
                                            Build.VERSION.SDK_INT
         );
     }
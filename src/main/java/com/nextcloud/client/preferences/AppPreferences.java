@@ -210,6 +210,15 @@ public interface AppPreferences {
     boolean isAutoUploadInitialized();
     void setAutoUploadInit(boolean autoUploadInit);
 
+    /**
+     * Gets whether auto upload trusts size and modification time of files, and only computes checksums of files
+     * whose metadata changed.
+     *
+     * @return true if file metadata is trusted, default is false
+     */
+    boolean isAutoUploadTrustingFileMetadata();
+    void setAutoUploadTrustingFileMetadata(boolean trustFileMetadata);
+
     /**
      * Get preferred folder sort order.
      *
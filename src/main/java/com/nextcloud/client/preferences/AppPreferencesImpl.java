@@ -79,6 +79,7 @@ public final class AppPreferencesImpl implements AppPreferences {
     private static final String PREF__PUSH_TOKEN = "pushToken";
     private static final String PREF__AUTO_UPLOAD_SPLIT_OUT = "autoUploadEntriesSplitOut";
     private static final String PREF__AUTO_UPLOAD_INIT = "autoUploadInit";
+    private static final String PREF__AUTO_UPLOAD_TRUST_FILE_METADATA = SettingsActivity.PREFERENCE_TRUST_FILE_METADATA;
     private static final String PREF__FOLDER_SORT_ORDER = "folder_sort_order";
     private static final String PREF__FOLDER_LAYOUT = "folder_layout";
 
@@ -408,6 +409,16 @@ public final class AppPreferencesImpl implements AppPreferences {
         preferences.edit().putBoolean(PREF__AUTO_UPLOAD_INIT, autoUploadInit).apply();
     }
 
+    @Override
+    public boolean isAutoUploadTrustingFileMetadata() {
+        return preferences.getBoolean(PREF__AUTO_UPLOAD_TRUST_FILE_METADATA, false);
+    }
+
+    @Override
+    public void setAutoUploadTrustingFileMetadata(boolean trustFileMetadata) {
+        preferences.edit().putBoolean(PREF__AUTO_UPLOAD_TRUST_FILE_METADATA, trustFileMetadata).apply();
+    }
+
     @Override
     public int getUploaderBehaviour() {
         return preferences.getInt(AUTO_PREF__UPLOADER_BEHAVIOR, 1);
@@ -586,6 +597,8 @@ public final class AppPreferencesImpl implements AppPreferences {
     /**
      * Get preference value for a folder.
      * If folder is not set itself, it finds an ancestor that is set.
+     * The resolved value is kept in {@link FolderPreferenceCache}, unless the folder is not stored yet, as all such
+     * folders share the same id.
      *
      * @param context Context object.
      * @param preferenceName Name of the preference to lookup.
@@ -602,14 +615,25 @@ public final class AppPreferencesImpl implements AppPreferences {
             return defaultValue;
         }
 
-        ArbitraryDataProvider dataProvider = new ArbitraryDataProvider(context.getContentResolver());
-        FileDataStorageManager storageManager = new FileDataStorageManager(user, context.getContentResolver());
+        boolean cacheable = folder == null || folder.fileExists();
+        long folderId = getFolderId(folder);
+        String value = cacheable ? FolderPreferenceCache.get(user.getAccountName(), preferenceName, folderId) : null;
+        if (value == null) {
+            long generation = FolderPreferenceCache.getGeneration();
+
+            ArbitraryDataProvider dataProvider = new ArbitraryDataProvider(context.getContentResolver());
+            FileDataStorageManager storageManager = new FileDataStorageManager(user, context.getContentResolver());
+
+            value = dataProvider.getValue(user.getAccountName(), getKeyFromFolder(preferenceName, folder));
+            OCFile prefFolder = folder;
+            while (prefFolder != null && value.isEmpty()) {
+                prefFolder = storageManager.getFileById(prefFolder.getParentId());
+                value = dataProvider.getValue(user.getAccountName(), getKeyFromFolder(preferenceName, prefFolder));
+            }
 
-        String value = dataProvider.getValue(user.getAccountName(), getKeyFromFolder(preferenceName, folder));
-        OCFile prefFolder = folder;
-        while (prefFolder != null && value.isEmpty()) {
-            prefFolder = storageManager.getFileById(prefFolder.getParentId());
-            value = dataProvider.getValue(user.getAccountName(), getKeyFromFolder(preferenceName, prefFolder));
+            if (cacheable) {
+                FolderPreferenceCache.put(user.getAccountName(), preferenceName, folderId, value, generation);
+            }
         }
         return value.isEmpty() ? defaultValue : value;
     }
@@ -629,13 +653,16 @@ public final class AppPreferencesImpl implements AppPreferences {
                                             final String value) {
         ArbitraryDataProvider dataProvider = new ArbitraryDataProvider(context.getContentResolver());
         dataProvider.storeOrUpdateKeyValue(user.getAccountName(), getKeyFromFolder(preferenceName, folder), value);
+        // descendants of the folder may have resolved the previous value
+        FolderPreferenceCache.invalidate();
     }
 
     private static String getKeyFromFolder(String preferenceName, @Nullable OCFile folder) {
-        final String folderIdString = String.valueOf(folder != null ? folder.getFileId() :
-            FileDataStorageManager.ROOT_PARENT_ID);
+        return preferenceName + "_" + getFolderId(folder);
+    }
 
-        return preferenceName + "_" + folderIdString;
+    private static long getFolderId(@Nullable OCFile folder) {
+        return folder != null ? folder.getFileId() : FileDataStorageManager.ROOT_PARENT_ID;
     }
 
     @Override
@@ -0,0 +1,104 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.nextcloud.client.preferences;
+
+import com.owncloud.android.datamodel.FileDataStorageManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Process-wide cache of folder preferences, like the sort order, resolved through the ancestors of the folders.
+ *
+ * The resolved value of a folder depends on its ancestors, so any change of a folder preference or of the folder
+ * tree invalidates the whole cache. It is shared by all {@link AppPreferencesImpl} instances, as many of them are
+ * created with {@link AppPreferencesImpl#fromContext}.
+ */
+public final class FolderPreferenceCache {
+
+    private static final int MAX_ENTRIES = 500;
+
+    private static final Map<String, String> values = new LinkedHashMap<String, String>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Incremented on each invalidation, guarded by {@link #values}.
+     */
+    private static long generation;
+
+    static {
+        // resolved values depend on the ancestors, which change when folders are moved or removed
+        FileDataStorageManager.addFolderTreeListener(FolderPreferenceCache::invalidate);
+    }
+
+    private FolderPreferenceCache() {
+        // utility class -> private constructor
+    }
+
+    /**
+     * @return value resolved before, empty if no folder up to the root is set, or null if not cached
+     */
+    @Nullable
+    static String get(String accountName, String preferenceName, long folderId) {
+        synchronized (values) {
+            return values.get(getKey(accountName, preferenceName, folderId));
+        }
+    }
+
+    /**
+     * @return current generation, to be passed to {@link #put} after resolving a value
+     */
+    static long getGeneration() {
+        synchronized (values) {
+            return generation;
+        }
+    }
+
+    /**
+     * Stores a resolved value, unless the cache was invalidated since the given generation, while resolving it.
+     */
+    static void put(String accountName, String preferenceName, long folderId, String value, long generation) {
+        synchronized (values) {
+            if (generation == FolderPreferenceCache.generation) {
+                values.put(getKey(accountName, preferenceName, folderId), value);
+            }
+        }
+    }
+
+    /**
+     * Drops all resolved values, e.g. when a folder preference is set, or when folders are moved or removed.
+     */
+    public static void invalidate() {
+        synchronized (values) {
+            values.clear();
+            generation++;
+        }
+    }
+
+    private static String getKey(String accountName, String preferenceName, long folderId) {
+        return accountName + "/" + preferenceName + "_" + folderId;
+    }
+}
@@ -21,20 +21,35 @@
 package com.owncloud.android.datamodel;
 
 import android.accounts.Account;
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
-import android.net.Uri;
+import android.os.RemoteException;
+import android.text.TextUtils;
 
 import com.nextcloud.client.account.User;
+import com.owncloud.android.MainApp;
 import com.owncloud.android.db.ProviderMeta;
 import com.owncloud.android.lib.common.utils.Log_OC;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 /**
  * Database provider for handling the persistence aspects of arbitrary data table.
+ *
+ * Values are cached in memory, shared by all instances of the process, and written through to the database.
+ * Changes of the table by other processes are reported by the content provider with {@link #invalidateCache()}.
  */
 public class ArbitraryDataProvider {
     public static final String DIRECT_EDITING = "DIRECT_EDITING";
@@ -44,6 +59,26 @@ public class ArbitraryDataProvider {
     private static final String TAG = ArbitraryDataProvider.class.getSimpleName();
     private static final String TRUE = "true";
 
+    private static final int MAX_CACHED_KEYS_PER_ACCOUNT = 500;
+
+    /**
+     * Maximum number of keys in a single query, below the limit of SQLite for arguments.
+     */
+    private static final int MAX_KEYS_PER_QUERY = 500;
+
+    private static final String WHERE_ACCOUNT_AND_KEY = ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_CLOUD_ID +
+        " = ? and " + ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_KEY + " = ?";
+
+    /**
+     * Values by key by account name, empty for keys without value, guarded by itself.
+     */
+    private static final Map<String, Map<String, String>> cache = new HashMap<>();
+
+    /**
+     * Incremented whenever cached values are dropped or written, guarded by {@link #cache}.
+     */
+    private static long cacheGeneration;
+
     private ContentResolver contentResolver;
 
     public ArbitraryDataProvider(ContentResolver contentResolver) {
@@ -54,12 +89,15 @@ public class ArbitraryDataProvider {
     }
 
     public int deleteKeyForAccount(String account, String key) {
-        return contentResolver.delete(
+        long generation = beginWrite(account, Collections.singleton(key));
+        int count = contentResolver.delete(
             ProviderMeta.ProviderTableMeta.CONTENT_URI_ARBITRARY_DATA,
             ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_CLOUD_ID + " = ? AND " +
                 ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_KEY + "= ?",
             new String[]{account, key}
-                                     );
+                                          );
+        endWrite(account, Collections.singletonMap(key, ""), generation);
+        return count;
     }
 
     public void storeOrUpdateKeyValue(String accountName, String key, long newValue) {
@@ -69,8 +107,6 @@ public class ArbitraryDataProvider {
     public void storeOrUpdateKeyValue(@NonNull String accountName,
                                       @NonNull String key,
                                       @Nullable String newValue) {
-        ArbitraryDataSet data = getArbitraryDataSet(accountName, key);
-
         String value;
         if (newValue == null) {
             value = "";
@@ -78,41 +114,73 @@ public class ArbitraryDataProvider {
             value = newValue;
         }
 
-        if (data == null) {
-            Log_OC.v(TAG, "Adding arbitrary data with cloud id: " + accountName + " key: " + key
-                + " value: " + value);
+        ContentValues cv = new ContentValues();
+        cv.put(ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_CLOUD_ID, accountName);
+        cv.put(ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_KEY, key);
+        cv.put(ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_VALUE, value);
 
-            ContentValues cv = new ContentValues();
-            cv.put(ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_CLOUD_ID, accountName);
-            cv.put(ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_KEY, key);
-            cv.put(ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_VALUE, value);
+        long generation = beginWrite(accountName, Collections.singleton(key));
 
-            Uri result = contentResolver.insert(ProviderMeta.ProviderTableMeta.CONTENT_URI_ARBITRARY_DATA, cv);
+        // update first, insert only if there was no row to update
+        int updated = contentResolver.update(ProviderMeta.ProviderTableMeta.CONTENT_URI_ARBITRARY_DATA,
+                                             cv,
+                                             WHERE_ACCOUNT_AND_KEY,
+                                             new String[]{accountName, key});
 
-            if (result == null) {
-                Log_OC.v(TAG, "Failed to store arbitrary data with cloud id: " + accountName + " key: " + key
-                    + " value: " + value);
-            }
+        if (updated > 0) {
+            Log_OC.v(TAG, "Updated arbitrary data with cloud id: " + accountName + " key: " + key
+                + " value: " + value);
+        } else if (contentResolver.insert(ProviderMeta.ProviderTableMeta.CONTENT_URI_ARBITRARY_DATA, cv) != null) {
+            Log_OC.v(TAG, "Added arbitrary data with cloud id: " + accountName + " key: " + key
+                + " value: " + value);
         } else {
-            Log_OC.v(TAG, "Updating arbitrary data with cloud id: " + accountName + " key: " + key
+            Log_OC.v(TAG, "Failed to store arbitrary data with cloud id: " + accountName + " key: " + key
                 + " value: " + value);
-            ContentValues cv = new ContentValues();
-            cv.put(ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_CLOUD_ID, data.getCloudId());
-            cv.put(ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_KEY, data.getKey());
-            cv.put(ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_VALUE, value);
-
-            int result = contentResolver.update(
-                    ProviderMeta.ProviderTableMeta.CONTENT_URI_ARBITRARY_DATA,
-                    cv,
-                    ProviderMeta.ProviderTableMeta._ID + "=?",
-                    new String[]{String.valueOf(data.getId())}
-            );
-
-            if (result == 0) {
-                Log_OC.v(TAG, "Failed to update arbitrary data with cloud id: " + accountName + " key: " + key
-                    + " value: " + value);
-            }
+            endWrite(accountName, Collections.singletonMap(key, null), generation);
+            return;
+        }
+        endWrite(accountName, Collections.singletonMap(key, value), generation);
+    }
+
+    /**
+     * Stores several values of an account in a single transaction.
+     *
+     * @param accountName name of account
+     * @param values      values by key; null values are stored as empty strings
+     * @return 'true' if all the values were stored
+     */
+    public boolean storeAll(@NonNull String accountName, @NonNull Map<String, String> values) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(values.size() * 2);
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            // replace the row of the key, if any, as the transaction cannot update or insert depending on it
+            operations.add(ContentProviderOperation
+                               .newDelete(ProviderMeta.ProviderTableMeta.CONTENT_URI_ARBITRARY_DATA)
+                               .withSelection(WHERE_ACCOUNT_AND_KEY, new String[]{accountName, entry.getKey()})
+                               .build());
+            operations.add(ContentProviderOperation
+                               .newInsert(ProviderMeta.ProviderTableMeta.CONTENT_URI_ARBITRARY_DATA)
+                               .withValue(ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_CLOUD_ID, accountName)
+                               .withValue(ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_KEY, entry.getKey())
+                               .withValue(ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_VALUE,
+                                          entry.getValue() == null ? "" : entry.getValue())
+                               .build());
+        }
+
+        long generation = beginWrite(accountName, values.keySet());
+        try {
+            contentResolver.applyBatch(MainApp.getAuthority(), operations);
+        } catch (OperationApplicationException | RemoteException e) {
+            Log_OC.e(TAG, "Failed to store " + values.size() + " arbitrary values with cloud id: " + accountName, e);
+            invalidateCache();
+            return false;
+        }
+
+        Map<String, String> storedValues = new HashMap<>(values.size());
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            storedValues.put(entry.getKey(), entry.getValue() == null ? "" : entry.getValue());
         }
+        endWrite(accountName, storedValues, generation);
+        return true;
     }
 
     Long getLongValue(String accountName, String key) {
@@ -182,70 +250,171 @@ public class ArbitraryDataProvider {
     }
 
     public String getValue(String accountName, String key) {
+        return getValues(accountName, Collections.singletonList(key)).get(key);
+    }
+
+    /**
+     * Returns several stored values of an account, reading the ones not cached yet with a single query.
+     *
+     * @param accountName name of account
+     * @param keys        keys to get values for
+     * @return values by key, empty strings for keys without value
+     */
+    @NonNull
+    public Map<String, String> getValues(String accountName, Collection<String> keys) {
+        Map<String, String> values = new HashMap<>(keys.size());
+        List<String> missingKeys = new ArrayList<>();
+        long generation;
+        synchronized (cache) {
+            Map<String, String> accountValues = cache.get(accountName);
+            for (String key : keys) {
+                String value = accountValues != null ? accountValues.get(key) : null;
+                if (value != null) {
+                    values.put(key, value);
+                } else {
+                    missingKeys.add(key);
+                }
+            }
+            generation = cacheGeneration;
+        }
+
+        if (missingKeys.isEmpty()) {
+            return values;
+        }
+
+        Map<String, String> storedValues = new HashMap<>(missingKeys.size());
+        for (int start = 0; start < missingKeys.size(); start += MAX_KEYS_PER_QUERY) {
+            List<String> chunk = missingKeys.subList(start, Math.min(start + MAX_KEYS_PER_QUERY,
+                                                                     missingKeys.size()));
+            if (!queryValues(accountName, chunk, storedValues)) {
+                // not cached, so that the query is repeated
+                for (String key : missingKeys) {
+                    values.put(key, "");
+                }
+                return values;
+            }
+        }
+
+        synchronized (cache) {
+            // values may have been written or dropped during the query
+            boolean cacheable = generation == cacheGeneration;
+            for (String key : missingKeys) {
+                String value = storedValues.containsKey(key) ? storedValues.get(key) : "";
+                values.put(key, value);
+                if (cacheable) {
+                    cacheValue(accountName, key, value);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return 'false' on database errors
+     */
+    private boolean queryValues(String accountName, List<String> keys, Map<String, String> values) {
+        String[] selectionArgs = new String[keys.size() + 1];
+        selectionArgs[0] = accountName;
+        for (int i = 0; i < keys.size(); i++) {
+            selectionArgs[i + 1] = keys.get(i);
+        }
+
         Cursor cursor = contentResolver.query(
             ProviderMeta.ProviderTableMeta.CONTENT_URI_ARBITRARY_DATA,
             null,
             ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_CLOUD_ID + " = ? and " +
-                ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_KEY + " = ?",
-            new String[]{accountName, key},
+                ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_KEY + " IN (" +
+                TextUtils.join(",", Collections.nCopies(keys.size(), "?")) + ")",
+            selectionArgs,
             null
                                              );
 
-        if (cursor != null) {
-            if (cursor.moveToFirst()) {
-                String value = cursor.getString(cursor.getColumnIndex(
-                        ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_VALUE));
-                if (value == null) {
-                    Log_OC.e(TAG, "Arbitrary value could not be created from cursor");
-                } else {
-                    cursor.close();
-                    return value;
-                }
-            }
-            cursor.close();
-            return "";
-        } else {
+        if (cursor == null) {
             Log_OC.e(TAG, "DB error restoring arbitrary values.");
+            return false;
         }
 
-        return "";
+        int keyIndex = cursor.getColumnIndex(ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_KEY);
+        int valueIndex = cursor.getColumnIndex(ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_VALUE);
+        while (cursor.moveToNext()) {
+            String value = cursor.getString(valueIndex);
+            if (value == null) {
+                Log_OC.e(TAG, "Arbitrary value could not be created from cursor");
+            } else {
+                values.put(cursor.getString(keyIndex), value);
+            }
+        }
+        cursor.close();
+        return true;
     }
 
-    private ArbitraryDataSet getArbitraryDataSet(String accountName, String key) {
-        Cursor cursor = contentResolver.query(
-                ProviderMeta.ProviderTableMeta.CONTENT_URI_ARBITRARY_DATA,
-                null,
-                ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_CLOUD_ID + " = ? and " +
-                        ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_KEY + " = ?",
-                new String[]{accountName, key},
-                null
-        );
-
-        ArbitraryDataSet dataSet = null;
-        if (cursor != null) {
-            if (cursor.moveToFirst()) {
-                int id = cursor.getInt(cursor.getColumnIndex(ProviderMeta.ProviderTableMeta._ID));
-                String dbAccount = cursor.getString(cursor.getColumnIndex(
-                        ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_CLOUD_ID));
-                String dbKey = cursor.getString(cursor.getColumnIndex(
-                        ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_KEY));
-                String dbValue = cursor.getString(cursor.getColumnIndex(
-                        ProviderMeta.ProviderTableMeta.ARBITRARY_DATA_VALUE));
-
-                if (id == -1) {
-                    Log_OC.e(TAG, "Arbitrary value could not be created from cursor");
-                } else {
-                    if (dbValue == null) {
-                        dbValue = "";
-                    }
-                    dataSet = new ArbitraryDataSet(id, dbAccount, dbKey, dbValue);
+    /**
+     * Drops all cached values, e.g. when another process changed the table.
+     */
+    public static void invalidateCache() {
+        synchronized (cache) {
+            cache.clear();
+            cacheGeneration++;
+        }
+    }
+
+    /**
+     * Drops the cached values of keys about to be written, so that they are not read from the cache meanwhile. The
+     * database is written without the lock of {@link #cache}, followed by {@link #endWrite(String, Map, long)}.
+     *
+     * @return generation of the cache to pass to {@link #endWrite(String, Map, long)}
+     */
+    private static long beginWrite(String accountName, Collection<String> keys) {
+        synchronized (cache) {
+            removeCachedValues(accountName, keys);
+            return ++cacheGeneration;
+        }
+    }
+
+    /**
+     * Caches the values just written, unless the cache changed during the write, e.g. by a concurrent write of the
+     * same keys: then the order of the writes is unknown, so the values are dropped to be read from the database.
+     * Also discards values read from the database during the write.
+     *
+     * @param values values by key; null values when the write failed
+     */
+    private static void endWrite(String accountName, Map<String, String> values, long generation) {
+        synchronized (cache) {
+            if (generation == cacheGeneration && !values.containsValue(null)) {
+                for (Map.Entry<String, String> entry : values.entrySet()) {
+                    cacheValue(accountName, entry.getKey(), entry.getValue());
                 }
+            } else {
+                removeCachedValues(accountName, values.keySet());
             }
-            cursor.close();
-        } else {
-            Log_OC.e(TAG, "DB error restoring arbitrary values.");
+            cacheGeneration++;
         }
+    }
 
-        return dataSet;
+    /**
+     * Must be called with the lock of {@link #cache}.
+     */
+    private static void cacheValue(String accountName, String key, String value) {
+        Map<String, String> accountValues = cache.get(accountName);
+        if (accountValues == null) {
+            accountValues = new LinkedHashMap<String, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > MAX_CACHED_KEYS_PER_ACCOUNT;
+                }
+            };
+            cache.put(accountName, accountValues);
+        }
+        accountValues.put(key, value);
+    }
+
+    /**
+     * Must be called with the lock of {@link #cache}.
+     */
+    private static void removeCachedValues(String accountName, Collection<String> keys) {
+        Map<String, String> accountValues = cache.get(accountName);
+        if (accountValues != null) {
+            accountValues.keySet().removeAll(keys);
+        }
     }
 }
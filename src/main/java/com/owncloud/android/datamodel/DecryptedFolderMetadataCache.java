@@ -0,0 +1,269 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.datamodel;
+
+import android.content.Context;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.text.TextUtils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import org.apache.commons.codec.binary.Hex;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Process-wide cache of decrypted metadata of end-to-end encrypted folders, to avoid downloading and decrypting the
+ * metadata of a folder again for each of its files.
+ *
+ * Entries are bound to the ETag of the folder, and are dropped as soon as the folder has another ETag. Besides the
+ * memory, entries are kept in the cache folder of the app, encrypted with a key of the Android keystore, as the
+ * metadata contains the keys of the files. The returned metadata is shared and must not be modified.
+ */
+public final class DecryptedFolderMetadataCache {
+
+    private static final String TAG = DecryptedFolderMetadataCache.class.getSimpleName();
+
+    private static final int MAX_ENTRIES = 100;
+    private static final String CACHE_FOLDER = "e2e_metadata";
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String KEY_ALIAS = "e2e_metadata_cache";
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final int AUTHENTICATION_TAG_LENGTH = 128;
+
+    private static final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private DecryptedFolderMetadataCache() {
+        // utility class -> private constructor
+    }
+
+    /**
+     * @return cached metadata of the folder, or null if not cached for the current ETag of the folder
+     */
+    @Nullable
+    public static DecryptedFolderMetadata get(Context context, String accountName, OCFile folder) {
+        if (TextUtils.isEmpty(folder.getEtag())) {
+            return null;
+        }
+
+        String key = getKey(accountName, folder.getLocalId());
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+
+        if (entry == null) {
+            entry = readEntry(getCacheFile(context, key));
+            if (entry == null) {
+                return null;
+            }
+            synchronized (entries) {
+                entries.put(key, entry);
+            }
+        }
+
+        if (!folder.getEtag().equals(entry.etag)) {
+            // metadata may have changed on the server
+            invalidate(context, accountName, folder.getLocalId());
+            return null;
+        }
+        return entry.metadata;
+    }
+
+    /**
+     * Stores the metadata downloaded for the current ETag of the folder.
+     */
+    public static void put(Context context, String accountName, OCFile folder, DecryptedFolderMetadata metadata) {
+        if (TextUtils.isEmpty(folder.getEtag())) {
+            return;
+        }
+
+        String key = getKey(accountName, folder.getLocalId());
+        Entry entry = new Entry(folder.getEtag(), metadata);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+        writeEntry(getCacheFile(context, key), entry);
+    }
+
+    /**
+     * Drops the metadata of a folder, e.g. when it is changed by the app.
+     */
+    public static void invalidate(Context context, String accountName, String folderLocalId) {
+        String key = getKey(accountName, folderLocalId);
+        synchronized (entries) {
+            entries.remove(key);
+        }
+
+        File file = getCacheFile(context, key);
+        if (file.exists() && !file.delete()) {
+            Log_OC.w(TAG, "Unable to delete " + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Drops the entries kept in memory, so that they are read from the disk again.
+     */
+    @VisibleForTesting
+    static void clearMemory() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @Nullable
+    private static Entry readEntry(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            byte[] iv = new byte[readLength(in, file)];
+            in.readFully(iv);
+            byte[] encrypted = new byte[readLength(in, file)];
+            in.readFully(encrypted);
+
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.DECRYPT_MODE, getSecretKey(), new GCMParameterSpec(AUTHENTICATION_TAG_LENGTH, iv));
+            String json = new String(cipher.doFinal(encrypted), StandardCharsets.UTF_8);
+
+            Entry entry = new Gson().fromJson(json, Entry.class);
+            return entry != null && entry.etag != null && entry.metadata != null ? entry : null;
+        } catch (IOException | GeneralSecurityException | JsonParseException e) {
+            Log_OC.w(TAG, "Unable to read cached metadata: " + e.getMessage());
+            if (!file.delete()) {
+                Log_OC.w(TAG, "Unable to delete " + file.getAbsolutePath());
+            }
+            return null;
+        }
+    }
+
+    private static int readLength(DataInputStream in, File file) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > file.length()) {
+            throw new IOException("Corrupt cache file " + file.getAbsolutePath());
+        }
+        return length;
+    }
+
+    private static void writeEntry(File file, Entry entry) {
+        File folder = file.getParentFile();
+        if (folder != null && !folder.exists() && !folder.mkdirs()) {
+            Log_OC.w(TAG, "Unable to create " + folder.getAbsolutePath());
+            return;
+        }
+
+        File tmpFile = new File(file.getAbsolutePath() + ".tmp");
+        try {
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.ENCRYPT_MODE, getSecretKey());
+            byte[] encrypted = cipher.doFinal(new Gson().toJson(entry).getBytes(StandardCharsets.UTF_8));
+            byte[] iv = cipher.getIV();
+
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmpFile))) {
+                out.writeInt(iv.length);
+                out.write(iv);
+                out.writeInt(encrypted.length);
+                out.write(encrypted);
+            }
+
+            if (!tmpFile.renameTo(file)) {
+                throw new IOException("Unable to rename " + tmpFile.getAbsolutePath());
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            Log_OC.w(TAG, "Unable to store cached metadata: " + e.getMessage());
+            if (tmpFile.exists() && !tmpFile.delete()) {
+                Log_OC.w(TAG, "Unable to delete " + tmpFile.getAbsolutePath());
+            }
+        }
+    }
+
+    private static synchronized SecretKey getSecretKey() throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        keyStore.load(null);
+
+        if (keyStore.containsAlias(KEY_ALIAS)) {
+            return ((KeyStore.SecretKeyEntry) keyStore.getEntry(KEY_ALIAS, null)).getSecretKey();
+        }
+
+        KeyGenerator keyGenerator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE);
+        keyGenerator.init(new KeyGenParameterSpec.Builder(KEY_ALIAS,
+                                                          KeyProperties.PURPOSE_ENCRYPT |
+                                                              KeyProperties.PURPOSE_DECRYPT)
+                              .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                              .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                              .build());
+        return keyGenerator.generateKey();
+    }
+
+    private static File getCacheFile(Context context, String key) {
+        return new File(new File(context.getCacheDir(), CACHE_FOLDER), key);
+    }
+
+    /**
+     * @return key usable as file name, as account names may contain slashes
+     */
+    private static String getKey(String accountName, String folderLocalId) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((accountName + "/" + folderLocalId).getBytes(StandardCharsets.UTF_8));
+            return new String(Hex.encodeHex(hash));
+        } catch (GeneralSecurityException e) {
+            return Integer.toHexString((accountName + "/" + folderLocalId).hashCode());
+        }
+    }
+
+    private static class Entry {
+        private final String etag;
+        private final DecryptedFolderMetadata metadata;
+
+        Entry(String etag, DecryptedFolderMetadata metadata) {
+            this.etag = etag;
+            this.metadata = metadata;
+        }
+    }
+}
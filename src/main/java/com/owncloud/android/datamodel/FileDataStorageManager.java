@@ -30,42 +30,44 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.OperationApplicationException;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.net.Uri;
 import android.os.Build;
 import android.os.RemoteException;
 import android.provider.MediaStore;
 import android.text.TextUtils;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
 import com.nextcloud.client.account.User;
 import com.owncloud.android.MainApp;
 import com.owncloud.android.db.ProviderMeta.ProviderTableMeta;
-import com.owncloud.android.lib.common.network.WebdavEntry;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.lib.resources.files.ReadFileRemoteOperation;
 import com.owncloud.android.lib.resources.files.model.RemoteFile;
 import com.owncloud.android.lib.resources.shares.OCShare;
 import com.owncloud.android.lib.resources.shares.ShareType;
-import com.owncloud.android.lib.resources.shares.ShareeUser;
 import com.owncloud.android.lib.resources.status.CapabilityBooleanType;
 import com.owncloud.android.lib.resources.status.OCCapability;
 import com.owncloud.android.operations.RemoteOperationFailedException;
 import com.owncloud.android.utils.FileStorageUtils;
 import com.owncloud.android.utils.MimeType;
 import com.owncloud.android.utils.MimeTypeUtil;
+import com.owncloud.android.utils.StringUtils;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -83,6 +85,8 @@ public class FileDataStorageManager {
     public static final int ROOT_PARENT_ID = 0;
     public static final String NULL_STRING = "null";
 
+    private static final List<FolderTreeListener> folderTreeListeners = new CopyOnWriteArrayList<>();
+
     private ContentResolver contentResolver;
     private ContentProviderClient contentProviderClient;
     private Account account;
@@ -109,6 +113,19 @@ public class FileDataStorageManager {
         this(user.toPlatformAccount(), contentProviderClient);
     }
 
+    /**
+     * Registers a listener notified whenever folders are moved or removed, for all accounts.
+     */
+    public static void addFolderTreeListener(FolderTreeListener listener) {
+        folderTreeListeners.add(listener);
+    }
+
+    private static void notifyFolderTreeChanged() {
+        for (FolderTreeListener listener : folderTreeListeners) {
+            listener.onFolderTreeChanged();
+        }
+    }
+
     /**
      * Use getFileByEncryptedRemotePath() or getFileByDecryptedRemotePath()
      */
@@ -252,7 +269,7 @@ public class FileDataStorageManager {
         cv.put(ProviderTableMeta.FILE_OWNER_ID, ocFile.getOwnerId());
         cv.put(ProviderTableMeta.FILE_OWNER_DISPLAY_NAME, ocFile.getOwnerDisplayName());
         cv.put(ProviderTableMeta.FILE_NOTE, ocFile.getNote());
-        cv.put(ProviderTableMeta.FILE_SHAREES, new Gson().toJson(ocFile.getSharees()));
+        cv.put(ProviderTableMeta.FILE_SHAREES, OCFileCursorMapper.GSON.toJson(ocFile.getSharees()));
         cv.put(ProviderTableMeta.FILE_RICH_WORKSPACE, ocFile.getRichWorkspace());
         cv.put(ProviderTableMeta.FILE_HAS_PREVIEW, ocFile.isPreviewAvailable() ? 1 : 0);
 
@@ -266,19 +283,23 @@ public class FileDataStorageManager {
             }
 
             overridden = true;
+            int updated = 0;
             if (getContentResolver() != null) {
-                getContentResolver().update(ProviderTableMeta.CONTENT_URI, cv,
-                                            ProviderTableMeta._ID + "=?",
-                                            new String[]{String.valueOf(ocFile.getFileId())});
+                updated = getContentResolver().update(ProviderTableMeta.CONTENT_URI, cv,
+                                                      ProviderTableMeta._ID + "=?",
+                                                      new String[]{String.valueOf(ocFile.getFileId())});
             } else {
                 try {
-                    getContentProviderClient().update(ProviderTableMeta.CONTENT_URI,
-                                                      cv, ProviderTableMeta._ID + "=?",
-                                                      new String[]{String.valueOf(ocFile.getFileId())});
+                    updated = getContentProviderClient().update(ProviderTableMeta.CONTENT_URI,
+                                                                cv, ProviderTableMeta._ID + "=?",
+                                                                new String[]{String.valueOf(ocFile.getFileId())});
                 } catch (RemoteException e) {
                     Log_OC.e(TAG, FAILED_TO_INSERT_MSG + e.getMessage(), e);
                 }
             }
+            if (updated > 0) {
+                evictOutdatedThumbnail(ocFile);
+            }
         } else {
             Uri result_uri = null;
             if (getContentResolver() != null) {
@@ -293,12 +314,25 @@ public class FileDataStorageManager {
             if (result_uri != null) {
                 long new_id = Long.parseLong(result_uri.getPathSegments().get(1));
                 ocFile.setFileId(new_id);
+                evictOutdatedThumbnail(ocFile);
             }
         }
 
         return overridden;
     }
 
+    /**
+     * Drops the in-memory thumbnail of a file whose row was just written with a pending thumbnail update, so the
+     * stale bitmap is not shown until the new one is generated.
+     *
+     * @param file the file that was written to the database
+     */
+    private static void evictOutdatedThumbnail(OCFile file) {
+        if (file.isUpdateThumbnailNeeded()) {
+            ThumbnailsMemoryCache.remove(file.getRemoteId());
+        }
+    }
+
     /**
      * traverses a files parent tree to be able to store a file with its parents. Throws a
      * RemoteOperationFailedException in case the parent can't be retrieved.
@@ -375,18 +409,38 @@ public class FileDataStorageManager {
             + " children and " + filesToRemove.size() + " files to remove");
 
         ArrayList<ContentProviderOperation> operations = new ArrayList<>(updatedFiles.size());
+        // files in the same order as their insert / update operations, needed to map back new ids
+        List<OCFile> operationFiles = new ArrayList<>(updatedFiles.size());
+
+        // load the current children once, instead of querying the existence of every single file
+        Map<Long, ContentValues> existingById = new HashMap<>();
+        Map<String, ContentValues> existingByPath = new HashMap<>();
+        loadFolderContentValues(folder.getFileId(), existingById, existingByPath);
 
         // prepare operations to insert or update files to save in the given folder
         for (OCFile ocFile : updatedFiles) {
-            ContentValues contentValues = createContentValueForFile(ocFile, folder);
+            ContentValues contentValues = createContentValueForFile(ocFile, folder.getFileId());
 
-            if (fileExists(ocFile.getFileId()) || fileExists(ocFile.getRemotePath())) {
-                long fileId;
-                if (ocFile.getFileId() != -1) {
-                    fileId = ocFile.getFileId();
-                } else {
-                    fileId = getFileByPath(ocFile.getRemotePath()).getFileId();
+            ContentValues existing = existingById.get(ocFile.getFileId());
+            if (existing == null) {
+                existing = existingByPath.get(ocFile.getRemotePath());
+            }
+
+            long fileId = -1;
+            if (existing != null) {
+                fileId = existing.getAsLong(ProviderTableMeta._ID);
+            } else if (ocFile.getFileId() != -1 && fileExists(ocFile.getFileId())) {
+                // moved into this folder from somewhere else
+                fileId = ocFile.getFileId();
+            }
+
+            if (fileId != -1) {
+                if (existing != null && isUnchanged(contentValues, existing)) {
+                    // nothing to write
+                    ocFile.setFileId(fileId);
+                    continue;
                 }
+
                 // updating an existing file
                 operations.add(ContentProviderOperation.newUpdate(ProviderTableMeta.CONTENT_URI)
                                    .withValues(contentValues)
@@ -398,6 +452,7 @@ public class FileDataStorageManager {
                                    .withValues(contentValues)
                                    .build());
             }
+            operationFiles.add(ocFile);
         }
 
         // prepare operations to remove files in the given folder
@@ -458,7 +513,7 @@ public class FileDataStorageManager {
         // update new id in file objects for insertions
         if (results != null) {
             long newId;
-            Iterator<OCFile> fileIterator = updatedFiles.iterator();
+            Iterator<OCFile> fileIterator = operationFiles.iterator();
             OCFile ocFile;
             for (ContentProviderResult result : results) {
                 if (fileIterator.hasNext()) {
@@ -473,7 +528,78 @@ public class FileDataStorageManager {
                     }
                 }
             }
+
+            for (OCFile file : operationFiles) {
+                evictOutdatedThumbnail(file);
+            }
+        }
+    }
+
+    /**
+     * Reads all rows of the children of the given folder, indexed by id and by remote path.
+     *
+     * @param parentId     id of the folder
+     * @param byId         receives the rows indexed by their id
+     * @param byRemotePath receives the rows indexed by their remote path
+     */
+    private void loadFolderContentValues(long parentId,
+                                         Map<Long, ContentValues> byId,
+                                         Map<String, ContentValues> byRemotePath) {
+        Uri requestURI = Uri.withAppendedPath(ProviderTableMeta.CONTENT_URI_DIR, String.valueOf(parentId));
+        String selection = ProviderTableMeta.FILE_PARENT + "=?";
+        String[] selectionArgs = new String[]{String.valueOf(parentId)};
+        Cursor cursor;
+
+        if (getContentProviderClient() != null) {
+            try {
+                cursor = getContentProviderClient().query(requestURI, null, selection, selectionArgs, null);
+            } catch (RemoteException e) {
+                Log_OC.e(TAG, e.getMessage(), e);
+                return;
+            }
+        } else {
+            cursor = getContentResolver().query(requestURI, null, selection, selectionArgs, null);
+        }
+
+        if (cursor != null) {
+            while (cursor.moveToNext()) {
+                ContentValues row = new ContentValues();
+                DatabaseUtils.cursorRowToContentValues(cursor, row);
+                byId.put(row.getAsLong(ProviderTableMeta._ID), row);
+                byRemotePath.put(row.getAsString(ProviderTableMeta.FILE_PATH), row);
+            }
+            cursor.close();
+        }
+    }
+
+    /**
+     * Checks if writing the given values would change the stored row. Stored values are read back as strings, so
+     * booleans are compared in their SQLite representation.
+     */
+    @VisibleForTesting
+    static boolean isUnchanged(ContentValues newValues, ContentValues storedValues) {
+        for (String key : newValues.keySet()) {
+            if (!storedValues.containsKey(key)) {
+                return false;
+            }
+
+            Object newValue = newValues.get(key);
+            String storedValue = storedValues.getAsString(key);
+
+            if (newValue == null) {
+                if (storedValue != null) {
+                    return false;
+                }
+            } else if (newValue instanceof Boolean) {
+                if (!((Boolean) newValue ? "1" : "0").equals(storedValue)) {
+                    return false;
+                }
+            } else if (!newValue.toString().equals(storedValue)) {
+                return false;
+            }
         }
+
+        return true;
     }
 
     private ContentValues createContentValueForFile(OCFile folder) {
@@ -505,13 +631,13 @@ public class FileDataStorageManager {
         cv.put(ProviderTableMeta.FILE_OWNER_ID, folder.getOwnerId());
         cv.put(ProviderTableMeta.FILE_OWNER_DISPLAY_NAME, folder.getOwnerDisplayName());
         cv.put(ProviderTableMeta.FILE_NOTE, folder.getNote());
-        cv.put(ProviderTableMeta.FILE_SHAREES, new Gson().toJson(folder.getSharees()));
+        cv.put(ProviderTableMeta.FILE_SHAREES, OCFileCursorMapper.GSON.toJson(folder.getSharees()));
         cv.put(ProviderTableMeta.FILE_RICH_WORKSPACE, folder.getRichWorkspace());
 
         return cv;
     }
 
-    private ContentValues createContentValueForFile(OCFile file, OCFile folder) {
+    private ContentValues createContentValueForFile(OCFile file, long parentId) {
         ContentValues cv = new ContentValues();
         cv.put(ProviderTableMeta.FILE_MODIFIED, file.getModificationTimestamp());
         cv.put(ProviderTableMeta.FILE_MODIFIED_AT_LAST_SYNC_FOR_DATA, file.getModificationTimestampAtLastSyncForData());
@@ -520,7 +646,7 @@ public class FileDataStorageManager {
         cv.put(ProviderTableMeta.FILE_CONTENT_TYPE, file.getMimeType());
         cv.put(ProviderTableMeta.FILE_NAME, file.getFileName());
         cv.put(ProviderTableMeta.FILE_ENCRYPTED_NAME, file.getEncryptedFileName());
-        cv.put(ProviderTableMeta.FILE_PARENT, folder.getFileId());
+        cv.put(ProviderTableMeta.FILE_PARENT, parentId);
         cv.put(ProviderTableMeta.FILE_PATH, file.getRemotePath());
         cv.put(ProviderTableMeta.FILE_PATH_DECRYPTED, file.getDecryptedRemotePath());
         cv.put(ProviderTableMeta.FILE_STORAGE_PATH, file.getStoragePath());
@@ -544,7 +670,7 @@ public class FileDataStorageManager {
         cv.put(ProviderTableMeta.FILE_OWNER_ID, file.getOwnerId());
         cv.put(ProviderTableMeta.FILE_OWNER_DISPLAY_NAME, file.getOwnerDisplayName());
         cv.put(ProviderTableMeta.FILE_NOTE, file.getNote());
-        cv.put(ProviderTableMeta.FILE_SHAREES, new Gson().toJson(file.getSharees()));
+        cv.put(ProviderTableMeta.FILE_SHAREES, OCFileCursorMapper.GSON.toJson(file.getSharees()));
         cv.put(ProviderTableMeta.FILE_RICH_WORKSPACE, file.getRichWorkspace());
 
         return cv;
@@ -616,6 +742,68 @@ public class FileDataStorageManager {
         return success;
     }
 
+    /**
+     * Removes several files and folders, including the content of the folders, from the database in a single
+     * transaction, and optionally their local copies.
+     *
+     * @return 'true' if all the files were removed
+     */
+    public boolean removeFiles(Collection<OCFile> files, boolean removeLocalCopy) {
+        String where = ProviderTableMeta.FILE_ACCOUNT_OWNER + AND + ProviderTableMeta.FILE_PATH + "=?";
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(files.size());
+        for (OCFile ocFile : files) {
+            if (ocFile.getFileId() == -1) {
+                continue;
+            }
+
+            Uri uri;
+            if (ocFile.isFolder()) {
+                // for recursive deletion
+                uri = Uri.withAppendedPath(ProviderTableMeta.CONTENT_URI_DIR, String.valueOf(ocFile.getFileId()));
+            } else {
+                uri = ContentUris.withAppendedId(ProviderTableMeta.CONTENT_URI_FILE, ocFile.getFileId());
+            }
+            operations.add(ContentProviderOperation.newDelete(uri)
+                               .withSelection(where, new String[]{account.name, ocFile.getRemotePath()})
+                               .build());
+        }
+
+        boolean success = true;
+        try {
+            ContentProviderResult[] results;
+            if (getContentResolver() != null) {
+                results = getContentResolver().applyBatch(MainApp.getAuthority(), operations);
+            } else {
+                results = getContentProviderClient().applyBatch(operations);
+            }
+
+            for (ContentProviderResult result : results) {
+                success &= result.count != null && result.count > 0;
+            }
+        } catch (OperationApplicationException | RemoteException e) {
+            Log_OC.e(TAG, "Fail to remove " + files.size() + " files from database", e);
+            return false;
+        } finally {
+            notifyFolderTreeChanged();
+        }
+
+        if (removeLocalCopy) {
+            for (OCFile ocFile : files) {
+                if (ocFile.isFolder()) {
+                    success &= removeLocalFolder(ocFile);
+                } else if (ocFile.isDown() && ocFile.getStoragePath() != null) {
+                    boolean deleted = new File(ocFile.getStoragePath()).delete();
+                    if (deleted) {
+                        deleteFileInMediaScan(ocFile.getStoragePath());
+                    }
+                    success &= deleted;
+                }
+            }
+        }
+
+        return success;
+    }
+
     private boolean removeFolderInDb(OCFile folder) {
         Uri folderUri = Uri.withAppendedPath(ProviderTableMeta.CONTENT_URI_DIR, String.valueOf(folder.getFileId()));
         // for recursive deletion
@@ -631,6 +819,7 @@ public class FileDataStorageManager {
         } else {
             deleted = getContentResolver().delete(folderUri, where, whereArgs);
         }
+        notifyFolderTreeChanged();
         return deleted > 0;
     }
 
@@ -697,115 +886,176 @@ public class FileDataStorageManager {
                 throw new IllegalStateException("Parent folder of the target path does not exist!!");
             }
 
-            /// 1. get all the descendants of the moved element in a single QUERY
-            Cursor cursor = null;
-            if (getContentProviderClient() != null) {
-                try {
-                    cursor = getContentProviderClient().query(
-                        ProviderTableMeta.CONTENT_URI,
-                        null,
-                        ProviderTableMeta.FILE_ACCOUNT_OWNER + AND + ProviderTableMeta.FILE_PATH + " LIKE ? ",
-                        new String[]{account.name, ocFile.getRemotePath() + "%"},
-                        ProviderTableMeta.FILE_PATH + " ASC "
-                    );
-                } catch (RemoteException e) {
-                    Log_OC.e(TAG, e.getMessage(), e);
+            ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+            LocalMove move = prepareMove(ocFile, targetPath, targetParent, operations);
+
+            /// 3. apply updates in batch
+            try {
+                if (getContentResolver() != null) {
+                    getContentResolver().applyBatch(MainApp.getAuthority(), operations);
+                } else {
+                    getContentProviderClient().applyBatch(operations);
                 }
 
+            } catch (Exception e) {
+                Log_OC.e(TAG, "Fail to update " + ocFile.getFileId() + " and descendants in database", e);
+            }
+            if (ocFile.isFolder()) {
+                notifyFolderTreeChanged();
+            }
+
+            /// 4. move in local file system
+            moveInFileSystem(move);
+        }
+    }
+
+    /**
+     * Updates database and file system for several files and folders that were moved into the same folder. The
+     * database is updated in a single transaction.
+     *
+     * @param targetParentPath Path of the folder the files were moved into, ending with a path separator.
+     */
+    public void moveLocalFiles(Collection<OCFile> files, String targetParentPath) {
+        OCFile targetParent = getFileByPath(targetParentPath);
+        if (targetParent == null) {
+            throw new IllegalStateException("Parent folder of the target path does not exist!!");
+        }
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        List<LocalMove> moves = new ArrayList<>(files.size());
+        for (OCFile ocFile : files) {
+            if (ocFile.fileExists() && !OCFile.ROOT_PATH.equals(ocFile.getFileName())) {
+                String targetPath = targetParentPath + ocFile.getFileName();
+                if (ocFile.isFolder()) {
+                    targetPath += OCFile.PATH_SEPARATOR;
+                }
+                moves.add(prepareMove(ocFile, targetPath, targetParent, operations));
+            }
+        }
+
+        try {
+            if (getContentResolver() != null) {
+                getContentResolver().applyBatch(MainApp.getAuthority(), operations);
             } else {
-                cursor = getContentResolver().query(
+                getContentProviderClient().applyBatch(operations);
+            }
+
+        } catch (Exception e) {
+            Log_OC.e(TAG, "Fail to update " + moves.size() + " moved files and descendants in database", e);
+        }
+        notifyFolderTreeChanged();
+
+        for (LocalMove move : moves) {
+            moveInFileSystem(move);
+        }
+    }
+
+    /**
+     * Adds to 'operations' the updates of the moved file and all its descendants in the database.
+     */
+    private LocalMove prepareMove(OCFile ocFile,
+                                  String targetPath,
+                                  OCFile targetParent,
+                                  ArrayList<ContentProviderOperation> operations) {
+        /// 1. get all the descendants of the moved element in a single QUERY
+        Cursor cursor = null;
+        if (getContentProviderClient() != null) {
+            try {
+                cursor = getContentProviderClient().query(
                     ProviderTableMeta.CONTENT_URI,
                     null,
-                    ProviderTableMeta.FILE_ACCOUNT_OWNER + AND + ProviderTableMeta.FILE_PATH + " LIKE ? ",
-                    new String[]{account.name, ocFile.getRemotePath() + "%"},
+                    ProviderTableMeta.FILE_ACCOUNT_OWNER + AND + ProviderTableMeta.FILE_PATH + " GLOB ? ",
+                    new String[]{account.name, StringUtils.globPrefix(ocFile.getRemotePath())},
                     ProviderTableMeta.FILE_PATH + " ASC "
                 );
+            } catch (RemoteException e) {
+                Log_OC.e(TAG, e.getMessage(), e);
             }
 
-            /// 2. prepare a batch of update operations to change all the descendants
-            ArrayList<ContentProviderOperation> operations = new ArrayList<>(cursor.getCount());
-            String defaultSavePath = FileStorageUtils.getSavePath(account.name);
-            List<String> originalPathsToTriggerMediaScan = new ArrayList<>();
-            List<String> newPathsToTriggerMediaScan = new ArrayList<>();
+        } else {
+            cursor = getContentResolver().query(
+                ProviderTableMeta.CONTENT_URI,
+                null,
+                ProviderTableMeta.FILE_ACCOUNT_OWNER + AND + ProviderTableMeta.FILE_PATH + " GLOB ? ",
+                new String[]{account.name, StringUtils.globPrefix(ocFile.getRemotePath())},
+                ProviderTableMeta.FILE_PATH + " ASC "
+            );
+        }
 
-            if (cursor.moveToFirst()) {
-                int lengthOfOldPath = ocFile.getRemotePath().length();
-                int lengthOfOldStoragePath = defaultSavePath.length() + lengthOfOldPath;
-                do {
-                    ContentValues contentValues = new ContentValues(); // keep construction in the loop
-                    OCFile childFile = createFileInstance(cursor);
-                    contentValues.put(
-                        ProviderTableMeta.FILE_PATH,
-                        targetPath + childFile.getRemotePath().substring(lengthOfOldPath)
-                    );
+        /// 2. prepare a batch of update operations to change all the descendants
+        String defaultSavePath = FileStorageUtils.getSavePath(account.name);
+        LocalMove move = new LocalMove(ocFile, targetPath);
 
-                    if (childFile.getStoragePath() != null && childFile.getStoragePath().startsWith(defaultSavePath)) {
-                        // update link to downloaded content - but local move is not done here!
-                        String targetLocalPath = defaultSavePath + targetPath +
-                            childFile.getStoragePath().substring(lengthOfOldStoragePath);
+        if (cursor.moveToFirst()) {
+            int lengthOfOldPath = ocFile.getRemotePath().length();
+            int lengthOfOldStoragePath = defaultSavePath.length() + lengthOfOldPath;
+            OCFileCursorMapper mapper = new OCFileCursorMapper(cursor, account.name);
+            do {
+                ContentValues contentValues = new ContentValues(); // keep construction in the loop
+                OCFile childFile = mapper.map();
+                contentValues.put(
+                    ProviderTableMeta.FILE_PATH,
+                    targetPath + childFile.getRemotePath().substring(lengthOfOldPath)
+                );
 
-                        contentValues.put(ProviderTableMeta.FILE_STORAGE_PATH, targetLocalPath);
+                if (childFile.getStoragePath() != null && childFile.getStoragePath().startsWith(defaultSavePath)) {
+                    // update link to downloaded content - but local move is not done here!
+                    String targetLocalPath = defaultSavePath + targetPath +
+                        childFile.getStoragePath().substring(lengthOfOldStoragePath);
 
-                        if (MimeTypeUtil.isMedia(childFile.getMimeType())) {
-                            originalPathsToTriggerMediaScan.add(childFile.getStoragePath());
-                            newPathsToTriggerMediaScan.add(targetLocalPath);
-                        }
+                    contentValues.put(ProviderTableMeta.FILE_STORAGE_PATH, targetLocalPath);
 
+                    if (MimeTypeUtil.isMedia(childFile.getMimeType())) {
+                        move.originalPathsToTriggerMediaScan.add(childFile.getStoragePath());
+                        move.newPathsToTriggerMediaScan.add(targetLocalPath);
                     }
 
-                    if (childFile.getRemotePath().equals(ocFile.getRemotePath())) {
-                        contentValues.put(ProviderTableMeta.FILE_PARENT, targetParent.getFileId());
-                    }
+                }
 
-                    operations.add(
-                        ContentProviderOperation.newUpdate(ProviderTableMeta.CONTENT_URI)
-                            .withValues(contentValues)
-                            .withSelection(ProviderTableMeta._ID + " = ?", new String[]{String.valueOf(childFile.getFileId())})
-                            .build());
+                if (childFile.getRemotePath().equals(ocFile.getRemotePath())) {
+                    contentValues.put(ProviderTableMeta.FILE_PARENT, targetParent.getFileId());
+                }
 
-                } while (cursor.moveToNext());
-            }
-            cursor.close();
+                operations.add(
+                    ContentProviderOperation.newUpdate(ProviderTableMeta.CONTENT_URI)
+                        .withValues(contentValues)
+                        .withSelection(ProviderTableMeta._ID + " = ?", new String[]{String.valueOf(childFile.getFileId())})
+                        .build());
 
-            /// 3. apply updates in batch
-            try {
-                if (getContentResolver() != null) {
-                    getContentResolver().applyBatch(MainApp.getAuthority(), operations);
-                } else {
-                    getContentProviderClient().applyBatch(operations);
-                }
+            } while (cursor.moveToNext());
+        }
+        cursor.close();
 
-            } catch (Exception e) {
-                Log_OC.e(TAG, "Fail to update " + ocFile.getFileId() + " and descendants in database", e);
-            }
+        return move;
+    }
 
-            /// 4. move in local file system
-            String originalLocalPath = FileStorageUtils.getDefaultSavePathFor(account.name, ocFile);
-            String targetLocalPath = defaultSavePath + targetPath;
-            File localFile = new File(originalLocalPath);
-            boolean renamed = false;
+    private void moveInFileSystem(LocalMove move) {
+        String defaultSavePath = FileStorageUtils.getSavePath(account.name);
+        String originalLocalPath = FileStorageUtils.getDefaultSavePathFor(account.name, move.file);
+        String targetLocalPath = defaultSavePath + move.targetPath;
+        File localFile = new File(originalLocalPath);
+        boolean renamed = false;
 
-            if (localFile.exists()) {
-                File targetFile = new File(targetLocalPath);
-                File targetFolder = targetFile.getParentFile();
-                if (targetFolder != null && !targetFolder.exists() && !targetFolder.mkdirs()) {
-                    Log_OC.e(TAG, "Unable to create parent folder " + targetFolder.getAbsolutePath());
-                }
-                renamed = localFile.renameTo(targetFile);
+        if (localFile.exists()) {
+            File targetFile = new File(targetLocalPath);
+            File targetFolder = targetFile.getParentFile();
+            if (targetFolder != null && !targetFolder.exists() && !targetFolder.mkdirs()) {
+                Log_OC.e(TAG, "Unable to create parent folder " + targetFolder.getAbsolutePath());
             }
+            renamed = localFile.renameTo(targetFile);
+        }
 
-            if (renamed) {
-                Iterator<String> pathIterator = originalPathsToTriggerMediaScan.iterator();
-                while (pathIterator.hasNext()) {
-                    // Notify MediaScanner about removed file
-                    deleteFileInMediaScan(pathIterator.next());
-                }
+        if (renamed) {
+            Iterator<String> pathIterator = move.originalPathsToTriggerMediaScan.iterator();
+            while (pathIterator.hasNext()) {
+                // Notify MediaScanner about removed file
+                deleteFileInMediaScan(pathIterator.next());
+            }
 
-                pathIterator = newPathsToTriggerMediaScan.iterator();
-                while (pathIterator.hasNext()) {
-                    // Notify MediaScanner about new file/folder
-                    triggerMediaScan(pathIterator.next());
-                }
+            pathIterator = move.newPathsToTriggerMediaScan.iterator();
+            while (pathIterator.hasNext()) {
+                // Notify MediaScanner about new file/folder
+                triggerMediaScan(pathIterator.next());
             }
         }
     }
@@ -915,8 +1165,9 @@ public class FileDataStorageManager {
 
         if (cursor != null) {
             if (cursor.moveToFirst()) {
+                OCFileCursorMapper mapper = new OCFileCursorMapper(cursor, account.name);
                 do {
-                    OCFile child = createFileInstance(cursor);
+                    OCFile child = mapper.map();
                     if (!onlyOnDevice || child.existsOnDevice()) {
                         folderContent.add(child);
                     }
@@ -989,66 +1240,7 @@ public class FileDataStorageManager {
     private OCFile createFileInstance(Cursor cursor) {
         OCFile ocFile = null;
         if (cursor != null) {
-            ocFile = new OCFile(cursor.getString(cursor.getColumnIndex(ProviderTableMeta.FILE_PATH)));
-            ocFile.setDecryptedRemotePath(getString(cursor, ProviderTableMeta.FILE_PATH_DECRYPTED));
-            ocFile.setFileId(cursor.getLong(cursor.getColumnIndex(ProviderTableMeta._ID)));
-            ocFile.setParentId(cursor.getLong(cursor.getColumnIndex(ProviderTableMeta.FILE_PARENT)));
-            ocFile.setMimeType(cursor.getString(cursor.getColumnIndex(ProviderTableMeta.FILE_CONTENT_TYPE)));
-            ocFile.setStoragePath(cursor.getString(cursor.getColumnIndex(ProviderTableMeta.FILE_STORAGE_PATH)));
-            if (ocFile.getStoragePath() == null) {
-                // try to find existing file and bind it with current account;
-                // with the current update of SynchronizeFolderOperation, this won't be
-                // necessary anymore after a full synchronization of the account
-                File file = new File(FileStorageUtils.getDefaultSavePathFor(account.name, ocFile));
-                if (file.exists()) {
-                    ocFile.setStoragePath(file.getAbsolutePath());
-                    ocFile.setLastSyncDateForData(file.lastModified());
-                }
-            }
-            ocFile.setFileLength(cursor.getLong(cursor.getColumnIndex(ProviderTableMeta.FILE_CONTENT_LENGTH)));
-            ocFile.setCreationTimestamp(cursor.getLong(cursor.getColumnIndex(ProviderTableMeta.FILE_CREATION)));
-            ocFile.setModificationTimestamp(cursor.getLong(cursor.getColumnIndex(ProviderTableMeta.FILE_MODIFIED)));
-            ocFile.setModificationTimestampAtLastSyncForData(cursor.getLong(
-                cursor.getColumnIndex(ProviderTableMeta.FILE_MODIFIED_AT_LAST_SYNC_FOR_DATA)));
-            ocFile.setLastSyncDateForProperties(cursor.getLong(cursor.getColumnIndex(ProviderTableMeta.FILE_LAST_SYNC_DATE)));
-            ocFile.setLastSyncDateForData(cursor.getLong(cursor.getColumnIndex(ProviderTableMeta.FILE_LAST_SYNC_DATE_FOR_DATA)));
-            ocFile.setEtag(cursor.getString(cursor.getColumnIndex(ProviderTableMeta.FILE_ETAG)));
-            ocFile.setEtagOnServer(cursor.getString(cursor.getColumnIndex(ProviderTableMeta.FILE_ETAG_ON_SERVER)));
-            ocFile.setSharedViaLink(cursor.getInt(cursor.getColumnIndex(ProviderTableMeta.FILE_SHARED_VIA_LINK)) == 1);
-            ocFile.setSharedWithSharee(cursor.getInt(cursor.getColumnIndex(ProviderTableMeta.FILE_SHARED_WITH_SHAREE)) == 1);
-            ocFile.setPermissions(cursor.getString(cursor.getColumnIndex(ProviderTableMeta.FILE_PERMISSIONS)));
-            ocFile.setRemoteId(cursor.getString(cursor.getColumnIndex(ProviderTableMeta.FILE_REMOTE_ID)));
-            ocFile.setUpdateThumbnailNeeded(cursor.getInt(cursor.getColumnIndex(ProviderTableMeta.FILE_UPDATE_THUMBNAIL)) == 1);
-            ocFile.setDownloading(cursor.getInt(cursor.getColumnIndex(ProviderTableMeta.FILE_IS_DOWNLOADING)) == 1);
-            ocFile.setEtagInConflict(cursor.getString(cursor.getColumnIndex(ProviderTableMeta.FILE_ETAG_IN_CONFLICT)));
-            ocFile.setFavorite(cursor.getInt(cursor.getColumnIndex(ProviderTableMeta.FILE_FAVORITE)) == 1);
-            ocFile.setEncrypted(cursor.getInt(cursor.getColumnIndex(ProviderTableMeta.FILE_IS_ENCRYPTED)) == 1);
-//            if (ocFile.isEncrypted()) {
-//                ocFile.setFileName(cursor.getString(cursor.getColumnIndex(ProviderTableMeta.FILE_NAME)));
-//            }
-            ocFile.setMountType(WebdavEntry.MountType.values()[cursor.getInt(
-                cursor.getColumnIndex(ProviderTableMeta.FILE_MOUNT_TYPE))]);
-            ocFile.setPreviewAvailable(cursor.getInt(cursor.getColumnIndex(ProviderTableMeta.FILE_HAS_PREVIEW)) == 1);
-            ocFile.setUnreadCommentsCount(cursor.getInt(cursor.getColumnIndex(ProviderTableMeta.FILE_UNREAD_COMMENTS_COUNT)));
-            ocFile.setOwnerId(cursor.getString(cursor.getColumnIndex(ProviderTableMeta.FILE_OWNER_ID)));
-            ocFile.setOwnerDisplayName(cursor.getString(cursor.getColumnIndex(ProviderTableMeta.FILE_OWNER_DISPLAY_NAME)));
-            ocFile.setNote(cursor.getString(cursor.getColumnIndex(ProviderTableMeta.FILE_NOTE)));
-            ocFile.setRichWorkspace(cursor.getString(cursor.getColumnIndex(ProviderTableMeta.FILE_RICH_WORKSPACE)));
-
-            String sharees = cursor.getString(cursor.getColumnIndex(ProviderTableMeta.FILE_SHAREES));
-
-            if (sharees == null || NULL_STRING.equals(sharees) || sharees.isEmpty()) {
-                ocFile.setSharees(new ArrayList<>());
-            } else {
-                try {
-                    ShareeUser[] shareesArray = new Gson().fromJson(sharees, ShareeUser[].class);
-
-                    ocFile.setSharees(new ArrayList<>(Arrays.asList(shareesArray)));
-                } catch (JsonSyntaxException e) {
-                    // ignore saved value due to api change
-                    ocFile.setSharees(new ArrayList<>());
-                }
-            }
+            ocFile = new OCFileCursorMapper(cursor, account.name).map();
         }
 
         return ocFile;
@@ -1882,14 +2074,14 @@ public class FileDataStorageManager {
                         ProviderTableMeta.FILE_ETAG_IN_CONFLICT + " IS NOT NULL AND " +
                             ProviderTableMeta.FILE_CONTENT_TYPE + " != 'DIR' AND " +
                             ProviderTableMeta.FILE_ACCOUNT_OWNER + AND +
-                            ProviderTableMeta.FILE_PATH + " LIKE ?";
+                            ProviderTableMeta.FILE_PATH + " GLOB ?";
                     Cursor descendentsInConflict = null;
                     if (getContentResolver() != null) {
                         descendentsInConflict = getContentResolver().query(
                             ProviderTableMeta.CONTENT_URI_FILE,
                             projection,
                             whereForDescencentsInConflict,
-                            new String[]{account.name, parentPath + "%"},
+                            new String[]{account.name, StringUtils.globPrefix(parentPath)},
                             null
                         );
                     } else {
@@ -1898,7 +2090,7 @@ public class FileDataStorageManager {
                                 ProviderTableMeta.CONTENT_URI_FILE,
                                 projection,
                                 whereForDescencentsInConflict,
-                                new String[]{account.name, parentPath + "%"},
+                                new String[]{account.name, StringUtils.globPrefix(parentPath)},
                                 null
                             );
                         } catch (RemoteException e) {
@@ -2278,6 +2470,78 @@ public class FileDataStorageManager {
         }
     }
 
+    /**
+     * Stores the content of a virtual folder in a single batch.
+     *
+     * @param type         type of the virtual folder, expected to be empty
+     * @param files        content of the virtual folder; files without id are inserted, receiving their new id
+     * @param changedFiles files of the content which changed and are written, others are only linked
+     */
+    public void saveVirtualFolder(VirtualFolderType type, List<OCFile> files, Collection<OCFile> changedFiles) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(files.size() + changedFiles.size());
+        // index of the insert operation of new files, for back references; new files are all equal, having no id
+        Map<OCFile, Integer> insertIndexes = new IdentityHashMap<>();
+
+        for (OCFile file : changedFiles) {
+            ContentValues contentValues = createContentValueForFile(file, file.getParentId());
+            if (file.getFileId() != -1) {
+                operations.add(ContentProviderOperation.newUpdate(ProviderTableMeta.CONTENT_URI)
+                                   .withValues(contentValues)
+                                   .withSelection(ProviderTableMeta._ID + " = ?",
+                                                  new String[]{String.valueOf(file.getFileId())})
+                                   .build());
+            } else {
+                insertIndexes.put(file, operations.size());
+                operations.add(ContentProviderOperation.newInsert(ProviderTableMeta.CONTENT_URI)
+                                   .withValues(contentValues)
+                                   .build());
+            }
+        }
+
+        for (OCFile file : files) {
+            ContentProviderOperation.Builder builder =
+                ContentProviderOperation.newInsert(ProviderTableMeta.CONTENT_URI_VIRTUAL)
+                    .withValue(ProviderTableMeta.VIRTUAL_TYPE, type.toString());
+            Integer insertIndex = insertIndexes.get(file);
+            if (insertIndex != null) {
+                builder.withValueBackReference(ProviderTableMeta.VIRTUAL_OCFILE_ID, insertIndex);
+            } else {
+                builder.withValue(ProviderTableMeta.VIRTUAL_OCFILE_ID, file.getFileId());
+            }
+            operations.add(builder.build());
+        }
+
+        if (operations.isEmpty()) {
+            return;
+        }
+
+        ContentProviderResult[] results = null;
+        Log_OC.d(TAG, String.format(Locale.ENGLISH, SENDING_TO_FILECONTENTPROVIDER_MSG, operations.size()));
+        try {
+            if (getContentResolver() != null) {
+                results = getContentResolver().applyBatch(MainApp.getAuthority(), operations);
+            } else {
+                results = getContentProviderClient().applyBatch(operations);
+            }
+        } catch (OperationApplicationException | RemoteException e) {
+            Log_OC.e(TAG, EXCEPTION_MSG + e.getMessage(), e);
+        }
+
+        // update new id in file objects for insertions
+        if (results != null) {
+            for (Map.Entry<OCFile, Integer> insert : insertIndexes.entrySet()) {
+                Uri uri = results[insert.getValue()].uri;
+                if (uri != null) {
+                    insert.getKey().setFileId(Long.parseLong(uri.getPathSegments().get(1)));
+                }
+            }
+
+            for (OCFile file : changedFiles) {
+                evictOutdatedThumbnail(file);
+            }
+        }
+    }
+
     public List<OCFile> getVirtualFolderContent(VirtualFolderType type, boolean onlyImages) {
         List<OCFile> ocFiles = new ArrayList<>();
         Uri req_uri = ProviderTableMeta.CONTENT_URI_VIRTUAL;
@@ -2339,9 +2603,8 @@ public class FileDataStorageManager {
     }
 
     public void deleteAllFiles() {
-        String where = ProviderTableMeta.FILE_ACCOUNT_OWNER + "= ? AND " +
-            ProviderTableMeta.FILE_PATH + "= ?";
-        String[] whereArgs = new String[]{account.name, OCFile.ROOT_PATH};
+        String where = ProviderTableMeta.FILE_ACCOUNT_OWNER + "= ?";
+        String[] whereArgs = new String[]{account.name};
 
         if (getContentResolver() != null) {
             getContentResolver().delete(ProviderTableMeta.CONTENT_URI_DIR, where, whereArgs);
@@ -2376,8 +2639,9 @@ public class FileDataStorageManager {
 
         if (cursor != null) {
             if (cursor.moveToFirst()) {
+                OCFileCursorMapper mapper = new OCFileCursorMapper(cursor, account.name);
                 do {
-                    folderContent.add(createFileInstance(cursor));
+                    folderContent.add(mapper.map());
                 } while (cursor.moveToNext());
             }
             cursor.close();
@@ -2413,4 +2677,26 @@ public class FileDataStorageManager {
     public Account getAccount() {
         return this.account;
     }
+
+    /**
+     * Local part of a move, done after the database was updated.
+     */
+    private static class LocalMove {
+        private final OCFile file;
+        private final String targetPath;
+        private final List<String> originalPathsToTriggerMediaScan = new ArrayList<>();
+        private final List<String> newPathsToTriggerMediaScan = new ArrayList<>();
+
+        LocalMove(OCFile file, String targetPath) {
+            this.file = file;
+            this.targetPath = targetPath;
+        }
+    }
+
+    /**
+     * Listener of changes of the folder tree, e.g. to drop values derived from the ancestors of folders.
+     */
+    public interface FolderTreeListener {
+        void onFolderTreeChanged();
+    }
 }
@@ -36,8 +36,9 @@ public class FileSystemDataSet {
     private long foundAt;
     private long syncedFolderId;
     @Nullable private String crc32;
+    private long size = -1;
 
-    public FileSystemDataSet(int id, String localPath, long modifiedAt, boolean folder, boolean sentForUpload, long foundAt, long syncedFolderId, String crc32) {
+    public FileSystemDataSet(int id, String localPath, long modifiedAt, boolean folder, boolean sentForUpload, long foundAt, long syncedFolderId, String crc32, long size) {
         this.id = id;
         this.localPath = localPath;
         this.modifiedAt = modifiedAt;
@@ -46,6 +47,7 @@ public class FileSystemDataSet {
         this.foundAt = foundAt;
         this.syncedFolderId = syncedFolderId;
         this.crc32 = crc32;
+        this.size = size;
     }
 
     public FileSystemDataSet() {
@@ -85,6 +87,13 @@ public class FileSystemDataSet {
         return this.crc32;
     }
 
+    /**
+     * @return size of the file when it was indexed, -1 if unknown
+     */
+    public long getSize() {
+        return this.size;
+    }
+
     public void setId(int id) {
         this.id = id;
     }
@@ -116,4 +125,8 @@ public class FileSystemDataSet {
     public void setCrc32(@Nullable String crc32) {
         this.crc32 = crc32;
     }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
 }
@@ -19,21 +19,31 @@
  */
 package com.owncloud.android.datamodel;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.RemoteException;
 
+import com.owncloud.android.MainApp;
 import com.owncloud.android.db.ProviderMeta;
 import com.owncloud.android.lib.common.utils.Log_OC;
+import com.owncloud.android.utils.StringUtils;
 import com.owncloud.android.utils.SyncedFolderUtils;
 
-import java.io.BufferedInputStream;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.zip.CRC32;
 
@@ -43,14 +53,28 @@ import java.util.zip.CRC32;
 public class FilesystemDataProvider {
 
     static private final String TAG = FilesystemDataProvider.class.getSimpleName();
+    static private final int CHECKSUM_BUFFER_SIZE = 256 * 1024;
 
     private ContentResolver contentResolver;
+    private final boolean trustFileMetadata;
+    private final CRC32 crc32 = new CRC32();
+    private byte[] checksumBuffer;
 
     public FilesystemDataProvider(ContentResolver contentResolver) {
+        this(contentResolver, false);
+    }
+
+    /**
+     * @param trustFileMetadata if true, newly found files are not hashed, and files are only hashed once their size
+     *                          or modification time changed. Saves reading every file when a large folder is indexed
+     *                          for the first time.
+     */
+    public FilesystemDataProvider(ContentResolver contentResolver, boolean trustFileMetadata) {
         if (contentResolver == null) {
             throw new IllegalArgumentException("Cannot create an instance with a NULL contentResolver");
         }
         this.contentResolver = contentResolver;
+        this.trustFileMetadata = trustFileMetadata;
     }
 
     public int deleteAllEntriesForSyncedFolder(String syncedFolderId) {
@@ -77,16 +101,16 @@ public class FilesystemDataProvider {
     public Set<String> getFilesForUpload(String localPath, String syncedFolderId) {
         Set<String> localPathsToUpload = new HashSet<>();
 
-        String likeParam = localPath + "%";
+        String globParam = StringUtils.globPrefix(localPath);
 
         Cursor cursor = contentResolver.query(
                 ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM,
                 null,
-                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH + " LIKE ? and " +
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH + " GLOB ? and " +
                         ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID + " = ? and " +
                         ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD + " = ? and " +
                         ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER + " = ?",
-                new String[]{likeParam, syncedFolderId, "0", "0"},
+                new String[]{globParam, syncedFolderId, "0", "0"},
                 null);
 
         if (cursor != null) {
@@ -121,43 +145,16 @@ public class FilesystemDataProvider {
 
         FileSystemDataSet data = getFilesystemDataSet(localPath, syncedFolder);
 
-        int isFolderValue = 0;
-        if (isFolder) {
-            isFolderValue = 1;
-        }
-
-        ContentValues cv = new ContentValues();
-        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY, System.currentTimeMillis());
-        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED, modifiedAt);
+        ContentValues cv = createFileValues(data, localPath, modifiedAt, isFolder, syncedFolder,
+                                            System.currentTimeMillis());
 
         if (data == null) {
-
-            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH, localPath);
-            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER, isFolderValue);
-            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, Boolean.FALSE);
-            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID, syncedFolder.getId());
-
-            long newCrc32 = getFileChecksum(localPath);
-            if (newCrc32 != -1) {
-                cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32, Long.toString(newCrc32));
-            }
-
             Uri result = contentResolver.insert(ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM, cv);
 
             if (result == null) {
                 Log_OC.v(TAG, "Failed to insert filesystem data with local path: " + localPath);
             }
         } else {
-
-            if (data.getModifiedAt() != modifiedAt) {
-                long newCrc32 = getFileChecksum(localPath);
-                if (data.getCrc32() == null || (newCrc32 != -1 && !data.getCrc32().equals(Long.toString(newCrc32)))) {
-                    cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32, Long.toString(newCrc32));
-                    cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, 0);
-                }
-            }
-
-
             int result = contentResolver.update(
                     ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM,
                     cv,
@@ -171,7 +168,61 @@ public class FilesystemDataProvider {
         }
     }
 
-    private FileSystemDataSet getFilesystemDataSet(String localPathParam, SyncedFolder syncedFolder) {
+    /**
+     * Creates an indexer that stores or updates many file values of one synced folder. Existing rows of the synced
+     * folder are loaded once, inserts and updates are applied in batches.
+     */
+    public BatchIndexer createBatchIndexer(SyncedFolder syncedFolder) {
+        return new BatchIndexer(syncedFolder, getFilesystemDataSets(syncedFolder));
+    }
+
+    private ContentValues createFileValues(@Nullable FileSystemDataSet data,
+                                           String localPath,
+                                           long modifiedAt,
+                                           boolean isFolder,
+                                           SyncedFolder syncedFolder,
+                                           long foundAt) {
+        long size = isFolder ? 0 : new File(localPath).length();
+
+        ContentValues cv = new ContentValues();
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY, foundAt);
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED, modifiedAt);
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SIZE, size);
+
+        if (data == null) {
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH, localPath);
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER, isFolder ? 1 : 0);
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, Boolean.FALSE);
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID, syncedFolder.getId());
+
+            if (!isFolder && !trustFileMetadata) {
+                long newCrc32 = getFileChecksum(localPath);
+                if (newCrc32 != -1) {
+                    cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32, Long.toString(newCrc32));
+                }
+            }
+        } else if (!isFolder && isMetadataChanged(data, modifiedAt, size)) {
+            long newCrc32 = getFileChecksum(localPath);
+            if (data.getCrc32() == null || (newCrc32 != -1 && !data.getCrc32().equals(Long.toString(newCrc32)))) {
+                cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32, Long.toString(newCrc32));
+                cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, 0);
+            }
+        }
+
+        return cv;
+    }
+
+    /**
+     * @return true if the file has another modification time or size than when it was indexed; rows stored without
+     * size only compare the modification time
+     */
+    private static boolean isMetadataChanged(FileSystemDataSet data, long modifiedAt, long size) {
+        return data.getModifiedAt() != modifiedAt || (data.getSize() != -1 && data.getSize() != size);
+    }
+
+    @VisibleForTesting
+    @Nullable
+    FileSystemDataSet getFilesystemDataSet(String localPathParam, SyncedFolder syncedFolder) {
 
         Cursor cursor = contentResolver.query(
                 ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM,
@@ -185,55 +236,167 @@ public class FilesystemDataProvider {
         FileSystemDataSet dataSet = null;
         if (cursor != null) {
             if (cursor.moveToFirst()) {
-                int id = cursor.getInt(cursor.getColumnIndex(ProviderMeta.ProviderTableMeta._ID));
-                String localPath = cursor.getString(cursor.getColumnIndex(
-                        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH));
-                long modifiedAt = cursor.getLong(cursor.getColumnIndex(
-                        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED));
-                boolean isFolder = false;
-                if (cursor.getInt(cursor.getColumnIndex(
-                        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER)) != 0) {
-                    isFolder = true;
-                }
-                long foundAt = cursor.getLong(cursor.getColumnIndex(ProviderMeta.
-                        ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY));
+                dataSet = createFilesystemDataSet(cursor, syncedFolder);
+            }
+            cursor.close();
+        } else {
+            Log_OC.e(TAG, "DB error restoring arbitrary values.");
+        }
 
-                boolean isSentForUpload = false;
-                if (cursor.getInt(cursor.getColumnIndex(
-                        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD)) != 0) {
-                    isSentForUpload = true;
-                }
+        return dataSet;
+    }
 
-                String crc32 = cursor.getString(cursor.getColumnIndex(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32));
+    /**
+     * @return all stored rows of the synced folder, by local path
+     */
+    private Map<String, FileSystemDataSet> getFilesystemDataSets(SyncedFolder syncedFolder) {
+        Map<String, FileSystemDataSet> dataSets = new HashMap<>();
 
-                if (id == -1) {
-                    Log_OC.e(TAG, "Arbitrary value could not be created from cursor");
-                } else {
-                    dataSet = new FileSystemDataSet(id, localPath, modifiedAt, isFolder, isSentForUpload, foundAt,
-                            syncedFolder.getId(), crc32);
+        Cursor cursor = contentResolver.query(
+                ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM,
+                null,
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID + " = ?",
+                new String[]{Long.toString(syncedFolder.getId())},
+                null
+        );
+
+        if (cursor != null) {
+            while (cursor.moveToNext()) {
+                FileSystemDataSet dataSet = createFilesystemDataSet(cursor, syncedFolder);
+                if (dataSet != null) {
+                    dataSets.put(dataSet.getLocalPath(), dataSet);
                 }
             }
             cursor.close();
         } else {
-            Log_OC.e(TAG, "DB error restoring arbitrary values.");
+            Log_OC.e(TAG, "DB error restoring filesystem values.");
         }
 
-        return dataSet;
+        return dataSets;
+    }
+
+    @Nullable
+    private FileSystemDataSet createFilesystemDataSet(Cursor cursor, SyncedFolder syncedFolder) {
+        int id = cursor.getInt(cursor.getColumnIndex(ProviderMeta.ProviderTableMeta._ID));
+        String localPath = cursor.getString(cursor.getColumnIndex(
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH));
+        long modifiedAt = cursor.getLong(cursor.getColumnIndex(
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED));
+        boolean isFolder = false;
+        if (cursor.getInt(cursor.getColumnIndex(
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER)) != 0) {
+            isFolder = true;
+        }
+        long foundAt = cursor.getLong(cursor.getColumnIndex(ProviderMeta.
+                ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY));
+
+        boolean isSentForUpload = false;
+        if (cursor.getInt(cursor.getColumnIndex(
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD)) != 0) {
+            isSentForUpload = true;
+        }
+
+        String crc32 = cursor.getString(cursor.getColumnIndex(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32));
+
+        int sizeIndex = cursor.getColumnIndex(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SIZE);
+        long size = sizeIndex == -1 || cursor.isNull(sizeIndex) ? -1 : cursor.getLong(sizeIndex);
+
+        if (id == -1) {
+            Log_OC.e(TAG, "Arbitrary value could not be created from cursor");
+            return null;
+        }
+
+        return new FileSystemDataSet(id, localPath, modifiedAt, isFolder, isSentForUpload, foundAt,
+                                     syncedFolder.getId(), crc32, size);
     }
 
-    private long getFileChecksum(String filepath) {
+    /**
+     * Computes the CRC32 of the given file, reading it in large blocks into a buffer that is reused for all files
+     * checked by this instance. Not thread safe.
+     *
+     * @return checksum, or -1 if the file cannot be read
+     */
+    @VisibleForTesting
+    long getFileChecksum(String filepath) {
+        if (checksumBuffer == null) {
+            checksumBuffer = new byte[CHECKSUM_BUFFER_SIZE];
+        }
 
-        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(filepath))){
-            CRC32 crc = new CRC32();
-            int cnt;
-            while ((cnt = inputStream.read()) != -1) {
-                crc.update(cnt);
+        try (InputStream inputStream = new FileInputStream(filepath)) {
+            crc32.reset();
+            int read;
+            while ((read = inputStream.read(checksumBuffer)) != -1) {
+                crc32.update(checksumBuffer, 0, read);
             }
 
-            return crc.getValue();
+            return crc32.getValue();
 
         } catch (IOException e) {
             return -1;
         }
     }
+
+    /**
+     * Stores or updates file values of one synced folder, see {@link #createBatchIndexer(SyncedFolder)}. Operations
+     * are applied every {@link #BATCH_SIZE} files and on {@link #flush()}, which has to be called when done.
+     * Not thread safe.
+     */
+    public class BatchIndexer {
+        private static final int BATCH_SIZE = 500;
+
+        private final SyncedFolder syncedFolder;
+        private final Map<String, FileSystemDataSet> storedDataSets;
+        private final Set<String> indexedPaths = new HashSet<>();
+        private final ArrayList<ContentProviderOperation> operations = new ArrayList<>(BATCH_SIZE);
+        private final long foundAt = System.currentTimeMillis();
+
+        private BatchIndexer(SyncedFolder syncedFolder, Map<String, FileSystemDataSet> storedDataSets) {
+            this.syncedFolder = syncedFolder;
+            this.storedDataSets = storedDataSets;
+        }
+
+        public void storeOrUpdateFileValue(String localPath, long modifiedAt, boolean isFolder) {
+            if (!indexedPaths.add(localPath)) {
+                // already seen by this indexer, e.g. listed by both internal and external media store
+                return;
+            }
+
+            FileSystemDataSet data = storedDataSets.get(localPath);
+            ContentValues cv = createFileValues(data, localPath, modifiedAt, isFolder, syncedFolder, foundAt);
+
+            if (data == null) {
+                operations.add(ContentProviderOperation
+                                   .newInsert(ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM)
+                                   .withValues(cv)
+                                   .build());
+            } else {
+                operations.add(ContentProviderOperation
+                                   .newUpdate(ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM)
+                                   .withValues(cv)
+                                   .withSelection(ProviderMeta.ProviderTableMeta._ID + "=?",
+                                                  new String[]{String.valueOf(data.getId())})
+                                   .build());
+            }
+
+            if (operations.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        /**
+         * Applies all pending inserts and updates in one transaction.
+         */
+        public void flush() {
+            if (operations.isEmpty()) {
+                return;
+            }
+
+            try {
+                contentResolver.applyBatch(MainApp.getAuthority(), operations);
+            } catch (OperationApplicationException | RemoteException e) {
+                Log_OC.e(TAG, "Failed to store filesystem data of synced folder " + syncedFolder.getLocalPath(), e);
+            }
+            operations.clear();
+        }
+    }
 }
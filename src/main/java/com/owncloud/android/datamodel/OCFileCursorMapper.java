@@ -0,0 +1,187 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.datamodel;
+
+import android.database.Cursor;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta;
+import com.owncloud.android.lib.common.network.WebdavEntry;
+import com.owncloud.android.lib.resources.shares.ShareeUser;
+import com.owncloud.android.utils.FileStorageUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Creates {@link OCFile} instances from rows of the file table. Column indexes are resolved once per cursor, so
+ * mapping many rows does not repeat the column name lookups.
+ */
+final class OCFileCursorMapper {
+
+    /**
+     * Gson instances are thread safe; the adapter is built once instead of once per row.
+     */
+    static final Gson GSON = new Gson();
+    private static final TypeAdapter<ShareeUser[]> SHAREES_ADAPTER = GSON.getAdapter(ShareeUser[].class);
+
+    private final Cursor cursor;
+    private final String accountName;
+
+    private final int path;
+    private final int pathDecrypted;
+    private final int id;
+    private final int parent;
+    private final int contentType;
+    private final int storagePath;
+    private final int contentLength;
+    private final int creation;
+    private final int modified;
+    private final int modifiedAtLastSyncForData;
+    private final int lastSyncDate;
+    private final int lastSyncDateForData;
+    private final int etag;
+    private final int etagOnServer;
+    private final int sharedViaLink;
+    private final int sharedWithSharee;
+    private final int permissions;
+    private final int remoteId;
+    private final int updateThumbnail;
+    private final int isDownloading;
+    private final int etagInConflict;
+    private final int favorite;
+    private final int isEncrypted;
+    private final int mountType;
+    private final int hasPreview;
+    private final int unreadCommentsCount;
+    private final int ownerId;
+    private final int ownerDisplayName;
+    private final int note;
+    private final int richWorkspace;
+    private final int sharees;
+
+    OCFileCursorMapper(Cursor cursor, String accountName) {
+        this.cursor = cursor;
+        this.accountName = accountName;
+
+        path = cursor.getColumnIndex(ProviderTableMeta.FILE_PATH);
+        pathDecrypted = cursor.getColumnIndex(ProviderTableMeta.FILE_PATH_DECRYPTED);
+        id = cursor.getColumnIndex(ProviderTableMeta._ID);
+        parent = cursor.getColumnIndex(ProviderTableMeta.FILE_PARENT);
+        contentType = cursor.getColumnIndex(ProviderTableMeta.FILE_CONTENT_TYPE);
+        storagePath = cursor.getColumnIndex(ProviderTableMeta.FILE_STORAGE_PATH);
+        contentLength = cursor.getColumnIndex(ProviderTableMeta.FILE_CONTENT_LENGTH);
+        creation = cursor.getColumnIndex(ProviderTableMeta.FILE_CREATION);
+        modified = cursor.getColumnIndex(ProviderTableMeta.FILE_MODIFIED);
+        modifiedAtLastSyncForData = cursor.getColumnIndex(ProviderTableMeta.FILE_MODIFIED_AT_LAST_SYNC_FOR_DATA);
+        lastSyncDate = cursor.getColumnIndex(ProviderTableMeta.FILE_LAST_SYNC_DATE);
+        lastSyncDateForData = cursor.getColumnIndex(ProviderTableMeta.FILE_LAST_SYNC_DATE_FOR_DATA);
+        etag = cursor.getColumnIndex(ProviderTableMeta.FILE_ETAG);
+        etagOnServer = cursor.getColumnIndex(ProviderTableMeta.FILE_ETAG_ON_SERVER);
+        sharedViaLink = cursor.getColumnIndex(ProviderTableMeta.FILE_SHARED_VIA_LINK);
+        sharedWithSharee = cursor.getColumnIndex(ProviderTableMeta.FILE_SHARED_WITH_SHAREE);
+        permissions = cursor.getColumnIndex(ProviderTableMeta.FILE_PERMISSIONS);
+        remoteId = cursor.getColumnIndex(ProviderTableMeta.FILE_REMOTE_ID);
+        updateThumbnail = cursor.getColumnIndex(ProviderTableMeta.FILE_UPDATE_THUMBNAIL);
+        isDownloading = cursor.getColumnIndex(ProviderTableMeta.FILE_IS_DOWNLOADING);
+        etagInConflict = cursor.getColumnIndex(ProviderTableMeta.FILE_ETAG_IN_CONFLICT);
+        favorite = cursor.getColumnIndex(ProviderTableMeta.FILE_FAVORITE);
+        isEncrypted = cursor.getColumnIndex(ProviderTableMeta.FILE_IS_ENCRYPTED);
+        mountType = cursor.getColumnIndex(ProviderTableMeta.FILE_MOUNT_TYPE);
+        hasPreview = cursor.getColumnIndex(ProviderTableMeta.FILE_HAS_PREVIEW);
+        unreadCommentsCount = cursor.getColumnIndex(ProviderTableMeta.FILE_UNREAD_COMMENTS_COUNT);
+        ownerId = cursor.getColumnIndex(ProviderTableMeta.FILE_OWNER_ID);
+        ownerDisplayName = cursor.getColumnIndex(ProviderTableMeta.FILE_OWNER_DISPLAY_NAME);
+        note = cursor.getColumnIndex(ProviderTableMeta.FILE_NOTE);
+        richWorkspace = cursor.getColumnIndex(ProviderTableMeta.FILE_RICH_WORKSPACE);
+        sharees = cursor.getColumnIndex(ProviderTableMeta.FILE_SHAREES);
+    }
+
+    /**
+     * @return file of the row the cursor currently points to
+     */
+    OCFile map() {
+        OCFile ocFile = new OCFile(cursor.getString(path));
+        ocFile.setDecryptedRemotePath(cursor.getString(pathDecrypted));
+        ocFile.setFileId(cursor.getLong(id));
+        ocFile.setParentId(cursor.getLong(parent));
+        ocFile.setMimeType(cursor.getString(contentType));
+        ocFile.setStoragePath(cursor.getString(storagePath));
+        if (ocFile.getStoragePath() == null) {
+            // try to find existing file and bind it with current account;
+            // with the current update of SynchronizeFolderOperation, this won't be
+            // necessary anymore after a full synchronization of the account
+            File file = new File(FileStorageUtils.getDefaultSavePathFor(accountName, ocFile));
+            if (file.exists()) {
+                ocFile.setStoragePath(file.getAbsolutePath());
+                ocFile.setLastSyncDateForData(file.lastModified());
+            }
+        }
+        ocFile.setFileLength(cursor.getLong(contentLength));
+        ocFile.setCreationTimestamp(cursor.getLong(creation));
+        ocFile.setModificationTimestamp(cursor.getLong(modified));
+        ocFile.setModificationTimestampAtLastSyncForData(cursor.getLong(modifiedAtLastSyncForData));
+        ocFile.setLastSyncDateForProperties(cursor.getLong(lastSyncDate));
+        ocFile.setLastSyncDateForData(cursor.getLong(lastSyncDateForData));
+        ocFile.setEtag(cursor.getString(etag));
+        ocFile.setEtagOnServer(cursor.getString(etagOnServer));
+        ocFile.setSharedViaLink(cursor.getInt(sharedViaLink) == 1);
+        ocFile.setSharedWithSharee(cursor.getInt(sharedWithSharee) == 1);
+        ocFile.setPermissions(cursor.getString(permissions));
+        ocFile.setRemoteId(cursor.getString(remoteId));
+        ocFile.setUpdateThumbnailNeeded(cursor.getInt(updateThumbnail) == 1);
+        ocFile.setDownloading(cursor.getInt(isDownloading) == 1);
+        ocFile.setEtagInConflict(cursor.getString(etagInConflict));
+        ocFile.setFavorite(cursor.getInt(favorite) == 1);
+        ocFile.setEncrypted(cursor.getInt(isEncrypted) == 1);
+        ocFile.setMountType(WebdavEntry.MountType.values()[cursor.getInt(mountType)]);
+        ocFile.setPreviewAvailable(cursor.getInt(hasPreview) == 1);
+        ocFile.setUnreadCommentsCount(cursor.getInt(unreadCommentsCount));
+        ocFile.setOwnerId(cursor.getString(ownerId));
+        ocFile.setOwnerDisplayName(cursor.getString(ownerDisplayName));
+        ocFile.setNote(cursor.getString(note));
+        ocFile.setRichWorkspace(cursor.getString(richWorkspace));
+        ocFile.setSharees(parseSharees(cursor.getString(sharees)));
+
+        return ocFile;
+    }
+
+    static List<ShareeUser> parseSharees(String json) {
+        if (json == null || FileDataStorageManager.NULL_STRING.equals(json) || json.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        try {
+            ShareeUser[] shareesArray = SHAREES_ADAPTER.fromJson(json);
+            if (shareesArray == null) {
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(Arrays.asList(shareesArray));
+        } catch (IOException | JsonParseException e) {
+            // ignore saved value due to api change
+            return new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.datamodel;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Bounded pool running thumbnail generation tasks.
+ *
+ * The most recently submitted task runs first: while scrolling, the cells bound last are the ones on screen, while
+ * requests of cells that scrolled away wait at the end of the queue. Tasks cancelled before they start, e.g. because
+ * their cell was recycled, are dropped without occupying a worker.
+ *
+ * Tasks submitted to {@link #getPrefetchExecutor()} only run when no other task is waiting, in submission order.
+ */
+public final class ThumbnailGenerationExecutor extends ThreadPoolExecutor {
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+    private final Executor prefetchExecutor = command -> enqueue(command, true);
+
+    public ThumbnailGenerationExecutor(int workers) {
+        super(workers,
+              workers,
+              KEEP_ALIVE_SECONDS,
+              TimeUnit.SECONDS,
+              new PriorityBlockingQueue<>(),
+              new WorkerThreadFactory());
+        allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        enqueue(command, false);
+    }
+
+    /**
+     * @return executor queueing tasks of this pool at low priority, e.g. to load thumbnails before they are shown
+     */
+    public Executor getPrefetchExecutor() {
+        return prefetchExecutor;
+    }
+
+    private void enqueue(Runnable command, boolean prefetch) {
+        super.execute(new Job(command, sequence.incrementAndGet(), prefetch));
+    }
+
+    /**
+     * @return true if the calling thread is a worker of any thumbnail generation pool
+     */
+    public static boolean isWorkerThread() {
+        return Thread.currentThread() instanceof WorkerThread;
+    }
+
+    /**
+     * @return number of tasks waiting for a worker, including cancelled ones not yet dropped
+     */
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * @return number of tasks which were cancelled before a worker picked them up
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return average time in milliseconds completed tasks waited in the queue
+     */
+    public long getAverageWaitMillis() {
+        return average(totalWaitNanos);
+    }
+
+    /**
+     * @return average time in milliseconds completed tasks took to run
+     */
+    public long getAverageRunMillis() {
+        return average(totalRunNanos);
+    }
+
+    private long average(AtomicLong totalNanos) {
+        long completed = completedCount.get();
+        return completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.get() / completed);
+    }
+
+    private class Job implements Runnable, Comparable<Job> {
+        private final Runnable command;
+        private final long sequenceNumber;
+        private final boolean prefetch;
+        private final long submittedAt = System.nanoTime();
+
+        Job(Runnable command, long sequenceNumber, boolean prefetch) {
+            this.command = command;
+            this.sequenceNumber = sequenceNumber;
+            this.prefetch = prefetch;
+        }
+
+        @Override
+        public void run() {
+            if (command instanceof Future && ((Future<?>) command).isCancelled()) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+
+            long startedAt = System.nanoTime();
+            try {
+                command.run();
+            } finally {
+                long finishedAt = System.nanoTime();
+                totalWaitNanos.addAndGet(startedAt - submittedAt);
+                totalRunNanos.addAndGet(finishedAt - startedAt);
+                completedCount.incrementAndGet();
+            }
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            if (prefetch != other.prefetch) {
+                return prefetch ? 1 : -1;
+            } else if (prefetch) {
+                // oldest first, prefetches are submitted nearest to the visible cells first
+                return Long.compare(sequenceNumber, other.sequenceNumber);
+            } else {
+                // newest first
+                return Long.compare(other.sequenceNumber, sequenceNumber);
+            }
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new WorkerThread(runnable, "ThumbnailGeneration-" + count.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+
+    private static final class WorkerThread extends Thread {
+        WorkerThread(Runnable runnable, String name) {
+            super(runnable, name);
+        }
+    }
+}
@@ -53,6 +53,7 @@ import com.owncloud.android.MainApp;
 import com.owncloud.android.R;
 import com.owncloud.android.lib.common.OwnCloudAccount;
 import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.OwnCloudClientFactory;
 import com.owncloud.android.lib.common.OwnCloudClientManagerFactory;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
 import com.owncloud.android.lib.common.utils.Log_OC;
@@ -67,6 +68,7 @@ import com.owncloud.android.utils.DisplayUtils.AvatarGenerationListener;
 import com.owncloud.android.utils.FileStorageUtils;
 import com.owncloud.android.utils.MimeTypeUtil;
 
+import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.httpclient.methods.GetMethod;
 
@@ -75,8 +77,10 @@ import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.lang.ref.WeakReference;
 import java.net.URLEncoder;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import androidx.annotation.NonNull;
 import androidx.core.content.res.ResourcesCompat;
@@ -108,6 +112,24 @@ public final class ThumbnailsCacheManager {
     private static final int mCompressQuality = 70;
     private static OwnCloudClient mClient;
 
+    private static final int THUMBNAIL_WORKERS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Executor for {@link ThumbnailGenerationTask}s of lists and grids, running them in parallel and newest first.
+     */
+    public static final ThumbnailGenerationExecutor THUMBNAIL_EXECUTOR =
+        new ThumbnailGenerationExecutor(THUMBNAIL_WORKERS);
+
+    /**
+     * Clients of the current worker thread, by account name; shared clients are not used by parallel workers.
+     */
+    private static final ThreadLocal<Map<String, OwnCloudClient>> WORKER_CLIENTS = new ThreadLocal<>();
+
+    /**
+     * Locks of thumbnails being generated, by image key, so that a thumbnail requested twice is generated once.
+     */
+    private static final Map<String, GenerationLock> GENERATION_LOCKS = new HashMap<>();
+
     public static final Bitmap mDefaultImg = BitmapFactory.decodeResource(MainApp.getAppContext().getResources(),
             R.drawable.file_image);
 
@@ -170,6 +192,17 @@ public final class ThumbnailsCacheManager {
         return Math.round(r.getDimension(R.dimen.file_icon_size_grid));
     }
 
+    /**
+     * Converts size of grid file icon from dp to pixel, rounded down to a power of two
+     *
+     * @return int
+     */
+    private static int getGridThumbnailDimension() {
+        Resources r = MainApp.getAppContext().getResources();
+        Double d = Math.pow(2, Math.floor(Math.log(r.getDimension(R.dimen.file_icon_size_grid)) / Math.log(2)));
+        return d.intValue();
+    }
+
     /**
      * Converts dimension of screen as point
      *
@@ -206,6 +239,8 @@ public final class ThumbnailsCacheManager {
     }
 
     public static void addBitmapToCache(String key, Bitmap bitmap) {
+        ThumbnailsMemoryCache.put(key, bitmap);
+
         synchronized (mThumbnailsDiskCacheLock) {
             if (mThumbnailCache != null) {
                 mThumbnailCache.put(key, bitmap);
@@ -213,11 +248,46 @@ public final class ThumbnailsCacheManager {
         }
     }
 
+    /**
+     * Stores a thumbnail as delivered by the server in the disk cache, without decoding it.
+     */
+    private static void addEncodedThumbnailToDiskCache(String key, byte[] encodedImage) {
+        synchronized (mThumbnailsDiskCacheLock) {
+            if (mThumbnailCache != null) {
+                mThumbnailCache.put(key, encodedImage);
+            }
+        }
+    }
+
+    private static boolean isInDiskCache(String key) {
+        synchronized (mThumbnailsDiskCacheLock) {
+            // Wait while disk cache is started from background thread
+            while (mThumbnailCacheStarting) {
+                try {
+                    mThumbnailsDiskCacheLock.wait();
+                } catch (InterruptedException e) {
+                    Log_OC.e(TAG, "Wait in mThumbnailsDiskCacheLock was interrupted", e);
+                }
+            }
+            return mThumbnailCache != null && mThumbnailCache.containsKey(key);
+        }
+    }
+
     public static boolean containsBitmap(String key) {
-        return mThumbnailCache.containsKey(key);
+        return ThumbnailsMemoryCache.get(key) != null || mThumbnailCache.containsKey(key);
     }
 
+    /**
+     * Returns the cached bitmap from the memory cache if it was used recently, otherwise decoded from the disk cache
+     * scaled down to about the given size. Resized images are generated for the screen size, so the bitmap in memory
+     * is used regardless of the requested size.
+     */
     public static Bitmap getScaledBitmapFromDiskCache(String key, int width, int height) {
+        Bitmap bitmap = ThumbnailsMemoryCache.get(key);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
         synchronized (mThumbnailsDiskCacheLock) {
             // Wait while disk cache is started from background thread
             while (mThumbnailCacheStarting) {
@@ -228,13 +298,33 @@ public final class ThumbnailsCacheManager {
                 }
             }
             if (mThumbnailCache != null) {
-                return mThumbnailCache.getScaledBitmap(key, width, height);
+                bitmap = mThumbnailCache.getScaledBitmap(key, width, height);
             }
         }
-        return null;
+
+        if (bitmap != null) {
+            ThumbnailsMemoryCache.put(key, bitmap);
+        }
+        return bitmap;
     }
 
+    /**
+     * Returns the cached bitmap only if it is held in memory. Does not touch the disk cache, so it can be used while
+     * binding views on the main thread.
+     */
+    public static Bitmap getBitmapFromMemoryCache(String key) {
+        return ThumbnailsMemoryCache.get(key);
+    }
+
+    /**
+     * Returns the cached bitmap, from the memory cache if it was used recently, otherwise decoded from the disk cache.
+     */
     public static Bitmap getBitmapFromDiskCache(String key) {
+        Bitmap bitmap = ThumbnailsMemoryCache.get(key);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
         synchronized (mThumbnailsDiskCacheLock) {
             // Wait while disk cache is started from background thread
             while (mThumbnailCacheStarting) {
@@ -245,10 +335,14 @@ public final class ThumbnailsCacheManager {
                 }
             }
             if (mThumbnailCache != null) {
-                return mThumbnailCache.getBitmap(key);
+                bitmap = mThumbnailCache.getBitmap(key);
             }
         }
-        return null;
+
+        if (bitmap != null) {
+            ThumbnailsMemoryCache.put(key, bitmap);
+        }
+        return bitmap;
     }
 
     public static class ResizedImageGenerationTask extends AsyncTask<Object, Void, Bitmap> {
@@ -448,6 +542,7 @@ public final class ThumbnailsCacheManager {
         private GetMethod getMethod;
         private Listener mListener;
         private boolean gridViewEnabled = false;
+        private OwnCloudClient client;
 
         public ThumbnailGenerationTask(ImageView imageView, FileDataStorageManager storageManager, User user)
                 throws IllegalArgumentException {
@@ -499,9 +594,7 @@ public final class ThumbnailsCacheManager {
             Bitmap thumbnail = null;
             try {
                 if (user != null) {
-                    OwnCloudAccount ocAccount = user.toOwnCloudAccount();
-                    mClient = OwnCloudClientManagerFactory.getDefaultSingleton().
-                            getClientFor(ocAccount, MainApp.getAppContext());
+                    client = getWorkerClient(user);
                 }
 
                 ThumbnailGenerationTaskObject object = params[0];
@@ -578,9 +671,22 @@ public final class ThumbnailsCacheManager {
         }
 
         private Bitmap doThumbnailFromOCFileInBackground() {
+            String imageKey = PREFIX_THUMBNAIL + ((ServerFileInterface) mFile).getRemoteId();
+
+            // a concurrent request for the same thumbnail is waited for, its result is then found in the cache
+            GenerationLock lock = acquireGenerationLock(imageKey);
+            try {
+                synchronized (lock) {
+                    return createThumbnailFromOCFile(imageKey);
+                }
+            } finally {
+                releaseGenerationLock(imageKey, lock);
+            }
+        }
+
+        private Bitmap createThumbnailFromOCFile(String imageKey) {
             Bitmap thumbnail;
             ServerFileInterface file = (ServerFileInterface) mFile;
-            String imageKey = PREFIX_THUMBNAIL + file.getRemoteId();
 
             // Check disk cache in background thread
             thumbnail = getBitmapFromDiskCache(imageKey);
@@ -625,16 +731,16 @@ public final class ThumbnailsCacheManager {
                         thumbnail = ThumbnailUtils.extractThumbnail(resizedImage, pxW, pxH);
                     } else {
                         // Download thumbnail from server
-                        if (mClient != null) {
+                        if (client != null) {
                             getMethod = null;
                             try {
                                 // thumbnail
                                 String uri;
                                 if (file instanceof OCFile) {
-                                    uri = mClient.getBaseUri() + "/index.php/apps/files/api/v1/thumbnail/" +
+                                    uri = client.getBaseUri() + "/index.php/apps/files/api/v1/thumbnail/" +
                                         pxW + "/" + pxH + Uri.encode(file.getRemotePath(), "/");
                                 } else {
-                                    uri = mClient.getBaseUri() + "/index.php/apps/files_trashbin/preview?fileId=" +
+                                    uri = client.getBaseUri() + "/index.php/apps/files_trashbin/preview?fileId=" +
                                             file.getLocalId() + "&x=" + pxW + "&y=" + pxH;
                                 }
 
@@ -646,13 +752,13 @@ public final class ThumbnailsCacheManager {
                                 getMethod.setRequestHeader(RemoteOperation.OCS_API_HEADER,
                                         RemoteOperation.OCS_API_HEADER_VALUE);
 
-                                int status = mClient.executeMethod(getMethod, READ_TIMEOUT, CONNECTION_TIMEOUT);
+                                int status = client.executeMethod(getMethod, READ_TIMEOUT, CONNECTION_TIMEOUT);
                                 if (status == HttpStatus.SC_OK) {
                                     InputStream inputStream = getMethod.getResponseBodyAsStream();
                                     Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
                                     thumbnail = ThumbnailUtils.extractThumbnail(bitmap, pxW, pxH);
                                 } else {
-                                    mClient.exhaustResponse(getMethod.getResponseBodyAsStream());
+                                    client.exhaustResponse(getMethod.getResponseBodyAsStream());
                                 }
 
                                 // Handle PNG
@@ -686,10 +792,7 @@ public final class ThumbnailsCacheManager {
          * @return int
          */
         private int getThumbnailDimension() {
-            // Converts dp to pixel
-            Resources r = MainApp.getAppContext().getResources();
-            Double d = Math.pow(2, Math.floor(Math.log(r.getDimension(R.dimen.file_icon_size_grid)) / Math.log(2)));
-            return d.intValue();
+            return getGridThumbnailDimension();
         }
 
         private Bitmap doFileInBackground() {
@@ -730,6 +833,90 @@ public final class ThumbnailsCacheManager {
 
     }
 
+    /**
+     * Downloads the thumbnails of many files at once, e.g. of a page of gallery search results, into the disk cache.
+     *
+     * Each download is a low priority task of {@link #THUMBNAIL_EXECUTOR}, so at most one per worker runs at the same
+     * time and thumbnails of visible cells go first. Workers keep their client, and with it a kept-alive connection,
+     * across downloads. Thumbnails are stored as received; only PNGs are decoded to get a background.
+     */
+    public static class PreviewBatchFetcher {
+        private final User user;
+        private volatile boolean cancelled;
+
+        public PreviewBatchFetcher(User user) {
+            this.user = user;
+        }
+
+        public void fetch(List<OCFile> files) {
+            int px = getGridThumbnailDimension();
+
+            for (OCFile file : files) {
+                if (!file.isFolder() && file.isPreviewAvailable() && file.getRemoteId() != null &&
+                    !file.isUpdateThumbnailNeeded()) {
+                    THUMBNAIL_EXECUTOR.getPrefetchExecutor().execute(() -> fetchThumbnail(file, px));
+                }
+            }
+        }
+
+        /**
+         * Skips all downloads which did not start yet.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void fetchThumbnail(OCFile file, int px) {
+            if (cancelled) {
+                return;
+            }
+
+            String imageKey = PREFIX_THUMBNAIL + file.getRemoteId();
+            GenerationLock lock = acquireGenerationLock(imageKey);
+            GetMethod getMethod = null;
+            try {
+                synchronized (lock) {
+                    if (ThumbnailsMemoryCache.get(imageKey) != null || isInDiskCache(imageKey)) {
+                        return;
+                    }
+
+                    OwnCloudClient client = getWorkerClient(user);
+                    String uri = client.getBaseUri() + "/index.php/apps/files/api/v1/thumbnail/" +
+                        px + "/" + px + Uri.encode(file.getRemotePath(), "/");
+
+                    getMethod = new GetMethod(uri);
+                    getMethod.setRequestHeader("Cookie", "nc_sameSiteCookielax=true;nc_sameSiteCookiestrict=true");
+                    getMethod.setRequestHeader(RemoteOperation.OCS_API_HEADER, RemoteOperation.OCS_API_HEADER_VALUE);
+
+                    int status = client.executeMethod(getMethod, READ_TIMEOUT, CONNECTION_TIMEOUT);
+                    Header contentType = getMethod.getResponseHeader("Content-Type");
+                    if (status != HttpStatus.SC_OK || contentType == null ||
+                        !contentType.getValue().startsWith("image/")) {
+                        client.exhaustResponse(getMethod.getResponseBodyAsStream());
+                        return;
+                    }
+
+                    byte[] encodedImage = getMethod.getResponseBody();
+                    if (PNG_MIMETYPE.equalsIgnoreCase(file.getMimeType())) {
+                        Bitmap bitmap = BitmapFactory.decodeByteArray(encodedImage, 0, encodedImage.length);
+                        if (bitmap != null) {
+                            addBitmapToCache(imageKey, handlePNG(bitmap, px, px));
+                        }
+                    } else {
+                        addEncodedThumbnailToDiskCache(imageKey, encodedImage);
+                    }
+                }
+            } catch (Exception e) {
+                Log_OC.d(TAG, "Fetching thumbnail of " + file.getRemotePath() + " failed", e);
+            } finally {
+                releaseGenerationLock(imageKey, lock);
+                if (getMethod != null) {
+                    getMethod.releaseConnection();
+                }
+            }
+        }
+    }
+
     public static class MediaThumbnailGenerationTask extends AsyncTask<Object, Void, Bitmap> {
 
         private static final int IMAGE_KEY_PARAMS_LENGTH = 2;
@@ -1036,6 +1223,56 @@ public final class ThumbnailsCacheManager {
         }
     }
 
+    /**
+     * Returns a client of the current thread for the given user, created on first use. Threads of {@link
+     * #THUMBNAIL_EXECUTOR} time out when idle, so clients with outdated credentials are not kept for long. Other
+     * threads, e.g. of the default {@link AsyncTask} pool, get the shared client instead of keeping one.
+     */
+    private static OwnCloudClient getWorkerClient(User user) throws Exception {
+        if (!ThumbnailGenerationExecutor.isWorkerThread()) {
+            return OwnCloudClientManagerFactory.getDefaultSingleton().getClientFor(user.toOwnCloudAccount(),
+                                                                                   MainApp.getAppContext());
+        }
+
+        Map<String, OwnCloudClient> clients = WORKER_CLIENTS.get();
+        if (clients == null) {
+            clients = new HashMap<>();
+            WORKER_CLIENTS.set(clients);
+        }
+
+        OwnCloudClient client = clients.get(user.getAccountName());
+        if (client == null) {
+            client = OwnCloudClientFactory.createOwnCloudClient(user.toPlatformAccount(), MainApp.getAppContext());
+            clients.put(user.getAccountName(), client);
+        }
+        return client;
+    }
+
+    private static GenerationLock acquireGenerationLock(String imageKey) {
+        synchronized (GENERATION_LOCKS) {
+            GenerationLock lock = GENERATION_LOCKS.get(imageKey);
+            if (lock == null) {
+                lock = new GenerationLock();
+                GENERATION_LOCKS.put(imageKey, lock);
+            }
+            lock.holders++;
+            return lock;
+        }
+    }
+
+    private static void releaseGenerationLock(String imageKey, GenerationLock lock) {
+        synchronized (GENERATION_LOCKS) {
+            lock.holders--;
+            if (lock.holders == 0) {
+                GENERATION_LOCKS.remove(imageKey);
+            }
+        }
+    }
+
+    private static class GenerationLock {
+        private int holders;
+    }
+
     public static boolean cancelPotentialThumbnailWork(Object file, ImageView imageView) {
         final ThumbnailGenerationTask bitmapWorkerTask = getBitmapWorkerTask(imageView);
 
@@ -0,0 +1,80 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.datamodel;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+/**
+ * In-memory tier in front of the thumbnail disk cache of {@link ThumbnailsCacheManager}, holding decoded bitmaps by
+ * the same keys. Kept out of {@link ThumbnailsCacheManager}, so that invalidating entries does not load its default
+ * bitmaps.
+ */
+final class ThumbnailsMemoryCache {
+
+    /**
+     * Bitmaps of up to 1/8 of the heap; enough for the thumbnails of several screens of a grid.
+     */
+    private static final int MAX_SIZE_BYTES = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE);
+
+    private static final LruCache<String, Bitmap> CACHE = new LruCache<String, Bitmap>(MAX_SIZE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getAllocationByteCount();
+        }
+    };
+
+    private ThumbnailsMemoryCache() {
+        // utility class -> private constructor
+    }
+
+    /**
+     * @return cached bitmap, or null if not cached or recycled meanwhile by a holder not aware of the cache
+     */
+    @Nullable
+    static Bitmap get(String key) {
+        Bitmap bitmap = CACHE.get(key);
+        if (bitmap != null && bitmap.isRecycled()) {
+            CACHE.remove(key);
+            return null;
+        }
+        return bitmap;
+    }
+
+    static void put(String key, @Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            CACHE.remove(key);
+        } else {
+            CACHE.put(key, bitmap);
+        }
+    }
+
+    /**
+     * Drops thumbnail and resized image of a file, e.g. once it is known that they have to be generated again.
+     */
+    static void remove(@Nullable String remoteId) {
+        if (remoteId != null) {
+            CACHE.remove(ThumbnailsCacheManager.PREFIX_THUMBNAIL + remoteId);
+            CACHE.remove(ThumbnailsCacheManager.PREFIX_RESIZED_IMAGE + remoteId);
+        }
+    }
+}
@@ -321,8 +321,15 @@ public class UploadsStorageManager extends Observable {
     }
 
     private OCUpload[] getUploads(@Nullable String selection, @Nullable String... selectionArgs) {
+        return getUploads(Integer.MAX_VALUE, selection, selectionArgs);
+    }
+
+    /**
+     * @param limit maximum number of uploads to read, the most recent ones first
+     */
+    private OCUpload[] getUploads(int limit, @Nullable String selection, @Nullable String... selectionArgs) {
         ArrayList<OCUpload> uploads = new ArrayList<>();
-        final long pageSize = 100;
+        final long pageSize = Math.min(100, limit);
         long page = 0;
         long rowsRead;
         long rowsTotal = 0;
@@ -354,7 +361,7 @@ public class UploadsStorageManager extends Observable {
                 null,
                 pageSelection,
                 pageSelectionArgs,
-                String.format(Locale.ENGLISH, "_id DESC LIMIT %d", pageSize)
+                String.format(Locale.ENGLISH, "_id DESC LIMIT %d", Math.min(pageSize, limit - rowsTotal))
                                     );
 
             if (c != null) {
@@ -383,7 +390,7 @@ public class UploadsStorageManager extends Observable {
             } else {
                 break;
             }
-        } while (rowsRead > 0);
+        } while (rowsRead > 0 && rowsTotal < limit);
 
         Log_OC.v(TAG, String.format(Locale.ENGLISH,
                                     "getUploads() returning %d (%d) rows after reading %d pages",
@@ -425,10 +432,57 @@ public class UploadsStorageManager extends Observable {
         return upload;
     }
 
+    /**
+     * @return number of uploads read with {@link #getUploads(int, String, String...)}, without limit
+     */
+    private int getUploadsCount(@Nullable String selection, @Nullable String... selectionArgs) {
+        int count = 0;
+        Cursor c = getDB().query(
+            ProviderTableMeta.CONTENT_URI_UPLOADS,
+            new String[]{"COUNT(*)"},
+            selection,
+            selectionArgs,
+            null
+                                );
+
+        if (c != null) {
+            if (c.moveToFirst()) {
+                count = c.getInt(0);
+            }
+            c.close();
+        }
+        return count;
+    }
+
+    /**
+     * Restricts a selection to the given uploads.
+     */
+    private static String selectUploads(String selection, long... uploadIds) {
+        StringBuilder builder = new StringBuilder("(").append(selection).append(")")
+            .append(AND).append(ProviderTableMeta._ID).append(" IN (");
+        for (int i = 0; i < uploadIds.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(uploadIds[i]);
+        }
+        return builder.append(')').toString();
+    }
+
     public OCUpload[] getCurrentAndPendingUploadsForCurrentAccount() {
-        User user = currentAccountProvider.getUser();
+        return getUploads(getCurrentAndPendingUploadsSelection(), currentAccountProvider.getUser().getAccountName());
+    }
 
-        return getUploads(ProviderTableMeta.UPLOADS_STATUS + "==" + UploadStatus.UPLOAD_IN_PROGRESS.value +
+    /**
+     * Like {@link #getCurrentAndPendingUploadsForCurrentAccount()}, but only among the given uploads.
+     */
+    public OCUpload[] getCurrentAndPendingUploadsForCurrentAccount(long[] uploadIds) {
+        return getUploads(selectUploads(getCurrentAndPendingUploadsSelection(), uploadIds),
+                          currentAccountProvider.getUser().getAccountName());
+    }
+
+    private static String getCurrentAndPendingUploadsSelection() {
+        return ProviderTableMeta.UPLOADS_STATUS + "==" + UploadStatus.UPLOAD_IN_PROGRESS.value +
                         " OR " + ProviderTableMeta.UPLOADS_LAST_RESULT +
                         "==" + UploadResult.DELAYED_FOR_WIFI.getValue() +
                         " OR " + ProviderTableMeta.UPLOADS_LAST_RESULT +
@@ -437,8 +491,7 @@ public class UploadsStorageManager extends Observable {
                         "==" + UploadResult.DELAYED_FOR_CHARGING.getValue() +
                         " OR " + ProviderTableMeta.UPLOADS_LAST_RESULT +
                         "==" + UploadResult.DELAYED_IN_POWER_SAVE_MODE.getValue() +
-                        " AND " + ProviderTableMeta.UPLOADS_ACCOUNT_NAME + "== ?",
-                        user.getAccountName());
+                        " AND " + ProviderTableMeta.UPLOADS_ACCOUNT_NAME + "== ?";
     }
 
     /**
@@ -460,10 +513,31 @@ public class UploadsStorageManager extends Observable {
     }
 
     public OCUpload[] getFinishedUploadsForCurrentAccount() {
-        User user = currentAccountProvider.getUser();
+        return getUploads(getFinishedUploadsSelection(), currentAccountProvider.getUser().getAccountName());
+    }
 
-        return getUploads(ProviderTableMeta.UPLOADS_STATUS + "==" + UploadStatus.UPLOAD_SUCCEEDED.value + AND +
-                              ProviderTableMeta.UPLOADS_ACCOUNT_NAME + "== ?", user.getAccountName());
+    /**
+     * @param limit maximum number of uploads to return, the most recent ones
+     */
+    public OCUpload[] getFinishedUploadsForCurrentAccount(int limit) {
+        return getUploads(limit, getFinishedUploadsSelection(), currentAccountProvider.getUser().getAccountName());
+    }
+
+    /**
+     * Like {@link #getFinishedUploadsForCurrentAccount()}, but only among the given uploads.
+     */
+    public OCUpload[] getFinishedUploadsForCurrentAccount(long[] uploadIds) {
+        return getUploads(selectUploads(getFinishedUploadsSelection(), uploadIds),
+                          currentAccountProvider.getUser().getAccountName());
+    }
+
+    public int getFinishedUploadsCountForCurrentAccount() {
+        return getUploadsCount(getFinishedUploadsSelection(), currentAccountProvider.getUser().getAccountName());
+    }
+
+    private static String getFinishedUploadsSelection() {
+        return ProviderTableMeta.UPLOADS_STATUS + "==" + UploadStatus.UPLOAD_SUCCEEDED.value + AND +
+            ProviderTableMeta.UPLOADS_ACCOUNT_NAME + "== ?";
     }
 
     /**
@@ -475,9 +549,19 @@ public class UploadsStorageManager extends Observable {
     }
 
     public OCUpload[] getFailedButNotDelayedUploadsForCurrentAccount() {
-        User user = currentAccountProvider.getUser();
+        return getUploads(getFailedButNotDelayedUploadsSelection(), currentAccountProvider.getUser().getAccountName());
+    }
 
-        return getUploads(ProviderTableMeta.UPLOADS_STATUS + "==" + UploadStatus.UPLOAD_FAILED.value +
+    /**
+     * Like {@link #getFailedButNotDelayedUploadsForCurrentAccount()}, but only among the given uploads.
+     */
+    public OCUpload[] getFailedButNotDelayedUploadsForCurrentAccount(long[] uploadIds) {
+        return getUploads(selectUploads(getFailedButNotDelayedUploadsSelection(), uploadIds),
+                          currentAccountProvider.getUser().getAccountName());
+    }
+
+    private static String getFailedButNotDelayedUploadsSelection() {
+        return ProviderTableMeta.UPLOADS_STATUS + "==" + UploadStatus.UPLOAD_FAILED.value +
                         AND + ProviderTableMeta.UPLOADS_LAST_RESULT +
                         "<>" + UploadResult.DELAYED_FOR_WIFI.getValue() +
                         AND + ProviderTableMeta.UPLOADS_LAST_RESULT +
@@ -486,8 +570,7 @@ public class UploadsStorageManager extends Observable {
                         "<>" + UploadResult.DELAYED_FOR_CHARGING.getValue() +
                         AND + ProviderTableMeta.UPLOADS_LAST_RESULT +
                         "<>" + UploadResult.DELAYED_IN_POWER_SAVE_MODE.getValue() +
-                        AND + ProviderTableMeta.UPLOADS_ACCOUNT_NAME + "== ?",
-                        user.getAccountName());
+                        AND + ProviderTableMeta.UPLOADS_ACCOUNT_NAME + "== ?";
     }
 
     /**
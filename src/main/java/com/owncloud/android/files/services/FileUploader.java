@@ -78,14 +78,21 @@ import com.owncloud.android.ui.activity.ConflictsResolveActivity;
 import com.owncloud.android.ui.activity.UploadListActivity;
 import com.owncloud.android.ui.notifications.NotificationUtils;
 import com.owncloud.android.utils.ErrorMessageAdapter;
+import com.owncloud.android.utils.FileStorageUtils;
 import com.owncloud.android.utils.theme.ThemeColorUtils;
 
 import java.io.File;
+import java.net.URI;
 import java.security.SecureRandom;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -107,8 +114,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
  * Every file passed to this service is uploaded. No filtering is performed. However, Intent keys (e.g., KEY_WIFI_ONLY)
  * are obeyed.
  */
-public class FileUploader extends Service
-    implements OnDatatransferProgressListener, OnAccountsUpdateListener, UploadFileOperation.OnRenameListener {
+public class FileUploader extends Service implements OnAccountsUpdateListener {
 
     private static final String TAG = FileUploader.class.getSimpleName();
 
@@ -116,6 +122,7 @@ public class FileUploader extends Service
     private static final String UPLOAD_START_MESSAGE = "UPLOAD_START";
     private static final String UPLOAD_FINISH_MESSAGE = "UPLOAD_FINISH";
     public static final String EXTRA_UPLOAD_RESULT = "RESULT";
+    public static final String EXTRA_UPLOAD_ID = "UPLOAD_ID";
     public static final String EXTRA_REMOTE_PATH = "REMOTE_PATH";
     public static final String EXTRA_OLD_REMOTE_PATH = "OLD_REMOTE_PATH";
     public static final String EXTRA_OLD_FILE_PATH = "OLD_FILE_PATH";
@@ -123,6 +130,7 @@ public class FileUploader extends Service
     public static final String ACCOUNT_NAME = "ACCOUNT_NAME";
 
     private static final int FOREGROUND_SERVICE_ID = 411;
+    private static final String PROGRESS_NOTIFICATION_TAG = "FileUploaderProgress";
 
     public static final String KEY_FILE = "FILE";
     public static final String KEY_LOCAL_FILE = "LOCAL_FILE";
@@ -184,10 +192,9 @@ public class FileUploader extends Service
     private Notification mNotification;
     private Looper mServiceLooper;
     private ServiceHandler mServiceHandler;
+    private ExecutorService mWorkerExecutor;
+    private UploadWorkerPool mWorkerPool;
     private IBinder mBinder;
-    private OwnCloudClient mUploadClient;
-    private Account mCurrentAccount;
-    private FileDataStorageManager mStorageManager;
 
     @Inject UserAccountManager accountManager;
     @Inject UploadsStorageManager mUploadsStorageManager;
@@ -198,20 +205,22 @@ public class FileUploader extends Service
     private IndexedForest<UploadFileOperation> mPendingUploads = new IndexedForest<>();
 
     /**
-     * {@link UploadFileOperation} object of ongoing upload. Can be null. Note: There can only be one concurrent
-     * upload!
+     * {@link UploadFileOperation} objects of ongoing uploads, one per busy worker.
      */
-    private UploadFileOperation mCurrentUpload;
+    private final Set<UploadFileOperation> mActiveUploads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    /**
+     * Progress notifications of ongoing uploads.
+     */
+    private final Map<UploadFileOperation, ProgressNotification> mProgressNotifications = new ConcurrentHashMap<>();
+    private final AtomicInteger mProgressNotificationIds = new AtomicInteger();
 
     private NotificationManager mNotificationManager;
-    private NotificationCompat.Builder mNotificationBuilder;
-    private int mLastPercent;
 
 
-    @Override
-    public void onRenameUpload() {
-        mUploadsStorageManager.updateDatabaseUploadStart(mCurrentUpload);
-        sendBroadcastUploadStarted(mCurrentUpload);
+    private void onRenameUpload(UploadFileOperation upload) {
+        mUploadsStorageManager.updateDatabaseUploadStart(upload);
+        sendBroadcastUploadStarted(upload);
     }
 
     /**
@@ -229,6 +238,18 @@ public class FileUploader extends Service
         mServiceHandler = new ServiceHandler(mServiceLooper, this);
         mBinder = new FileUploaderBinder();
 
+        int maxParallelUploads = getResources().getInteger(R.integer.max_parallel_uploads);
+        mWorkerExecutor = Executors.newFixedThreadPool(maxParallelUploads, runnable -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "FileUploaderWorker"));
+        mWorkerPool = new UploadWorkerPool(mWorkerExecutor,
+                                           maxParallelUploads,
+                                           getResources().getInteger(R.integer.max_parallel_uploads_per_account),
+                                           getResources().getInteger(R.integer.max_parallel_uploads_per_server));
+        final ServiceHandler serviceHandler = mServiceHandler;
+        mWorkerPool.setIdleListener(() -> serviceHandler.post(serviceHandler::stopIfIdle));
+
         NotificationCompat.Builder builder = new NotificationCompat.Builder(this).setContentTitle(
             getApplicationContext().getResources().getString(R.string.app_name))
             .setContentText(getApplicationContext().getResources().getString(R.string.foreground_service_upload))
@@ -272,6 +293,9 @@ public class FileUploader extends Service
         mServiceHandler = null;
         mServiceLooper.quit();
         mServiceLooper = null;
+        // running uploads are not interrupted, as the looper did not interrupt the current upload before
+        mWorkerPool.shutdown();
+        mWorkerExecutor.shutdown();
         if (mNotificationManager != null) {
             mNotificationManager.cancel(FOREGROUND_SERVICE_ID);
         }
@@ -497,10 +521,7 @@ public class FileUploader extends Service
         if (isCreateRemoteFolder) {
             newUpload.setRemoteFolderToBeCreated();
         }
-        newUpload.addDataTransferProgressListener(this);
-        newUpload.addDataTransferProgressListener((FileUploaderBinder) mBinder);
-
-        newUpload.addRenameUploadListener(this);
+        addUploadListeners(newUpload);
 
         Pair<String, String> putResult = mPendingUploads.putIfAbsent(
             user.getAccountName(),
@@ -544,10 +565,7 @@ public class FileUploader extends Service
             new FileDataStorageManager(user.toPlatformAccount(), getContentResolver())
         );
 
-        newUpload.addDataTransferProgressListener(this);
-        newUpload.addDataTransferProgressListener((FileUploaderBinder) mBinder);
-
-        newUpload.addRenameUploadListener(this);
+        addUploadListeners(newUpload);
 
         Pair<String, String> putResult = mPendingUploads.putIfAbsent(
             user.getAccountName(),
@@ -564,6 +582,19 @@ public class FileUploader extends Service
         }
     }
 
+    /**
+     * Registers the progress and rename listeners of the service and the binder on an upload. Listeners are bound to
+     * the upload, as several uploads report progress at the same time.
+     */
+    private void addUploadListeners(UploadFileOperation upload) {
+        final FileUploaderBinder binder = (FileUploaderBinder) mBinder;
+        upload.addDataTransferProgressListener((progressRate, totalTransferredSoFar, totalToTransfer, fileName) -> {
+            onTransferProgress(upload, totalTransferredSoFar, totalToTransfer, fileName);
+            binder.onTransferProgress(upload, progressRate, totalTransferredSoFar, totalToTransfer, fileName);
+        });
+        upload.addRenameUploadListener(() -> onRenameUpload(upload));
+    }
+
     /**
      * Provides a binder object that clients can use to perform operations on the queue of uploads, excepting the
      * addition of new files.
@@ -586,116 +617,144 @@ public class FileUploader extends Service
 
     @Override
     public void onAccountsUpdated(Account[] accounts) {
-        // Review current upload, and cancel it if its account doesn't exist
-        if (mCurrentUpload != null && !accountManager.exists(mCurrentUpload.getAccount())) {
-            mCurrentUpload.cancel(ResultCode.ACCOUNT_NOT_FOUND);
+        // Review current uploads, and cancel them if their account doesn't exist
+        for (UploadFileOperation upload : mActiveUploads) {
+            if (!accountManager.exists(upload.getAccount())) {
+                upload.cancel(ResultCode.ACCOUNT_NOT_FOUND);
+            }
         }
         // The rest of uploads are cancelled when they try to start
     }
 
     /**
-     * Core upload method: sends the file(s) to upload
+     * Hands a requested upload over to the worker pool.
+     *
+     * @param uploadKey Key to access the upload to perform, contained in mPendingUploads
+     */
+    private void enqueueUpload(String uploadKey) {
+        UploadFileOperation upload = mPendingUploads.get(uploadKey);
+        if (upload == null) {
+            // cancelled before being handled
+            return;
+        }
+
+        URI serverUri = upload.getUser().getServer().getUri();
+        String server = serverUri.getHost() != null ? serverUri.getHost() : serverUri.toString();
+        mWorkerPool.submit(upload.getAccount().name,
+                           server,
+                           getEncryptedFolderKey(upload),
+                           () -> uploadFile(uploadKey));
+    }
+
+    /**
+     * Uploads into an encrypted folder lock the folder on the server, so they have to run one after another.
+     *
+     * @return key of the encrypted target folder of the upload, or null if the folder is not encrypted
+     */
+    @Nullable
+    private String getEncryptedFolderKey(UploadFileOperation upload) {
+        String parentPath = new File(upload.getRemotePath()).getParent();
+        parentPath = parentPath.endsWith(OCFile.PATH_SEPARATOR) ? parentPath : parentPath + OCFile.PATH_SEPARATOR;
+
+        // the target folder may not exist yet, then it is created in the closest existing ancestor
+        FileDataStorageManager storageManager = new FileDataStorageManager(upload.getAccount(), getContentResolver());
+        OCFile folder = storageManager.getFileByPath(parentPath);
+        String path = parentPath;
+        while (folder == null && !OCFile.ROOT_PATH.equals(path)) {
+            path = new File(path).getParent();
+            path = path.endsWith(OCFile.PATH_SEPARATOR) ? path : path + OCFile.PATH_SEPARATOR;
+            folder = storageManager.getFileByPath(path);
+        }
+
+        if (folder != null && FileStorageUtils.checkEncryptionStatus(folder, storageManager)) {
+            return upload.getAccount().name + parentPath;
+        }
+        return null;
+    }
+
+    /**
+     * Core upload method: sends the file(s) to upload. Called from the worker threads, so several uploads can be
+     * performed at the same time.
      *
      * @param uploadKey Key to access the upload to perform, contained in mPendingUploads
      */
     public void uploadFile(String uploadKey) {
-        mCurrentUpload = mPendingUploads.get(uploadKey);
+        UploadFileOperation upload = mPendingUploads.get(uploadKey);
+
+        if (upload != null) {
+            Account account = upload.getAccount();
 
-        if (mCurrentUpload != null) {
             /// Check account existence
-            if (!accountManager.exists(mCurrentUpload.getAccount())) {
-                Log_OC.w(TAG, "Account " + mCurrentUpload.getAccount().name +
+            if (!accountManager.exists(account)) {
+                Log_OC.w(TAG, "Account " + account.name +
                     " does not exist anymore -> cancelling all its uploads");
-                cancelUploadsForAccount(mCurrentUpload.getAccount());
+                cancelUploadsForAccount(account);
                 return;
             }
 
             /// OK, let's upload
-            mUploadsStorageManager.updateDatabaseUploadStart(mCurrentUpload);
+            mActiveUploads.add(upload);
 
-            notifyUploadStart(mCurrentUpload);
+            mUploadsStorageManager.updateDatabaseUploadStart(upload);
 
-            sendBroadcastUploadStarted(mCurrentUpload);
+            notifyUploadStart(upload);
+
+            sendBroadcastUploadStarted(upload);
 
             RemoteOperationResult uploadResult = null;
 
             try {
                 /// prepare client object to send the request to the ownCloud server
-                if (mCurrentAccount == null || !mCurrentAccount.equals(mCurrentUpload.getAccount())) {
-                    mCurrentAccount = mCurrentUpload.getAccount();
-                    mStorageManager = new FileDataStorageManager(mCurrentAccount, getContentResolver());
-                }   // else, reuse storage manager from previous operation
-
                 // always get client from client manager, to get fresh credentials in case of update
-                OwnCloudAccount ocAccount = new OwnCloudAccount(mCurrentAccount, this);
-                mUploadClient = OwnCloudClientManagerFactory.getDefaultSingleton().getClientFor(ocAccount, this);
-
+                OwnCloudAccount ocAccount = new OwnCloudAccount(account, this);
+                OwnCloudClient uploadClient = OwnCloudClientManagerFactory.getDefaultSingleton()
+                    .getClientFor(ocAccount, this);
 
-//                // If parent folder is encrypted, upload file encrypted
-//                OCFile parent = mStorageManager.getFileByPath(mCurrentUpload.getFile().getParentRemotePath());
-
-//                if (parent.isEncrypted()) {
-//                    UploadEncryptedFileOperation uploadEncryptedFileOperation =
-//                            new UploadEncryptedFileOperation(parent, mCurrentUpload);
-//
-//                    uploadResult = uploadEncryptedFileOperation.execute(mUploadClient, mStorageManager);
-//                } else {
                 /// perform the regular upload
-                uploadResult = mCurrentUpload.execute(mUploadClient);
-//                }
+                uploadResult = upload.execute(uploadClient);
             } catch (Exception e) {
                 Log_OC.e(TAG, "Error uploading", e);
                 uploadResult = new RemoteOperationResult(e);
             } finally {
                 Pair<UploadFileOperation, String> removeResult;
-                if (mCurrentUpload.wasRenamed()) {
+                if (upload.wasRenamed()) {
                     removeResult = mPendingUploads.removePayload(
-                        mCurrentAccount.name,
-                        mCurrentUpload.getOldFile().getRemotePath()
+                        account.name,
+                        upload.getOldFile().getRemotePath()
                     );
-                    // TODO: grant that name is also updated for mCurrentUpload.getOCUploadId
+                    // TODO: grant that name is also updated for upload.getOCUploadId
 
                 } else {
-                    removeResult = mPendingUploads.removePayload(mCurrentAccount.name,
-                                                                 mCurrentUpload.getDecryptedRemotePath());
+                    removeResult = mPendingUploads.removePayload(account.name, upload.getDecryptedRemotePath());
                 }
 
-                mUploadsStorageManager.updateDatabaseUploadResult(uploadResult, mCurrentUpload);
+                mActiveUploads.remove(upload);
+
+                mUploadsStorageManager.updateDatabaseUploadResult(uploadResult, upload);
 
                 /// notify result
-                notifyUploadResult(mCurrentUpload, uploadResult);
+                cancelProgressNotification(upload);
+                notifyUploadResult(upload, uploadResult);
 
-                sendBroadcastUploadFinished(mCurrentUpload, uploadResult, removeResult.second);
+                sendBroadcastUploadFinished(upload, uploadResult, removeResult.second);
             }
 
             // generate new Thumbnail
-            Optional<User> user = getCurrentUser();
+            Optional<User> user = accountManager.getUser(account.name);
             if (user.isPresent()) {
                 final ThumbnailsCacheManager.ThumbnailGenerationTask task =
-                    new ThumbnailsCacheManager.ThumbnailGenerationTask(mStorageManager, user.get());
+                    new ThumbnailsCacheManager.ThumbnailGenerationTask(
+                        new FileDataStorageManager(account, getContentResolver()), user.get());
 
-                File file = new File(mCurrentUpload.getOriginalStoragePath());
-                String remoteId = mCurrentUpload.getFile().getRemoteId();
+                File file = new File(upload.getOriginalStoragePath());
+                String remoteId = upload.getFile().getRemoteId();
 
-                task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, remoteId));
+                task.executeOnExecutor(ThumbnailsCacheManager.THUMBNAIL_EXECUTOR,
+                                       new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, remoteId));
             }
         }
     }
 
-    /**
-     * Convert current account to user. This is a temporary workaround until
-     * service is migrated to new user model.
-     * 
-     * @return Optional {@link User}
-     */
-    private Optional<User> getCurrentUser() {
-        if (mCurrentAccount == null) {
-            return Optional.empty();
-        } else {
-            return accountManager.getUser(mCurrentAccount.name);
-        }
-    }
-
     /**
      * Creates a status notification to show the upload progress
      *
@@ -703,9 +762,8 @@ public class FileUploader extends Service
      */
     private void notifyUploadStart(UploadFileOperation upload) {
         // / create status notification with a progress bar
-        mLastPercent = 0;
-        mNotificationBuilder = NotificationUtils.newNotificationBuilder(this);
-        mNotificationBuilder
+        NotificationCompat.Builder notificationBuilder = NotificationUtils.newNotificationBuilder(this);
+        notificationBuilder
             .setOngoing(true)
             .setSmallIcon(R.drawable.notification_icon)
             .setTicker(getString(R.string.uploader_upload_in_progress_ticker))
@@ -716,7 +774,7 @@ public class FileUploader extends Service
             );
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            mNotificationBuilder.setChannelId(NotificationUtils.NOTIFICATION_CHANNEL_UPLOAD);
+            notificationBuilder.setChannelId(NotificationUtils.NOTIFICATION_CHANNEL_UPLOAD);
         }
 
         /// includes a pending intent in the notification showing the details
@@ -724,45 +782,64 @@ public class FileUploader extends Service
                                                         upload.getAccount(),
                                                         Intent.FLAG_ACTIVITY_CLEAR_TOP,
                                                         this);
-        mNotificationBuilder.setContentIntent(PendingIntent.getActivity(this,
-                                                                        (int) System.currentTimeMillis(),
-                                                                        intent,
-                                                                        0)
-                                             );
+        notificationBuilder.setContentIntent(PendingIntent.getActivity(this,
+                                                                       (int) System.currentTimeMillis(),
+                                                                       intent,
+                                                                       0)
+                                            );
 
-        if (!upload.isInstantPicture() && !upload.isInstantVideo()) {
-            if (mNotificationManager == null) {
-                mNotificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
-            }
+        ProgressNotification progressNotification =
+            new ProgressNotification(mProgressNotificationIds.incrementAndGet(), notificationBuilder);
+        mProgressNotifications.put(upload, progressNotification);
 
-            mNotificationManager.notify(FOREGROUND_SERVICE_ID, mNotificationBuilder.build());
+        if (!upload.isInstantPicture() && !upload.isInstantVideo()) {
+            getNotificationManager().notify(PROGRESS_NOTIFICATION_TAG,
+                                            progressNotification.id,
+                                            notificationBuilder.build());
         }   // else wait until the upload really start (onTransferProgress is called), so that if it's discarded
         // due to lack of Wifi, no notification is shown
         // TODO generalize for automated uploads
     }
 
     /**
-     * Callback method to update the progress bar in the status notification
+     * Callback method to update the progress bar in the status notification of an upload
      */
-    @Override
-    public void onTransferProgress(
-        long progressRate,
+    private void onTransferProgress(
+        UploadFileOperation upload,
         long totalTransferredSoFar,
         long totalToTransfer,
         String filePath
     ) {
+        ProgressNotification progressNotification = mProgressNotifications.get(upload);
+        if (progressNotification == null) {
+            return;
+        }
+
         int percent = (int) (100.0 * ((double) totalTransferredSoFar) / ((double) totalToTransfer));
-        if (percent != mLastPercent) {
-            mNotificationBuilder.setProgress(100, percent, false);
+        if (percent != progressNotification.lastPercent) {
+            progressNotification.builder.setProgress(100, percent, false);
             String fileName = filePath.substring(filePath.lastIndexOf(FileUtils.PATH_SEPARATOR) + 1);
             String text = String.format(getString(R.string.uploader_upload_in_progress_content), percent, fileName);
-            mNotificationBuilder.setContentText(text);
-            if (mNotificationManager == null) {
-                mNotificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
-            }
-            mNotificationManager.notify(FOREGROUND_SERVICE_ID, mNotificationBuilder.build());
+            progressNotification.builder.setContentText(text);
+            getNotificationManager().notify(PROGRESS_NOTIFICATION_TAG,
+                                            progressNotification.id,
+                                            progressNotification.builder.build());
         }
-        mLastPercent = percent;
+        progressNotification.lastPercent = percent;
+    }
+
+    private void cancelProgressNotification(UploadFileOperation upload) {
+        ProgressNotification progressNotification = mProgressNotifications.remove(upload);
+        if (progressNotification != null) {
+            getNotificationManager().cancel(PROGRESS_NOTIFICATION_TAG, progressNotification.id);
+        }
+    }
+
+    private NotificationManager getNotificationManager() {
+        if (mNotificationManager == null) {
+            mNotificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+        }
+        return mNotificationManager;
     }
 
     /**
@@ -775,9 +852,6 @@ public class FileUploader extends Service
     private void notifyUploadResult(UploadFileOperation upload, RemoteOperationResult uploadResult) {
         Log_OC.d(TAG, "NotifyUploadResult with resultCode: " + uploadResult.getCode());
         // cancelled operation or success -> silent removal of progress notification
-        if (mNotificationManager == null) {
-            mNotificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
-        }
 
         // Only notify if the upload fails
         if (!uploadResult.isCancelled() &&
@@ -800,13 +874,19 @@ public class FileUploader extends Service
                 tickerId = R.string.uploader_upload_failed_sync_conflict_error;
             }
 
-            mNotificationBuilder
+            NotificationCompat.Builder notificationBuilder = NotificationUtils.newNotificationBuilder(this);
+            notificationBuilder
+                .setSmallIcon(R.drawable.notification_icon)
                 .setTicker(getString(tickerId))
                 .setContentTitle(getString(tickerId))
                 .setAutoCancel(true)
                 .setOngoing(false)
                 .setProgress(0, 0, false);
 
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                notificationBuilder.setChannelId(NotificationUtils.NOTIFICATION_CHANNEL_UPLOAD);
+            }
+
             content = ErrorMessageAdapter.getErrorCauseMessage(uploadResult, upload, getResources());
 
             if (needsToUpdateCredentials) {
@@ -823,7 +903,7 @@ public class FileUploader extends Service
                 updateAccountCredentials.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
                 updateAccountCredentials.addFlags(Intent.FLAG_ACTIVITY_EXCLUDE_FROM_RECENTS);
                 updateAccountCredentials.addFlags(Intent.FLAG_FROM_BACKGROUND);
-                mNotificationBuilder.setContentIntent(PendingIntent.getActivity(
+                notificationBuilder.setContentIntent(PendingIntent.getActivity(
                     this,
                     (int) System.currentTimeMillis(),
                     updateAccountCredentials,
@@ -844,16 +924,16 @@ public class FileUploader extends Service
                                                              this);
                 }
 
-                mNotificationBuilder.setContentIntent(PendingIntent.getActivity(this,
-                                                                                (int) System.currentTimeMillis(),
-                                                                                intent,
-                                                                                0)
-                                                     );
+                notificationBuilder.setContentIntent(PendingIntent.getActivity(this,
+                                                                               (int) System.currentTimeMillis(),
+                                                                               intent,
+                                                                               0)
+                                                    );
             }
 
-            mNotificationBuilder.setContentText(content);
+            notificationBuilder.setContentText(content);
             if (!uploadResult.isSuccess()) {
-                mNotificationManager.notify((new SecureRandom()).nextInt(), mNotificationBuilder.build());
+                getNotificationManager().notify((new SecureRandom()).nextInt(), notificationBuilder.build());
             }
 
         }
@@ -883,6 +963,7 @@ public class FileUploader extends Service
         start.putExtra(EXTRA_REMOTE_PATH, upload.getRemotePath()); // real remote
         start.putExtra(EXTRA_OLD_FILE_PATH, upload.getOriginalStoragePath());
         start.putExtra(ACCOUNT_NAME, upload.getAccount().name);
+        start.putExtra(EXTRA_UPLOAD_ID, upload.getOCUploadId());
 
         start.setPackage(getPackageName());
         localBroadcastManager.sendBroadcast(start);
@@ -914,6 +995,7 @@ public class FileUploader extends Service
         end.putExtra(EXTRA_OLD_FILE_PATH, upload.getOriginalStoragePath());
         end.putExtra(ACCOUNT_NAME, upload.getAccount().name);
         end.putExtra(EXTRA_UPLOAD_RESULT, uploadResult.isSuccess());
+        end.putExtra(EXTRA_UPLOAD_ID, upload.getOCUploadId());
         if (unlinkedFromRemotePath != null) {
             end.putExtra(EXTRA_LINKED_TO_PATH, unlinkedFromRemotePath);
         }
@@ -1155,12 +1237,12 @@ public class FileUploader extends Service
      *
      * It provides by itself the available operations.
      */
-    public class FileUploaderBinder extends Binder implements OnDatatransferProgressListener {
+    public class FileUploaderBinder extends Binder {
 
         /**
          * Map of listeners that will be reported about progress of uploads from a {@link FileUploaderBinder} instance
          */
-        private Map<String, OnDatatransferProgressListener> mBoundListeners = new HashMap<>();
+        private Map<String, OnDatatransferProgressListener> mBoundListeners = new ConcurrentHashMap<>();
 
         /**
          * Cancels a pending or current upload of a remote file.
@@ -1191,10 +1273,14 @@ public class FileUploader extends Service
         private void cancel(String accountName, String remotePath, @Nullable ResultCode resultCode) {
             Pair<UploadFileOperation, String> removeResult = mPendingUploads.remove(accountName, remotePath);
             UploadFileOperation upload = removeResult.first;
-            if (upload == null && mCurrentUpload != null && mCurrentAccount != null &&
-                mCurrentUpload.getRemotePath().startsWith(remotePath) && accountName.equals(mCurrentAccount.name)) {
-
-                upload = mCurrentUpload;
+            if (upload == null) {
+                for (UploadFileOperation activeUpload : mActiveUploads) {
+                    if (activeUpload.getRemotePath().startsWith(remotePath) &&
+                        accountName.equals(activeUpload.getAccount().name)) {
+                        upload = activeUpload;
+                        break;
+                    }
+                }
             }
 
             if (upload != null) {
@@ -1218,10 +1304,10 @@ public class FileUploader extends Service
         public void cancel(Account account) {
             Log_OC.d(TAG, "Account= " + account.name);
 
-            if (mCurrentUpload != null) {
-                Log_OC.d(TAG, "Current Upload Account= " + mCurrentUpload.getAccount().name);
-                if (mCurrentUpload.getAccount().name.equals(account.name)) {
-                    mCurrentUpload.cancel(ResultCode.CANCELLED);
+            for (UploadFileOperation activeUpload : mActiveUploads) {
+                Log_OC.d(TAG, "Current Upload Account= " + activeUpload.getAccount().name);
+                if (activeUpload.getAccount().name.equals(account.name)) {
+                    activeUpload.cancel(ResultCode.CANCELLED);
                 }
             }
 
@@ -1254,11 +1340,17 @@ public class FileUploader extends Service
         }
 
         public boolean isUploadingNow(OCUpload upload) {
-            return upload != null &&
-                mCurrentAccount != null &&
-                mCurrentUpload != null &&
-                upload.getAccountName().equals(mCurrentAccount.name) &&
-                upload.getRemotePath().equals(mCurrentUpload.getRemotePath());
+            if (upload == null) {
+                return false;
+            }
+
+            for (UploadFileOperation activeUpload : mActiveUploads) {
+                if (upload.getAccountName().equals(activeUpload.getAccount().name) &&
+                    upload.getRemotePath().equals(activeUpload.getRemotePath())) {
+                    return true;
+                }
+            }
+            return false;
         }
 
         /**
@@ -1341,14 +1433,14 @@ public class FileUploader extends Service
             }
         }
 
-        @Override
-        public void onTransferProgress(
+        private void onTransferProgress(
+            UploadFileOperation upload,
             long progressRate,
             long totalTransferredSoFar,
             long totalToTransfer,
             String fileName
         ) {
-            String key = buildRemoteName(mCurrentUpload.getAccount().name, mCurrentUpload.getFile().getRemotePath());
+            String key = buildRemoteName(upload.getAccount().name, upload.getFile().getRemotePath());
             OnDatatransferProgressListener boundListener = mBoundListeners.get(key);
 
             if (boundListener != null) {
@@ -1359,18 +1451,18 @@ public class FileUploader extends Service
             if (context != null) {
                 ResultCode cancelReason = null;
                 Connectivity connectivity = connectivityService.getConnectivity();
-                if (mCurrentUpload.isWifiRequired() && !connectivity.isWifi()) {
+                if (upload.isWifiRequired() && !connectivity.isWifi()) {
                     cancelReason = ResultCode.DELAYED_FOR_WIFI;
-                } else if (mCurrentUpload.isChargingRequired() && !powerManagementService.getBattery().isCharging()) {
+                } else if (upload.isChargingRequired() && !powerManagementService.getBattery().isCharging()) {
                     cancelReason = ResultCode.DELAYED_FOR_CHARGING;
-                } else if (!mCurrentUpload.isIgnoringPowerSaveMode() && powerManagementService.isPowerSavingEnabled()) {
+                } else if (!upload.isIgnoringPowerSaveMode() && powerManagementService.isPowerSavingEnabled()) {
                     cancelReason = ResultCode.DELAYED_IN_POWER_SAVE_MODE;
                 }
 
                 if (cancelReason != null) {
                     cancel(
-                        mCurrentUpload.getAccount().name,
-                        mCurrentUpload.getFile().getRemotePath(),
+                        upload.getAccount().name,
+                        upload.getFile().getRemotePath(),
                         cancelReason
                     );
                 }
@@ -1394,7 +1486,22 @@ public class FileUploader extends Service
 
 
     /**
-     * Upload worker. Performs the pending uploads in the order they were requested.
+     * Progress notification of one ongoing upload.
+     */
+    private static class ProgressNotification {
+        private final int id;
+        private final NotificationCompat.Builder builder;
+        private int lastPercent;
+
+        ProgressNotification(int id, NotificationCompat.Builder builder) {
+            this.id = id;
+            this.builder = builder;
+        }
+    }
+
+    /**
+     * Upload dispatcher. Hands the pending uploads over to the worker pool in the order they were requested, and stops
+     * the service once the pool is idle.
      *
      * Created with the Looper of a new thread, started in {@link FileUploader#onCreate()}.
      */
@@ -1402,6 +1509,7 @@ public class FileUploader extends Service
         // don't make it a final class, and don't remove the static ; lint will
         // warn about a possible memory leak
         private FileUploader mService;
+        private int mLastStartId;
 
         public ServiceHandler(Looper looper, FileUploader service) {
             super(looper);
@@ -1415,15 +1523,26 @@ public class FileUploader extends Service
         public void handleMessage(Message msg) {
             @SuppressWarnings("unchecked")
             List<String> requestedUploads = (List<String>) msg.obj;
+            mLastStartId = msg.arg1;
             if (msg.obj != null) {
                 for (String requestedUpload : requestedUploads) {
-                    mService.uploadFile(requestedUpload);
+                    mService.enqueueUpload(requestedUpload);
                 }
             }
-            Log_OC.d(TAG, "Stopping command after id " + msg.arg1);
-            mService.mNotificationManager.cancel(FOREGROUND_SERVICE_ID);
-            mService.stopForeground(true);
-            mService.stopSelf(msg.arg1);
+            stopIfIdle();
+        }
+
+        /**
+         * Stops the service if no upload is queued or running. Stopping with the id of the last handled command keeps
+         * the service alive if newer commands were received meanwhile.
+         */
+        void stopIfIdle() {
+            if (mService.mWorkerPool.isIdle()) {
+                Log_OC.d(TAG, "Stopping command after id " + mLastStartId);
+                mService.getNotificationManager().cancel(FOREGROUND_SERVICE_ID);
+                mService.stopForeground(true);
+                mService.stopSelf(mLastStartId);
+            }
         }
     }
 }
@@ -0,0 +1,196 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.files.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Runs uploads concurrently on an {@link Executor}, limiting the number of uploads running at the same time in total,
+ * per account and per server.
+ *
+ * Uploads are started in the order they were submitted; an upload whose account or server has no free slot is
+ * skipped until one of their running uploads finishes, without blocking uploads of other accounts.
+ *
+ * Uploads submitted with the same serial key, e.g. uploads into the same encrypted folder, are run one after another.
+ * A waiting upload stays queued and does not take a slot, so that it does not delay other uploads.
+ */
+class UploadWorkerPool {
+
+    private final Executor executor;
+    private final int maxUploads;
+    private final int maxUploadsPerAccount;
+    private final int maxUploadsPerServer;
+
+    private final LinkedList<Task> queue = new LinkedList<>();
+    private final Map<String, Integer> runningPerAccount = new HashMap<>();
+    private final Map<String, Integer> runningPerServer = new HashMap<>();
+    private final Set<String> runningSerialKeys = new HashSet<>();
+    private int running;
+    private boolean shutdown;
+
+    @Nullable private Runnable idleListener;
+
+    UploadWorkerPool(Executor executor, int maxUploads, int maxUploadsPerAccount, int maxUploadsPerServer) {
+        if (maxUploads < 1 || maxUploadsPerAccount < 1 || maxUploadsPerServer < 1) {
+            throw new IllegalArgumentException("Limits must be at least 1");
+        }
+        this.executor = executor;
+        this.maxUploads = maxUploads;
+        this.maxUploadsPerAccount = maxUploadsPerAccount;
+        this.maxUploadsPerServer = maxUploadsPerServer;
+    }
+
+    /**
+     * @param idleListener called on the worker thread of the last finished upload, once no upload is queued or running
+     */
+    synchronized void setIdleListener(@Nullable Runnable idleListener) {
+        this.idleListener = idleListener;
+    }
+
+    void submit(String accountName, String server, Runnable upload) {
+        submit(accountName, server, null, upload);
+    }
+
+    /**
+     * @param serialKey uploads with the same key are not run at the same time; null if the upload can run any time
+     */
+    void submit(String accountName, String server, @Nullable String serialKey, Runnable upload) {
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            queue.add(new Task(accountName, server, serialKey, upload));
+        }
+        dispatch();
+    }
+
+    synchronized boolean isIdle() {
+        return running == 0 && queue.isEmpty();
+    }
+
+    synchronized int getRunningCount() {
+        return running;
+    }
+
+    /**
+     * Drops all queued uploads; running ones are not interrupted.
+     */
+    synchronized void shutdown() {
+        shutdown = true;
+        queue.clear();
+    }
+
+    private void dispatch() {
+        List<Task> started = new ArrayList<>();
+
+        synchronized (this) {
+            Iterator<Task> iterator = queue.iterator();
+            while (running < maxUploads && iterator.hasNext()) {
+                Task task = iterator.next();
+                if (count(runningPerAccount, task.accountName) < maxUploadsPerAccount &&
+                    count(runningPerServer, task.server) < maxUploadsPerServer &&
+                    (task.serialKey == null || !runningSerialKeys.contains(task.serialKey))) {
+                    iterator.remove();
+                    running++;
+                    runningPerAccount.put(task.accountName, count(runningPerAccount, task.accountName) + 1);
+                    runningPerServer.put(task.server, count(runningPerServer, task.server) + 1);
+                    if (task.serialKey != null) {
+                        runningSerialKeys.add(task.serialKey);
+                    }
+                    started.add(task);
+                }
+            }
+        }
+
+        // executed outside of the lock, so that a synchronous executor does not run uploads while holding it
+        for (Task task : started) {
+            executor.execute(task);
+        }
+    }
+
+    private void finished(Task task) {
+        Runnable listener = null;
+
+        synchronized (this) {
+            running--;
+            decrement(runningPerAccount, task.accountName);
+            decrement(runningPerServer, task.server);
+            if (task.serialKey != null) {
+                runningSerialKeys.remove(task.serialKey);
+            }
+            if (running == 0 && queue.isEmpty()) {
+                listener = idleListener;
+            }
+        }
+
+        dispatch();
+
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    private static int count(Map<String, Integer> counts, String key) {
+        Integer count = counts.get(key);
+        return count == null ? 0 : count;
+    }
+
+    private static void decrement(Map<String, Integer> counts, String key) {
+        int count = count(counts, key) - 1;
+        if (count > 0) {
+            counts.put(key, count);
+        } else {
+            counts.remove(key);
+        }
+    }
+
+    private class Task implements Runnable {
+        private final String accountName;
+        private final String server;
+        @Nullable private final String serialKey;
+        private final Runnable upload;
+
+        Task(String accountName, String server, @Nullable String serialKey, Runnable upload) {
+            this.accountName = accountName;
+            this.server = server;
+            this.serialKey = serialKey;
+            this.upload = upload;
+        }
+
+        @Override
+        public void run() {
+            try {
+                upload.run();
+            } finally {
+                finished(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.operations;
+
+import android.content.Context;
+import android.util.Pair;
+
+import com.nextcloud.client.account.User;
+import com.owncloud.android.datamodel.FileDataStorageManager;
+import com.owncloud.android.datamodel.OCFile;
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.OwnCloudClientFactory;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode;
+import com.owncloud.android.lib.common.utils.Log_OC;
+import com.owncloud.android.operations.common.SyncOperation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Operation applying the same change to several files or folders.
+ *
+ * The requests to the server run in parallel over at most {@link #PARALLEL_REQUESTS} connections. The database is
+ * updated once at the end, for all the files changed on the server.
+ */
+public abstract class BulkFileOperation extends SyncOperation {
+
+    private static final String TAG = BulkFileOperation.class.getSimpleName();
+
+    private static final int PARALLEL_REQUESTS = 4;
+
+    /**
+     * Maximum number of progress updates reported during the operation.
+     */
+    private static final int PROGRESS_STEPS = 100;
+
+    private final List<OCFile> files;
+    private final List<OCFile> succeededFiles = new ArrayList<>();
+    private final List<OCFile> failedFiles = new ArrayList<>();
+    protected final User user;
+    protected final Context context;
+    private OnBulkOperationProgressListener progressListener;
+
+    protected BulkFileOperation(List<OCFile> files,
+                                User user,
+                                Context context,
+                                FileDataStorageManager storageManager) {
+        super(storageManager);
+
+        this.files = new ArrayList<>(files);
+        this.user = user;
+        this.context = context;
+    }
+
+    public List<OCFile> getFiles() {
+        return Collections.unmodifiableList(files);
+    }
+
+    /**
+     * @return files changed on the server and in the database, available when the operation finished
+     */
+    public List<OCFile> getSucceededFiles() {
+        return Collections.unmodifiableList(succeededFiles);
+    }
+
+    /**
+     * @return files which could not be changed, available when the operation finished
+     */
+    public List<OCFile> getFailedFiles() {
+        return Collections.unmodifiableList(failedFiles);
+    }
+
+    public void setOnProgressListener(OnBulkOperationProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    @Override
+    protected RemoteOperationResult run(OwnCloudClient client) {
+        int total = files.size();
+        if (total == 0) {
+            return new RemoteOperationResult(ResultCode.OK);
+        } else if (isLocalOnly()) {
+            succeededFiles.addAll(files);
+            return applyLocalChanges(succeededFiles);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(PARALLEL_REQUESTS, total));
+        CompletionService<Pair<OCFile, RemoteOperationResult>> completionService =
+            new ExecutorCompletionService<>(executor);
+        ThreadLocal<OwnCloudClient> workerClients = new ThreadLocal<>();
+
+        for (OCFile file : files) {
+            completionService.submit(() -> new Pair<>(file, runRemoteOperation(workerClients, file)));
+        }
+
+        RemoteOperationResult firstFailure = null;
+        int progressStep = Math.max(1, total / PROGRESS_STEPS);
+        try {
+            for (int processed = 1; processed <= total; processed++) {
+                Pair<OCFile, RemoteOperationResult> done = completionService.take().get();
+                if (done.second.isSuccess()) {
+                    succeededFiles.add(done.first);
+                } else {
+                    failedFiles.add(done.first);
+                    if (firstFailure == null) {
+                        firstFailure = done.second;
+                    }
+                }
+
+                if (progressListener != null && (processed % progressStep == 0 || processed == total)) {
+                    progressListener.onBulkOperationProgress(this, processed, total);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            firstFailure = new RemoteOperationResult(e);
+        } catch (ExecutionException e) {
+            firstFailure = new RemoteOperationResult(e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Log_OC.d(TAG, getClass().getSimpleName() + ": " + succeededFiles.size() + " of " + total + " files done");
+
+        RemoteOperationResult localResult = succeededFiles.isEmpty() ?
+            new RemoteOperationResult(ResultCode.OK) : applyLocalChanges(succeededFiles);
+
+        return firstFailure != null ? firstFailure : localResult;
+    }
+
+    private RemoteOperationResult runRemoteOperation(ThreadLocal<OwnCloudClient> workerClients, OCFile file) {
+        try {
+            // each worker uses its own client, so that the requests do not wait for each other
+            OwnCloudClient client = workerClients.get();
+            if (client == null) {
+                client = OwnCloudClientFactory.createOwnCloudClient(user.toPlatformAccount(), context);
+                workerClients.set(client);
+            }
+            return runRemoteOperation(client, file);
+        } catch (Exception e) {
+            Log_OC.e(TAG, "Error on " + file.getRemotePath(), e);
+            return new RemoteOperationResult(e);
+        }
+    }
+
+    /**
+     * @return 'true' when only the local copies of the files are changed, without requests to the server
+     */
+    protected boolean isLocalOnly() {
+        return false;
+    }
+
+    /**
+     * Changes a single file on the server. Called in parallel from several worker threads.
+     */
+    protected abstract RemoteOperationResult runRemoteOperation(OwnCloudClient client, OCFile file);
+
+    /**
+     * Applies the change of all the files changed on the server to the database and the local storage.
+     */
+    protected abstract RemoteOperationResult applyLocalChanges(List<OCFile> files);
+
+    /**
+     * Listener reported about the progress of a {@link BulkFileOperation}, from the thread running it.
+     */
+    public interface OnBulkOperationProgressListener {
+        void onBulkOperationProgress(BulkFileOperation operation, int processed, int total);
+    }
+}
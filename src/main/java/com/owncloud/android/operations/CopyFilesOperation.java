@@ -0,0 +1,85 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.operations;
+
+import android.content.Context;
+
+import com.nextcloud.client.account.User;
+import com.owncloud.android.datamodel.FileDataStorageManager;
+import com.owncloud.android.datamodel.OCFile;
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode;
+import com.owncloud.android.lib.resources.files.CopyFileRemoteOperation;
+
+import java.util.List;
+
+/**
+ * Operation copying several {@link OCFile}s into the same folder.
+ */
+public class CopyFilesOperation extends BulkFileOperation {
+
+    private String targetParentPath;
+
+    /**
+     * Constructor
+     *
+     * @param files            Files and folders to copy.
+     * @param targetParentPath Path to the folder where the files will be copied into.
+     */
+    public CopyFilesOperation(List<OCFile> files,
+                              String targetParentPath,
+                              User user,
+                              Context context,
+                              FileDataStorageManager storageManager) {
+        super(files, user, context, storageManager);
+
+        this.targetParentPath = targetParentPath;
+        if (!this.targetParentPath.endsWith(OCFile.PATH_SEPARATOR)) {
+            this.targetParentPath += OCFile.PATH_SEPARATOR;
+        }
+    }
+
+    @Override
+    protected RemoteOperationResult runRemoteOperation(OwnCloudClient client, OCFile file) {
+        if (targetParentPath.startsWith(file.getRemotePath())) {
+            return new RemoteOperationResult(ResultCode.INVALID_COPY_INTO_DESCENDANT);
+        }
+
+        return new CopyFileRemoteOperation(file.getRemotePath(), getTargetPath(file), false).execute(client);
+    }
+
+    @Override
+    protected RemoteOperationResult applyLocalChanges(List<OCFile> files) {
+        // the copies are added to the database with the next synchronization of the target folder
+        for (OCFile file : files) {
+            getStorageManager().copyLocalFile(file, getTargetPath(file));
+        }
+        return new RemoteOperationResult(ResultCode.OK);
+    }
+
+    private String getTargetPath(OCFile file) {
+        String targetPath = targetParentPath + file.getFileName();
+        if (file.isFolder()) {
+            targetPath += OCFile.PATH_SEPARATOR;
+        }
+        return targetPath;
+    }
+}
@@ -27,6 +27,7 @@ import android.util.Pair;
 import com.nextcloud.client.account.User;
 import com.owncloud.android.datamodel.ArbitraryDataProvider;
 import com.owncloud.android.datamodel.DecryptedFolderMetadata;
+import com.owncloud.android.datamodel.DecryptedFolderMetadataCache;
 import com.owncloud.android.datamodel.EncryptedFolderMetadata;
 import com.owncloud.android.datamodel.FileDataStorageManager;
 import com.owncloud.android.datamodel.OCFile;
@@ -158,6 +159,7 @@ public class CreateFolderOperation extends SyncOperation implements OnRemoteOper
                                                token,
                                                client,
                                                metadataExists);
+                DecryptedFolderMetadataCache.invalidate(context, user.getAccountName(), parent.getLocalId());
 
                 // unlock folder
                 if (token != null) {
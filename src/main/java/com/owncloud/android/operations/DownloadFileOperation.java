@@ -28,6 +28,7 @@ import android.text.TextUtils;
 import android.webkit.MimeTypeMap;
 
 import com.owncloud.android.datamodel.DecryptedFolderMetadata;
+import com.owncloud.android.datamodel.DecryptedFolderMetadataCache;
 import com.owncloud.android.datamodel.FileDataStorageManager;
 import com.owncloud.android.datamodel.OCFile;
 import com.owncloud.android.lib.common.OwnCloudClient;
@@ -36,12 +37,10 @@ import com.owncloud.android.lib.common.operations.OperationCancelledException;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.common.utils.Log_OC;
-import com.owncloud.android.lib.resources.files.DownloadFileRemoteOperation;
 import com.owncloud.android.utils.EncryptionUtils;
 import com.owncloud.android.utils.FileStorageUtils;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -52,6 +51,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public class DownloadFileOperation extends RemoteOperation {
     private static final String TAG = DownloadFileOperation.class.getSimpleName();
+    private static final String DECRYPTED_SUFFIX = ".decrypted";
 
     private Account account;
     private OCFile file;
@@ -63,7 +63,7 @@ public class DownloadFileOperation extends RemoteOperation {
     private Context context;
     private Set<OnDatatransferProgressListener> dataTransferListeners = new HashSet<>();
     private long modificationTimestamp;
-    private DownloadFileRemoteOperation downloadOperation;
+    private ResumableDownloadFileRemoteOperation downloadOperation;
 
     private final AtomicBoolean cancellationRequested = new AtomicBoolean(false);
 
@@ -161,7 +161,9 @@ public class DownloadFileOperation extends RemoteOperation {
 
         String tmpFolder =  getTmpFolder();
 
-        downloadOperation = new DownloadFileRemoteOperation(file.getRemotePath(), tmpFolder);
+        // a partial download left by a broken connection is resumed, if the file did not change on the server
+        String expectedEtag = TextUtils.isEmpty(file.getEtagOnServer()) ? file.getEtag() : file.getEtagOnServer();
+        downloadOperation = new ResumableDownloadFileRemoteOperation(file.getRemotePath(), tmpFolder, expectedEtag);
         Iterator<OnDatatransferProgressListener> listener = dataTransferListeners.iterator();
         while (listener.hasNext()) {
             downloadOperation.addDatatransferProgressListener(listener.next());
@@ -184,7 +186,13 @@ public class DownloadFileOperation extends RemoteOperation {
 
                 DecryptedFolderMetadata metadata = EncryptionUtils.downloadFolderMetadata(parent, client, context, account);
 
-                if (metadata == null) {
+                if (metadata != null && !metadata.getFiles().containsKey(file.getEncryptedFileName())) {
+                    // cached metadata is older than the file
+                    DecryptedFolderMetadataCache.invalidate(context, account.name, parent.getLocalId());
+                    metadata = EncryptionUtils.downloadFolderMetadata(parent, client, context, account);
+                }
+
+                if (metadata == null || !metadata.getFiles().containsKey(file.getEncryptedFileName())) {
                     return new RemoteOperationResult(RemoteOperationResult.ResultCode.METADATA_NOT_FOUND);
                 }
                 byte[] key = EncryptionUtils.decodeStringToBase64Bytes(metadata.getFiles()
@@ -194,15 +202,17 @@ public class DownloadFileOperation extends RemoteOperation {
                 byte[] authenticationTag = EncryptionUtils.decodeStringToBase64Bytes(metadata.getFiles()
                         .get(file.getEncryptedFileName()).getAuthenticationTag());
 
+                File decryptedTmpFile = new File(tmpFile.getAbsolutePath() + DECRYPTED_SUFFIX);
                 try {
-                    byte[] decryptedBytes = EncryptionUtils.decryptFile(tmpFile, key, iv, authenticationTag);
-
-                    try (FileOutputStream fileOutputStream = new FileOutputStream(tmpFile)) {
-                        fileOutputStream.write(decryptedBytes);
-                    }
+                    EncryptionUtils.decryptFile(tmpFile, decryptedTmpFile, key, iv, authenticationTag);
                 } catch (Exception e) {
                     return new RemoteOperationResult(e);
                 }
+
+                if (!tmpFile.delete()) {
+                    Log_OC.w(TAG, "Unable to delete encrypted download " + tmpFile.getAbsolutePath());
+                }
+                tmpFile = decryptedTmpFile;
             }
 
             moved = FileStorageUtils.moveFile(tmpFile, newFile);
@@ -532,15 +532,20 @@ public class RefreshFolderOperation extends RemoteOperation {
         mChildren = updatedFiles;
     }
 
+    /**
+     * Downloads the metadata of an encrypted folder being synchronized, bypassing the cache of metadata.
+     *
+     * @param folder folder with the ETag read from the server, the downloaded metadata is cached for it
+     */
     @Nullable
     public static DecryptedFolderMetadata getDecryptedFolderMetadata(boolean encryptedAncestor,
-                                                                     OCFile localFolder,
+                                                                     OCFile folder,
                                                                      OwnCloudClient client,
                                                                      Account account,
                                                                      Context context) {
         DecryptedFolderMetadata metadata;
         if (encryptedAncestor) {
-            metadata = EncryptionUtils.downloadFolderMetadata(localFolder, client, context, account);
+            metadata = EncryptionUtils.downloadFolderMetadata(folder, client, context, account, false);
         } else {
             metadata = null;
         }
@@ -0,0 +1,121 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.operations;
+
+import android.content.Context;
+
+import com.nextcloud.client.account.User;
+import com.owncloud.android.datamodel.FileDataStorageManager;
+import com.owncloud.android.datamodel.OCFile;
+import com.owncloud.android.datamodel.ThumbnailsCacheManager;
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode;
+import com.owncloud.android.lib.resources.files.RemoveFileRemoteOperation;
+import com.owncloud.android.utils.MimeTypeUtil;
+
+import java.util.List;
+
+/**
+ * Operation removing several files or folders from the server, or only their local copies.
+ */
+public class RemoveFilesOperation extends BulkFileOperation {
+
+    /**
+     * Serializes the removal of encrypted files, as each one updates the metadata of its folder.
+     */
+    private final Object encryptedRemovalLock = new Object();
+    private final boolean onlyLocalCopy;
+    private final boolean inBackground;
+
+    /**
+     * Constructor
+     *
+     * @param files         Files and folders to remove
+     * @param onlyLocalCopy When 'true', only the local copies of the files are removed.
+     */
+    public RemoveFilesOperation(List<OCFile> files,
+                                boolean onlyLocalCopy,
+                                User user,
+                                boolean inBackground,
+                                Context context,
+                                FileDataStorageManager storageManager) {
+        super(files, user, context, storageManager);
+
+        this.onlyLocalCopy = onlyLocalCopy;
+        this.inBackground = inBackground;
+    }
+
+    public boolean isInBackground() {
+        return inBackground;
+    }
+
+    @Override
+    protected boolean isLocalOnly() {
+        return onlyLocalCopy;
+    }
+
+    @Override
+    protected RemoteOperationResult runRemoteOperation(OwnCloudClient client, OCFile file) {
+        if (MimeTypeUtil.isImage(file.getMimeType())) {
+            // store resized image
+            ThumbnailsCacheManager.generateResizedImage(file);
+        }
+
+        RemoteOperationResult result;
+        if (file.isEncrypted()) {
+            synchronized (encryptedRemovalLock) {
+                OCFile parent = getStorageManager().getFileByPath(file.getParentRemotePath());
+                result = new RemoveRemoteEncryptedFileOperation(file.getRemotePath(),
+                                                                parent.getLocalId(),
+                                                                user.toPlatformAccount(),
+                                                                context,
+                                                                file.getEncryptedFileName())
+                    .execute(client);
+            }
+        } else {
+            result = new RemoveFileRemoteOperation(file.getRemotePath()).execute(client);
+        }
+
+        if (result.getCode() == ResultCode.FILE_NOT_FOUND) {
+            // already removed
+            return new RemoteOperationResult(ResultCode.OK);
+        }
+        return result;
+    }
+
+    @Override
+    protected RemoteOperationResult applyLocalChanges(List<OCFile> files) {
+        boolean localRemovalFailed;
+        if (onlyLocalCopy) {
+            localRemovalFailed = false;
+            for (OCFile file : files) {
+                localRemovalFailed |= !getStorageManager().removeFile(file, false, true);
+            }
+        } else {
+            localRemovalFailed = !getStorageManager().removeFiles(files, true);
+        }
+
+        if (localRemovalFailed) {
+            return new RemoteOperationResult(ResultCode.LOCAL_STORAGE_NOT_REMOVED);
+        }
+        return new RemoteOperationResult(ResultCode.OK);
+    }
+}
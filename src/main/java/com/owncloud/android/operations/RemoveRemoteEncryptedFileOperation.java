@@ -27,6 +27,7 @@ import android.content.Context;
 import com.google.gson.reflect.TypeToken;
 import com.owncloud.android.datamodel.ArbitraryDataProvider;
 import com.owncloud.android.datamodel.DecryptedFolderMetadata;
+import com.owncloud.android.datamodel.DecryptedFolderMetadataCache;
 import com.owncloud.android.datamodel.EncryptedFolderMetadata;
 import com.owncloud.android.lib.common.OwnCloudClient;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
@@ -64,6 +65,7 @@ public class RemoveRemoteEncryptedFileOperation extends RemoteOperation {
     private String remotePath;
     private String parentId;
     private Account account;
+    private Context context;
 
     private ArbitraryDataProvider arbitraryDataProvider;
     private String fileName;
@@ -82,6 +84,7 @@ public class RemoveRemoteEncryptedFileOperation extends RemoteOperation {
         this.remotePath = remotePath;
         this.parentId = parentId;
         this.account = account;
+        this.context = context;
         this.fileName = fileName;
 
         arbitraryDataProvider = new ArbitraryDataProvider(context.getContentResolver());
@@ -147,6 +150,7 @@ public class RemoveRemoteEncryptedFileOperation extends RemoteOperation {
             RemoteOperationResult uploadMetadataOperationResult =
                 new UpdateMetadataRemoteOperation(parentId,
                                                   serializedFolderMetadata, token).execute(client);
+            DecryptedFolderMetadataCache.invalidate(context, account.name, parentId);
 
             if (!uploadMetadataOperationResult.isSuccess()) {
                 throw new RemoteOperationFailedException("Metadata not uploaded!");
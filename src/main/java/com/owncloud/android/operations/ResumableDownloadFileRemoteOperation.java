@@ -0,0 +1,367 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.operations;
+
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.network.OnDatatransferProgressListener;
+import com.owncloud.android.lib.common.operations.OperationCancelledException;
+import com.owncloud.android.lib.common.operations.RemoteOperation;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.util.DateParseException;
+import org.apache.commons.httpclient.util.DateUtil;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Remote operation downloading a file into a temporal folder, resuming a previous partial download when possible.
+ *
+ * The ETag of the partial download is kept in a file next to it. When the download is run again and the ETag
+ * still matches the expected one, only the missing bytes are requested with a Range request. The If-Range header
+ * makes the server send the whole file again, when the file changed in the meantime.
+ */
+public class ResumableDownloadFileRemoteOperation extends RemoteOperation {
+
+    private static final String TAG = ResumableDownloadFileRemoteOperation.class.getSimpleName();
+
+    @VisibleForTesting
+    static final String ETAG_SUFFIX = ".etag";
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final String HEADER_RANGE = "Range";
+    private static final String HEADER_IF_RANGE = "If-Range";
+    private static final String HEADER_CONTENT_RANGE = "Content-Range";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String HEADER_OC_ETAG = "OC-ETag";
+    private static final String HEADER_ETAG = "ETag";
+
+    private final Set<OnDatatransferProgressListener> dataTransferListeners = new HashSet<>();
+    private final AtomicBoolean cancellationRequested = new AtomicBoolean(false);
+    private final String remotePath;
+    private final String tmpFolder;
+    private final String expectedEtag;
+    private GetMethod currentMethod;
+    private long modificationTimestamp;
+    private String etag = "";
+
+    /**
+     * @param expectedEtag ETag of the file on the server as last known, a partial download of another version of
+     *                     the file is not resumed; null when unknown
+     */
+    public ResumableDownloadFileRemoteOperation(String remotePath, String tmpFolder, @Nullable String expectedEtag) {
+        this.remotePath = remotePath;
+        this.tmpFolder = tmpFolder;
+        this.expectedEtag = expectedEtag;
+    }
+
+    @Override
+    protected RemoteOperationResult run(OwnCloudClient client) {
+        File tmpFile = new File(getTmpPath());
+        File etagFile = new File(getTmpPath() + ETAG_SUFFIX);
+        File parent = tmpFile.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            Log_OC.e(TAG, "Unable to create folder " + parent.getAbsolutePath());
+        }
+
+        RemoteOperationResult result;
+        try {
+            result = download(client, tmpFile, etagFile, getResumableEtag(tmpFile, etagFile));
+            if (result == null) {
+                // partial download does not fit to the file on the server anymore, start from scratch
+                deletePartialDownload(tmpFile, etagFile);
+                result = download(client, tmpFile, etagFile, null);
+            }
+            if (result == null) {
+                result = new RemoteOperationResult(new IOException("Unexpected range for " + remotePath));
+            }
+        } catch (Exception e) {
+            result = new RemoteOperationResult(e);
+        }
+
+        if (cancellationRequested.get()) {
+            deletePartialDownload(tmpFile, etagFile);
+            result = new RemoteOperationResult(new OperationCancelledException());
+        } else if (result.isSuccess()) {
+            if (etagFile.exists() && !etagFile.delete()) {
+                Log_OC.w(TAG, "Unable to delete " + etagFile.getAbsolutePath());
+            }
+        }
+
+        Log_OC.i(TAG, "Download of " + remotePath + " to " + tmpFile.getAbsolutePath() + ": " +
+            result.getLogMessage());
+        return result;
+    }
+
+    /**
+     * @param resumableEtag ETag header of the partial download, if it can be resumed
+     * @return null when the server refused to resume the partial download
+     */
+    @Nullable
+    private RemoteOperationResult download(OwnCloudClient client,
+                                           File tmpFile,
+                                           File etagFile,
+                                           @Nullable String resumableEtag) throws IOException {
+        long offset = resumableEtag != null ? tmpFile.length() : 0;
+
+        GetMethod get;
+        synchronized (cancellationRequested) {
+            if (cancellationRequested.get()) {
+                return new RemoteOperationResult(new OperationCancelledException());
+            }
+            get = new GetMethod(client.getFilesDavUri(remotePath));
+            currentMethod = get;
+        }
+
+        if (offset > 0) {
+            get.addRequestHeader(HEADER_RANGE, "bytes=" + offset + "-");
+            get.addRequestHeader(HEADER_IF_RANGE, resumableEtag);
+        }
+
+        try {
+            int status = client.executeMethod(get);
+            if (offset > 0 && (status == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE ||
+                status == HttpStatus.SC_PARTIAL_CONTENT && getRangeStart(get) != offset)) {
+                client.exhaustResponse(get.getResponseBodyAsStream());
+                return null;
+            } else if (status == HttpStatus.SC_OK) {
+                // the whole file is sent, because the server ignored the range or the file changed
+                offset = 0;
+            } else if (status != HttpStatus.SC_PARTIAL_CONTENT || offset == 0) {
+                client.exhaustResponse(get.getResponseBodyAsStream());
+                return new RemoteOperationResult(false, get);
+            }
+
+            Header etagHeader = get.getResponseHeader(HEADER_OC_ETAG);
+            if (etagHeader == null) {
+                etagHeader = get.getResponseHeader(HEADER_ETAG);
+            }
+            if (etagHeader != null) {
+                // stored before the body, so that a broken transfer can be resumed
+                writeEtag(etagFile, etagHeader.getValue());
+                etag = stripQuotes(etagHeader.getValue());
+            } else if (etagFile.exists() && !etagFile.delete()) {
+                Log_OC.w(TAG, "Unable to delete " + etagFile.getAbsolutePath());
+            }
+
+            long totalToTransfer = getTotalLength(get, offset);
+            long transferred = writeBody(get, tmpFile, offset, totalToTransfer);
+
+            if (cancellationRequested.get()) {
+                return new RemoteOperationResult(new OperationCancelledException());
+            }
+            if (totalToTransfer >= 0 && transferred != totalToTransfer) {
+                // partial download is kept, to be resumed
+                return new RemoteOperationResult(new IOException("Download of " + remotePath + " interrupted after " +
+                                                                     transferred + " of " + totalToTransfer +
+                                                                     " bytes"));
+            }
+
+            Header modificationTime = get.getResponseHeader(HEADER_LAST_MODIFIED);
+            if (modificationTime != null) {
+                try {
+                    modificationTimestamp = DateUtil.parseDate(modificationTime.getValue()).getTime();
+                } catch (DateParseException e) {
+                    Log_OC.w(TAG, "Unable to parse modification time of " + remotePath);
+                }
+            }
+
+            return new RemoteOperationResult(true, get);
+        } finally {
+            get.releaseConnection();
+        }
+    }
+
+    /**
+     * Writes the response body to the temporal file. When the connection breaks, the bytes received so far are
+     * kept, to be resumed later.
+     *
+     * @return number of bytes of the file available locally after the transfer
+     */
+    private long writeBody(HttpMethod method, File tmpFile, long offset, long totalToTransfer) throws IOException {
+        long transferred = offset;
+        InputStream in = method.getResponseBodyAsStream();
+        if (in == null) {
+            return transferred;
+        }
+
+        try (FileOutputStream out = new FileOutputStream(tmpFile, offset > 0)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while (!cancellationRequested.get() && (read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                transferred += read;
+                synchronized (dataTransferListeners) {
+                    for (OnDatatransferProgressListener listener : dataTransferListeners) {
+                        listener.onTransferProgress(read, transferred, totalToTransfer, tmpFile.getName());
+                    }
+                }
+            }
+        }
+        return transferred;
+    }
+
+    /**
+     * @return ETag header of the partial download, when it exists and belongs to the expected version of the file
+     */
+    @Nullable
+    private String getResumableEtag(File tmpFile, File etagFile) {
+        if (!tmpFile.isFile() || tmpFile.length() == 0 || !etagFile.isFile()) {
+            return null;
+        }
+
+        String storedEtag = readEtag(etagFile);
+        if (storedEtag == null || storedEtag.isEmpty()) {
+            return null;
+        }
+        if (expectedEtag != null && !expectedEtag.isEmpty() && !expectedEtag.equals(stripQuotes(storedEtag))) {
+            Log_OC.d(TAG, "Partial download of " + remotePath + " is outdated");
+            return null;
+        }
+        return storedEtag;
+    }
+
+    private void deletePartialDownload(File tmpFile, File etagFile) {
+        if (tmpFile.exists() && !tmpFile.delete()) {
+            Log_OC.w(TAG, "Unable to delete " + tmpFile.getAbsolutePath());
+        }
+        if (etagFile.exists() && !etagFile.delete()) {
+            Log_OC.w(TAG, "Unable to delete " + etagFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * @return first byte position of a "Content-Range: bytes first-last/total" header, or -1
+     */
+    private static long getRangeStart(HttpMethod method) {
+        Header contentRange = method.getResponseHeader(HEADER_CONTENT_RANGE);
+        if (contentRange == null) {
+            return -1;
+        }
+        String value = contentRange.getValue().trim();
+        int start = value.indexOf(' ') + 1;
+        int end = value.indexOf('-', start);
+        try {
+            return end > start ? Long.parseLong(value.substring(start, end).trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return length of the whole file, or -1 if unknown
+     */
+    private static long getTotalLength(HttpMethod method, long offset) {
+        Header contentRange = method.getResponseHeader(HEADER_CONTENT_RANGE);
+        if (contentRange != null && offset > 0) {
+            String value = contentRange.getValue();
+            int slash = value.lastIndexOf('/');
+            try {
+                return slash >= 0 ? Long.parseLong(value.substring(slash + 1).trim()) : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        Header contentLength = method.getResponseHeader(HEADER_CONTENT_LENGTH);
+        if (contentLength != null) {
+            try {
+                return offset + Long.parseLong(contentLength.getValue().trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    @Nullable
+    private static String readEtag(File etagFile) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(etagFile),
+                                                                              StandardCharsets.UTF_8))) {
+            return reader.readLine();
+        } catch (IOException e) {
+            Log_OC.w(TAG, "Unable to read " + etagFile.getAbsolutePath());
+            return null;
+        }
+    }
+
+    private static void writeEtag(File etagFile, String etag) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(etagFile), StandardCharsets.UTF_8)) {
+            writer.write(etag);
+        }
+    }
+
+    private static String stripQuotes(String etag) {
+        return etag.replace("\"", "");
+    }
+
+    public String getTmpPath() {
+        return tmpFolder + remotePath;
+    }
+
+    public long getModificationTimestamp() {
+        return modificationTimestamp;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void addDatatransferProgressListener(OnDatatransferProgressListener listener) {
+        synchronized (dataTransferListeners) {
+            dataTransferListeners.add(listener);
+        }
+    }
+
+    public void removeDatatransferProgressListener(OnDatatransferProgressListener listener) {
+        synchronized (dataTransferListeners) {
+            dataTransferListeners.remove(listener);
+        }
+    }
+
+    public void cancel() {
+        synchronized (cancellationRequested) {
+            cancellationRequested.set(true);
+            if (currentMethod != null) {
+                currentMethod.abort();
+            }
+        }
+    }
+}
@@ -281,7 +281,7 @@ public class SynchronizeFolderOperation extends SyncOperation {
         mLocalFolder.setRichWorkspace(remoteFolder.getRichWorkspace());
 
         DecryptedFolderMetadata metadata = RefreshFolderOperation.getDecryptedFolderMetadata(encryptedAncestor,
-                                                                                             mLocalFolder,
+                                                                                             remoteFolder,
                                                                                              getClient(),
                                                                                              user.toPlatformAccount(),
                                                                                              mContext);
@@ -25,6 +25,7 @@ import android.accounts.Account;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.net.Uri;
+import android.os.ParcelFileDescriptor;
 import android.text.TextUtils;
 import android.util.Log;
 import android.util.Pair;
@@ -36,6 +37,7 @@ import com.nextcloud.client.network.Connectivity;
 import com.nextcloud.client.network.ConnectivityService;
 import com.owncloud.android.datamodel.ArbitraryDataProvider;
 import com.owncloud.android.datamodel.DecryptedFolderMetadata;
+import com.owncloud.android.datamodel.DecryptedFolderMetadataCache;
 import com.owncloud.android.datamodel.EncryptedFolderMetadata;
 import com.owncloud.android.datamodel.FileDataStorageManager;
 import com.owncloud.android.datamodel.OCFile;
@@ -97,6 +99,9 @@ public class UploadFileOperation extends SyncOperation {
 
     private static final String TAG = UploadFileOperation.class.getSimpleName();
 
+    private static final long TRANSFER_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int COPY_BUFFER_SIZE = 1024 * 1024;
+
     public static final int CREATED_BY_USER = 0;
     public static final int CREATED_AS_INSTANT_PICTURE = 1;
     public static final int CREATED_AS_INSTANT_VIDEO = 2;
@@ -267,6 +272,10 @@ public class UploadFileOperation extends SyncOperation {
         return user.toPlatformAccount();
     }
 
+    public User getUser() {
+        return user;
+    }
+
     public String getFileName() {
         return (mFile != null) ? mFile.getFileName() : null;
     }
@@ -519,8 +528,6 @@ public class UploadFileOperation extends SyncOperation {
             // IV, always generate new one
             byte[] iv = EncryptionUtils.randomBytes(EncryptionUtils.ivLength);
 
-            EncryptionUtils.EncryptedFile encryptedFile = EncryptionUtils.encryptFile(mFile, key, iv);
-
             // new random file name, check if it exists in metadata
             String encryptedFileName = UUID.randomUUID().toString().replaceAll("-", "");
 
@@ -528,10 +535,12 @@ public class UploadFileOperation extends SyncOperation {
                 encryptedFileName = UUID.randomUUID().toString().replaceAll("-", "");
             }
 
+            // encrypt directly into the temp file that is uploaded, without holding the file in memory
             File encryptedTempFile = File.createTempFile("encFile", encryptedFileName);
-            FileOutputStream fileOutputStream = new FileOutputStream(encryptedTempFile);
-            fileOutputStream.write(encryptedFile.encryptedBytes);
-            fileOutputStream.close();
+            String authenticationTag = EncryptionUtils.encryptFile(new File(mFile.getStoragePath()),
+                                                                   encryptedTempFile,
+                                                                   key,
+                                                                   iv);
 
             /***** E2E *****/
 
@@ -627,7 +636,7 @@ public class UploadFileOperation extends SyncOperation {
 
                 decryptedFile.setEncrypted(data);
                 decryptedFile.setInitializationVector(EncryptionUtils.encodeBytesToBase64String(iv));
-                decryptedFile.setAuthenticationTag(encryptedFile.authenticationTag);
+                decryptedFile.setAuthenticationTag(authenticationTag);
 
                 metadata.getFiles().put(encryptedFileName, decryptedFile);
 
@@ -641,6 +650,7 @@ public class UploadFileOperation extends SyncOperation {
                                                token,
                                                client,
                                                metadataExists);
+                DecryptedFolderMetadataCache.invalidate(mContext, user.getAccountName(), parentFile.getLocalId());
 
                 // unlock
                 result = EncryptionUtils.unlockFolder(parentFile, client, token);
@@ -1209,26 +1219,32 @@ public class UploadFileOperation extends SyncOperation {
             }
 
             Log_OC.d(TAG, "Copying file contents");
-            InputStream in = null;
-            OutputStream out = null;
+            FileInputStream in = null;
+            FileOutputStream out = null;
 
             try {
                 if (!mOriginalStoragePath.equals(targetFile.getAbsolutePath())) {
+                    boolean regularFile = true;
                     // In case document provider schema as 'content://'
                     if (mOriginalStoragePath.startsWith(UriUtils.URI_CONTENT_SCHEME)) {
                         Uri uri = Uri.parse(mOriginalStoragePath);
-                        in = mContext.getContentResolver().openInputStream(uri);
+                        ParcelFileDescriptor descriptor = mContext.getContentResolver().openFileDescriptor(uri, "r");
+                        if (descriptor == null) {
+                            throw new FileNotFoundException("No file descriptor for " + mOriginalStoragePath);
+                        }
+                        // pipes and sockets report no size, they cannot be transferred by position
+                        regularFile = descriptor.getStatSize() >= 0;
+                        in = new ParcelFileDescriptor.AutoCloseInputStream(descriptor);
                     } else {
                         in = new FileInputStream(sourceFile);
                     }
                     out = new FileOutputStream(targetFile);
-                    int nRead;
-                    byte[] buf = new byte[4096];
-                    while (!mCancellationRequested.get() &&
-                            (nRead = in.read(buf)) > -1) {
-                        out.write(buf, 0, nRead);
+
+                    if (regularFile) {
+                        transferContents(in.getChannel(), out.getChannel(), true);
+                    } else {
+                        copyContents(in, out);
                     }
-                    out.flush();
 
                 } // else: weird but possible situation, nothing to copy
 
@@ -1282,7 +1298,8 @@ public class UploadFileOperation extends SyncOperation {
                     FileChannel inChannel = new FileInputStream(sourceFile).getChannel();
                     FileChannel outChannel = new FileOutputStream(targetFile).getChannel();
                     try {
-                        inChannel.transferTo(0, inChannel.size(), outChannel);
+                        // the upload is done, a cancellation must not leave a partial copy behind
+                        transferContents(inChannel, outChannel, false);
                         sourceFile.delete();
                     } catch (Exception e) {
                         mFile.setStoragePath(""); // forget the local file
@@ -1304,6 +1321,39 @@ public class UploadFileOperation extends SyncOperation {
         }
     }
 
+    /**
+     * Copies the whole content of a regular file with {@link FileChannel#transferTo(long, long,
+     * java.nio.channels.WritableByteChannel)}, so the kernel copies the data without passing it through the Java heap.
+     * Data is transferred in chunks, to notice cancellations while copying large files.
+     *
+     * @param checkCancellation stop copying when the upload is cancelled
+     */
+    private void transferContents(FileChannel inChannel, FileChannel outChannel, boolean checkCancellation)
+        throws IOException {
+        long size = inChannel.size();
+        long position = 0;
+        while (position < size && !(checkCancellation && mCancellationRequested.get())) {
+            long transferred = inChannel.transferTo(position, Math.min(TRANSFER_CHUNK_SIZE, size - position),
+                                                    outChannel);
+            if (transferred <= 0) {
+                // source was truncated meanwhile
+                break;
+            }
+            position += transferred;
+        }
+    }
+
+    /**
+     * Copies a stream that cannot be transferred by position, e.g. a pipe of a document provider, with a large buffer.
+     */
+    private void copyContents(InputStream in, OutputStream out) throws IOException {
+        int nRead;
+        byte[] buf = new byte[COPY_BUFFER_SIZE];
+        while (!mCancellationRequested.get() && (nRead = in.read(buf)) > -1) {
+            out.write(buf, 0, nRead);
+        }
+    }
+
     /**
      * Saves a OC File after a successful upload.
      * <p>
@@ -1365,7 +1415,8 @@ public class UploadFileOperation extends SyncOperation {
         // generate new Thumbnail
         final ThumbnailsCacheManager.ThumbnailGenerationTask task =
                 new ThumbnailsCacheManager.ThumbnailGenerationTask(getStorageManager(), user);
-        task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, file.getRemoteId()));
+        task.executeOnExecutor(ThumbnailsCacheManager.THUMBNAIL_EXECUTOR,
+                               new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, file.getRemoteId()));
     }
 
     private void updateOCFile(OCFile file, RemoteFile remoteFile) {
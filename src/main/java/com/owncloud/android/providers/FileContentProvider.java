@@ -38,13 +38,16 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
 import android.os.Binder;
+import android.os.Process;
 import android.text.TextUtils;
 
 import com.nextcloud.client.core.Clock;
 import com.owncloud.android.MainApp;
 import com.owncloud.android.R;
+import com.owncloud.android.datamodel.ArbitraryDataProvider;
 import com.owncloud.android.datamodel.OCFile;
 import com.owncloud.android.datamodel.SyncedFolder;
 import com.owncloud.android.db.ProviderMeta;
@@ -54,7 +57,6 @@ import com.owncloud.android.lib.common.accounts.AccountUtils;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.lib.resources.shares.ShareType;
 import com.owncloud.android.utils.FileStorageUtils;
-import com.owncloud.android.utils.MimeType;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -93,6 +95,7 @@ public class FileContentProvider extends ContentProvider {
     private static final String ADD_COLUMN = " ADD COLUMN ";
     private static final String UPGRADE_VERSION_MSG = "OUT of the ADD in onUpgrade; oldVersion == %d, newVersion == %d";
     private static final int SINGLE_PATH_SEGMENT = 1;
+    private static final String DELETED_FILES_TABLE = "deleted_files";
     public static final int ARBITRARY_DATA_TABLE_INTRODUCTION_VERSION = 20;
     public static final int MINIMUM_PATH_SEGMENTS_SIZE = 1;
 
@@ -117,6 +120,7 @@ public class FileContentProvider extends ContentProvider {
             db.endTransaction();
         }
         mContext.getContentResolver().notifyChange(uri, null);
+        invalidateCachesOfOtherProcessChanges(uri);
         return count;
     }
 
@@ -167,39 +171,63 @@ public class FileContentProvider extends ContentProvider {
         return count;
     }
 
+    /**
+     * Deletes the given folder, or the rows matching the selection for the plain directory uri, together with all
+     * their descendants, their virtual entries and the shares of their paths.
+     *
+     * The subtree is collected with one recursive query over the parent column into a temporary table, so the cost
+     * does not depend on the number of folders in it.
+     */
     private int deleteDirectory(SQLiteDatabase db, Uri uri, String where, String... whereArgs) {
-        int count = 0;
-
-        Cursor children = query(uri, null, null, null, null);
-        if (children != null) {
-            if (children.moveToFirst()) {
-                long childId;
-                boolean isDir;
-                while (!children.isAfterLast()) {
-                    childId = children.getLong(children.getColumnIndex(ProviderTableMeta._ID));
-                    isDir = MimeType.DIRECTORY.equals(children.getString(
-                        children.getColumnIndex(ProviderTableMeta.FILE_CONTENT_TYPE)
-                    ));
-                    if (isDir) {
-                        count += delete(db, ContentUris.withAppendedId(ProviderTableMeta.CONTENT_URI_DIR, childId),
-                                        null, (String[]) null);
-                    } else {
-                        count += delete(db, ContentUris.withAppendedId(ProviderTableMeta.CONTENT_URI_FILE, childId),
-                                        null, (String[]) null);
-                    }
-                    children.moveToNext();
-                }
-            }
-            children.close();
-        }
-
+        String roots;
         if (uri.getPathSegments().size() > MINIMUM_PATH_SEGMENTS_SIZE) {
-            count += db.delete(ProviderTableMeta.FILE_TABLE_NAME,
-                               ProviderTableMeta._ID + "=" + uri.getPathSegments().get(1)
-                                   + (!TextUtils.isEmpty(where) ? " AND (" + where + ")" : ""), whereArgs);
+            roots = ProviderTableMeta._ID + "=" + uri.getPathSegments().get(1)
+                + (!TextUtils.isEmpty(where) ? " AND (" + where + ")" : "");
+        } else {
+            roots = !TextUtils.isEmpty(where) ? where : "1";
         }
 
-        return count;
+        db.execSQL("CREATE TEMP TABLE IF NOT EXISTS " + DELETED_FILES_TABLE + " (" + ProviderTableMeta._ID
+                       + " INTEGER PRIMARY KEY)");
+        try {
+            SQLiteStatement collect = db.compileStatement(
+                "INSERT INTO " + DELETED_FILES_TABLE
+                    + " WITH RECURSIVE subtree(id) AS ("
+                    + "SELECT " + ProviderTableMeta._ID + " FROM " + ProviderTableMeta.FILE_TABLE_NAME
+                    + " WHERE " + roots
+                    + " UNION SELECT f." + ProviderTableMeta._ID
+                    + " FROM " + ProviderTableMeta.FILE_TABLE_NAME + " f JOIN subtree ON f."
+                    + ProviderTableMeta.FILE_PARENT + " = subtree.id)"
+                    + " SELECT id FROM subtree");
+            if (whereArgs != null) {
+                collect.bindAllArgsAsStrings(whereArgs);
+            }
+            collect.executeInsert();
+            collect.close();
+
+            String deletedIds = "SELECT " + ProviderTableMeta._ID + " FROM " + DELETED_FILES_TABLE;
+
+            db.delete(ProviderTableMeta.VIRTUAL_TABLE_NAME,
+                      ProviderTableMeta.VIRTUAL_OCFILE_ID + " IN (" + deletedIds + ")",
+                      null);
+
+            db.delete(ProviderTableMeta.OCSHARES_TABLE_NAME,
+                      "EXISTS (SELECT 1 FROM " + ProviderTableMeta.FILE_TABLE_NAME + " f WHERE f."
+                          + ProviderTableMeta.FILE_PATH + " = " + ProviderTableMeta.OCSHARES_TABLE_NAME + "."
+                          + ProviderTableMeta.OCSHARES_PATH + " AND f." + ProviderTableMeta.FILE_ACCOUNT_OWNER
+                          + " = " + ProviderTableMeta.OCSHARES_TABLE_NAME + "."
+                          + ProviderTableMeta.OCSHARES_ACCOUNT_OWNER + " AND f." + ProviderTableMeta._ID
+                          + " IN (" + deletedIds + "))",
+                      null);
+
+            int count = db.delete(ProviderTableMeta.FILE_TABLE_NAME,
+                                  ProviderTableMeta._ID + " IN (" + deletedIds + ")",
+                                  null);
+            Log_OC.d(TAG, "Removed folder tree of " + count + " files");
+            return count;
+        } finally {
+            db.delete(DELETED_FILES_TABLE, null, null);
+        }
     }
 
     private int deleteSingleFile(SQLiteDatabase db, Uri uri, String where, String... whereArgs) {
@@ -258,6 +286,7 @@ public class FileContentProvider extends ContentProvider {
             db.endTransaction();
         }
         mContext.getContentResolver().notifyChange(newUri, null);
+        invalidateCachesOfOtherProcessChanges(uri);
         return newUri;
     }
 
@@ -471,16 +500,10 @@ public class FileContentProvider extends ContentProvider {
                 }
         }
 
-        Cursor result;
+        // no transaction: in write-ahead-log mode a plain read is served by a pooled connection and does not wait
+        // for a batch that is currently applied on the primary connection
         SQLiteDatabase db = mDbHelper.getReadableDatabase();
-        db.beginTransaction();
-        try {
-            result = query(db, uri, projection, selection, selectionArgs, sortOrder);
-            db.setTransactionSuccessful();
-        } finally {
-            db.endTransaction();
-        }
-        return result;
+        return query(db, uri, projection, selection, selectionArgs, sortOrder);
     }
 
     private Cursor query(SQLiteDatabase db, Uri uri, String[] projectionArray, String selection, String[] selectionArgs,
@@ -590,9 +613,6 @@ public class FileContentProvider extends ContentProvider {
             order = sortOrder;
         }
 
-        // DB case_sensitive
-        db.execSQL("PRAGMA case_sensitive_like = true");
-
         // only file list is accessible via content provider, so only this has to be protected with projectionMap
         if ((mUriMatcher.match(uri) == ROOT_DIRECTORY || mUriMatcher.match(uri) == SINGLE_FILE ||
             mUriMatcher.match(uri) == DIRECTORY) && projectionArray != null) {
@@ -633,6 +653,7 @@ public class FileContentProvider extends ContentProvider {
             db.endTransaction();
         }
         mContext.getContentResolver().notifyChange(uri, null);
+        invalidateCachesOfOtherProcessChanges(uri);
         return count;
     }
 
@@ -889,10 +910,51 @@ public class FileContentProvider extends ContentProvider {
                        + ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD + " INTEGER, "
                        + ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID + " STRING, "
                        + ProviderTableMeta.FILESYSTEM_CRC32 + " STRING, "
+                       + ProviderTableMeta.FILESYSTEM_FILE_SIZE + " LONG, "
                        + ProviderTableMeta.FILESYSTEM_FILE_MODIFIED + " LONG );"
         );
     }
 
+    /**
+     * Creates the secondary indexes needed by the frequent lookups: folder content by parent, files by path / local
+     * path / remote id of an account, shares by path and sharee, uploads by remote path, filesystem entries of a
+     * synced folder, arbitrary data by key and virtual entries by type.
+     */
+    private void createIndexes(SQLiteDatabase db) {
+        createIndex(db, ProviderTableMeta.FILE_TABLE_NAME, ProviderTableMeta.FILE_PARENT);
+        createIndex(db, ProviderTableMeta.FILE_TABLE_NAME,
+                    ProviderTableMeta.FILE_PATH, ProviderTableMeta.FILE_ACCOUNT_OWNER);
+        createIndex(db, ProviderTableMeta.FILE_TABLE_NAME,
+                    ProviderTableMeta.FILE_PATH_DECRYPTED, ProviderTableMeta.FILE_ACCOUNT_OWNER);
+        createIndex(db, ProviderTableMeta.FILE_TABLE_NAME,
+                    ProviderTableMeta.FILE_STORAGE_PATH, ProviderTableMeta.FILE_ACCOUNT_OWNER);
+        createIndex(db, ProviderTableMeta.FILE_TABLE_NAME,
+                    ProviderTableMeta.FILE_REMOTE_ID, ProviderTableMeta.FILE_ACCOUNT_OWNER);
+
+        createIndex(db, ProviderTableMeta.OCSHARES_TABLE_NAME,
+                    ProviderTableMeta.OCSHARES_PATH, ProviderTableMeta.OCSHARES_ACCOUNT_OWNER);
+        createIndex(db, ProviderTableMeta.OCSHARES_TABLE_NAME, ProviderTableMeta.OCSHARES_SHARE_WITH);
+
+        createIndex(db, ProviderTableMeta.UPLOADS_TABLE_NAME,
+                    ProviderTableMeta.UPLOADS_ACCOUNT_NAME, ProviderTableMeta.UPLOADS_REMOTE_PATH);
+        createIndex(db, ProviderTableMeta.UPLOADS_TABLE_NAME, ProviderTableMeta.UPLOADS_STATUS);
+
+        createIndex(db, ProviderTableMeta.FILESYSTEM_TABLE_NAME,
+                    ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH, ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID);
+        createIndex(db, ProviderTableMeta.FILESYSTEM_TABLE_NAME, ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID);
+
+        createIndex(db, ProviderTableMeta.ARBITRARY_DATA_TABLE_NAME,
+                    ProviderTableMeta.ARBITRARY_DATA_CLOUD_ID, ProviderTableMeta.ARBITRARY_DATA_KEY);
+
+        createIndex(db, ProviderTableMeta.VIRTUAL_TABLE_NAME, ProviderTableMeta.VIRTUAL_TYPE);
+    }
+
+    private void createIndex(SQLiteDatabase db, String table, String... columns) {
+        String indexName = table + "_" + TextUtils.join("_", columns) + "_index";
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + indexName + " ON " + table
+                       + "(" + TextUtils.join(", ", columns) + ");");
+    }
+
     /**
      * Version 10 of database does not modify its scheme. It coincides with the upgrade of the
      * ownCloud account names structure to include in it the path to the server instance. Updating
@@ -1013,6 +1075,15 @@ public class FileContentProvider extends ContentProvider {
         }
     }
 
+    /**
+     * Drops values cached in this process, which another process changed through this provider.
+     */
+    private void invalidateCachesOfOtherProcessChanges(Uri uri) {
+        if (mUriMatcher.match(uri) == ARBITRARY_DATA && Binder.getCallingPid() != Process.myPid()) {
+            ArbitraryDataProvider.invalidateCache();
+        }
+    }
+
     private boolean isCallerNotAllowed(Uri uri) {
         switch (mUriMatcher.match(uri)) {
             case SHARES:
@@ -1037,6 +1108,13 @@ public class FileContentProvider extends ContentProvider {
     class DataBaseHelper extends SQLiteOpenHelper {
         DataBaseHelper(Context context) {
             super(context, ProviderMeta.DB_NAME, null, ProviderMeta.DB_VERSION);
+            setWriteAheadLoggingEnabled(true);
+        }
+
+        @Override
+        public void onConfigure(SQLiteDatabase db) {
+            // DB case_sensitive; prefix lookups of the app itself use GLOB and do not depend on this
+            db.execSQL("PRAGMA case_sensitive_like = true");
         }
 
         @Override
@@ -1068,6 +1146,9 @@ public class FileContentProvider extends ContentProvider {
 
             // Create filesystem table
             createFileSystemTable(db);
+
+            // Create indexes for frequent lookups
+            createIndexes(db);
         }
 
         @Override
@@ -2328,6 +2409,42 @@ public class FileContentProvider extends ContentProvider {
             if (!upgraded) {
                 Log_OC.i(SQL, String.format(Locale.ENGLISH, UPGRADE_VERSION_MSG, oldVersion, newVersion));
             }
+
+            if (oldVersion < 63 && newVersion >= 63) {
+                Log_OC.i(SQL, "Entering in the #63 add indexes");
+                db.beginTransaction();
+                try {
+                    createIndexes(db);
+
+                    upgraded = true;
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+
+            if (!upgraded) {
+                Log_OC.i(SQL, String.format(Locale.ENGLISH, UPGRADE_VERSION_MSG, oldVersion, newVersion));
+            }
+
+            if (oldVersion < 64 && newVersion >= 64) {
+                Log_OC.i(SQL, "Entering in the #64 add file size to filesystem table");
+                db.beginTransaction();
+                try {
+                    // existing rows keep a NULL size, until their file is indexed again
+                    db.execSQL(ALTER_TABLE + ProviderTableMeta.FILESYSTEM_TABLE_NAME +
+                                   ADD_COLUMN + ProviderTableMeta.FILESYSTEM_FILE_SIZE + " LONG ");
+
+                    upgraded = true;
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+
+            if (!upgraded) {
+                Log_OC.i(SQL, String.format(Locale.ENGLISH, UPGRADE_VERSION_MSG, oldVersion, newVersion));
+            }
         }
     }
 }
@@ -56,14 +56,18 @@ import com.owncloud.android.lib.resources.files.RestoreFileVersionRemoteOperatio
 import com.owncloud.android.lib.resources.files.model.FileVersion;
 import com.owncloud.android.lib.resources.shares.ShareType;
 import com.owncloud.android.lib.resources.users.GetUserInfoRemoteOperation;
+import com.owncloud.android.operations.BulkFileOperation;
 import com.owncloud.android.operations.CheckCurrentCredentialsOperation;
 import com.owncloud.android.operations.CopyFileOperation;
+import com.owncloud.android.operations.CopyFilesOperation;
 import com.owncloud.android.operations.CreateFolderOperation;
 import com.owncloud.android.operations.CreateShareViaLinkOperation;
 import com.owncloud.android.operations.CreateShareWithShareeOperation;
 import com.owncloud.android.operations.GetServerInfoOperation;
 import com.owncloud.android.operations.MoveFileOperation;
+import com.owncloud.android.operations.MoveFilesOperation;
 import com.owncloud.android.operations.RemoveFileOperation;
+import com.owncloud.android.operations.RemoveFilesOperation;
 import com.owncloud.android.operations.RenameFileOperation;
 import com.owncloud.android.operations.SynchronizeFileOperation;
 import com.owncloud.android.operations.SynchronizeFolderOperation;
@@ -75,6 +79,7 @@ import com.owncloud.android.operations.UpdateShareViaLinkOperation;
 
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
@@ -97,6 +102,7 @@ public class OperationsService extends Service {
     public static final String EXTRA_SYNC_FILE_CONTENTS = "SYNC_FILE_CONTENTS";
     public static final String EXTRA_NEW_PARENT_PATH = "NEW_PARENT_PATH";
     public static final String EXTRA_FILE = "FILE";
+    public static final String EXTRA_FILES = "FILES";
     public static final String EXTRA_FILE_VERSION = "FILE_VERSION";
     public static final String EXTRA_SHARE_PASSWORD = "SHARE_PASSWORD";
     public static final String EXTRA_SHARE_TYPE = "SHARE_TYPE";
@@ -120,11 +126,14 @@ public class OperationsService extends Service {
     public static final String ACTION_GET_USER_NAME = "GET_USER_NAME";
     public static final String ACTION_RENAME = "RENAME";
     public static final String ACTION_REMOVE = "REMOVE";
+    public static final String ACTION_REMOVE_FILES = "REMOVE_FILES";
     public static final String ACTION_CREATE_FOLDER = "CREATE_FOLDER";
     public static final String ACTION_SYNC_FILE = "SYNC_FILE";
     public static final String ACTION_SYNC_FOLDER = "SYNC_FOLDER";
     public static final String ACTION_MOVE_FILE = "MOVE_FILE";
     public static final String ACTION_COPY_FILE = "COPY_FILE";
+    public static final String ACTION_MOVE_FILES = "MOVE_FILES";
+    public static final String ACTION_COPY_FILES = "COPY_FILES";
     public static final String ACTION_CHECK_CURRENT_CREDENTIALS = "CHECK_CURRENT_CREDENTIALS";
     public static final String ACTION_RESTORE_VERSION = "RESTORE_VERSION";
 
@@ -505,6 +514,7 @@ public class OperationsService extends Service {
                 String password;
                 ShareType shareType;
                 String newParentPath;
+                List<OCFile> files;
                 long shareId;
 
                 FileDataStorageManager fileDataStorageManager = new FileDataStorageManager(user,
@@ -674,6 +684,18 @@ public class OperationsService extends Service {
                                                             fileDataStorageManager);
                         break;
 
+                    case ACTION_REMOVE_FILES:
+                        files = operationIntent.getParcelableArrayListExtra(EXTRA_FILES);
+                        onlyLocalCopy = operationIntent.getBooleanExtra(EXTRA_REMOVE_ONLY_LOCAL, false);
+                        inBackground = operationIntent.getBooleanExtra(EXTRA_IN_BACKGROUND, false);
+                        operation = new RemoveFilesOperation(files,
+                                                             onlyLocalCopy,
+                                                             user,
+                                                             inBackground,
+                                                             getApplicationContext(),
+                                                             fileDataStorageManager);
+                        break;
+
                     case ACTION_CREATE_FOLDER:
                         remotePath = operationIntent.getStringExtra(EXTRA_REMOTE_PATH);
                         operation = new CreateFolderOperation(remotePath,
@@ -715,6 +737,26 @@ public class OperationsService extends Service {
                         operation = new CopyFileOperation(remotePath, newParentPath, fileDataStorageManager);
                         break;
 
+                    case ACTION_MOVE_FILES:
+                        newParentPath = operationIntent.getStringExtra(EXTRA_NEW_PARENT_PATH);
+                        files = operationIntent.getParcelableArrayListExtra(EXTRA_FILES);
+                        operation = new MoveFilesOperation(files,
+                                                           newParentPath,
+                                                           user,
+                                                           getApplicationContext(),
+                                                           fileDataStorageManager);
+                        break;
+
+                    case ACTION_COPY_FILES:
+                        newParentPath = operationIntent.getStringExtra(EXTRA_NEW_PARENT_PATH);
+                        files = operationIntent.getParcelableArrayListExtra(EXTRA_FILES);
+                        operation = new CopyFilesOperation(files,
+                                                           newParentPath,
+                                                           user,
+                                                           getApplicationContext(),
+                                                           fileDataStorageManager);
+                        break;
+
                     case ACTION_CHECK_CURRENT_CREDENTIALS:
                         operation = new CheckCurrentCredentialsOperation(user, fileDataStorageManager);
                         break;
@@ -736,6 +778,10 @@ public class OperationsService extends Service {
             operation = null;
         }
 
+        if (operation instanceof BulkFileOperation) {
+            ((BulkFileOperation) operation).setOnProgressListener(this::dispatchProgressToOperationListeners);
+        }
+
         if (operation != null) {
             return new Pair<>(target, operation);
         } else {
@@ -785,4 +831,21 @@ public class OperationsService extends Service {
         }
         Log_OC.d(TAG, "Called " + count + " listeners");
     }
+
+    /**
+     * Notifies the currently subscribed listeners interested in the progress of a {@link BulkFileOperation}.
+     *
+     * @param operation Operation in progress.
+     * @param processed Number of files already processed.
+     * @param total     Number of files to process.
+     */
+    private void dispatchProgressToOperationListeners(BulkFileOperation operation, int processed, int total) {
+        for (OnRemoteOperationListener listener : mOperationsBinder.mBoundListeners.keySet()) {
+            final Handler handler = mOperationsBinder.mBoundListeners.get(listener);
+            if (handler != null && listener instanceof BulkFileOperation.OnBulkOperationProgressListener) {
+                handler.post(() -> ((BulkFileOperation.OnBulkOperationProgressListener) listener)
+                    .onBulkOperationProgress(operation, processed, total));
+            }
+        }
+    }
 }
@@ -65,6 +65,7 @@ import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCo
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.lib.resources.shares.OCShare;
 import com.owncloud.android.lib.resources.shares.ShareType;
+import com.owncloud.android.operations.BulkFileOperation;
 import com.owncloud.android.operations.CreateShareViaLinkOperation;
 import com.owncloud.android.operations.CreateShareWithShareeOperation;
 import com.owncloud.android.operations.GetSharesForFileOperation;
@@ -115,7 +116,8 @@ import static com.owncloud.android.ui.activity.FileDisplayActivity.TAG_PUBLIC_LI
  */
 public abstract class FileActivity extends DrawerActivity
         implements OnRemoteOperationListener, ComponentsGetter, SslUntrustedCertDialog.OnSslUntrustedCertListener,
-        LoadingVersionNumberTask.VersionDevInterface, FileDetailSharingFragment.OnEditShareListener {
+        LoadingVersionNumberTask.VersionDevInterface, FileDetailSharingFragment.OnEditShareListener,
+        BulkFileOperation.OnBulkOperationProgressListener {
 
     public static final String EXTRA_FILE = "com.owncloud.android.ui.activity.FILE";
     public static final String EXTRA_ACCOUNT = "com.owncloud.android.ui.activity.ACCOUNT";
@@ -529,6 +531,14 @@ public abstract class FileActivity extends DrawerActivity
     }
 
 
+    @Override
+    public void onBulkOperationProgress(BulkFileOperation operation, int processed, int total) {
+        Fragment frag = getSupportFragmentManager().findFragmentByTag(DIALOG_WAIT_TAG);
+        if (frag instanceof LoadingDialog) {
+            ((LoadingDialog) frag).setMessage(getString(R.string.bulk_operation_progress, processed, total));
+        }
+    }
+
     /**
      * Show loading dialog
      */
@@ -79,11 +79,15 @@ import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.lib.resources.files.RestoreFileVersionRemoteOperation;
 import com.owncloud.android.lib.resources.files.SearchRemoteOperation;
 import com.owncloud.android.lib.resources.status.OwnCloudVersion;
+import com.owncloud.android.operations.BulkFileOperation;
 import com.owncloud.android.operations.CopyFileOperation;
+import com.owncloud.android.operations.CopyFilesOperation;
 import com.owncloud.android.operations.CreateFolderOperation;
 import com.owncloud.android.operations.MoveFileOperation;
+import com.owncloud.android.operations.MoveFilesOperation;
 import com.owncloud.android.operations.RefreshFolderOperation;
 import com.owncloud.android.operations.RemoveFileOperation;
+import com.owncloud.android.operations.RemoveFilesOperation;
 import com.owncloud.android.operations.RenameFileOperation;
 import com.owncloud.android.operations.SynchronizeFileOperation;
 import com.owncloud.android.operations.UploadFileOperation;
@@ -1716,6 +1720,8 @@ public class FileDisplayActivity extends FileActivity
 
         if (operation instanceof RemoveFileOperation) {
             onRemoveFileOperationFinish((RemoveFileOperation) operation, result);
+        } else if (operation instanceof RemoveFilesOperation) {
+            onRemoveFilesOperationFinish((RemoveFilesOperation) operation, result);
         } else if (operation instanceof RenameFileOperation) {
             onRenameFileOperationFinish((RenameFileOperation) operation, result);
         } else if (operation instanceof SynchronizeFileOperation) {
@@ -1726,6 +1732,8 @@ public class FileDisplayActivity extends FileActivity
             onMoveFileOperationFinish((MoveFileOperation) operation, result);
         } else if (operation instanceof CopyFileOperation) {
             onCopyFileOperationFinish((CopyFileOperation) operation, result);
+        } else if (operation instanceof MoveFilesOperation || operation instanceof CopyFilesOperation) {
+            onMoveOrCopyFilesOperationFinish((BulkFileOperation) operation, result);
         } else if (operation instanceof RestoreFileVersionRemoteOperation) {
             onRestoreFileVersionOperationFinish(result);
         }
@@ -1793,6 +1801,44 @@ public class FileDisplayActivity extends FileActivity
         }
     }
 
+    /**
+     * Updates the view associated to the activity after the finish of an operation trying to remove several files.
+     *
+     * @param operation Removal operation performed.
+     * @param result    Result of the removal, the first failure if some files could not be removed.
+     */
+    private void onRemoveFilesOperationFinish(RemoveFilesOperation operation, RemoteOperationResult result) {
+        if (!operation.isInBackground()) {
+            DisplayUtils.showSnackMessage(this, ErrorMessageAdapter.getErrorCauseMessage(result, operation,
+                                                                                         getResources()));
+        }
+
+        if (!operation.getSucceededFiles().isEmpty()) {
+            FileFragment second = getSecondFragment();
+            for (OCFile removedFile : operation.getSucceededFiles()) {
+                tryStopPlaying(removedFile);
+
+                // check if file is still available, if so do nothing
+                if (second != null && removedFile.equals(second.getFile()) &&
+                    !getStorageManager().fileExists(removedFile.getFileId())) {
+                    if (second instanceof PreviewMediaFragment) {
+                        ((PreviewMediaFragment) second).stopPreview(true);
+                    }
+                    setFile(getStorageManager().getFileById(removedFile.getParentId()));
+                    cleanSecondFragment();
+                    second = null;
+                }
+            }
+            updateListOfFilesFragment(false);
+            supportInvalidateOptionsMenu();
+        }
+
+        if (!result.isSuccess() && result.isSslRecoverableException()) {
+            mLastSslUntrustedServerResult = result;
+            showUntrustedCertDialog(mLastSslUntrustedServerResult);
+        }
+    }
+
     private void onRestoreFileVersionOperationFinish(RemoteOperationResult result) {
         if (result.isSuccess()) {
             OCFile file = getFile();
@@ -1872,6 +1918,30 @@ public class FileDisplayActivity extends FileActivity
         }
     }
 
+    /**
+     * Updates the view associated to the activity after the finish of an operation trying to move or copy several
+     * files.
+     *
+     * @param operation Move or copy operation performed.
+     * @param result    Result of the operation, the first failure if some files could not be moved or copied.
+     */
+    private void onMoveOrCopyFilesOperationFinish(BulkFileOperation operation, RemoteOperationResult result) {
+        if (!operation.getSucceededFiles().isEmpty()) {
+            syncAndUpdateFolder(true);
+        }
+
+        if (!result.isSuccess()) {
+            try {
+                DisplayUtils.showSnackMessage(
+                    this, ErrorMessageAdapter.getErrorCauseMessage(result, operation, getResources())
+                                             );
+
+            } catch (NotFoundException e) {
+                Log_OC.e(TAG, "Error while trying to show fail message ", e);
+            }
+        }
+    }
+
     /**
      * Updates the view associated to the activity after the finish of an operation trying to rename a file.
      *
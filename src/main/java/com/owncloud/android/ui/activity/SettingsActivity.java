@@ -113,6 +113,7 @@ public class SettingsActivity extends ThemedPreferenceActivity
 
     public final static String PREFERENCE_USE_FINGERPRINT = "use_fingerprint";
     public static final String PREFERENCE_SHOW_MEDIA_SCAN_NOTIFICATIONS = "show_media_scan_notifications";
+    public static final String PREFERENCE_TRUST_FILE_METADATA = "auto_upload_trust_file_metadata";
 
     private static final int ACTION_REQUEST_PASSCODE = 5;
     private static final int ACTION_CONFIRM_PASSCODE = 6;
@@ -523,6 +524,10 @@ public class SettingsActivity extends ThemedPreferenceActivity
 
         setupShowMediaScanNotifications(preferenceCategoryDetails, fShowMediaScanNotifications);
 
+        if (fSyncedFolderLightEnabled) {
+            preferenceCategoryDetails.removePreference(findPreference(PREFERENCE_TRUST_FILE_METADATA));
+        }
+
         if (!fPassCodeEnabled && !fDeviceCredentialsEnabled && !fShowHiddenFilesEnabled && fSyncedFolderLightEnabled
             && fShowMediaScanNotifications) {
             preferenceScreen.removePreference(preferenceCategoryDetails);
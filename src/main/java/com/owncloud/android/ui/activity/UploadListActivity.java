@@ -59,8 +59,10 @@ import com.owncloud.android.utils.theme.ThemeLayoutUtils;
 
 import javax.inject.Inject;
 
+import androidx.annotation.NonNull;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 /**
@@ -72,6 +74,11 @@ public class UploadListActivity extends FileActivity {
 
     private static final String TAG = UploadListActivity.class.getSimpleName();
 
+    /**
+     * Number of items before the end of the list at which the next page of finished uploads is loaded.
+     */
+    private static final int LOAD_MORE_THRESHOLD = 20;
+
     private UploadMessagesReceiver uploadMessagesReceiver;
 
     private UploadListAdapter uploadListAdapter;
@@ -163,6 +170,14 @@ public class UploadListActivity extends FileActivity {
         binding.list.addItemDecoration(new MediaGridItemDecoration(spacing));
         binding.list.setLayoutManager(lm);
         binding.list.setAdapter(uploadListAdapter);
+        binding.list.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && lm.findLastVisibleItemPosition() >= lm.getItemCount() - LOAD_MORE_THRESHOLD) {
+                    uploadListAdapter.loadMoreFinishedUploads();
+                }
+            }
+        });
 
         ThemeLayoutUtils.colorSwipeRefreshLayout(this, swipeListRefreshLayout);
         swipeListRefreshLayout.setOnRefreshListener(this::refresh);
@@ -235,6 +250,14 @@ public class UploadListActivity extends FileActivity {
         Log_OC.v(TAG, "onPause() end");
     }
 
+    @Override
+    protected void onDestroy() {
+        if (uploadListAdapter != null) {
+            uploadListAdapter.shutdown();
+        }
+        super.onDestroy();
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         MenuInflater inflater = getMenuInflater();
@@ -348,7 +371,15 @@ public class UploadListActivity extends FileActivity {
          */
         @Override
         public void onReceive(Context context, Intent intent) {
-            uploadListAdapter.loadUploadItemsFromDb();
+            long uploadId = intent.getLongExtra(FileUploader.EXTRA_UPLOAD_ID, -1);
+
+            if (uploadId >= 0) {
+                uploadListAdapter.updateUploads(uploadId);
+            } else if (FileUploader.getUploadsAddedMessage().equals(intent.getAction())) {
+                uploadListAdapter.loadCurrentUploadsFromDb();
+            } else {
+                uploadListAdapter.loadUploadItemsFromDb();
+            }
         }
     }
 }
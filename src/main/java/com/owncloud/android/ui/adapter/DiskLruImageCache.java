@@ -32,6 +32,7 @@ import com.owncloud.android.utils.BitmapUtils;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -104,11 +105,43 @@ public class DiskLruImageCache {
         }
     }
 
+    /**
+     * Stores an already encoded image as it is, without decoding and compressing it again.
+     */
+    public void put(String key, byte[] encodedImage) {
+        DiskLruCache.Editor editor = null;
+        String validKey = convertToValidKey(key);
+        try {
+            editor = mDiskCache.edit(validKey);
+            if (editor == null) {
+                return;
+            }
+
+            try (OutputStream out = editor.newOutputStream(0)) {
+                out.write(encodedImage);
+            }
+            mDiskCache.flush();
+            editor.commit();
+            if (BuildConfig.DEBUG) {
+                Log_OC.d(CACHE_TEST_DISK, "encoded image put on disk cache " + validKey);
+            }
+        } catch (IOException e) {
+            if (BuildConfig.DEBUG) {
+                Log_OC.d(CACHE_TEST_DISK, "ERROR on: encoded image put on disk cache " + validKey);
+            }
+            try {
+                if (editor != null) {
+                    editor.abort();
+                }
+            } catch (IOException ex) {
+                Log_OC.d(TAG, "Error aborting editor", ex);
+            }
+        }
+    }
+
     public Bitmap getScaledBitmap(String key, int width, int height) {
         Bitmap bitmap = null;
         DiskLruCache.Snapshot snapshot = null;
-        InputStream inputStream = null;
-        BufferedInputStream buffIn = null;
         String validKey = convertToValidKey(key);
 
         try {
@@ -116,53 +149,32 @@ public class DiskLruImageCache {
             if (snapshot == null) {
                 return null;
             }
-            inputStream = snapshot.getInputStream(0);
-            if (inputStream != null) {
-                buffIn = new BufferedInputStream(inputStream, IO_BUFFER_SIZE);
-
-                // First decode with inJustDecodeBounds=true to check dimensions
-                final BitmapFactory.Options options = new BitmapFactory.Options();
-                options.inScaled = true;
-                options.inPurgeable = true;
-                options.inPreferQualityOverSpeed = false;
-                options.inMutable = false;
-                options.inJustDecodeBounds = true;
-
-                BitmapFactory.decodeStream(buffIn, null, options);
-
-                snapshot = mDiskCache.get(validKey);
-                inputStream = snapshot.getInputStream(0);
-                buffIn = new BufferedInputStream(inputStream, IO_BUFFER_SIZE);
-
-                // Calculate inSampleSize
-                options.inSampleSize = BitmapUtils.calculateSampleFactor(options, width, height);
-
-                // Decode bitmap with inSampleSize set
-                options.inJustDecodeBounds = false;
-                bitmap = BitmapFactory.decodeStream(buffIn, null, options);
-            }
+
+            // read the entry once; bounds and pixels are decoded from memory
+            byte[] data = readFully(snapshot.getInputStream(0));
+
+            // First decode with inJustDecodeBounds=true to check dimensions
+            final BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inScaled = true;
+            options.inPurgeable = true;
+            options.inPreferQualityOverSpeed = false;
+            options.inMutable = false;
+            options.inJustDecodeBounds = true;
+
+            BitmapFactory.decodeByteArray(data, 0, data.length, options);
+
+            // Calculate inSampleSize
+            options.inSampleSize = BitmapUtils.calculateSampleFactor(options, width, height);
+
+            // Decode bitmap with inSampleSize set
+            options.inJustDecodeBounds = false;
+            bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
         } catch (Exception e) {
             Log_OC.e(TAG, e.getMessage(), e);
         } finally {
             if (snapshot != null) {
                 snapshot.close();
             }
-
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
-                } catch (IOException e) {
-                    // nothing to do
-                }
-            }
-
-            if (buffIn != null) {
-                try {
-                    buffIn.close();
-                } catch (IOException e) {
-                    // nothing to do
-                }
-            }
         }
 
         if (BuildConfig.DEBUG) {
@@ -172,6 +184,18 @@ public class DiskLruImageCache {
         return bitmap;
     }
 
+    private byte[] readFully(InputStream inputStream) throws IOException {
+        try (InputStream in = inputStream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(in.available(), IO_BUFFER_SIZE));
+            byte[] buffer = new byte[IO_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
     public Bitmap getBitmap(String key) {
         Bitmap bitmap = null;
         DiskLruCache.Snapshot snapshot = null;
@@ -246,7 +246,8 @@ public class LocalFileListAdapter extends RecyclerView.Adapter<RecyclerView.View
                                     task
                                 );
                         thumbnailView.setImageDrawable(asyncDrawable);
-                        task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, null));
+                        task.executeOnExecutor(ThumbnailsCacheManager.THUMBNAIL_EXECUTOR,
+                                               new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, null));
                         Log_OC.v(TAG, "Executing task to generate a new thumbnail");
 
                     } // else, already being generated, don't restart it
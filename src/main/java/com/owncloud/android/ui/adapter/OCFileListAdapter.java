@@ -36,6 +36,7 @@ import android.graphics.drawable.Drawable;
 import android.os.Handler;
 import android.os.Looper;
 import android.text.TextUtils;
+import android.util.Pair;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -62,6 +63,8 @@ import com.owncloud.android.datamodel.VirtualFolderType;
 import com.owncloud.android.db.ProviderMeta;
 import com.owncloud.android.files.services.FileDownloader;
 import com.owncloud.android.files.services.FileUploader;
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.OwnCloudClientFactory;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.common.utils.Log_OC;
@@ -88,17 +91,26 @@ import com.owncloud.android.utils.theme.ThemeDrawableUtils;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.Set;
-import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.core.content.res.ResourcesCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 
 /**
@@ -133,7 +145,24 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
     private static final int VIEWTYPE_IMAGE = 2;
     private static final int VIEWTYPE_HEADER = 3;
 
+    /**
+     * Reads, filters, sorts and diffs the folder contents, one listing at a time.
+     */
+    private static final ExecutorService LISTING_EXECUTOR = Executors.newSingleThreadExecutor();
+    /**
+     * Maximum number of requests at a time, when reading the properties of the shared files.
+     */
+    private static final int PARALLEL_SHARE_REQUESTS = 4;
+
     private List<ThumbnailsCacheManager.ThumbnailGenerationTask> asyncTasks = new ArrayList<>();
+    /**
+     * Incremented whenever the shown files are replaced, so that older listings still running are not shown.
+     */
+    private final AtomicInteger listingGeneration = new AtomicInteger();
+    /**
+     * Ids of the shown files being synchronized, downloaded or uploaded, as of the last listing.
+     */
+    private Set<Long> transferringFileIds = new HashSet<>();
     private boolean onlyOnDevice;
     private boolean showShareAvatar = false;
     private OCFile highlightedItem;
@@ -544,8 +573,8 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
                                                                   file.getMountType(), context));
         } else {
             if (file.getRemoteId() != null && file.isPreviewAvailable()) {
-                // Thumbnail in cache?
-                Bitmap thumbnail = ThumbnailsCacheManager.getBitmapFromDiskCache(
+                // Thumbnail in memory? Disk cache is read by the generation task, off the main thread
+                Bitmap thumbnail = ThumbnailsCacheManager.getBitmapFromMemoryCache(
                     ThumbnailsCacheManager.PREFIX_THUMBNAIL + file.getRemoteId()
                 );
 
@@ -609,8 +638,10 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
 
                             thumbnailView.setImageDrawable(asyncDrawable);
                             asyncTasks.add(task);
-                            task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file,
-                                                                                                  file.getRemoteId()));
+                            task.executeOnExecutor(ThumbnailsCacheManager.THUMBNAIL_EXECUTOR,
+                                                   new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(
+                                                       file,
+                                                       file.getRemoteId()));
                         } catch (IllegalArgumentException e) {
                             Log_OC.d(TAG, "ThumbnailGenerationTask : " + e.getMessage());
                         }
@@ -641,6 +672,21 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         }
     }
 
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        super.onViewRecycled(holder);
+
+        if (holder instanceof ListGridImageViewHolder) {
+            // cell scrolled away: drop its thumbnail request if it did not start yet
+            ThumbnailsCacheManager.ThumbnailGenerationTask task =
+                ThumbnailsCacheManager.getBitmapWorkerTask(((ListGridImageViewHolder) holder).getThumbnail());
+            if (task != null) {
+                task.cancel(false);
+                asyncTasks.remove(task);
+            }
+        }
+    }
+
     private static Point getScreenSize(Context context) throws Exception {
         final WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
         if (windowManager != null) {
@@ -735,6 +781,33 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         return mFiles.get(newPosition);
     }
 
+    /**
+     * Starts loading the thumbnail of the file at the given adapter position into the cache at low priority, unless it
+     * is already in memory.
+     *
+     * @return the started task, or null if there is nothing to load
+     */
+    @Nullable
+    ThumbnailsCacheManager.ThumbnailGenerationTask prefetchThumbnail(int position) {
+        int index = shouldShowHeader() ? position - 1 : position;
+        if (mStorageManager == null || index < 0 || index >= mFiles.size()) {
+            return null;
+        }
+
+        OCFile file = mFiles.get(index);
+        if (file.isFolder() || file.getRemoteId() == null || !file.isPreviewAvailable() ||
+            ThumbnailsCacheManager.getBitmapFromMemoryCache(
+                ThumbnailsCacheManager.PREFIX_THUMBNAIL + file.getRemoteId()) != null) {
+            return null;
+        }
+
+        ThumbnailsCacheManager.ThumbnailGenerationTask task =
+            new ThumbnailsCacheManager.ThumbnailGenerationTask(mStorageManager, user);
+        task.executeOnExecutor(ThumbnailsCacheManager.THUMBNAIL_EXECUTOR.getPrefetchExecutor(),
+                               new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, file.getRemoteId()));
+        return task;
+    }
+
     public boolean shouldShowHeader() {
         if (currentDirectory == null) {
             return false;
@@ -813,6 +886,27 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         OCFile directory,
         FileDataStorageManager updatedStorageManager,
         boolean onlyOnDevice, String limitToMimeType
+    ) {
+        swapDirectory(account, directory, updatedStorageManager, onlyOnDevice, limitToMimeType, null);
+    }
+
+    /**
+     * Change the adapted directory for a new one.
+     *
+     * The content is read, filtered, sorted and compared with the shown one in the background. When the same directory
+     * is shown again, only the changed items are updated.
+     *
+     * @param directory             New folder to adapt. Can be NULL, meaning "no content to adapt".
+     * @param updatedStorageManager Optional updated storage manager; used to replace
+     * @param limitToMimeType       show only files of this mimeType
+     * @param onSwapped             Called on the main thread once the content of the directory is shown
+     */
+    public void swapDirectory(
+        User account,
+        OCFile directory,
+        FileDataStorageManager updatedStorageManager,
+        boolean onlyOnDevice, String limitToMimeType,
+        @Nullable Runnable onSwapped
     ) {
         this.onlyOnDevice = onlyOnDevice;
 
@@ -821,27 +915,126 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
             showShareAvatar = mStorageManager.getCapability(account.getAccountName()).getVersion().isShareesOnDavSupported();
             this.user = account;
         }
-        if (mStorageManager != null) {
-            mFiles = mStorageManager.getFolderContent(directory, onlyOnDevice);
 
-            if (!preferences.isShowHiddenFilesEnabled()) {
-                mFiles = filterHiddenFiles(mFiles);
+        int generation = listingGeneration.incrementAndGet();
+        if (mStorageManager == null) {
+            mFiles.clear();
+            mFilesAll.clear();
+            notifyDataSetChanged();
+            if (onSwapped != null) {
+                onSwapped.run();
+            }
+            return;
+        }
+
+        FileDataStorageManager storageManager = mStorageManager;
+        User listingUser = user;
+        boolean showHiddenFiles = preferences.isShowHiddenFilesEnabled();
+        boolean sameDirectory = currentDirectory != null && directory != null &&
+            currentDirectory.getFileId() == directory.getFileId();
+        List<OCFile> shownFiles = new ArrayList<>(mFiles);
+        Set<Long> shownTransferringFileIds = transferringFileIds;
+        OperationsService.OperationsServiceBinder operationsServiceBinder =
+            transferServiceGetter.getOperationsServiceBinder();
+        FileDownloader.FileDownloaderBinder fileDownloaderBinder = transferServiceGetter.getFileDownloaderBinder();
+        FileUploader.FileUploaderBinder fileUploaderBinder = transferServiceGetter.getFileUploaderBinder();
+
+        LISTING_EXECUTOR.execute(() -> {
+            List<OCFile> files = storageManager.getFolderContent(directory, onlyOnDevice);
+            if (!showHiddenFiles) {
+                files = filterHiddenFiles(files);
             }
             if (!limitToMimeType.isEmpty()) {
-                mFiles = filterByMimeType(mFiles, limitToMimeType);
+                files = filterByMimeType(files, limitToMimeType);
             }
-            FileSortOrder sortOrder = preferences.getSortOrderByFolder(directory);
-            mFiles = sortOrder.sortCloudFiles(mFiles);
-            mFilesAll.clear();
-            mFilesAll.addAll(mFiles);
+            files = preferences.getSortOrderByFolder(directory).sortCloudFiles(files);
+
+            Set<Long> fileIds = new HashSet<>();
+            for (OCFile file : files) {
+                if (operationsServiceBinder != null && operationsServiceBinder.isSynchronizing(listingUser, file) ||
+                    fileDownloaderBinder != null && fileDownloaderBinder.isDownloading(listingUser, file) ||
+                    fileUploaderBinder != null && fileUploaderBinder.isUploading(listingUser, file)) {
+                    fileIds.add(file.getFileId());
+                }
+            }
+
+            DiffUtil.DiffResult diff = null;
+            if (sameDirectory) {
+                diff = DiffUtil.calculateDiff(new OCFileDiffCallback(shownFiles,
+                                                                     shownTransferringFileIds,
+                                                                     files,
+                                                                     fileIds));
+            }
+
+            List<OCFile> listedFiles = files;
+            DiffUtil.DiffResult listedDiff = diff;
+            new Handler(Looper.getMainLooper()).post(() -> showDirectory(generation,
+                                                                         directory,
+                                                                         shownFiles,
+                                                                         listedFiles,
+                                                                         fileIds,
+                                                                         listedDiff,
+                                                                         onSwapped));
+        });
+    }
 
-            currentDirectory = directory;
+    private void showDirectory(int generation,
+                               OCFile directory,
+                               List<OCFile> shownFiles,
+                               List<OCFile> files,
+                               Set<Long> fileIds,
+                               @Nullable DiffUtil.DiffResult diff,
+                               @Nullable Runnable onSwapped) {
+        if (generation != listingGeneration.get()) {
+            // replaced by a newer listing meanwhile
+            return;
+        }
+
+        boolean headerShown = shouldShowHeader();
+        currentDirectory = directory;
+        boolean granular = diff != null && headerShown == shouldShowHeader() && shownFiles.equals(mFiles);
+
+        mFiles = files;
+        mFilesAll.clear();
+        mFilesAll.addAll(files);
+        transferringFileIds = fileIds;
+
+        if (granular) {
+            int offset = headerShown ? 1 : 0;
+            diff.dispatchUpdatesTo(new ListUpdateCallback() {
+                @Override
+                public void onInserted(int position, int count) {
+                    notifyItemRangeInserted(offset + position, count);
+                }
+
+                @Override
+                public void onRemoved(int position, int count) {
+                    notifyItemRangeRemoved(offset + position, count);
+                }
+
+                @Override
+                public void onMoved(int fromPosition, int toPosition) {
+                    notifyItemMoved(offset + fromPosition, offset + toPosition);
+                }
+
+                @Override
+                public void onChanged(int position, int count, @Nullable Object payload) {
+                    notifyItemRangeChanged(offset + position, count, payload);
+                }
+            });
+
+            // footer with the number of files and folders, header with the rich workspace
+            notifyItemChanged(getItemCount() - 1);
+            if (headerShown) {
+                notifyItemChanged(0);
+            }
         } else {
-            mFiles.clear();
-            mFilesAll.clear();
+            notifyDataSetChanged();
         }
 
-        notifyDataSetChanged();
+        if (onSwapped != null) {
+            onSwapped.run();
+        }
     }
 
 
@@ -860,6 +1053,8 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
             mStorageManager = new FileDataStorageManager(user, activity.getContentResolver());
         }
 
+        listingGeneration.incrementAndGet();
+
         if (clear) {
             mFiles.clear();
             resetLastTimestamp();
@@ -873,6 +1068,9 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
                 case GALLERY_SEARCH:
                     type = VirtualFolderType.GALLERY;
                     break;
+                case SHARED_FILTER:
+                    type = VirtualFolderType.SHARED;
+                    break;
                 default:
                     type = VirtualFolderType.NONE;
                     break;
@@ -906,6 +1104,10 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
 
     private void parseShares(List<Object> objects) {
         List<OCShare> shares = new ArrayList<>();
+        // a file may be shared several times, its properties are read once
+        Set<String> paths = new LinkedHashSet<>();
+        Set<String> sharedViaLink = new HashSet<>();
+        Set<String> sharedWithSharee = new HashSet<>();
 
         for (Object shareObject : objects) {
             // check type before cast as of long running data fetch it is possible that old result is filled
@@ -913,40 +1115,142 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
                 OCShare ocShare = (OCShare) shareObject;
 
                 shares.add(ocShare);
+                paths.add(ocShare.getPath());
+
+                ShareType newShareType = ocShare.getShareType();
+                if (newShareType == ShareType.PUBLIC_LINK) {
+                    sharedViaLink.add(ocShare.getPath());
+                } else if (newShareType == ShareType.USER ||
+                    newShareType == ShareType.GROUP ||
+                    newShareType == ShareType.EMAIL ||
+                    newShareType == ShareType.FEDERATED ||
+                    newShareType == ShareType.ROOM ||
+                    newShareType == ShareType.CIRCLE) {
+                    sharedWithSharee.add(ocShare.getPath());
+                }
+            }
+        }
 
-                // get ocFile from Server to have an up-to-date copy
-                RemoteOperationResult result = new ReadFileRemoteOperation(ocShare.getPath()).execute(user.toPlatformAccount(),
-                                                                                                      activity);
+        List<OCFile> files = new ArrayList<>(paths.size());
+        List<OCFile> changedFiles = new ArrayList<>();
+
+        // get ocFiles from Server to have up-to-date copies
+        for (RemoteFile remoteFile : readRemoteFiles(paths)) {
+            OCFile file = FileStorageUtils.fillOCFile(remoteFile);
+            file.setSharedViaLink(sharedViaLink.contains(remoteFile.getRemotePath()));
+            file.setSharedWithSharee(sharedWithSharee.contains(remoteFile.getRemotePath()));
+
+            OCFile localFile = mStorageManager.getFileByPath(file.getRemotePath());
+            if (localFile != null) {
+                if (!TextUtils.isEmpty(file.getEtag()) &&
+                    file.getEtag().equals(localFile.getEtagOnServer()) &&
+                    file.isSharedViaLink() == localFile.isSharedViaLink() &&
+                    file.isSharedWithSharee() == localFile.isSharedWithSharee() &&
+                    Objects.equals(file.getSharees(), localFile.getSharees())) {
+                    // nothing changed, sharees being shown in this view may change without a new eTag
+                    files.add(localFile);
+                    continue;
+                }
 
-                if (result.isSuccess()) {
-                    OCFile file = FileStorageUtils.fillOCFile((RemoteFile) result.getData().get(0));
-                    FileStorageUtils.searchForLocalFileInDefaultPath(file, user.getAccountName());
-                    file = mStorageManager.saveFileWithParent(file, activity);
-
-                    ShareType newShareType = ocShare.getShareType();
-                    if (newShareType == ShareType.PUBLIC_LINK) {
-                        file.setSharedViaLink(true);
-                    } else if (newShareType == ShareType.USER ||
-                        newShareType == ShareType.GROUP ||
-                        newShareType == ShareType.EMAIL ||
-                        newShareType == ShareType.FEDERATED ||
-                        newShareType == ShareType.ROOM ||
-                        newShareType == ShareType.CIRCLE) {
-                        file.setSharedWithSharee(true);
+                keepLocalState(file, localFile);
+                files.add(file);
+                changedFiles.add(file);
+            } else {
+                file.setEtagOnServer(file.getEtag());
+                // eTag will not be updated unless file CONTENTS are synchronized
+                file.setEtag("");
+                FileStorageUtils.searchForLocalFileInDefaultPath(file, user.getAccountName());
+
+                OCFile parent = mStorageManager.getFileByPath(file.getParentRemotePath());
+                if (parent != null) {
+                    file.setParentId(parent.getFileId());
+                    files.add(file);
+                    changedFiles.add(file);
+                } else {
+                    // unknown folder, stored together with its parents
+                    try {
+                        files.add(mStorageManager.saveFileWithParent(file, activity));
+                    } catch (RemoteOperationFailedException e) {
+                        Log_OC.e(TAG, "Error saving file with parent" + e.getMessage(), e);
                     }
+                }
+            }
+        }
 
-                    mStorageManager.saveFile(file);
+        mStorageManager.saveVirtualFolder(VirtualFolderType.SHARED, files, changedFiles);
+        mFiles.addAll(files);
 
-                    if (!mFiles.contains(file)) {
-                        mFiles.add(file);
-                    }
+        mStorageManager.saveShares(shares);
+    }
+
+    /**
+     * Takes the state of the local copy of a file, which is not known to the server, over to the file read from the
+     * server.
+     */
+    private static void keepLocalState(OCFile file, OCFile localFile) {
+        file.setFileId(localFile.getFileId());
+        file.setParentId(localFile.getParentId());
+        file.setEtagOnServer(file.getEtag());
+        file.setEtag(localFile.getEtag());
+        file.setStoragePath(localFile.getStoragePath());
+        file.setLastSyncDateForData(localFile.getLastSyncDateForData());
+        file.setModificationTimestampAtLastSyncForData(localFile.getModificationTimestampAtLastSyncForData());
+        file.setEtagInConflict(localFile.getEtagInConflict());
+        file.setDecryptedRemotePath(localFile.getDecryptedRemotePath());
+        file.setEncrypted(localFile.isEncrypted());
+    }
+
+    /**
+     * Reads the properties of the given files from the server, with at most {@link #PARALLEL_SHARE_REQUESTS} requests
+     * at a time.
+     *
+     * @return files found on the server, in the order of the given paths
+     */
+    private List<RemoteFile> readRemoteFiles(Collection<String> paths) {
+        List<RemoteFile> remoteFiles = new ArrayList<>(paths.size());
+        if (paths.isEmpty()) {
+            return remoteFiles;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(PARALLEL_SHARE_REQUESTS, paths.size()));
+        ThreadLocal<OwnCloudClient> workerClients = new ThreadLocal<>();
+        List<Pair<String, Future<RemoteOperationResult>>> results = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            results.add(new Pair<>(path, executor.submit(() -> readRemoteFile(workerClients, path))));
+        }
+
+        try {
+            for (Pair<String, Future<RemoteOperationResult>> pathResult : results) {
+                RemoteOperationResult result = pathResult.second.get();
+                if (result.isSuccess()) {
+                    remoteFiles.add((RemoteFile) result.getData().get(0));
                 } else {
-                    Log_OC.e(TAG, "Error in getting prop for file: " + ocShare.getPath());
+                    Log_OC.e(TAG, "Error in getting prop for file: " + pathResult.first);
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log_OC.e(TAG, "Error in getting props of shared files", e);
+        } finally {
+            executor.shutdownNow();
         }
 
-        mStorageManager.saveShares(shares);
+        return remoteFiles;
+    }
+
+    private RemoteOperationResult readRemoteFile(ThreadLocal<OwnCloudClient> workerClients, String path) {
+        try {
+            // each worker uses its own client, so that the requests do not wait for each other
+            OwnCloudClient client = workerClients.get();
+            if (client == null) {
+                client = OwnCloudClientFactory.createOwnCloudClient(user.toPlatformAccount(), activity);
+                workerClients.set(client);
+            }
+            return new ReadFileRemoteOperation(path).execute(client);
+        } catch (Exception e) {
+            return new RemoteOperationResult(e);
+        }
     }
 
     private void parseVirtuals(List<Object> objects, ExtendedListFragment.SearchType searchType) {
@@ -1022,6 +1326,7 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
     }
 
     public void showVirtuals(VirtualFolderType type, boolean onlyImages, FileDataStorageManager storageManager) {
+        listingGeneration.incrementAndGet();
         mFiles = storageManager.getVirtualFolderContent(type, onlyImages);
 
         if (VirtualFolderType.GALLERY == type) {
@@ -1091,17 +1396,27 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         @Override
         protected FilterResults performFiltering(CharSequence constraint) {
             FilterResults results = new FilterResults();
-            Vector<OCFile> filteredFiles = new Vector<>();
+            List<OCFile> filteredFiles = new ArrayList<>();
 
             if (!TextUtils.isEmpty(constraint)) {
+                String query = constraint.toString().toLowerCase(Locale.getDefault());
+                String currentPath = currentDirectory.getRemotePath();
+                Set<OCFile> added = new HashSet<>();
+
                 for (OCFile file : mFilesAll) {
-                    if (file.getParentRemotePath().equals(currentDirectory.getRemotePath()) &&
-                        file.getFileName().toLowerCase(Locale.getDefault()).contains(
-                            constraint.toString().toLowerCase(Locale.getDefault())) &&
-                        !filteredFiles.contains(file)) {
+                    if (file.getParentRemotePath().equals(currentPath) &&
+                        file.getFileName().toLowerCase(Locale.getDefault()).contains(query) &&
+                        added.add(file)) {
                         filteredFiles.add(file);
                     }
                 }
+
+                // filtered and sorted here, on the background thread of the filter
+                if (!preferences.isShowHiddenFilesEnabled()) {
+                    filteredFiles = filterHiddenFiles(filteredFiles);
+                }
+                FileSortOrder sortOrder = preferences.getSortOrderByFolder(currentDirectory);
+                filteredFiles = sortOrder.sortCloudFiles(filteredFiles);
             }
 
             results.values = filteredFiles;
@@ -1113,17 +1428,10 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         @SuppressWarnings("unchecked")
         @Override
         protected void publishResults(CharSequence constraint, Filter.FilterResults results) {
+            listingGeneration.incrementAndGet();
 
-            Vector<OCFile> ocFiles = (Vector<OCFile>) results.values;
-            mFiles.clear();
-            if (ocFiles != null && ocFiles.size() > 0) {
-                mFiles.addAll(ocFiles);
-                if (!preferences.isShowHiddenFilesEnabled()) {
-                    mFiles = filterHiddenFiles(mFiles);
-                }
-                FileSortOrder sortOrder = preferences.getSortOrderByFolder(currentDirectory);
-                mFiles = sortOrder.sortCloudFiles(mFiles);
-            }
+            List<OCFile> ocFiles = (List<OCFile>) results.values;
+            mFiles = ocFiles != null ? ocFiles : new ArrayList<>();
 
             notifyDataSetChanged();
         }
@@ -1135,11 +1443,12 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
      * @param files Collection of files to filter
      * @return Non-hidden files
      */
-    private List<OCFile> filterHiddenFiles(List<OCFile> files) {
-        List<OCFile> ret = new ArrayList<>();
+    private static List<OCFile> filterHiddenFiles(List<OCFile> files) {
+        List<OCFile> ret = new ArrayList<>(files.size());
+        Set<OCFile> added = new HashSet<>();
 
         for (OCFile file : files) {
-            if (!file.isHidden() && !ret.contains(file)) {
+            if (!file.isHidden() && added.add(file)) {
                 ret.add(file);
             }
         }
@@ -1147,7 +1456,7 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         return ret;
     }
 
-    private List<OCFile> filterByMimeType(List<OCFile> files, String mimeType) {
+    private static List<OCFile> filterByMimeType(List<OCFile> files, String mimeType) {
         List<OCFile> ret = new ArrayList<>();
 
         for (OCFile file : files) {
@@ -1187,6 +1496,73 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         currentDirectory = folder;
     }
 
+    /**
+     * Runs the callback on the main thread once the listings requested so far are shown.
+     */
+    @VisibleForTesting
+    public void runWhenListed(Runnable onListed) {
+        // listings run one after another and post their result to the main thread before this does
+        LISTING_EXECUTOR.execute(() -> new Handler(Looper.getMainLooper()).post(onListed));
+    }
+
+    /**
+     * Compares listings of the same folder: files are the same if they have the same id, and are shown the same if
+     * neither their etag nor any of their shown local attributes changed.
+     */
+    private static final class OCFileDiffCallback extends DiffUtil.Callback {
+        private final List<OCFile> oldFiles;
+        private final Set<Long> oldTransferringFileIds;
+        private final List<OCFile> newFiles;
+        private final Set<Long> newTransferringFileIds;
+
+        OCFileDiffCallback(List<OCFile> oldFiles,
+                           Set<Long> oldTransferringFileIds,
+                           List<OCFile> newFiles,
+                           Set<Long> newTransferringFileIds) {
+            this.oldFiles = oldFiles;
+            this.oldTransferringFileIds = oldTransferringFileIds;
+            this.newFiles = newFiles;
+            this.newTransferringFileIds = newTransferringFileIds;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldFiles.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newFiles.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldFiles.get(oldItemPosition).getFileId() == newFiles.get(newItemPosition).getFileId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            OCFile oldFile = oldFiles.get(oldItemPosition);
+            OCFile newFile = newFiles.get(newItemPosition);
+
+            return TextUtils.equals(oldFile.getEtag(), newFile.getEtag()) &&
+                TextUtils.equals(oldFile.getFileName(), newFile.getFileName()) &&
+                TextUtils.equals(oldFile.getStoragePath(), newFile.getStoragePath()) &&
+                TextUtils.equals(oldFile.getEtagInConflict(), newFile.getEtagInConflict()) &&
+                oldFile.getFileLength() == newFile.getFileLength() &&
+                oldFile.getModificationTimestamp() == newFile.getModificationTimestamp() &&
+                oldFile.isFavorite() == newFile.isFavorite() &&
+                oldFile.isEncrypted() == newFile.isEncrypted() &&
+                oldFile.isSharedViaLink() == newFile.isSharedViaLink() &&
+                oldFile.isSharedWithSharee() == newFile.isSharedWithSharee() &&
+                oldFile.isSharedWithMe() == newFile.isSharedWithMe() &&
+                oldFile.getUnreadCommentsCount() == newFile.getUnreadCommentsCount() &&
+                Objects.equals(oldFile.getSharees(), newFile.getSharees()) &&
+                oldTransferringFileIds.contains(oldFile.getFileId()) ==
+                    newTransferringFileIds.contains(newFile.getFileId());
+        }
+    }
+
     static class OCFileListItemViewHolder extends RecyclerView.ViewHolder implements ListItemViewHolder{
         protected ListItemBinding binding;
 
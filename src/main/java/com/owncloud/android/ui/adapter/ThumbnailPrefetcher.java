@@ -0,0 +1,141 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.ui.adapter;
+
+import android.os.AsyncTask;
+
+import com.nextcloud.client.network.ConnectivityService;
+import com.owncloud.android.datamodel.ThumbnailsCacheManager.ThumbnailGenerationTask;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Loads thumbnails of the rows ahead of the scroll direction of a grid, so that they are cached when their cells
+ * become visible. The farther ahead the faster the user scrolls; only the next row on metered connections.
+ */
+public class ThumbnailPrefetcher extends RecyclerView.OnScrollListener {
+
+    private static final int ROWS_AHEAD = 3;
+    private static final int ROWS_AHEAD_FAST = 6;
+    private static final int ROWS_AHEAD_METERED = 1;
+
+    /**
+     * Scroll distance per frame in pixels above which scrolling counts as fast.
+     */
+    private static final int FAST_SCROLL_DISTANCE = 60;
+
+    private final OCFileListAdapter adapter;
+    private final ConnectivityService connectivityService;
+    private final Set<Integer> requestedPositions = new HashSet<>();
+    private final List<ThumbnailGenerationTask> tasks = new ArrayList<>();
+
+    private int direction;
+    private boolean metered;
+
+    public ThumbnailPrefetcher(OCFileListAdapter adapter, ConnectivityService connectivityService) {
+        this.adapter = adapter;
+        this.connectivityService = connectivityService;
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_DRAGGING) {
+            // checked once per gesture, not on every scrolled frame
+            metered = connectivityService.getConnectivity().isMetered();
+        }
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0 || !(recyclerView.getLayoutManager() instanceof GridLayoutManager)) {
+            return;
+        }
+
+        int newDirection = dy > 0 ? 1 : -1;
+        if (newDirection != direction) {
+            cancel();
+            direction = newDirection;
+        }
+
+        GridLayoutManager layoutManager = (GridLayoutManager) recyclerView.getLayoutManager();
+        if (layoutManager.getChildCount() == 0) {
+            return;
+        }
+
+        int rowsAhead;
+        if (metered) {
+            rowsAhead = ROWS_AHEAD_METERED;
+        } else if (Math.abs(dy) > FAST_SCROLL_DISTANCE) {
+            rowsAhead = ROWS_AHEAD_FAST;
+        } else {
+            rowsAhead = ROWS_AHEAD;
+        }
+        int count = rowsAhead * layoutManager.getSpanCount();
+
+        int start;
+        if (direction > 0) {
+            start = layoutManager.findLastVisibleItemPosition() + 1;
+        } else {
+            start = layoutManager.findFirstVisibleItemPosition() - 1;
+        }
+
+        removeFinishedTasks();
+        for (int i = 0; i < count; i++) {
+            int position = start + i * direction;
+            if (position < 0 || position >= adapter.getItemCount()) {
+                break;
+            }
+            if (requestedPositions.add(position)) {
+                ThumbnailGenerationTask task = adapter.prefetchThumbnail(position);
+                if (task != null) {
+                    tasks.add(task);
+                }
+            }
+        }
+    }
+
+    private void removeFinishedTasks() {
+        Iterator<ThumbnailGenerationTask> iterator = tasks.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getStatus() == AsyncTask.Status.FINISHED) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops prefetches which did not start yet, e.g. when the direction changes or another folder is shown.
+     */
+    public void cancel() {
+        for (ThumbnailGenerationTask task : tasks) {
+            task.cancel(false);
+        }
+        tasks.clear();
+        requestedPositions.clear();
+    }
+}
@@ -246,8 +246,9 @@ public class TrashbinListAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
                                             thumbnail, task);
                             thumbnailView.setImageDrawable(asyncDrawable);
                             asyncTasks.add(task);
-                            task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file,
-                                    file.getRemoteId()));
+                            task.executeOnExecutor(ThumbnailsCacheManager.THUMBNAIL_EXECUTOR,
+                                    new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file,
+                                            file.getRemoteId()));
                         } catch (IllegalArgumentException e) {
                             Log_OC.d(TAG, "ThumbnailGenerationTask : " + e.getMessage());
                         }
@@ -69,16 +69,33 @@ import com.owncloud.android.utils.theme.ThemeBarUtils;
 import com.owncloud.android.utils.theme.ThemeColorUtils;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 
 /**
  * This Adapter populates a ListView with following types of uploads: pending, active, completed. Filtering possible.
+ *
+ * Changes are read from the database and diffed against the shown uploads in the background, one update at a time;
+ * requests arriving meanwhile are merged into the next update. Finished uploads are loaded in pages.
  */
 public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedViewHolder> {
     private static final String TAG = UploadListAdapter.class.getSimpleName();
 
+    private static final int SECTION_CURRENT = 0;
+    private static final int SECTION_FINISHED = 2;
+    private static final int FINISHED_PAGE_SIZE = 100;
+
     private ProgressListener progressListener;
     private FileActivity parentActivity;
     private UploadsStorageManager uploadsStorageManager;
@@ -90,6 +107,12 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
     private UploadGroup[] uploadGroups;
     private boolean showUser;
 
+    private final ExecutorService updateExecutor = Executors.newSingleThreadExecutor();
+    private boolean updateRunning;
+    private final boolean[] pendingReloads;
+    private final Set<Long> pendingUploadIds = new HashSet<>();
+    private int finishedLimit = FINISHED_PAGE_SIZE;
+
     @Override
     public int getSectionCount() {
         return uploadGroups.length;
@@ -108,7 +131,7 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
 
         headerViewHolder.binding.uploadListTitle.setText(
             String.format(parentActivity.getString(R.string.uploads_view_group_header),
-                          group.getGroupName(), group.getGroupItemCount()));
+                          group.getGroupName(), group.getTotalCount()));
         headerViewHolder.binding.uploadListTitle.setTextColor(ThemeColorUtils.primaryAccentColor(parentActivity));
 
         headerViewHolder.binding.uploadListTitle.setOnClickListener(v -> toggleSectionExpanded(section));
@@ -179,30 +202,54 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
         this.powerManagementService = powerManagementService;
         this.clock = clock;
         uploadGroups = new UploadGroup[3];
+        pendingReloads = new boolean[uploadGroups.length];
 
         shouldShowHeadersForEmptySections(false);
 
         uploadGroups[0] = new UploadGroup(Type.CURRENT,
                                           parentActivity.getString(R.string.uploads_view_group_current_uploads)) {
             @Override
-            public void refresh() {
-                fixAndSortItems(uploadsStorageManager.getCurrentAndPendingUploadsForCurrentAccount());
+            OCUpload[] load() {
+                return uploadsStorageManager.getCurrentAndPendingUploadsForCurrentAccount();
+            }
+
+            @Override
+            OCUpload[] loadByIds(long[] uploadIds) {
+                return uploadsStorageManager.getCurrentAndPendingUploadsForCurrentAccount(uploadIds);
             }
         };
 
         uploadGroups[1] = new UploadGroup(Type.FAILED,
                                           parentActivity.getString(R.string.uploads_view_group_failed_uploads)) {
             @Override
-            public void refresh() {
-                fixAndSortItems(uploadsStorageManager.getFailedButNotDelayedUploadsForCurrentAccount());
+            OCUpload[] load() {
+                return uploadsStorageManager.getFailedButNotDelayedUploadsForCurrentAccount();
+            }
+
+            @Override
+            OCUpload[] loadByIds(long[] uploadIds) {
+                return uploadsStorageManager.getFailedButNotDelayedUploadsForCurrentAccount(uploadIds);
             }
         };
 
         uploadGroups[2] = new UploadGroup(Type.FINISHED,
                                           parentActivity.getString(R.string.uploads_view_group_finished_uploads)) {
             @Override
-            public void refresh() {
-                fixAndSortItems(uploadsStorageManager.getFinishedUploadsForCurrentAccount());
+            OCUpload[] load() {
+                return uploadsStorageManager.getFinishedUploadsForCurrentAccount(finishedLimit);
+            }
+
+            @Override
+            OCUpload[] loadByIds(long[] uploadIds) {
+                return uploadsStorageManager.getFinishedUploadsForCurrentAccount(uploadIds);
+            }
+
+            @Override
+            int loadTotalCount(OCUpload... loadedItems) {
+                if (loadedItems.length < finishedLimit) {
+                    return loadedItems.length;
+                }
+                return uploadsStorageManager.getFinishedUploadsCountForCurrentAccount();
             }
         };
 
@@ -432,8 +479,9 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
                                 task
                             );
                     itemViewHolder.binding.thumbnail.setImageDrawable(asyncDrawable);
-                    task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(
-                            fakeFileToCheatThumbnailsCacheManagerInterface, null));
+                    task.executeOnExecutor(ThumbnailsCacheManager.THUMBNAIL_EXECUTOR,
+                            new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(
+                                    fakeFileToCheatThumbnailsCacheManagerInterface, null));
                 }
             }
 
@@ -467,7 +515,8 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
                                                                           task);
 
                     itemViewHolder.binding.thumbnail.setImageDrawable(asyncDrawable);
-                    task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, null));
+                    task.executeOnExecutor(ThumbnailsCacheManager.THUMBNAIL_EXECUTOR,
+                                           new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, null));
                     Log_OC.v(TAG, "Executing task to generate a new thumbnail");
                 }
             }
@@ -545,7 +594,7 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
 
     private void removeUpload(OCUpload item) {
         uploadsStorageManager.removeUpload(item);
-        loadUploadItemsFromDb();
+        updateUploads(item.getUploadId());
     }
 
     private void refreshFolder(
@@ -725,11 +774,199 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
     public final void loadUploadItemsFromDb() {
         Log_OC.d(TAG, "loadUploadItemsFromDb");
 
-        for (UploadGroup group : uploadGroups) {
-            group.refresh();
+        Arrays.fill(pendingReloads, true);
+        startUpdate();
+    }
+
+    /**
+     * Reloads the uploads currently in progress or pending, e.g. after new uploads were added.
+     */
+    public void loadCurrentUploadsFromDb() {
+        pendingReloads[SECTION_CURRENT] = true;
+        startUpdate();
+    }
+
+    /**
+     * Reads the given uploads from {@link UploadsStorageManager} and moves them to the section matching their
+     * current status, removing the ones not existing anymore.
+     */
+    public void updateUploads(long... uploadIds) {
+        for (long uploadId : uploadIds) {
+            pendingUploadIds.add(uploadId);
+        }
+        startUpdate();
+    }
+
+    /**
+     * Loads the next page of finished uploads, if not all of them are shown yet.
+     */
+    public void loadMoreFinishedUploads() {
+        UploadGroup finished = uploadGroups[SECTION_FINISHED];
+        if (updateRunning || finished.getItems().length < finishedLimit) {
+            return;
+        }
+        finishedLimit += FINISHED_PAGE_SIZE;
+        pendingReloads[SECTION_FINISHED] = true;
+        startUpdate();
+    }
+
+    /**
+     * Stops reading changes, to be called when the list is not shown anymore.
+     */
+    public void shutdown() {
+        updateExecutor.shutdownNow();
+    }
+
+    private void startUpdate() {
+        if (updateRunning || updateExecutor.isShutdown()) {
+            return;
+        }
+
+        boolean[] reloads = pendingReloads.clone();
+        long[] uploadIds = new long[pendingUploadIds.size()];
+        int i = 0;
+        for (Long uploadId : pendingUploadIds) {
+            uploadIds[i++] = uploadId;
+        }
+        Arrays.fill(pendingReloads, false);
+        pendingUploadIds.clear();
+
+        OCUpload[][] shownItems = new OCUpload[uploadGroups.length][];
+        for (int section = 0; section < uploadGroups.length; section++) {
+            shownItems[section] = uploadGroups[section].getItems();
+        }
+        FileUploader.FileUploaderBinder binder = parentActivity.getFileUploaderBinder();
+
+        updateRunning = true;
+        updateExecutor.execute(() -> {
+            SectionUpdate[] updates = null;
+            try {
+                updates = computeUpdates(shownItems, reloads, uploadIds, binder);
+            } catch (RuntimeException e) {
+                Log_OC.e(TAG, "Error reading uploads", e);
+            }
+
+            SectionUpdate[] result = updates;
+            parentActivity.runOnUiThread(() -> {
+                updateRunning = false;
+                if (result != null) {
+                    applyUpdates(result);
+                }
+                if (hasPendingUpdate()) {
+                    startUpdate();
+                }
+            });
+        });
+    }
+
+    private boolean hasPendingUpdate() {
+        for (boolean reload : pendingReloads) {
+            if (reload) {
+                return true;
+            }
+        }
+        return !pendingUploadIds.isEmpty();
+    }
+
+    /**
+     * Reads the changed uploads and diffs them against the shown ones, in the background.
+     */
+    private SectionUpdate[] computeUpdates(OCUpload[][] shownItems,
+                                           boolean[] reloads,
+                                           long[] uploadIds,
+                                           @Nullable FileUploader.FileUploaderBinder binder) {
+        Set<Long> changedIds = new HashSet<>();
+        for (long uploadId : uploadIds) {
+            changedIds.add(uploadId);
+        }
+
+        SectionUpdate[] updates = new SectionUpdate[uploadGroups.length];
+        for (int section = 0; section < uploadGroups.length; section++) {
+            UploadGroup group = uploadGroups[section];
+            OCUpload[] oldItems = shownItems[section];
+            OCUpload[] newItems;
+            int totalCount;
+
+            if (reloads[section]) {
+                newItems = fixAndSort(binder, group.load());
+                totalCount = group.loadTotalCount(newItems);
+            } else if (uploadIds.length > 0) {
+                // the shown uploads are kept as they are, only the changed ones are read again
+                List<OCUpload> items = new ArrayList<>(oldItems.length);
+                for (OCUpload upload : oldItems) {
+                    if (!changedIds.contains(upload.getUploadId())) {
+                        items.add(upload);
+                    }
+                }
+                OCUpload[] changedItems = group.loadByIds(uploadIds);
+                for (OCUpload upload : changedItems) {
+                    upload.setDataFixed(binder);
+                    items.add(upload);
+                }
+                newItems = items.toArray(new OCUpload[0]);
+                Arrays.sort(newItems, new OCUploadComparator());
+                totalCount = group.getTotalCount() + newItems.length - oldItems.length;
+            } else {
+                updates[section] = new SectionUpdate(oldItems, group.getTotalCount(), null);
+                continue;
+            }
+
+            DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new UploadDiffCallback(oldItems, newItems));
+            updates[section] = new SectionUpdate(newItems, totalCount, diff);
         }
+        return updates;
+    }
 
-        notifyDataSetChanged();
+    private static OCUpload[] fixAndSort(@Nullable FileUploader.FileUploaderBinder binder, OCUpload... items) {
+        for (OCUpload upload : items) {
+            upload.setDataFixed(binder);
+        }
+        Arrays.sort(items, new OCUploadComparator());
+        return items;
+    }
+
+    /**
+     * Shows the new uploads, notifying only the changed positions while no section appears or disappears.
+     */
+    private void applyUpdates(SectionUpdate... updates) {
+        boolean sectionsChanged = false;
+        int[] sectionStarts = new int[uploadGroups.length];
+        int position = 0;
+        for (int section = 0; section < uploadGroups.length; section++) {
+            int oldCount = uploadGroups[section].getItems().length;
+            sectionsChanged |= (oldCount == 0) != (updates[section].items.length == 0);
+
+            sectionStarts[section] = position;
+            if (oldCount > 0) {
+                position += 1 + (isSectionExpanded(section) ? oldCount : 0);
+            }
+        }
+
+        if (sectionsChanged) {
+            for (int section = 0; section < uploadGroups.length; section++) {
+                uploadGroups[section].setItems(updates[section].totalCount, updates[section].items);
+            }
+            notifyDataSetChanged();
+            return;
+        }
+
+        // from the last section, so that the positions of the previous sections stay valid
+        for (int section = uploadGroups.length - 1; section >= 0; section--) {
+            UploadGroup group = uploadGroups[section];
+            SectionUpdate update = updates[section];
+            boolean headerChanged = group.getTotalCount() != update.totalCount;
+
+            group.setItems(update.totalCount, update.items);
+            if (update.items.length == 0) {
+                continue;
+            }
+            if (update.diff != null && isSectionExpanded(section)) {
+                update.diff.dispatchUpdatesTo(new OffsetListUpdateCallback(sectionStarts[section] + 1));
+            }
+            if (headerChanged) {
+                notifyItemChanged(sectionStarts[section]);
+            }
+        }
     }
 
     private void onUploadItemClick(OCUpload file) {
@@ -779,17 +1016,97 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
         }
     }
 
-    interface Refresh {
-        void refresh();
-    }
-
     enum Type {
         CURRENT, FINISHED, FAILED
     }
 
-    abstract class UploadGroup implements Refresh {
+    private static final class SectionUpdate {
+        private final OCUpload[] items;
+        private final int totalCount;
+        @Nullable private final DiffUtil.DiffResult diff;
+
+        SectionUpdate(OCUpload[] items, int totalCount, @Nullable DiffUtil.DiffResult diff) {
+            this.items = items;
+            this.totalCount = totalCount;
+            this.diff = diff;
+        }
+    }
+
+    private static final class UploadDiffCallback extends DiffUtil.Callback {
+        private final OCUpload[] oldItems;
+        private final OCUpload[] newItems;
+
+        UploadDiffCallback(OCUpload[] oldItems, OCUpload[] newItems) {
+            this.oldItems = oldItems;
+            this.newItems = newItems;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldItems.length;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newItems.length;
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldItems[oldItemPosition].getUploadId() == newItems[newItemPosition].getUploadId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            OCUpload oldItem = oldItems[oldItemPosition];
+            OCUpload newItem = newItems[newItemPosition];
+
+            return oldItem.getFixedUploadStatus() == newItem.getFixedUploadStatus() &&
+                oldItem.isFixedUploadingNow() == newItem.isFixedUploadingNow() &&
+                oldItem.getFixedUploadEndTimeStamp() == newItem.getFixedUploadEndTimeStamp() &&
+                oldItem.getLastResult() == newItem.getLastResult() &&
+                oldItem.getFileSize() == newItem.getFileSize() &&
+                Objects.equals(oldItem.getLocalPath(), newItem.getLocalPath()) &&
+                Objects.equals(oldItem.getRemotePath(), newItem.getRemotePath()) &&
+                Objects.equals(oldItem.getAccountName(), newItem.getAccountName());
+        }
+    }
+
+    /**
+     * Forwards the changes of the items of a section to the adapter, at the position of the section.
+     */
+    private final class OffsetListUpdateCallback implements ListUpdateCallback {
+        private final int offset;
+
+        OffsetListUpdateCallback(int offset) {
+            this.offset = offset;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            notifyItemRangeInserted(offset + position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            notifyItemRangeRemoved(offset + position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            notifyItemMoved(offset + fromPosition, offset + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            notifyItemRangeChanged(offset + position, count, payload);
+        }
+    }
+
+    abstract class UploadGroup {
         private Type type;
         private OCUpload[] items;
+        private int totalCount;
         private String name;
 
         UploadGroup(Type type, String groupName) {
@@ -810,23 +1127,33 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
             return items[position];
         }
 
-        public void setItems(OCUpload... items) {
+        public void setItems(int totalCount, OCUpload... items) {
+            this.totalCount = totalCount;
             this.items = items;
         }
 
-        void fixAndSortItems(OCUpload... array) {
-            FileUploader.FileUploaderBinder binder = parentActivity.getFileUploaderBinder();
+        /**
+         * @return number of uploads in the group, including the ones not loaded yet
+         */
+        private int getTotalCount() {
+            return totalCount;
+        }
 
-            for (OCUpload upload : array) {
-                upload.setDataFixed(binder);
-            }
-            Arrays.sort(array, new OCUploadComparator());
+        /**
+         * Reads the uploads of the group, in the background.
+         */
+        abstract OCUpload[] load();
 
-            setItems(array);
-        }
+        /**
+         * Reads those of the given uploads belonging to the group, in the background.
+         */
+        abstract OCUpload[] loadByIds(long[] uploadIds);
 
-        private int getGroupItemCount() {
-            return items == null ? 0 : items.length;
+        /**
+         * @return number of uploads in the group, for the uploads just read with {@link #load()}
+         */
+        int loadTotalCount(OCUpload... loadedItems) {
+            return loadedItems.length;
         }
     }
 }
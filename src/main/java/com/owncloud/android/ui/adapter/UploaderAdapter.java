@@ -128,7 +128,9 @@ public class UploaderAdapter extends SimpleAdapter {
                                 task
                         );
                         fileIcon.setImageDrawable(asyncDrawable);
-                        task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, file.getRemoteId()));
+                        task.executeOnExecutor(ThumbnailsCacheManager.THUMBNAIL_EXECUTOR,
+                                               new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file,
+                                                                                                        file.getRemoteId()));
                     }
                 }
             } else {
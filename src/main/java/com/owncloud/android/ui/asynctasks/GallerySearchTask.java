@@ -25,14 +25,20 @@ import android.os.AsyncTask;
 
 import com.nextcloud.client.account.User;
 import com.owncloud.android.datamodel.FileDataStorageManager;
+import com.owncloud.android.datamodel.OCFile;
+import com.owncloud.android.datamodel.ThumbnailsCacheManager;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.lib.resources.files.SearchRemoteOperation;
+import com.owncloud.android.lib.resources.files.model.RemoteFile;
 import com.owncloud.android.ui.adapter.OCFileListAdapter;
 import com.owncloud.android.ui.fragment.ExtendedListFragment;
 import com.owncloud.android.ui.fragment.GalleryFragment;
+import com.owncloud.android.utils.FileStorageUtils;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
 
 public class GallerySearchTask extends AsyncTask<Void, Void, RemoteOperationResult> {
 
@@ -41,18 +47,21 @@ public class GallerySearchTask extends AsyncTask<Void, Void, RemoteOperationResu
     private WeakReference<GalleryFragment> photoFragmentWeakReference;
     private SearchRemoteOperation searchRemoteOperation;
     private FileDataStorageManager storageManager;
+    private ThumbnailsCacheManager.PreviewBatchFetcher previewBatchFetcher;
     private int limit;
 
     public GallerySearchTask(int columnsCount,
                              GalleryFragment photoFragment,
                              User user,
                              SearchRemoteOperation searchRemoteOperation,
-                             FileDataStorageManager storageManager) {
+                             FileDataStorageManager storageManager,
+                             ThumbnailsCacheManager.PreviewBatchFetcher previewBatchFetcher) {
         this.columnCount = columnsCount;
         this.user = user;
         this.photoFragmentWeakReference = new WeakReference<>(photoFragment);
         this.searchRemoteOperation = searchRemoteOperation;
         this.storageManager = storageManager;
+        this.previewBatchFetcher = previewBatchFetcher;
     }
 
     @Override
@@ -88,7 +97,17 @@ public class GallerySearchTask extends AsyncTask<Void, Void, RemoteOperationResu
             searchRemoteOperation.setTimestamp(timestamp);
 
             if (photoFragment.getContext() != null) {
-                return searchRemoteOperation.execute(user.toPlatformAccount(), photoFragment.getContext());
+                RemoteOperationResult result = searchRemoteOperation.execute(user.toPlatformAccount(),
+                                                                             photoFragment.getContext());
+                if (result.isSuccess() && result.getData() != null && !isCancelled()) {
+                    // start downloading thumbnails of the whole page while it is bound
+                    List<OCFile> files = new ArrayList<>();
+                    for (Object remoteFile : result.getData()) {
+                        files.add(FileStorageUtils.fillOCFile((RemoteFile) remoteFile));
+                    }
+                    previewBatchFetcher.fetch(files);
+                }
+                return result;
             } else {
                 return new RemoteOperationResult(new IllegalStateException("No context available"));
             }
@@ -51,6 +51,18 @@ public class LoadingDialog extends DialogFragment {
         return loadingDialog;
     }
 
+    /**
+     * Replaces the message of the dialog, e.g. to report progress.
+     */
+    public void setMessage(String message) {
+        mMessage = message;
+        View view = getView();
+        if (view != null) {
+            TextView tv = view.findViewById(R.id.loadingText);
+            tv.setText(mMessage);
+        }
+    }
+
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         // Create a view by inflating desired layout
@@ -27,6 +27,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.owncloud.android.datamodel.ThumbnailsCacheManager;
 import com.owncloud.android.datamodel.VirtualFolderType;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.lib.resources.files.SearchRemoteOperation;
@@ -50,6 +51,7 @@ public class GalleryFragment extends OCFileListFragment {
     private boolean photoSearchNoNew = false;
     private SearchRemoteOperation searchRemoteOperation;
     private AsyncTask photoSearchTask;
+    private ThumbnailsCacheManager.PreviewBatchFetcher previewBatchFetcher;
     private SearchEvent searchEvent;
     private boolean refresh;
 
@@ -79,6 +81,11 @@ public class GalleryFragment extends OCFileListFragment {
         if (photoSearchTask != null) {
             photoSearchTask.cancel(true);
         }
+
+        if (previewBatchFetcher != null) {
+            previewBatchFetcher.cancel();
+            previewBatchFetcher = null;
+        }
     }
 
     /**
@@ -155,11 +162,16 @@ public class GalleryFragment extends OCFileListFragment {
 
     private void searchAndDisplay() {
         if (!photoSearchQueryRunning && !photoSearchNoNew) {
+            if (previewBatchFetcher == null) {
+                previewBatchFetcher = new ThumbnailsCacheManager.PreviewBatchFetcher(accountManager.getUser());
+            }
+
             photoSearchTask = new GallerySearchTask(getColumnsCount(),
                                                     this,
                                                     accountManager.getUser(),
                                                     searchRemoteOperation,
-                                                    mContainerActivity.getStorageManager())
+                                                    mContainerActivity.getStorageManager(),
+                                                    previewBatchFetcher)
                 .execute();
         }
     }
@@ -53,6 +53,7 @@ import com.nextcloud.client.account.UserAccountManager;
 import com.nextcloud.client.device.DeviceInfo;
 import com.nextcloud.client.di.Injectable;
 import com.nextcloud.client.network.ClientFactory;
+import com.nextcloud.client.network.ConnectivityService;
 import com.nextcloud.client.preferences.AppPreferences;
 import com.owncloud.android.MainApp;
 import com.owncloud.android.R;
@@ -78,6 +79,7 @@ import com.owncloud.android.ui.activity.OnEnforceableRefreshListener;
 import com.owncloud.android.ui.activity.ToolbarActivity;
 import com.owncloud.android.ui.activity.UploadFilesActivity;
 import com.owncloud.android.ui.adapter.OCFileListAdapter;
+import com.owncloud.android.ui.adapter.ThumbnailPrefetcher;
 import com.owncloud.android.ui.dialog.ChooseRichDocumentsTemplateDialogFragment;
 import com.owncloud.android.ui.dialog.ChooseTemplateDialogFragment;
 import com.owncloud.android.ui.dialog.ConfirmationDialogFragment;
@@ -180,10 +182,12 @@ public class OCFileListFragment extends ExtendedListFragment implements
     @Inject AppPreferences preferences;
     @Inject UserAccountManager accountManager;
     @Inject ClientFactory clientFactory;
+    @Inject ConnectivityService connectivityService;
     protected FileFragment.ContainerActivity mContainerActivity;
 
     protected OCFile mFile;
     protected OCFileListAdapter mAdapter;
+    private ThumbnailPrefetcher thumbnailPrefetcher;
     protected boolean mOnlyFoldersClickable;
     protected boolean mFileSelectable;
 
@@ -351,6 +355,9 @@ public class OCFileListFragment extends ExtendedListFragment implements
         );
         setRecyclerViewAdapter(mAdapter);
 
+        thumbnailPrefetcher = new ThumbnailPrefetcher(mAdapter, connectivityService);
+        getRecyclerView().addOnScrollListener(thumbnailPrefetcher);
+
         mHideFab = args != null && args.getBoolean(ARG_HIDE_FAB, false);
 
         if (mHideFab) {
@@ -982,6 +989,9 @@ public class OCFileListFragment extends ExtendedListFragment implements
                                 case GALLERY_SEARCH:
                                     type = VirtualFolderType.GALLERY;
                                     break;
+                                case SHARED_FILTER:
+                                    type = VirtualFolderType.SHARED;
+                                    break;
                                 default:
                                     type = VirtualFolderType.NONE;
                                     break;
@@ -1202,6 +1212,10 @@ public class OCFileListFragment extends ExtendedListFragment implements
      * @param directory File to be listed
      */
     public void listDirectory(OCFile directory, OCFile file, boolean onlyOnDevice, boolean fromSearch) {
+        if (thumbnailPrefetcher != null) {
+            thumbnailPrefetcher.cancel();
+        }
+
         if (!searchFragment) {
             FileDataStorageManager storageManager = mContainerActivity.getStorageManager();
             if (storageManager != null) {
@@ -1239,28 +1253,32 @@ public class OCFileListFragment extends ExtendedListFragment implements
                     });
                 }
 
+                OCFile previousDirectory = mFile;
+                OCFile listedDirectory = directory;
+
+                // the content is shown asynchronously, scroll once it is there
                 mAdapter.swapDirectory(
                     accountManager.getUser(),
                     directory,
                     storageManager,
                     onlyOnDevice,
-                    mLimitToMimeType
+                    mLimitToMimeType,
+                    () -> {
+                        if (file != null) {
+                            mAdapter.setHighlightedItem(file);
+                            int position = mAdapter.getItemPosition(file);
+                            if (position != -1) {
+                                getRecyclerView().scrollToPosition(position);
+                            }
+                        } else if (previousDirectory == null || !previousDirectory.equals(listedDirectory)) {
+                            getRecyclerView().scrollToPosition(0);
+                        }
+                    }
                 );
 
-                OCFile previousDirectory = mFile;
                 mFile = directory;
 
                 updateLayout();
-
-                if (file != null) {
-                    mAdapter.setHighlightedItem(file);
-                    int position = mAdapter.getItemPosition(file);
-                    if (position != -1) {
-                        getRecyclerView().scrollToPosition(position);
-                    }
-                } else if (previousDirectory == null || !previousDirectory.equals(directory)) {
-                    getRecyclerView().scrollToPosition(0);
-                }
             }
         }
     }
@@ -933,16 +933,20 @@ public class FileOperationsHelper {
      * @param inBackground  When 'true', do not show any loading dialog
      */
     public void removeFiles(Collection<OCFile> files, boolean onlyLocalCopy, boolean inBackground) {
-        for (OCFile file : files) {
+        Intent service = new Intent(fileActivity, OperationsService.class);
+        if (files.size() == 1) {
             // RemoveFile
-            Intent service = new Intent(fileActivity, OperationsService.class);
             service.setAction(OperationsService.ACTION_REMOVE);
-            service.putExtra(OperationsService.EXTRA_ACCOUNT, fileActivity.getAccount());
-            service.putExtra(OperationsService.EXTRA_FILE, file);
-            service.putExtra(OperationsService.EXTRA_REMOVE_ONLY_LOCAL, onlyLocalCopy);
-            service.putExtra(OperationsService.EXTRA_IN_BACKGROUND, inBackground);
-            mWaitingForOpId = fileActivity.getOperationsServiceBinder().queueNewOperation(service);
+            service.putExtra(OperationsService.EXTRA_FILE, files.iterator().next());
+        } else {
+            // all files in one operation, reporting a single result
+            service.setAction(OperationsService.ACTION_REMOVE_FILES);
+            service.putParcelableArrayListExtra(OperationsService.EXTRA_FILES, new ArrayList<>(files));
         }
+        service.putExtra(OperationsService.EXTRA_ACCOUNT, fileActivity.getAccount());
+        service.putExtra(OperationsService.EXTRA_REMOVE_ONLY_LOCAL, onlyLocalCopy);
+        service.putExtra(OperationsService.EXTRA_IN_BACKGROUND, inBackground);
+        mWaitingForOpId = fileActivity.getOperationsServiceBinder().queueNewOperation(service);
 
         if (!inBackground) {
             fileActivity.showLoadingDialog(fileActivity.getString(R.string.wait_a_moment));
@@ -994,14 +998,17 @@ public class FileOperationsHelper {
      * @param targetFolder Folder where the files while be moved into
      */
     public void moveFiles(Collection<OCFile> files, OCFile targetFolder) {
-        for (OCFile file : files) {
-            Intent service = new Intent(fileActivity, OperationsService.class);
+        Intent service = new Intent(fileActivity, OperationsService.class);
+        if (files.size() == 1) {
             service.setAction(OperationsService.ACTION_MOVE_FILE);
-            service.putExtra(OperationsService.EXTRA_NEW_PARENT_PATH, targetFolder.getRemotePath());
-            service.putExtra(OperationsService.EXTRA_REMOTE_PATH, file.getRemotePath());
-            service.putExtra(OperationsService.EXTRA_ACCOUNT, fileActivity.getAccount());
-            mWaitingForOpId = fileActivity.getOperationsServiceBinder().queueNewOperation(service);
+            service.putExtra(OperationsService.EXTRA_REMOTE_PATH, files.iterator().next().getRemotePath());
+        } else {
+            service.setAction(OperationsService.ACTION_MOVE_FILES);
+            service.putParcelableArrayListExtra(OperationsService.EXTRA_FILES, new ArrayList<>(files));
         }
+        service.putExtra(OperationsService.EXTRA_NEW_PARENT_PATH, targetFolder.getRemotePath());
+        service.putExtra(OperationsService.EXTRA_ACCOUNT, fileActivity.getAccount());
+        mWaitingForOpId = fileActivity.getOperationsServiceBinder().queueNewOperation(service);
         fileActivity.showLoadingDialog(fileActivity.getString(R.string.wait_a_moment));
     }
 
@@ -1012,14 +1019,17 @@ public class FileOperationsHelper {
      * @param targetFolder Folder where the files while be copied into
      */
     public void copyFiles(Collection<OCFile> files, OCFile targetFolder) {
-        for (OCFile file : files) {
-            Intent service = new Intent(fileActivity, OperationsService.class);
+        Intent service = new Intent(fileActivity, OperationsService.class);
+        if (files.size() == 1) {
             service.setAction(OperationsService.ACTION_COPY_FILE);
-            service.putExtra(OperationsService.EXTRA_NEW_PARENT_PATH, targetFolder.getRemotePath());
-            service.putExtra(OperationsService.EXTRA_REMOTE_PATH, file.getRemotePath());
-            service.putExtra(OperationsService.EXTRA_ACCOUNT, fileActivity.getAccount());
-            mWaitingForOpId = fileActivity.getOperationsServiceBinder().queueNewOperation(service);
+            service.putExtra(OperationsService.EXTRA_REMOTE_PATH, files.iterator().next().getRemotePath());
+        } else {
+            service.setAction(OperationsService.ACTION_COPY_FILES);
+            service.putParcelableArrayListExtra(OperationsService.EXTRA_FILES, new ArrayList<>(files));
         }
+        service.putExtra(OperationsService.EXTRA_NEW_PARENT_PATH, targetFolder.getRemotePath());
+        service.putExtra(OperationsService.EXTRA_ACCOUNT, fileActivity.getAccount());
+        mWaitingForOpId = fileActivity.getOperationsServiceBinder().queueNewOperation(service);
         fileActivity.showLoadingDialog(fileActivity.getString(R.string.wait_a_moment));
     }
 
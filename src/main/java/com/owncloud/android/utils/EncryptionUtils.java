@@ -31,6 +31,7 @@ import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.owncloud.android.datamodel.ArbitraryDataProvider;
 import com.owncloud.android.datamodel.DecryptedFolderMetadata;
+import com.owncloud.android.datamodel.DecryptedFolderMetadataCache;
 import com.owncloud.android.datamodel.EncryptedFolderMetadata;
 import com.owncloud.android.datamodel.OCFile;
 import com.owncloud.android.lib.common.OwnCloudClient;
@@ -45,14 +46,25 @@ import com.owncloud.android.operations.UploadException;
 
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.httpclient.HttpStatus;
-
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.io.CipherInputStream;
+import org.bouncycastle.crypto.io.CipherOutputStream;
+import org.bouncycastle.crypto.modes.AEADBlockCipher;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidAlgorithmParameterException;
@@ -112,6 +124,8 @@ public final class EncryptionUtils {
     private static final int iterationCount = 1024;
     private static final int keyStrength = 256;
     private static final String AES_CIPHER = "AES/GCM/NoPadding";
+    private static final int AUTHENTICATION_TAG_LENGTH = 128;
+    private static final int CRYPT_BUFFER_SIZE = 64 * 1024;
     private static final String AES = "AES";
     private static final String RSA_CIPHER = "RSA/ECB/OAEPWithSHA-256AndMGF1Padding";
     private static final String RSA = "RSA";
@@ -217,13 +231,32 @@ public final class EncryptionUtils {
     }
 
     /**
-     * Download metadata for folder and decrypt it
+     * Download metadata for folder and decrypt it, unless it is cached for the current ETag of the folder
      *
-     * @return decrypted metadata or null
+     * @return decrypted metadata or null; shared with other callers, so it must not be modified
      */
     public static @Nullable
     DecryptedFolderMetadata downloadFolderMetadata(OCFile folder, OwnCloudClient client,
                                                    Context context, Account account) {
+        return downloadFolderMetadata(folder, client, context, account, true);
+    }
+
+    /**
+     * Download metadata for folder and decrypt it. The downloaded metadata is cached for the ETag of the given folder.
+     *
+     * @param useCache 'false' to download the metadata even if it is cached, e.g. when synchronizing the folder
+     * @return decrypted metadata or null; shared with other callers, so it must not be modified
+     */
+    public static @Nullable
+    DecryptedFolderMetadata downloadFolderMetadata(OCFile folder, OwnCloudClient client,
+                                                   Context context, Account account, boolean useCache) {
+        if (useCache) {
+            DecryptedFolderMetadata cachedMetadata = DecryptedFolderMetadataCache.get(context, account.name, folder);
+            if (cachedMetadata != null) {
+                return cachedMetadata;
+            }
+        }
+
         RemoteOperationResult getMetadataOperationResult = new GetMetadataRemoteOperation(folder.getLocalId())
             .execute(client);
 
@@ -241,7 +274,10 @@ public final class EncryptionUtils {
                 });
 
         try {
-            return EncryptionUtils.decryptFolderMetaData(encryptedFolderMetadata, privateKey);
+            DecryptedFolderMetadata metadata = EncryptionUtils.decryptFolderMetaData(encryptedFolderMetadata,
+                                                                                     privateKey);
+            DecryptedFolderMetadataCache.put(context, account.name, folder, metadata);
+            return metadata;
         } catch (Exception e) {
             Log_OC.e(TAG, e.getMessage());
             return null;
@@ -281,89 +317,87 @@ public final class EncryptionUtils {
      */
 
     /**
-     * @param ocFile             file do crypt
-     * @param encryptionKeyBytes key, either from metadata or {@link EncryptionUtils#generateKey()}
-     * @param iv                 initialization vector, either from metadata or {@link EncryptionUtils#randomBytes(int)}
-     * @return encryptedFile with encryptedBytes and authenticationTag
-     */
-    public static EncryptedFile encryptFile(OCFile ocFile, byte[] encryptionKeyBytes, byte[] iv)
-            throws NoSuchAlgorithmException,
-            InvalidAlgorithmParameterException, NoSuchPaddingException, InvalidKeyException,
-            BadPaddingException, IllegalBlockSizeException, IOException {
-        File file = new File(ocFile.getStoragePath());
-
-        return encryptFile(file, encryptionKeyBytes, iv);
-    }
-
-    /**
+     * Encrypts a file with AES/GCM. Data is streamed from source to target with a fixed size buffer, so memory usage
+     * does not depend on the file size; the authentication tag is computed on the fly and appended to the target.
+     *
      * @param file               file do crypt
+     * @param encryptedFile      target, receives encrypted content followed by the authentication tag
      * @param encryptionKeyBytes key, either from metadata or {@link EncryptionUtils#generateKey()}
      * @param iv                 initialization vector, either from metadata or {@link EncryptionUtils#randomBytes(int)}
-     * @return encryptedFile with encryptedBytes and authenticationTag
+     * @return base64 encoded authenticationTag
      */
-    public static EncryptedFile encryptFile(File file, byte[] encryptionKeyBytes, byte[] iv)
-            throws NoSuchAlgorithmException,
-            InvalidAlgorithmParameterException, NoSuchPaddingException, InvalidKeyException,
-            BadPaddingException, IllegalBlockSizeException, IOException {
-
-        Cipher cipher = Cipher.getInstance(AES_CIPHER);
-
-        Key key = new SecretKeySpec(encryptionKeyBytes, AES);
-
-        GCMParameterSpec spec = new GCMParameterSpec(128, iv);
-        cipher.init(Cipher.ENCRYPT_MODE, key, spec);
-
-        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
-        byte[] fileBytes = new byte[(int) randomAccessFile.length()];
-        randomAccessFile.readFully(fileBytes);
-
-        byte[] cryptedBytes = cipher.doFinal(fileBytes);
-        String authenticationTag = encodeBytesToBase64String(Arrays.copyOfRange(cryptedBytes,
-                cryptedBytes.length - (128 / 8), cryptedBytes.length));
+    public static String encryptFile(File file, File encryptedFile, byte[] encryptionKeyBytes, byte[] iv)
+            throws IOException {
+        AEADBlockCipher cipher = createAESCipher(true, encryptionKeyBytes, iv);
+
+        try (InputStream inputStream = new FileInputStream(file);
+             OutputStream outputStream = new CipherOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(encryptedFile), CRYPT_BUFFER_SIZE), cipher)) {
+            copy(inputStream, outputStream);
+        }
 
-        return new EncryptedFile(cryptedBytes, authenticationTag);
+        return encodeBytesToBase64String(cipher.getMac());
     }
 
     /**
-     * @param file               encrypted file
+     * Decrypts a file encrypted with {@link #encryptFile(File, File, byte[], byte[])}. Data is streamed with a fixed
+     * size buffer; the target is removed if the content cannot be authenticated.
+     *
+     * @param encryptedFile      encrypted file
+     * @param decryptedFile      target, receives decrypted content
      * @param encryptionKeyBytes key from metadata
      * @param iv                 initialization vector from metadata
      * @param authenticationTag  authenticationTag from metadata
-     * @return decrypted byte[]
      */
-    public static byte[] decryptFile(File file, byte[] encryptionKeyBytes, byte[] iv, byte[] authenticationTag)
-            throws NoSuchAlgorithmException,
-            InvalidAlgorithmParameterException, NoSuchPaddingException, InvalidKeyException,
-            BadPaddingException, IllegalBlockSizeException, IOException {
-
-
-        Cipher cipher = Cipher.getInstance(AES_CIPHER);
-        Key key = new SecretKeySpec(encryptionKeyBytes, AES);
-        GCMParameterSpec spec = new GCMParameterSpec(128, iv);
-        cipher.init(Cipher.DECRYPT_MODE, key, spec);
-
-        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
-        byte[] fileBytes = new byte[(int) randomAccessFile.length()];
-        randomAccessFile.readFully(fileBytes);
+    public static void decryptFile(File encryptedFile,
+                                   File decryptedFile,
+                                   byte[] encryptionKeyBytes,
+                                   byte[] iv,
+                                   byte[] authenticationTag)
+            throws IOException {
 
         // check authentication tag
-        byte[] extractedAuthenticationTag = Arrays.copyOfRange(fileBytes,
-                fileBytes.length - (128 / 8), fileBytes.length);
+        byte[] extractedAuthenticationTag = new byte[AUTHENTICATION_TAG_LENGTH / 8];
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(encryptedFile, "r")) {
+            if (randomAccessFile.length() < extractedAuthenticationTag.length) {
+                throw new SecurityException("Tag not correct");
+            }
+            randomAccessFile.seek(randomAccessFile.length() - extractedAuthenticationTag.length);
+            randomAccessFile.readFully(extractedAuthenticationTag);
+        }
 
         if (!Arrays.equals(extractedAuthenticationTag, authenticationTag)) {
             throw new SecurityException("Tag not correct");
         }
 
-        return cipher.doFinal(fileBytes);
+        AEADBlockCipher cipher = createAESCipher(false, encryptionKeyBytes, iv);
+
+        try (InputStream inputStream = new CipherInputStream(
+            new BufferedInputStream(new FileInputStream(encryptedFile), CRYPT_BUFFER_SIZE), cipher);
+             OutputStream outputStream = new FileOutputStream(decryptedFile)) {
+            copy(inputStream, outputStream);
+        } catch (IOException e) {
+            // also thrown if content does not match the authentication tag
+            if (decryptedFile.exists() && !decryptedFile.delete()) {
+                Log_OC.e(TAG, "Could not delete incomplete decrypted file " + decryptedFile.getAbsolutePath());
+            }
+            throw e;
+        }
     }
 
-    public static class EncryptedFile {
-        public byte[] encryptedBytes;
-        public String authenticationTag;
+    private static AEADBlockCipher createAESCipher(boolean forEncryption, byte[] encryptionKeyBytes, byte[] iv) {
+        AEADBlockCipher cipher = new GCMBlockCipher(new AESEngine());
+        cipher.init(forEncryption, new AEADParameters(new KeyParameter(encryptionKeyBytes),
+                                                      AUTHENTICATION_TAG_LENGTH,
+                                                      iv));
+        return cipher;
+    }
 
-        public EncryptedFile(byte[] encryptedBytes, String authenticationTag) {
-            this.encryptedBytes = encryptedBytes;
-            this.authenticationTag = authenticationTag;
+    private static void copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        byte[] buffer = new byte[CRYPT_BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
         }
     }
 
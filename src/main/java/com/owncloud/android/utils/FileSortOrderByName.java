@@ -21,14 +21,16 @@
 package com.owncloud.android.utils;
 
 import com.owncloud.android.datamodel.OCFile;
+import com.owncloud.android.lib.resources.files.model.ServerFileInterface;
 import com.owncloud.android.lib.resources.trashbin.model.TrashbinFile;
 
 import java.io.File;
+import java.text.Collator;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import third_parties.daveKoeller.AlphanumComparator;
 
 /**
@@ -45,20 +47,8 @@ public class FileSortOrderByName extends FileSortOrder {
      *
      * @param files files to sort
      */
-    @SuppressFBWarnings("Bx")
     public List<OCFile> sortCloudFiles(List<OCFile> files) {
-        final int multiplier = isAscending ? 1 : -1;
-
-        Collections.sort(files, (o1, o2) -> {
-            if (o1.isFolder() && o2.isFolder()) {
-                return multiplier * new AlphanumComparator().compare(o1, o2);
-            } else if (o1.isFolder()) {
-                return -1;
-            } else if (o2.isFolder()) {
-                return 1;
-            }
-            return multiplier * new AlphanumComparator().compare(o1, o2);
-        });
+        sortByName(files);
 
         return super.sortCloudFiles(files);
     }
@@ -68,23 +58,41 @@ public class FileSortOrderByName extends FileSortOrder {
      *
      * @param files files to sort
      */
-    @SuppressFBWarnings("Bx")
     @Override
     public List<TrashbinFile> sortTrashbinFiles(List<TrashbinFile> files) {
+        sortByName(files);
+
+        return super.sortTrashbinFiles(files);
+    }
+
+    /**
+     * Sorts folders first, then by natural order of the names. The names are split into chunks and collated once per
+     * file instead of on each comparison.
+     */
+    private <T extends ServerFileInterface> void sortByName(List<T> files) {
         final int multiplier = isAscending ? 1 : -1;
+        AlphanumComparator<T> comparator = new AlphanumComparator<>();
+        Collator collator = Collator.getInstance();
 
-        Collections.sort(files, (o1, o2) -> {
-            if (o1.isFolder() && o2.isFolder()) {
-                return multiplier * new AlphanumComparator().compare(o1, o2);
-            } else if (o1.isFolder()) {
+        List<SortEntry<T>> entries = new ArrayList<>(files.size());
+        for (T file : files) {
+            entries.add(new SortEntry<>(file, comparator.getSortKey(file.getFileName(), collator)));
+        }
+
+        Collections.sort(entries, (o1, o2) -> {
+            if (o1.file.isFolder() && o2.file.isFolder()) {
+                return multiplier * o1.key.compareTo(o2.key);
+            } else if (o1.file.isFolder()) {
                 return -1;
-            } else if (o2.isFolder()) {
+            } else if (o2.file.isFolder()) {
                 return 1;
             }
-            return multiplier * new AlphanumComparator().compare(o1, o2);
+            return multiplier * o1.key.compareTo(o2.key);
         });
 
-        return super.sortTrashbinFiles(files);
+        for (int i = 0; i < entries.size(); i++) {
+            files.set(i, entries.get(i).file);
+        }
     }
 
     /**
@@ -112,4 +120,14 @@ public class FileSortOrderByName extends FileSortOrder {
 
         return files;
     }
+
+    private static final class SortEntry<T> {
+        private final T file;
+        private final AlphanumComparator.SortKey key;
+
+        private SortEntry(T file, AlphanumComparator.SortKey key) {
+            this.file = file;
+            this.key = key;
+        }
+    }
 }
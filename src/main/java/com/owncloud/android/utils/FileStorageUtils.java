@@ -380,12 +380,26 @@ public final class FileStorageUtils {
         return ret;
     }
 
+    /**
+     * Moves a file, replacing the target file if it exists.
+     *
+     * On the same volume the file is just renamed. Across volumes it is copied next to the target file first and
+     * then renamed into place, so that the target file is never left half written.
+     */
     public static boolean moveFile(File sourceFile, File targetFile) {
-        if (copyFile(sourceFile, targetFile)) {
+        if (sourceFile.renameTo(targetFile)) {
+            return true;
+        }
+
+        File partFile = new File(targetFile.getAbsolutePath() + ".part");
+        if (copyFile(sourceFile, partFile) && partFile.renameTo(targetFile)) {
             return sourceFile.delete();
-        } else {
-            return false;
         }
+
+        if (partFile.exists() && !partFile.delete()) {
+            Log_OC.w(TAG, "Unable to delete " + partFile.getAbsolutePath());
+        }
+        return false;
     }
 
     public static boolean copyDirs(File sourceFolder, File targetFolder) {
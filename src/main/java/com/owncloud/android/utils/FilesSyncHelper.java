@@ -74,50 +74,68 @@ public final class FilesSyncHelper {
         // utility class -> private constructor
     }
 
-    private static void insertAllDBEntriesForSyncedFolder(SyncedFolder syncedFolder) {
+    private static void insertAllDBEntriesForSyncedFolder(SyncedFolder syncedFolder, boolean trustFileMetadata) {
         final Context context = MainApp.getAppContext();
         final ContentResolver contentResolver = context.getContentResolver();
 
         final long enabledTimestampMs = syncedFolder.getEnabledTimestampMs();
 
         if (syncedFolder.isEnabled() && (syncedFolder.isExisting() || enabledTimestampMs >= 0)) {
-            MediaFolderType mediaType = syncedFolder.getType();
-            if (mediaType == MediaFolderType.IMAGE) {
-                FilesSyncHelper.insertContentIntoDB(MediaStore.Images.Media.INTERNAL_CONTENT_URI
-                    , syncedFolder);
-                FilesSyncHelper.insertContentIntoDB(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                                                    syncedFolder);
-            } else if (mediaType == MediaFolderType.VIDEO) {
-                FilesSyncHelper.insertContentIntoDB(MediaStore.Video.Media.INTERNAL_CONTENT_URI,
-                                                    syncedFolder);
-                FilesSyncHelper.insertContentIntoDB(MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                                                    syncedFolder);
-            } else {
-                try {
-                    FilesystemDataProvider filesystemDataProvider = new FilesystemDataProvider(contentResolver);
-                    Path path = Paths.get(syncedFolder.getLocalPath());
-
-                    Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
-                        @Override
-                        public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
-                            File file = path.toFile();
-                            if (syncedFolder.isExisting() || attrs.lastModifiedTime().toMillis() >= enabledTimestampMs) {
-                                filesystemDataProvider.storeOrUpdateFileValue(path.toAbsolutePath().toString(),
-                                                                              attrs.lastModifiedTime().toMillis(),
-                                                                              file.isDirectory(), syncedFolder);
-                            }
-
-                            return FileVisitResult.CONTINUE;
-                        }
+            // one indexer for all media stores, so that files listed by several stores are indexed once
+            FilesystemDataProvider filesystemDataProvider = new FilesystemDataProvider(contentResolver,
+                                                                                       trustFileMetadata);
+            FilesystemDataProvider.BatchIndexer indexer = filesystemDataProvider.createBatchIndexer(syncedFolder);
+            try {
+                indexSyncedFolder(syncedFolder, indexer);
+            } finally {
+                // keep the files indexed so far, even if indexing failed
+                indexer.flush();
+            }
+        }
+    }
+
+    private static void indexSyncedFolder(SyncedFolder syncedFolder, FilesystemDataProvider.BatchIndexer indexer) {
+        final long enabledTimestampMs = syncedFolder.getEnabledTimestampMs();
 
-                        @Override
-                        public FileVisitResult visitFileFailed(Path file, IOException exc) {
-                            return FileVisitResult.CONTINUE;
+        MediaFolderType mediaType = syncedFolder.getType();
+        if (mediaType == MediaFolderType.IMAGE) {
+            FilesSyncHelper.insertContentIntoDB(MediaStore.Images.Media.INTERNAL_CONTENT_URI,
+                                                syncedFolder,
+                                                indexer);
+            FilesSyncHelper.insertContentIntoDB(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+                                                syncedFolder,
+                                                indexer);
+        } else if (mediaType == MediaFolderType.VIDEO) {
+            FilesSyncHelper.insertContentIntoDB(MediaStore.Video.Media.INTERNAL_CONTENT_URI,
+                                                syncedFolder,
+                                                indexer);
+            FilesSyncHelper.insertContentIntoDB(MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
+                                                syncedFolder,
+                                                indexer);
+        } else {
+            try {
+                Path path = Paths.get(syncedFolder.getLocalPath());
+
+                Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                        File file = path.toFile();
+                        if (syncedFolder.isExisting() || attrs.lastModifiedTime().toMillis() >= enabledTimestampMs) {
+                            indexer.storeOrUpdateFileValue(path.toAbsolutePath().toString(),
+                                                           attrs.lastModifiedTime().toMillis(),
+                                                           file.isDirectory());
                         }
-                    });
-                } catch (IOException e) {
-                    Log_OC.e(TAG, "Something went wrong while indexing files for auto upload", e);
-                }
+
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                Log_OC.e(TAG, "Something went wrong while indexing files for auto upload", e);
             }
         }
     }
@@ -131,21 +149,20 @@ public final class FilesSyncHelper {
 
         for (SyncedFolder syncedFolder : syncedFolderProvider.getSyncedFolders()) {
             if (syncedFolder.isEnabled() && (!skipCustom || syncedFolder.getType() != MediaFolderType.CUSTOM)) {
-                insertAllDBEntriesForSyncedFolder(syncedFolder);
+                insertAllDBEntriesForSyncedFolder(syncedFolder, preferences.isAutoUploadTrustingFileMetadata());
             }
         }
     }
 
-    private static void insertContentIntoDB(Uri uri, SyncedFolder syncedFolder) {
+    private static void insertContentIntoDB(Uri uri,
+                                            SyncedFolder syncedFolder,
+                                            FilesystemDataProvider.BatchIndexer indexer) {
         final Context context = MainApp.getAppContext();
-        final ContentResolver contentResolver = context.getContentResolver();
 
         Cursor cursor;
         int column_index_data;
         int column_index_date_modified;
 
-        final FilesystemDataProvider filesystemDataProvider = new FilesystemDataProvider(contentResolver);
-
         String contentPath;
         boolean isFolder;
 
@@ -169,9 +186,7 @@ public final class FilesSyncHelper {
                 contentPath = cursor.getString(column_index_data);
                 isFolder = new File(contentPath).isDirectory();
                 if (syncedFolder.isExisting() || cursor.getLong(column_index_date_modified) >= enabledTimestampMs / 1000.0) {
-                    filesystemDataProvider.storeOrUpdateFileValue(contentPath,
-                                                                  cursor.getLong(column_index_date_modified), isFolder,
-                                                                  syncedFolder);
+                    indexer.storeOrUpdateFileValue(contentPath, cursor.getLong(column_index_date_modified), isFolder);
                 }
             }
             cursor.close();
@@ -69,6 +69,26 @@ public final class StringUtils {
         }
     }
 
+    /**
+     * Builds a GLOB pattern matching every string that starts with the given prefix. In contrast to LIKE, GLOB is
+     * always case sensitive and does not depend on per connection pragmas.
+     *
+     * @param prefix literal prefix, may contain GLOB wildcards which get escaped
+     * @return pattern to be used as argument of a "column GLOB ?" selection
+     */
+    public static @NonNull
+    String globPrefix(@NonNull String prefix) {
+        StringBuilder pattern = new StringBuilder(prefix.length() + 1);
+        for (char c : prefix.toCharArray()) {
+            if (c == '*' || c == '?' || c == '[') {
+                pattern.append('[').append(c).append(']');
+            } else {
+                pattern.append(c);
+            }
+        }
+        return pattern.append('*').toString();
+    }
+
     public static
     @NonNull String removePrefix(@NonNull String s, @NonNull String prefix)
     {
@@ -29,8 +29,11 @@ import com.owncloud.android.lib.resources.files.model.ServerFileInterface;
 import java.io.File;
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.text.CollationKey;
 import java.text.Collator;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 
 /*
  * This is an updated version with enhancements made by Daniel Migowski, Andre Bogus, and David Koelle
@@ -49,11 +52,11 @@ import java.util.Comparator;
  * by Tobias Kaminsky
  */
 public class AlphanumComparator<T> implements Comparator<T>, Serializable {
-    private boolean isDigit(char ch) {
+    private static boolean isDigit(char ch) {
         return ch >= 48 && ch <= 57;
     }
 
-    private boolean isSpecialChar(char ch) {
+    private static boolean isSpecialChar(char ch) {
         return ch <= 47 || ch >= 58 && ch <= 64 || ch >= 91 && ch <= 96 || ch >= 123 && ch <= 126;
     }
 
@@ -194,4 +197,94 @@ public class AlphanumComparator<T> implements Comparator<T>, Serializable {
 
         return s1Length - s2Length;
     }
+
+    /**
+     * Splits a string into chunks once, for sorting many strings without splitting and collating them again on each
+     * comparison. Keys sort like {@link #compare(String, String)}.
+     *
+     * @param collator collator used for the text chunks, the same one for all keys compared with each other
+     */
+    public SortKey getSortKey(String string, Collator collator) {
+        int length = string.length();
+        int marker = 0;
+        List<Chunk> chunks = new ArrayList<>();
+
+        while (marker < length) {
+            String chunk = getChunk(string, length, marker);
+            marker += chunk.length();
+            chunks.add(new Chunk(chunk, collator));
+        }
+
+        return new SortKey(length, chunks.toArray(new Chunk[0]));
+    }
+
+    public static final class SortKey implements Comparable<SortKey> {
+        private final int length;
+        private final Chunk[] chunks;
+
+        private SortKey(int length, Chunk... chunks) {
+            this.length = length;
+            this.chunks = chunks;
+        }
+
+        @Override
+        public int compareTo(SortKey another) {
+            int count = Math.min(chunks.length, another.chunks.length);
+            for (int i = 0; i < count; i++) {
+                int result = chunks[i].compareTo(another.chunks[i]);
+                if (result != 0) {
+                    return result;
+                }
+            }
+
+            return length - another.length;
+        }
+    }
+
+    private static final class Chunk implements Comparable<Chunk> {
+        private final char first;
+        private final boolean digit;
+        private final boolean special;
+        private BigInteger value;
+        private int zeroCount;
+        private CollationKey collationKey;
+
+        private Chunk(String chunk, Collator collator) {
+            first = chunk.charAt(0);
+            digit = isDigit(first);
+            special = isSpecialChar(first);
+
+            if (digit) {
+                value = new BigInteger(chunk);
+                while (zeroCount < chunk.length() && chunk.charAt(zeroCount) == '0') {
+                    zeroCount++;
+                }
+            }
+            if (!special) {
+                collationKey = collator.getCollationKey(chunk);
+            }
+        }
+
+        @Override
+        public int compareTo(Chunk another) {
+            if (digit && another.digit) {
+                int result = value.compareTo(another.value);
+                // value is equal, compare leading zeros
+                return result != 0 ? result : Integer.compare(zeroCount, another.zeroCount);
+            } else if (special && another.special) {
+                // chunks of special characters are single characters
+                if (first == '.' && another.first != '.') {
+                    return -1;
+                } else if (another.first == '.' && first != '.') {
+                    return 1;
+                }
+                return first - another.first;
+            } else if (special) {
+                return -1;
+            } else if (another.special) {
+                return 1;
+            }
+            return collationKey.compareTo(another.collationKey);
+        }
+    }
 }
@@ -27,10 +27,13 @@ import android.os.Build
 import com.nextcloud.client.account.Server
 import com.nextcloud.client.account.User
 import com.nextcloud.client.account.UserAccountManager
+import com.nextcloud.client.core.Clock
 import com.nextcloud.client.logger.Logger
 import com.nextcloud.common.PlainClient
 import com.nextcloud.operations.GetMethod
 import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.anyOrNull
+import com.nhaarman.mockitokotlin2.argumentCaptor
 import com.nhaarman.mockitokotlin2.eq
 import com.nhaarman.mockitokotlin2.mock
 import com.nhaarman.mockitokotlin2.never
@@ -56,7 +59,8 @@ import java.net.URI
     ConnectivityServiceTest.Disconnected::class,
     ConnectivityServiceTest.IsConnected::class,
     ConnectivityServiceTest.WifiConnectionWalledStatusOnLegacyServer::class,
-    ConnectivityServiceTest.WifiConnectionWalledStatus::class
+    ConnectivityServiceTest.WifiConnectionWalledStatus::class,
+    ConnectivityServiceTest.WalledStatusCache::class
 )
 class ConnectivityServiceTest {
 
@@ -103,6 +107,9 @@ class ConnectivityServiceTest {
         @Mock
         lateinit var logger: Logger
 
+        @Mock
+        lateinit var clock: Clock
+
         val baseServerUri = URI.create(SERVER_BASE_URL)
         val newServer = Server(baseServerUri, OwnCloudVersion.nextcloud_20)
         val legacyServer = Server(baseServerUri, OwnCloudVersion.nextcloud_16)
@@ -120,6 +127,7 @@ class ConnectivityServiceTest {
                 accountManager,
                 clientFactory,
                 requestBuilder,
+                clock,
                 Build.VERSION_CODES.Q
             )
 
@@ -360,4 +368,47 @@ class ConnectivityServiceTest {
             verify(getRequest, times(1)).execute(client)
         }
     }
+
+    internal class WalledStatusCache : Base() {
+
+        @Before
+        fun setUp() {
+            whenever(networkInfo.isConnectedOrConnecting).thenReturn(true)
+            whenever(networkInfo.type).thenReturn(ConnectivityManager.TYPE_WIFI)
+            whenever(accountManager.getServerVersion(any())).thenReturn(OwnCloudVersion.nextcloud_20)
+            whenever(getRequest.execute(client)).thenReturn(HttpStatus.SC_NO_CONTENT)
+            whenever(getRequest.getResponseContentLength()).thenReturn(0L)
+            whenever(clock.currentTime).thenReturn(1000L)
+        }
+
+        @Test
+        fun `result is reused for the same network`() {
+            assertFalse(connectivityService.isInternetWalled)
+            assertFalse(connectivityService.isInternetWalled)
+            verify(getRequest, times(1)).execute(client)
+        }
+
+        @Test
+        fun `result expires`() {
+            assertFalse(connectivityService.isInternetWalled)
+            whenever(clock.currentTime).thenReturn(1000L + ConnectivityServiceImpl.WALLED_CHECK_VALIDITY_MS)
+            assertFalse(connectivityService.isInternetWalled)
+            verify(getRequest, times(2)).execute(client)
+        }
+
+        @Test
+        fun `result is dropped when network is lost`() {
+            val callbackCaptor = argumentCaptor<ConnectivityManager.NetworkCallback>()
+            verify(platformConnectivityManager).registerNetworkCallback(anyOrNull(), callbackCaptor.capture())
+            val listener: ConnectivityService.ConnectivityListener = mock()
+            connectivityService.addListener(listener)
+
+            assertFalse(connectivityService.isInternetWalled)
+            callbackCaptor.firstValue.onLost(network)
+            assertFalse(connectivityService.isInternetWalled)
+
+            verify(getRequest, times(2)).execute(client)
+            verify(listener).onConnectivityChanged(any())
+        }
+    }
 }
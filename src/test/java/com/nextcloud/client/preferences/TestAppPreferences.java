@@ -14,6 +14,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.inOrder;
@@ -24,7 +25,8 @@ import static org.mockito.Mockito.when;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
     TestAppPreferences.Preferences.class,
-    TestAppPreferences.ListenerRegistery.class
+    TestAppPreferences.ListenerRegistery.class,
+    TestAppPreferences.FolderPreferences.class
 })
 public class TestAppPreferences {
 
@@ -172,4 +174,50 @@ public class TestAppPreferences {
             assertEquals(10, appPreferences.computeBruteForceDelay(100));
         }
     }
+
+    public static class FolderPreferences {
+        private static final String ACCOUNT = "user@nextcloud.localhost";
+        private static final String PREFERENCE = "folder_sort_order";
+
+        @Before
+        public void setUp() {
+            FolderPreferenceCache.invalidate();
+        }
+
+        @Test
+        public void resolvedValueIsCached() {
+            long generation = FolderPreferenceCache.getGeneration();
+            FolderPreferenceCache.put(ACCOUNT, PREFERENCE, 42, "sort_new_to_old", generation);
+
+            assertEquals("sort_new_to_old", FolderPreferenceCache.get(ACCOUNT, PREFERENCE, 42));
+            assertNull(FolderPreferenceCache.get(ACCOUNT, PREFERENCE, 43));
+            assertNull(FolderPreferenceCache.get("other@nextcloud.localhost", PREFERENCE, 42));
+        }
+
+        @Test
+        public void invalidationDropsResolvedValues() {
+            FolderPreferenceCache.put(ACCOUNT, PREFERENCE, 42, "", FolderPreferenceCache.getGeneration());
+
+            FolderPreferenceCache.invalidate();
+
+            assertNull(FolderPreferenceCache.get(ACCOUNT, PREFERENCE, 42));
+        }
+
+        @Test
+        public void valueResolvedDuringInvalidationIsNotCached() {
+            // GIVEN
+            //      value is resolved
+            //      a folder preference is set meanwhile
+            long generation = FolderPreferenceCache.getGeneration();
+            FolderPreferenceCache.invalidate();
+
+            // WHEN
+            //      resolved value is stored
+            FolderPreferenceCache.put(ACCOUNT, PREFERENCE, 42, "sort_a_to_z", generation);
+
+            // THEN
+            //      outdated value is dropped
+            assertNull(FolderPreferenceCache.get(ACCOUNT, PREFERENCE, 42));
+        }
+    }
 }
@@ -0,0 +1,130 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.datamodel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ThumbnailGenerationExecutorTest {
+
+    private ThumbnailGenerationExecutor executor;
+    private final List<String> finished = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch workerBlocked = new CountDownLatch(1);
+    private final CountDownLatch releaseWorker = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws InterruptedException {
+        executor = new ThumbnailGenerationExecutor(1);
+
+        // occupy the only worker, so that following tasks are queued
+        executor.execute(() -> {
+            workerBlocked.countDown();
+            try {
+                releaseWorker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(workerBlocked.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private FutureTask<Void> task(String name) {
+        return new FutureTask<>(() -> finished.add(name), null);
+    }
+
+    private void awaitCompleted(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getCompletedCount() + executor.getDroppedCount() < count &&
+            System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void runsNewestTaskFirst() throws InterruptedException {
+        executor.execute(task("first"));
+        executor.execute(task("second"));
+        executor.execute(task("third"));
+        assertEquals(3, executor.getQueueDepth());
+
+        releaseWorker.countDown();
+        awaitCompleted(4);
+
+        assertEquals(Arrays.asList("third", "second", "first"), finished);
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    @Test
+    public void dropsTasksCancelledWhileQueued() throws InterruptedException {
+        FutureTask<Void> scrolledAway = task("scrolledAway");
+        executor.execute(scrolledAway);
+        executor.execute(task("visible"));
+        scrolledAway.cancel(false);
+
+        releaseWorker.countDown();
+        awaitCompleted(3);
+
+        assertEquals(Collections.singletonList("visible"), finished);
+        assertEquals(1, executor.getDroppedCount());
+        assertEquals(2, executor.getCompletedCount());
+    }
+
+    @Test
+    public void runsPrefetchesAfterOtherTasksInSubmissionOrder() throws InterruptedException {
+        executor.getPrefetchExecutor().execute(task("nextRow"));
+        executor.getPrefetchExecutor().execute(task("rowAfterNext"));
+        executor.execute(task("visible"));
+
+        releaseWorker.countDown();
+        awaitCompleted(4);
+
+        assertEquals(Arrays.asList("visible", "nextRow", "rowAfterNext"), finished);
+    }
+
+    @Test
+    public void recognizesOnlyItsOwnWorkerThreads() throws InterruptedException {
+        List<Boolean> onWorker = Collections.synchronizedList(new ArrayList<>());
+        executor.execute(() -> onWorker.add(ThumbnailGenerationExecutor.isWorkerThread()));
+
+        releaseWorker.countDown();
+        awaitCompleted(2);
+
+        assertEquals(Collections.singletonList(true), onWorker);
+        assertFalse(ThumbnailGenerationExecutor.isWorkerThread());
+    }
+}
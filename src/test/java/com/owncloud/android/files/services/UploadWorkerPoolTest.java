@@ -0,0 +1,181 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.files.services;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UploadWorkerPoolTest {
+
+    private static final String ALICE = "alice@cloud.example.com";
+    private static final String BOB = "bob@cloud.example.com";
+    private static final String CAROL = "carol@other.example.com";
+    private static final String CLOUD = "cloud.example.com";
+    private static final String OTHER = "other.example.com";
+
+    /**
+     * Executor running tasks only when the test finishes them, to observe which uploads run at the same time.
+     */
+    private final LinkedList<Runnable> runningTasks = new LinkedList<>();
+    private final Executor executor = runningTasks::add;
+    private final List<String> started = new ArrayList<>();
+    private int idleCalls;
+
+    private UploadWorkerPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new UploadWorkerPool(executor, 3, 2, 2);
+        pool.setIdleListener(() -> idleCalls++);
+    }
+
+    private void submit(String account, String server, String name) {
+        pool.submit(account, server, () -> started.add(name));
+    }
+
+    private void finishFirstRunning() {
+        runningTasks.removeFirst().run();
+    }
+
+    @Test
+    public void limitsUploadsPerAccount() {
+        submit(ALICE, CLOUD, "a1");
+        submit(ALICE, CLOUD, "a2");
+        submit(ALICE, CLOUD, "a3");
+
+        assertEquals(2, pool.getRunningCount());
+
+        finishFirstRunning();
+        assertEquals(2, pool.getRunningCount());
+        assertEquals(2, runningTasks.size());
+    }
+
+    @Test
+    public void limitsUploadsPerServer() {
+        submit(ALICE, CLOUD, "a1");
+        submit(BOB, CLOUD, "b1");
+        submit(BOB, CLOUD, "b2");
+
+        // both accounts share the server limit
+        assertEquals(2, pool.getRunningCount());
+    }
+
+    @Test
+    public void blockedUploadsDoNotDelayOtherAccounts() {
+        submit(ALICE, CLOUD, "a1");
+        submit(ALICE, CLOUD, "a2");
+        submit(ALICE, CLOUD, "a3");
+        submit(CAROL, OTHER, "c1");
+
+        assertEquals(3, pool.getRunningCount());
+
+        finishFirstRunning();
+        finishFirstRunning();
+        finishFirstRunning();
+        assertEquals("a1", started.get(0));
+        assertEquals("a2", started.get(1));
+        assertEquals("c1", started.get(2));
+    }
+
+    @Test
+    public void runsUploadsWithSameSerialKeyOneAfterAnother() {
+        pool.submit(ALICE, CLOUD, "/encrypted/", () -> started.add("a1"));
+        pool.submit(ALICE, CLOUD, "/encrypted/", () -> started.add("a2"));
+        pool.submit(ALICE, CLOUD, "/other/", () -> started.add("a3"));
+
+        // the waiting upload does not take the slot of the account
+        assertEquals(2, pool.getRunningCount());
+
+        finishFirstRunning();
+        finishFirstRunning();
+        assertEquals("a1", started.get(0));
+        assertEquals("a3", started.get(1));
+        assertEquals(1, runningTasks.size());
+
+        finishFirstRunning();
+        assertEquals("a2", started.get(2));
+        assertTrue(pool.isIdle());
+    }
+
+    @Test
+    public void limitsTotalUploads() {
+        submit(ALICE, CLOUD, "a1");
+        submit(ALICE, CLOUD, "a2");
+        submit(CAROL, OTHER, "c1");
+        submit(CAROL, OTHER, "c2");
+
+        assertEquals(3, pool.getRunningCount());
+    }
+
+    @Test
+    public void reportsIdleOnceAllUploadsFinished() {
+        submit(ALICE, CLOUD, "a1");
+        submit(ALICE, CLOUD, "a2");
+        submit(ALICE, CLOUD, "a3");
+        assertFalse(pool.isIdle());
+
+        while (!runningTasks.isEmpty()) {
+            finishFirstRunning();
+        }
+
+        assertEquals(3, started.size());
+        assertTrue(pool.isIdle());
+        assertEquals(1, idleCalls);
+    }
+
+    @Test
+    public void failingUploadReleasesItsSlot() {
+        pool.submit(ALICE, CLOUD, () -> {
+            throw new IllegalStateException("upload failed");
+        });
+
+        try {
+            finishFirstRunning();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertTrue(pool.isIdle());
+    }
+
+    @Test
+    public void shutdownDropsQueuedUploads() {
+        submit(ALICE, CLOUD, "a1");
+        submit(ALICE, CLOUD, "a2");
+        submit(ALICE, CLOUD, "a3");
+
+        pool.shutdown();
+        submit(ALICE, CLOUD, "a4");
+        while (!runningTasks.isEmpty()) {
+            finishFirstRunning();
+        }
+
+        assertEquals(2, started.size());
+    }
+}
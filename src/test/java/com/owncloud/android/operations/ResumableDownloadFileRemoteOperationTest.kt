@@ -0,0 +1,215 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2021 Nextcloud GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.operations
+
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.whenever
+import com.owncloud.android.lib.common.OwnCloudClient
+import org.apache.commons.httpclient.HttpClient
+import org.apache.commons.httpclient.HttpMethod
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.BufferedReader
+import java.io.File
+import java.io.InputStreamReader
+import java.net.InetAddress
+import java.net.ServerSocket
+import java.net.Socket
+import java.util.Collections
+import kotlin.random.Random
+
+class ResumableDownloadFileRemoteOperationTest {
+
+    companion object {
+        private const val REMOTE_PATH = "/folder/file.bin"
+        private const val FILE_SIZE = 100 * 1024
+        private const val DROP_AFTER = 30 * 1024
+    }
+
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private lateinit var server: FlakyServer
+    private lateinit var client: OwnCloudClient
+    private lateinit var tmpFolder: String
+
+    @Before
+    fun setUp() {
+        server = FlakyServer(Random(42).nextBytes(FILE_SIZE), "etag1")
+        tmpFolder = temporaryFolder.newFolder("tmp").absolutePath
+
+        val httpClient = HttpClient()
+        client = mock()
+        whenever(client.getFilesDavUri(any<String>())).thenAnswer { server.url + it.arguments[0] }
+        whenever(client.executeMethod(any<HttpMethod>())).thenAnswer {
+            httpClient.executeMethod(it.arguments[0] as HttpMethod)
+        }
+    }
+
+    @After
+    fun tearDown() {
+        server.close()
+    }
+
+    @Test
+    fun brokenDownloadIsResumed() {
+        server.dropAfter = DROP_AFTER
+
+        val first = ResumableDownloadFileRemoteOperation(REMOTE_PATH, tmpFolder, "etag1")
+        assertFalse(first.execute(client).isSuccess)
+
+        val partial = File(first.tmpPath)
+        assertTrue(partial.length() in 1..DROP_AFTER)
+        assertTrue(File(first.tmpPath + ResumableDownloadFileRemoteOperation.ETAG_SUFFIX).exists())
+
+        val second = ResumableDownloadFileRemoteOperation(REMOTE_PATH, tmpFolder, "etag1")
+        assertTrue(second.execute(client).isSuccess)
+
+        assertEquals("bytes=${partial.length()}-", server.lastRange)
+        assertEquals("\"etag1\"", server.lastIfRange)
+        assertArrayEquals(server.content, partial.readBytes())
+        assertEquals("etag1", second.etag)
+        assertFalse(File(second.tmpPath + ResumableDownloadFileRemoteOperation.ETAG_SUFFIX).exists())
+    }
+
+    @Test
+    fun changedFileIsDownloadedAgain() {
+        server.dropAfter = DROP_AFTER
+        assertFalse(ResumableDownloadFileRemoteOperation(REMOTE_PATH, tmpFolder, null).execute(client).isSuccess)
+
+        // file changed on the server, the If-Range header makes the server send the whole new file
+        server.content = Random(7).nextBytes(FILE_SIZE / 2)
+        server.etag = "etag2"
+
+        val operation = ResumableDownloadFileRemoteOperation(REMOTE_PATH, tmpFolder, null)
+        assertTrue(operation.execute(client).isSuccess)
+
+        assertEquals("\"etag1\"", server.lastIfRange)
+        assertArrayEquals(server.content, File(operation.tmpPath).readBytes())
+        assertEquals("etag2", operation.etag)
+    }
+
+    @Test
+    fun outdatedPartialDownloadIsNotResumed() {
+        server.dropAfter = DROP_AFTER
+        assertFalse(ResumableDownloadFileRemoteOperation(REMOTE_PATH, tmpFolder, "etag1").execute(client).isSuccess)
+
+        server.content = Random(7).nextBytes(FILE_SIZE)
+        server.etag = "etag2"
+
+        val operation = ResumableDownloadFileRemoteOperation(REMOTE_PATH, tmpFolder, "etag2")
+        assertTrue(operation.execute(client).isSuccess)
+
+        assertNull(server.lastRange)
+        assertArrayEquals(server.content, File(operation.tmpPath).readBytes())
+    }
+
+    /**
+     * Minimal HTTP server serving a single file, with support of Range and If-Range requests. It can break the
+     * connection in the middle of the next response.
+     */
+    private class FlakyServer(@Volatile var content: ByteArray, @Volatile var etag: String) : AutoCloseable {
+        private val serverSocket = ServerSocket(0, 0, InetAddress.getLoopbackAddress())
+        private val connections = Collections.synchronizedList(ArrayList<Socket>())
+        val url = "http://127.0.0.1:${serverSocket.localPort}"
+
+        @Volatile
+        var dropAfter = -1
+
+        @Volatile
+        var lastRange: String? = null
+
+        @Volatile
+        var lastIfRange: String? = null
+
+        init {
+            Thread {
+                while (!serverSocket.isClosed) {
+                    try {
+                        serverSocket.accept().use { handle(it) }
+                    } catch (e: Exception) {
+                        // connection closed
+                    }
+                }
+            }.apply { isDaemon = true }.start()
+        }
+
+        private fun handle(socket: Socket) {
+            connections.add(socket)
+            val reader = BufferedReader(InputStreamReader(socket.getInputStream(), Charsets.ISO_8859_1))
+            reader.readLine() ?: return
+
+            val headers = HashMap<String, String>()
+            var line = reader.readLine()
+            while (!line.isNullOrEmpty()) {
+                val separator = line.indexOf(':')
+                if (separator > 0) {
+                    headers[line.substring(0, separator).trim().lowercase()] = line.substring(separator + 1).trim()
+                }
+                line = reader.readLine()
+            }
+            lastRange = headers["range"]
+            lastIfRange = headers["if-range"]
+
+            val body = content
+            val quotedEtag = "\"$etag\""
+            val range = lastRange
+            val start = if (range != null && (lastIfRange == null || lastIfRange == quotedEtag)) {
+                range.removePrefix("bytes=").removeSuffix("-").toInt()
+            } else {
+                0
+            }
+
+            val header = StringBuilder()
+            if (start > 0) {
+                header.append("HTTP/1.1 206 Partial Content\r\n")
+                header.append("Content-Range: bytes $start-${body.size - 1}/${body.size}\r\n")
+            } else {
+                header.append("HTTP/1.1 200 OK\r\n")
+            }
+            header.append("Content-Length: ${body.size - start}\r\n")
+            header.append("ETag: $quotedEtag\r\n")
+            header.append("Last-Modified: Mon, 01 Mar 2021 10:00:00 GMT\r\n")
+            header.append("Connection: close\r\n\r\n")
+
+            val out = socket.getOutputStream()
+            out.write(header.toString().toByteArray(Charsets.ISO_8859_1))
+
+            val drop = dropAfter
+            dropAfter = -1
+            val end = if (drop in 0 until body.size - start) start + drop else body.size
+            out.write(body, start, end - start)
+            out.flush()
+        }
+
+        override fun close() {
+            serverSocket.close()
+            connections.forEach { it.close() }
+        }
+    }
+}
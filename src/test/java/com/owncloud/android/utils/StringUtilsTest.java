@@ -131,4 +131,11 @@ public class StringUtilsTest {
         assertEquals("returned text without prefix was incorrect",
                      expectedReturn, StringUtils.removePrefix(text, prefix));
     }
+
+    @Test
+    public void globPrefix() {
+        assertEquals("/folder/*", StringUtils.globPrefix("/folder/"));
+        assertEquals("/a[*]b[?]c[[]d]/*", StringUtils.globPrefix("/a*b?c[d]/"));
+        assertEquals("/100%_done/*", StringUtils.globPrefix("/100%_done/"));
+    }
 }